@@ -0,0 +1,131 @@
+package com.booker.config;
+
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the renditions {@code AvatarRenditionService} makes of every uploaded profile image.
+ */
+@Component
+@ConfigurationProperties(prefix = "avatars")
+public class AvatarProperties {
+
+    /**
+     * Edge lengths of the square renditions, in pixels.
+     */
+    private List<Integer> sizes = List.of(64, 256, 1024);
+
+    /**
+     * JPEG quality of the renditions, from 0 to 1.
+     */
+    private float jpegQuality = 0.85f;
+
+    /**
+     * Images processed at the same time; each holds one decoded image in memory.
+     */
+    private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Uploads waiting for a worker before new ones are turned away.
+     */
+    private int queueCapacity = 32;
+
+    /**
+     * How long an upload waits for its renditions, in milliseconds.
+     */
+    private long timeoutMs = 30000;
+
+    /**
+     * Largest source image accepted, in pixels, so a small file cannot expand into a huge bitmap.
+     */
+    private long maxSourcePixels = 50_000_000L;
+
+    /**
+     * Largest file a client may upload straight to MinIO, in bytes.
+     */
+    private long maxUploadBytes = 10L * 1024 * 1024;
+
+    /**
+     * Content types a client may upload straight to MinIO; all must be readable by ImageIO.
+     */
+    private List<String> uploadContentTypes = List.of("image/jpeg", "image/png", "image/gif", "image/bmp");
+
+    /**
+     * How long a presigned upload URL stays valid, in seconds.
+     */
+    private int uploadUrlExpirySeconds = 300;
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(List<Integer> sizes) {
+        this.sizes = sizes;
+    }
+
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    public void setJpegQuality(float jpegQuality) {
+        this.jpegQuality = jpegQuality;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public long getMaxSourcePixels() {
+        return maxSourcePixels;
+    }
+
+    public void setMaxSourcePixels(long maxSourcePixels) {
+        this.maxSourcePixels = maxSourcePixels;
+    }
+
+    public long getMaxUploadBytes() {
+        return maxUploadBytes;
+    }
+
+    public void setMaxUploadBytes(long maxUploadBytes) {
+        this.maxUploadBytes = maxUploadBytes;
+    }
+
+    public List<String> getUploadContentTypes() {
+        return uploadContentTypes;
+    }
+
+    public void setUploadContentTypes(List<String> uploadContentTypes) {
+        this.uploadContentTypes = uploadContentTypes;
+    }
+
+    public int getUploadUrlExpirySeconds() {
+        return uploadUrlExpirySeconds;
+    }
+
+    public void setUploadUrlExpirySeconds(int uploadUrlExpirySeconds) {
+        this.uploadUrlExpirySeconds = uploadUrlExpirySeconds;
+    }
+}
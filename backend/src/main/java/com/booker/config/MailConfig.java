@@ -4,7 +4,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.booker.services.PooledJavaMailSender;
 
 import java.util.Properties;
 
@@ -36,12 +37,14 @@ public class MailConfig {
     /**
      * Creates the mail sender bean with SMTP configuration.
      * Configures host, port, credentials, and SMTP properties for email delivery.
+     * SMTP connections are pooled and reused across sends, see {@link MailPoolProperties}.
      *
+     * @param poolProperties connection pool settings
      * @return configured JavaMailSender instance
      */
     @Bean
-    public JavaMailSender javaMailSender() {
-        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+    public JavaMailSender javaMailSender(MailPoolProperties poolProperties) {
+        PooledJavaMailSender mailSender = new PooledJavaMailSender(poolProperties);
         
         mailSender.setHost(host);
         mailSender.setPort(port);
@@ -0,0 +1,78 @@
+package com.booker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the pool of SMTP connections kept open by {@code PooledJavaMailSender}.
+ */
+@Component
+@ConfigurationProperties(prefix = "mail.pool")
+public class MailPoolProperties {
+
+    /**
+     * Maximum SMTP connections open at the same time; match it to the outbox workers.
+     */
+    private int size = 4;
+
+    /**
+     * How long a send waits for a free connection before failing, in milliseconds.
+     */
+    private long borrowTimeoutMs = 5000;
+
+    /**
+     * Idle connections older than this are closed instead of reused, in milliseconds.
+     * Keep it below the server's own idle timeout (RFC 5321 suggests at least 5 minutes).
+     */
+    private long maxIdleMs = 60000;
+
+    /**
+     * Connections idle for longer than this are checked with a NOOP before reuse, in milliseconds.
+     */
+    private long validateAfterMs = 5000;
+
+    /**
+     * Messages sent over one connection before it is replaced, since many servers cap a session.
+     */
+    private int maxMessagesPerConnection = 100;
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public long getBorrowTimeoutMs() {
+        return borrowTimeoutMs;
+    }
+
+    public void setBorrowTimeoutMs(long borrowTimeoutMs) {
+        this.borrowTimeoutMs = borrowTimeoutMs;
+    }
+
+    public long getMaxIdleMs() {
+        return maxIdleMs;
+    }
+
+    public void setMaxIdleMs(long maxIdleMs) {
+        this.maxIdleMs = maxIdleMs;
+    }
+
+    public long getValidateAfterMs() {
+        return validateAfterMs;
+    }
+
+    public void setValidateAfterMs(long validateAfterMs) {
+        this.validateAfterMs = validateAfterMs;
+    }
+
+    public int getMaxMessagesPerConnection() {
+        return maxMessagesPerConnection;
+    }
+
+    public void setMaxMessagesPerConnection(int maxMessagesPerConnection) {
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+    }
+}
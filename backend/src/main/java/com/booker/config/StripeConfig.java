@@ -1,16 +1,25 @@
 package com.booker.config;
 
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.booker.services.JdkStripeHttpClient;
 import com.stripe.Stripe;
-import com.stripe.net.ApiResource;
+import com.stripe.StripeClient;
+import com.stripe.net.HttpClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.StripeResponseGetterOptions;
 
-import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Configuration class for Stripe payment integration.
- * Sets up the API key and base URL for Stripe operations.
+ * Builds the {@link StripeClient} used for all Stripe operations, with its own API key, base URL,
+ * timeouts and pooled HTTP transport, instead of the SDK's global static settings.
  */
 @Configuration
 public class StripeConfig {
@@ -21,17 +30,98 @@ public class StripeConfig {
     @Value("${stripe.api-base-url}")
     private String apiBaseUrl;
 
+    @Bean
+    public StripeClient stripeClient(StripeResilienceProperties resilienceProperties, StripeHttpProperties httpProperties,
+            MeterRegistry meterRegistry) {
+        HttpClient transport = new JdkStripeHttpClient(httpProperties, resilienceProperties.getConnectTimeoutMs(), meterRegistry);
+        return createClient(apiKey, apiBaseUrl, transport, resilienceProperties, httpProperties.getMaxNetworkRetries());
+    }
+
+    /**
+     * Creates a client bound to the given transport. The base URL points at the real API in production
+     * and at stripe-mock in development.
+     *
+     * @param apiKey secret key sent with every request
+     * @param apiBase base URL for API calls
+     * @param transport HTTP transport performing the requests
+     * @param resilience source of the connect and read timeouts
+     * @param maxNetworkRetries retries the SDK makes on transient errors
+     * @return the configured client
+     */
+    public static StripeClient createClient(String apiKey, String apiBase, HttpClient transport,
+            StripeResilienceProperties resilience, int maxNetworkRetries) {
+        Options options = new Options(apiKey, apiBase, resilience.getConnectTimeoutMs(), resilience.getReadTimeoutMs(),
+                maxNetworkRetries);
+        return new StripeClient(new LiveStripeResponseGetter(options, transport));
+    }
+
     /**
-     * Initializes the Stripe configuration after the bean is constructed.
-     * Sets the API key and optionally overrides the API base URL for testing environments.
+     * Per client settings handed to the SDK; proxy and Connect settings are not used by this application.
      */
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = apiKey;
-        
-        // Imposta l'URL base per il mock server (in dev) o API reale (in prod)
-        if (!apiBaseUrl.equals("https://api.stripe.com")) {
-            Stripe.overrideApiBase(apiBaseUrl);
+    private static final class Options extends StripeResponseGetterOptions {
+
+        private final String apiKey;
+        private final String apiBase;
+        private final int connectTimeout;
+        private final int readTimeout;
+        private final int maxNetworkRetries;
+
+        private Options(String apiKey, String apiBase, int connectTimeout, int readTimeout, int maxNetworkRetries) {
+            this.apiKey = apiKey;
+            this.apiBase = apiBase;
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            this.maxNetworkRetries = maxNetworkRetries;
+        }
+
+        @Override
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        @Override
+        public String getClientId() {
+            return null;
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        @Override
+        public Proxy getConnectionProxy() {
+            return null;
+        }
+
+        @Override
+        public int getMaxNetworkRetries() {
+            return maxNetworkRetries;
+        }
+
+        @Override
+        public PasswordAuthentication getProxyCredential() {
+            return null;
+        }
+
+        @Override
+        public String getApiBase() {
+            return apiBase;
+        }
+
+        @Override
+        public String getFilesBase() {
+            return Stripe.UPLOAD_API_BASE;
+        }
+
+        @Override
+        public String getConnectBase() {
+            return Stripe.CONNECT_API_BASE;
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return readTimeout;
         }
     }
 }
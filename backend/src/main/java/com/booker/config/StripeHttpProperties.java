@@ -0,0 +1,68 @@
+package com.booker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transport settings for the HTTP client behind the Stripe SDK.
+ * Timeouts live in {@link StripeResilienceProperties} next to the breaker they feed.
+ */
+@Component
+@ConfigurationProperties(prefix = "stripe.http")
+public class StripeHttpProperties {
+
+    /**
+     * Negotiate HTTP/2 (ALPN on TLS), falling back to HTTP/1.1 when the server does not offer it.
+     */
+    private boolean http2 = true;
+
+    /**
+     * Retries the SDK makes on connection errors and 409/429/5xx answers before giving up.
+     * Kept at 0 by default so failures reach the circuit breaker untouched.
+     */
+    private int maxNetworkRetries = 0;
+
+    /**
+     * How long an idle pooled HTTP/1.1 connection is kept open, in seconds.
+     * Applied JVM wide through {@code jdk.httpclient.keepalive.timeout} unless already set.
+     */
+    private int keepAliveSeconds = 30;
+
+    /**
+     * Maximum idle HTTP/1.1 connections kept per pool, 0 for no limit.
+     * Applied JVM wide through {@code jdk.httpclient.connectionPoolSize} unless already set.
+     */
+    private int maxIdleConnections = 0;
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    public int getMaxNetworkRetries() {
+        return maxNetworkRetries;
+    }
+
+    public void setMaxNetworkRetries(int maxNetworkRetries) {
+        this.maxNetworkRetries = maxNetworkRetries;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(int keepAliveSeconds) {
+        this.keepAliveSeconds = keepAliveSeconds;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+}
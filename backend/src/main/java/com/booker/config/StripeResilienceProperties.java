@@ -0,0 +1,183 @@
+package com.booker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timeouts, circuit breaker and bulkhead settings for calls to Stripe.
+ */
+@Component
+@ConfigurationProperties(prefix = "stripe.resilience")
+public class StripeResilienceProperties {
+
+    /**
+     * Connect timeout for Stripe requests, in milliseconds.
+     */
+    private int connectTimeoutMs = 2000;
+
+    /**
+     * Read timeout for Stripe requests, in milliseconds.
+     */
+    private int readTimeoutMs = 10000;
+
+    /**
+     * Length of the rolling window over which failures are counted, in milliseconds.
+     */
+    private long windowMs = 60000;
+
+    /**
+     * Number of buckets the window is divided into.
+     */
+    private int windowBuckets = 12;
+
+    /**
+     * Calls needed in the window before the circuit can open.
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * Failure share, between 0 and 1, that opens the circuit.
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * Calls slower than this count as failures, in milliseconds.
+     */
+    private long slowCallThresholdMs = 5000;
+
+    /**
+     * How long the circuit stays open before trial calls, in milliseconds.
+     */
+    private long openMs = 30000;
+
+    /**
+     * Trial calls that must succeed to close the circuit.
+     */
+    private int halfOpenCalls = 3;
+
+    /**
+     * Maximum number of Stripe calls in progress across the application.
+     * Kept above {@code payments.max-concurrent-stripe-calls} plus the reconciliation concurrency,
+     * so the bulkhead only trips when callers pile up beyond their own limits.
+     */
+    private int maxConcurrentCalls = 100;
+
+    /**
+     * How long a call waits for a bulkhead slot before failing fast, in milliseconds.
+     */
+    private long maxWaitMs = 100;
+
+    /**
+     * How often parked payments are retried, in milliseconds.
+     */
+    private long retryIntervalMs = 5000;
+
+    /**
+     * Parked payments retried per run.
+     */
+    private int retryBatchSize = 50;
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    public void setReadTimeoutMs(int readTimeoutMs) {
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    public void setWindowMs(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    public int getWindowBuckets() {
+        return windowBuckets;
+    }
+
+    public void setWindowBuckets(int windowBuckets) {
+        this.windowBuckets = windowBuckets;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getSlowCallThresholdMs() {
+        return slowCallThresholdMs;
+    }
+
+    public void setSlowCallThresholdMs(long slowCallThresholdMs) {
+        this.slowCallThresholdMs = slowCallThresholdMs;
+    }
+
+    public long getOpenMs() {
+        return openMs;
+    }
+
+    public void setOpenMs(long openMs) {
+        this.openMs = openMs;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    public void setMaxWaitMs(long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public long getRetryIntervalMs() {
+        return retryIntervalMs;
+    }
+
+    public void setRetryIntervalMs(long retryIntervalMs) {
+        this.retryIntervalMs = retryIntervalMs;
+    }
+
+    public int getRetryBatchSize() {
+        return retryBatchSize;
+    }
+
+    public void setRetryBatchSize(int retryBatchSize) {
+        this.retryBatchSize = retryBatchSize;
+    }
+}
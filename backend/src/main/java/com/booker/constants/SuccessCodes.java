@@ -15,12 +15,15 @@ public class SuccessCodes {
 
     public static final String PROFILE_IMAGE_UPDATED = "PROFILE_IMAGE_UPDATED";
     public static final String PROFILE_IMAGE_DELETED = "PROFILE_IMAGE_DELETED";
+    public static final String PROFILE_IMAGE_UPLOAD_CREATED = "PROFILE_IMAGE_UPLOAD_CREATED";
 
     public static final String APPOINTMENT_BOOKED = "APPOINTMENT_BOOKED";
     public static final String APPOINTMENT_UPDATED = "APPOINTMENT_UPDATED";
     public static final String PAYMENT_PROCESSED = "PAYMENT_PROCESSED";
+    public static final String PAYMENT_PENDING = "PAYMENT_PENDING";
     public static final String PAYMENT_UPDATED = "PAYMENT_UPDATED";
     public static final String PAYMENT_DELETED = "PAYMENT_DELETED";
+    public static final String REFUND_QUEUED = "REFUND_QUEUED";
     public static final String REVIEW_SUBMITTED = "REVIEW_SUBMITTED";
     public static final String REVIEW_UPDATED = "REVIEW_UPDATED";
     public static final String REVIEW_DELETED = "REVIEW_DELETED";
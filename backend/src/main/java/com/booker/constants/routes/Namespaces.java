@@ -10,4 +10,5 @@ public class Namespaces {
     public static final String SERVICES = "/services";
     public static final String PAYMENTS = "/payments";
     public static final String REVIEWS = "/reviews";
+    public static final String MEDIA = "/media";
 }
@@ -5,8 +5,22 @@ public class Routes {
     public static final String BY_ID = "/{id}";
 
     public static final String PROFILE_IMAGE = "/profile-image";
+    public static final String PROFILE_IMAGE_UPLOAD_URL = "/profile-image/upload-url";
+    public static final String PROFILE_IMAGE_CONFIRM = "/profile-image/confirm";
 
     public static final String REGISTER = "/register";
     public static final String LOGIN = "/login";
     public static final String LOGOUT = "/logout";
+
+    public static final String STRIPE_WEBHOOK = "/webhooks/stripe";
+    public static final String REVENUE = "/revenue";
+    public static final String REFUNDS = "/{id}/refunds";
+
+    public static final String DIGEST = "/{id}/digest";
+
+    public static final String SEARCH = "/search";
+    public static final String TOP = "/top";
+
+    // The rest of the path, slashes included
+    public static final String MEDIA_OBJECT = "/{*object}";
 }
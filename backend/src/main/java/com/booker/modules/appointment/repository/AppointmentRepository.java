@@ -1,6 +1,7 @@
 package com.booker.modules.appointment.repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,6 +18,7 @@ public interface AppointmentRepository extends JpaRepository<Appointment, UUID>
     List<Appointment> findByStatus(String status);
     List<Appointment> findByStartTimeBetween(Instant start, Instant end);
     List<Appointment> findByProfessionalAndStartTimeBetween(UUID professional, Instant start, Instant end);
+    List<Appointment> findByProfessionalInAndStartTimeBetweenOrderByStartTimeAsc(Collection<UUID> professionals, Instant start, Instant end);
     List<Appointment> findByCustomerAndStartTimeBetween(UUID customer, Instant start, Instant end);
     List<Appointment> findByServiceAndStartTimeBetween(UUID service, Instant start, Instant end);
     List<Appointment> findByProfessionalAndStatus(UUID professional, String status);
@@ -1,12 +1,13 @@
 package com.booker.modules.appointment.service;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.time.Instant;
 
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.booker.constants.ErrorCodes;
 import com.booker.constants.SuccessCodes;
@@ -14,9 +15,9 @@ import com.booker.modules.appointment.dto.AppointmentDto;
 import com.booker.modules.appointment.dto.AppointmentUpsertRequest;
 import com.booker.modules.appointment.entity.Appointment;
 import com.booker.modules.appointment.repository.AppointmentRepository;
-import com.booker.modules.customer.repository.CustomerRepository;
-import com.booker.modules.customer.entity.Customer;
-import com.booker.services.EmailService;
+import com.booker.modules.enums.appointment.AppointmentStatus;
+import com.booker.modules.notification.service.NotificationAggregator;
+import com.booker.modules.log.service.LogContext;
 import com.booker.modules.log.service.LoggerService;
 import com.booker.utils.base.Response;
 
@@ -24,21 +25,22 @@ import com.booker.utils.base.Response;
  * Manages appointment scheduling and lifecycle operations.
  * 
  * This service handles all appointment-related operations including creating,
- * updating, and canceling appointments. It sends email notifications to customers
- * for appointment confirmations and cancellations.
+ * updating, and canceling appointments. Customers are notified of bookings, moves and
+ * cancellations through the {@link NotificationAggregator}, which collapses changes made
+ * in quick succession into a single email. The notification is buffered in the transaction
+ * of the change, so an appointment change and its notification commit or fail together:
+ * if the notification cannot be recorded, the change is rolled back and the call fails.
  */
 @Service
 public class AppointmentService {
 
     private final AppointmentRepository appointmentRepository;
-    private final CustomerRepository customerRepository;
-    private final EmailService emailService;
+    private final NotificationAggregator notificationAggregator;
     private final LoggerService loggerService;
 
-    public AppointmentService(AppointmentRepository appointmentRepository, CustomerRepository customerRepository, EmailService emailService, LoggerService loggerService) {
+    public AppointmentService(AppointmentRepository appointmentRepository, NotificationAggregator notificationAggregator, LoggerService loggerService) {
         this.appointmentRepository = appointmentRepository;
-        this.customerRepository = customerRepository;
-        this.emailService = emailService;
+        this.notificationAggregator = notificationAggregator;
         this.loggerService = loggerService;
     }
 
@@ -70,12 +72,13 @@ public class AppointmentService {
      * Creates a new appointment booking.
      * 
      * Schedules an appointment with the specified customer, professional, and service.
-     * Sends a confirmation email to the customer with the appointment details including
-     * the professional name, service, and scheduled time.
+     * The customer's confirmation is buffered and sent once the notification window
+     * closes, merged with any further change to their appointments.
      * 
      * @param req the appointment creation request containing time, customer, professional, and service details
      * @return a response containing the created appointment data
      */
+    @Transactional
     public Response<AppointmentDto> create(AppointmentUpsertRequest req) {
         Appointment appointment = new Appointment();
         appointment.setStartTime(req.startTime);
@@ -87,25 +90,11 @@ public class AppointmentService {
 
         Appointment saved = appointmentRepository.save(appointment);
         
-        loggerService.success("Appointment created: " + saved.getId(), "AppointmentService");
-        
-        // confirmation email
-        try {
-            Customer customer = customerRepository.findById(saved.getCustomer()).orElse(null);
-            if (customer != null && customer.getEmail() != null) {
-                LocalDateTime startDateTime = LocalDateTime.ofInstant(saved.getStartTime(), ZoneId.systemDefault());
-                emailService.sendAppointmentConfirmation(
-                    customer.getEmail(),
-                    customer.getFirstName() + " " + customer.getLastName(),
-                    "Professionista",
-                    "Servizio",
-                    startDateTime
-                );
-            }
-        } catch (Exception e) {
-            loggerService.error("Failed to send appointment confirmation email: " + e.getMessage(), "AppointmentService");
-        }
+        loggerService.success("Appointment created: {}", "AppointmentService",
+                LogContext.of("appointmentId", saved.getId(), "customerId", saved.getCustomer()), saved.getId());
         
+        notificationAggregator.booked(saved);
+
         return new Response<>(true, toDto(saved), SuccessCodes.APPOINTMENT_BOOKED);
     }
 
@@ -113,17 +102,21 @@ public class AppointmentService {
      * Updates an existing appointment.
      * 
      * Allows modification of appointment time, status, and associated customer,
-     * professional, or service. No email notification is sent for updates.
+     * professional, or service. The customer is notified when the appointment is moved
+     * or its status changes to cancelled.
      * 
      * @param id the unique identifier of the appointment to update
      * @param req the update request containing the new appointment data
      * @return a response containing the updated appointment data or an error if not found
      */
+    @Transactional
     public Response<AppointmentDto> update(@NonNull UUID id, AppointmentUpsertRequest req) {
         Appointment appointment = appointmentRepository.findById(id).orElse(null);
         if (appointment == null) {
             return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
         }
+        Instant previousStartTime = appointment.getStartTime();
+        boolean wasCancelled = isCancelled(appointment.getStatus());
 
         appointment.setStartTime(req.startTime);
         appointment.setEndTime(req.endTime);
@@ -133,44 +126,42 @@ public class AppointmentService {
         appointment.setService(req.service);
 
         Appointment saved = appointmentRepository.save(appointment);
+
+        if (!wasCancelled && isCancelled(saved.getStatus())) {
+            notificationAggregator.cancelled(saved);
+        } else if (!Objects.equals(previousStartTime, saved.getStartTime())) {
+            notificationAggregator.rescheduled(saved);
+        }
+
         return new Response<>(true, toDto(saved), SuccessCodes.APPOINTMENT_UPDATED);
     }
 
     /**
      * Cancels and deletes an appointment.
      * 
-     * Sends a cancellation email to the customer with the appointment details
-     * before permanently removing the appointment from the database.
+     * Notifies the customer of the cancellation, unless the booking was never
+     * announced, before permanently removing the appointment from the database.
      * 
      * @param id the unique identifier of the appointment to delete
      * @return a response indicating success or an error if the appointment is not found
      */
+    @Transactional
     public Response<Void> delete(@NonNull UUID id) {
         Appointment appointment = appointmentRepository.findById(id).orElse(null);
         if (appointment == null) {
             return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
         }
         
-        try {
-            Customer customer = customerRepository.findById(appointment.getCustomer()).orElse(null);
-            if (customer != null && customer.getEmail() != null) {
-                LocalDateTime startDateTime = LocalDateTime.ofInstant(appointment.getStartTime(), ZoneId.systemDefault());
-                emailService.sendAppointmentCancellation(
-                    customer.getEmail(),
-                    customer.getFirstName() + " " + customer.getLastName(),
-                    "Servizio",
-                    startDateTime
-                );
-            }
-        } catch (Exception e) {
-            loggerService.error("Failed to send appointment cancellation email: " + e.getMessage(), "AppointmentService");
-        }
-        
+        notificationAggregator.cancelled(appointment);
         appointmentRepository.deleteById(id);
-        loggerService.success("Appointment cancelled: " + id, "AppointmentService");
+        loggerService.success("Appointment cancelled: {}", "AppointmentService", LogContext.of("appointmentId", id), id);
         return new Response<>(true, null, SuccessCodes.APPOINTMENT_CANCELLED);
     }
 
+    private static boolean isCancelled(String status) {
+        return AppointmentStatus.CANCELLED.name().equalsIgnoreCase(status);
+    }
+
     private static AppointmentDto toDto(Appointment a) {
         return new AppointmentDto(
                 a.getId(),
@@ -2,6 +2,7 @@ package com.booker.modules.auth.dto.register;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 public class RegisterRequest {
@@ -21,4 +22,9 @@ public class RegisterRequest {
     @NotBlank
     @Size(max = 80)
     public String lastName;
+
+    // Language tag emails are written in, e.g. "en" or "it-IT"; optional
+    @Size(max = 35)
+    @Pattern(regexp = "[a-zA-Z]{2,3}(-[a-zA-Z0-9]{2,8})*")
+    public String locale;
 }
\ No newline at end of file
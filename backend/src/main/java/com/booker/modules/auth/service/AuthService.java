@@ -14,10 +14,12 @@ import com.booker.security.jwt.JwtProperties;
 import com.booker.modules.user.entity.User;
 import com.booker.modules.user.repository.UserRepository;
 import com.booker.services.EmailService;
+import com.booker.modules.log.service.LogContext;
 import com.booker.modules.log.service.LoggerService;
 import com.booker.security.service.TokenBlacklistService;
 
 import java.time.Instant;
+import java.util.Locale;
 import java.util.Optional;
 
 import org.springframework.security.core.Authentication;
@@ -28,6 +30,7 @@ import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Handles user authentication and registration operations.
@@ -75,6 +78,7 @@ public class AuthService {
      * @param req the registration request containing email, password, and user details
      * @return a response containing the newly created user data or an error code if registration fails
      */
+    @Transactional
     public Response<RegisterResponse> register(RegisterRequest req) {
         if (userRepository.existsByEmail(req.email.toLowerCase().trim())) {
             return new Response<>(false, null, ErrorCodes.EMAIL_ALREADY_EXISTS);
@@ -93,16 +97,21 @@ public class AuthService {
             u.setFirstName(req.firstName.trim());
             u.setLastName(req.lastName.trim());
             u.setRole(userRole.get().getId());
+            if (req.locale != null) {
+                u.setLocale(Locale.forLanguageTag(req.locale));
+            }
 
             User saved = userRepository.save(u);
 
-            loggerService.success("User registered successfully: " + saved.getEmail(), "AuthService");
+            loggerService.success("User registered successfully: {}", "AuthService",
+                    LogContext.of("userId", saved.getId()), saved.getEmail());
 
             try {
-                emailService.sendRegistrationConfirmation(saved.getEmail(), saved.getFirstName());
+                emailService.sendRegistrationConfirmation(saved.getEmail(), saved.getLocale(), saved.getFirstName());
             } catch (Exception emailEx) {
                 // Log email sending failure but do not fail the registration
-                loggerService.error("Failed to send registration email to " + saved.getEmail() + ": " + emailEx.getMessage(), "AuthService");
+                loggerService.error("Failed to send registration email to {}: {}", "AuthService",
+                        LogContext.of("userId", saved.getId()), saved.getEmail(), emailEx.getMessage());
             }
 
             RegisterResponse responseDto = new RegisterResponse(
@@ -162,7 +171,7 @@ public class AuthService {
             JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
             String token = jwtEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
 
-            loggerService.success("User logged in: " + user.getEmail(), "AuthService");
+            loggerService.success("User logged in: {}", "AuthService", LogContext.of("userId", user.getId()), user.getEmail());
 
             LoginResponse responseDto = new LoginResponse(token);
             return new Response<>(true, responseDto, SuccessCodes.USER_LOGGED_IN);
@@ -0,0 +1,103 @@
+package com.booker.modules.email.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the email outbox dispatcher.
+ */
+@Component
+@ConfigurationProperties(prefix = "mail.outbox")
+public class EmailOutboxProperties {
+
+    /**
+     * Worker threads talking to the SMTP server.
+     */
+    private int workers = 4;
+
+    /**
+     * Rows claimed per round trip.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Attempts before an email is marked failed.
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * Delay before the first retry, doubled on each further attempt, in seconds.
+     */
+    private long baseDelaySeconds = 10;
+
+    /**
+     * Upper bound for the retry delay, in seconds.
+     */
+    private long maxDelaySeconds = 3600;
+
+    /**
+     * How long a claimed row stays with its dispatcher before another one may take it over, in seconds.
+     */
+    private long leaseSeconds = 300;
+
+    /**
+     * Days sent rows are kept before the nightly purge.
+     */
+    private int retentionDays = 7;
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseDelaySeconds() {
+        return baseDelaySeconds;
+    }
+
+    public void setBaseDelaySeconds(long baseDelaySeconds) {
+        this.baseDelaySeconds = baseDelaySeconds;
+    }
+
+    public long getMaxDelaySeconds() {
+        return maxDelaySeconds;
+    }
+
+    public void setMaxDelaySeconds(long maxDelaySeconds) {
+        this.maxDelaySeconds = maxDelaySeconds;
+    }
+
+    public long getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public void setLeaseSeconds(long leaseSeconds) {
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    public void setRetentionDays(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+}
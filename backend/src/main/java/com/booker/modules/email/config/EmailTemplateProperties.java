@@ -0,0 +1,40 @@
+package com.booker.modules.email.config;
+
+import java.util.Locale;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the email templates loaded by {@code EmailTemplates}.
+ */
+@Component
+@ConfigurationProperties(prefix = "mail.templates")
+public class EmailTemplateProperties {
+
+    /**
+     * Where the templates live, one directory per locale (e.g. {@code it/}, {@code en/}).
+     */
+    private String location = "classpath*:templates/email/";
+
+    /**
+     * Locale used when none is given, and the fallback for locales without a variant of a template.
+     */
+    private Locale defaultLocale = Locale.ITALIAN;
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public Locale getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    public void setDefaultLocale(Locale defaultLocale) {
+        this.defaultLocale = defaultLocale;
+    }
+}
@@ -0,0 +1,150 @@
+package com.booker.modules.email.entity;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+
+/**
+ * An email waiting to be sent, written in the same transaction as the change that caused it.
+ *
+ * Rows start {@code pending}, are claimed as {@code sending} by {@code EmailOutboxDispatcher}, and end
+ * as {@code sent} or, after too many attempts, {@code failed}. A claim holds a lease until
+ * {@code lockedUntil}, after which a row left behind by a crashed dispatcher is claimed again.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = @Index(name = "idx_email_outbox_status_next_attempt_at", columnList = "status, next_attempt_at"))
+public class EmailOutbox {
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_SENDING = "sending";
+    public static final String STATUS_SENT = "sent";
+    public static final String STATUS_FAILED = "failed";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    @Column(name = "html_body", columnDefinition = "TEXT")
+    private String htmlBody;
+
+    // Locale the email was rendered for, as a language tag; null for the default locale
+    @Column(length = 35)
+    private String locale;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    public EmailOutbox() {
+    }
+
+    public EmailOutbox(String recipient, String subject, String body) {
+        this(recipient, subject, body, null);
+    }
+
+    /**
+     * @param htmlBody HTML alternative sent next to the plain text body, or {@code null} for text only
+     */
+    public EmailOutbox(String recipient, String subject, String body, String htmlBody) {
+        this(recipient, subject, body, htmlBody, null);
+    }
+
+    /**
+     * @param htmlBody HTML alternative sent next to the plain text body, or {@code null} for text only
+     * @param locale   locale the email was rendered for, or {@code null} for the default locale
+     */
+    public EmailOutbox(String recipient, String subject, String body, String htmlBody, Locale locale) {
+        this.locale = locale != null ? locale.toLanguageTag() : null;
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+        this.htmlBody = htmlBody;
+        this.status = STATUS_PENDING;
+        this.nextAttemptAt = Instant.now();
+    }
+
+    @PrePersist
+    void onCreate() {
+        this.createdAt = Instant.now();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getHtmlBody() {
+        return htmlBody;
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public Instant getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+}
@@ -0,0 +1,10 @@
+package com.booker.modules.email.repository;
+
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.booker.modules.email.entity.EmailOutbox;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, UUID> {
+}
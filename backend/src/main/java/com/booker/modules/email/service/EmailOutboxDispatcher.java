@@ -0,0 +1,294 @@
+package com.booker.modules.email.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.booker.modules.email.config.EmailOutboxProperties;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Sends the emails queued in {@code email_outbox}.
+ *
+ * Rows are claimed in batches with {@code FOR UPDATE SKIP LOCKED}, so several instances can dispatch
+ * from the same table without sending an email twice. Each batch is split across a fixed pool of
+ * workers and every worker sends its share as one {@code send(MimeMessage...)} call, which the
+ * pooled {@code JavaMailSender} pushes through a single reused SMTP connection. Delivered rows are
+ * marked sent with one JDBC batch; failed ones are retried with exponential backoff until
+ * {@code mail.outbox.max-attempts}, then marked failed. Queue depth, failed rows and the age of the
+ * oldest waiting email are published as gauges.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    // Rows whose dispatcher died keep status sending; they become claimable again once the lease expires
+    private static final String CLAIM_SQL =
+            "UPDATE email_outbox SET status = 'sending', attempts = attempts + 1, "
+                    + "locked_until = now() + make_interval(secs => ?) "
+                    + "WHERE id IN (SELECT id FROM email_outbox "
+                    + "WHERE (status = 'pending' AND next_attempt_at <= now()) OR (status = 'sending' AND locked_until < now()) "
+                    + "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+                    + "RETURNING id, recipient, subject, body, html_body, attempts";
+
+    private static final String MARK_SENT_SQL =
+            "UPDATE email_outbox SET status = 'sent', sent_at = now(), locked_until = NULL, last_error = NULL "
+                    + "WHERE id = ? AND status = 'sending'";
+
+    private static final String RESCHEDULE_SQL =
+            "UPDATE email_outbox SET status = 'pending', next_attempt_at = ?, last_error = ?, locked_until = NULL "
+                    + "WHERE id = ? AND status = 'sending'";
+
+    private static final String FAIL_SQL =
+            "UPDATE email_outbox SET status = 'failed', last_error = ?, locked_until = NULL WHERE id = ? AND status = 'sending'";
+
+    private static final String DEPTH_SQL =
+            "SELECT COUNT(*) FILTER (WHERE status IN ('pending', 'sending')), COUNT(*) FILTER (WHERE status = 'failed'), "
+                    + "COALESCE(EXTRACT(EPOCH FROM now() - MIN(created_at) FILTER (WHERE status IN ('pending', 'sending'))), 0) "
+                    + "FROM email_outbox WHERE status <> 'sent'";
+
+    private static final String PURGE_SQL = "DELETE FROM email_outbox WHERE status = 'sent' AND sent_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JavaMailSender mailSender;
+    private final LoggerService loggerService;
+    private final EmailOutboxProperties properties;
+    private final String fromEmail;
+    private final ExecutorService workers;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong oldestAgeSeconds = new AtomicLong();
+
+    public EmailOutboxDispatcher(JdbcTemplate jdbcTemplate, JavaMailSender mailSender, LoggerService loggerService,
+            EmailOutboxProperties properties, MeterRegistry meterRegistry, @Value("${mail.from}") String fromEmail) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mailSender = mailSender;
+        this.loggerService = loggerService;
+        this.properties = properties;
+        this.fromEmail = fromEmail;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, properties.getWorkers()),
+                Thread.ofPlatform().name("email-outbox-", 0).daemon().factory());
+        this.sentCounter = meterRegistry.counter("email.outbox.sent");
+        this.retriedCounter = meterRegistry.counter("email.outbox.retried");
+        this.failedCounter = meterRegistry.counter("email.outbox.failed");
+        meterRegistry.gauge("email.outbox.pending", pending);
+        meterRegistry.gauge("email.outbox.dead", failed);
+        meterRegistry.gauge("email.outbox.oldest.age.seconds", oldestAgeSeconds);
+    }
+
+    /**
+     * Sends due emails batch by batch until no full batch is left.
+     *
+     * @return number of emails delivered
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:500}")
+    public int dispatch() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        int delivered = 0;
+        while (true) {
+            List<Claim> claims = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new Claim(
+                    rs.getObject(1, UUID.class), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getInt(6)),
+                    properties.getLeaseSeconds(), batchSize);
+            if (claims.isEmpty()) {
+                return delivered;
+            }
+            delivered += sendAll(claims);
+            if (claims.size() < batchSize) {
+                return delivered;
+            }
+        }
+    }
+
+    /**
+     * Reads queue depth for the gauges; a COUNT on every poll would cost more than the sends themselves.
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.metrics-interval-ms:15000}")
+    public void refreshDepth() {
+        jdbcTemplate.query(DEPTH_SQL, rs -> {
+            pending.set(rs.getLong(1));
+            failed.set(rs.getLong(2));
+            oldestAgeSeconds.set(rs.getLong(3));
+        });
+    }
+
+    /**
+     * Deletes sent rows older than {@code mail.outbox.retention-days}.
+     *
+     * @return number of rows removed
+     */
+    @Scheduled(cron = "${mail.outbox.purge-cron:0 15 3 * * *}")
+    public int purge() {
+        Instant cutoff = Instant.now().minus(Math.max(1, properties.getRetentionDays()), ChronoUnit.DAYS);
+        return jdbcTemplate.update(PURGE_SQL, Timestamp.from(cutoff));
+    }
+
+    private int sendAll(List<Claim> claims) {
+        // One chunk per worker, each sent as a single batch over one pooled SMTP connection
+        int chunks = Math.min(Math.max(1, properties.getWorkers()), claims.size());
+        int chunkSize = (claims.size() + chunks - 1) / chunks;
+        List<Future<Map<UUID, Exception>>> results = new ArrayList<>(chunks);
+        for (int from = 0; from < claims.size(); from += chunkSize) {
+            List<Claim> chunk = claims.subList(from, Math.min(from + chunkSize, claims.size()));
+            results.add(workers.submit(() -> send(chunk)));
+        }
+
+        Map<UUID, Exception> errors = new HashMap<>();
+        for (Future<Map<UUID, Exception>> result : results) {
+            try {
+                errors.putAll(result.get());
+            } catch (ExecutionException e) {
+                // send() reports every failure in its result, nothing should get here
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                // Unrecorded rows go back to the queue when their lease expires
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+
+        List<Object[]> sent = new ArrayList<>(claims.size());
+        for (Claim claim : claims) {
+            Exception error = errors.get(claim.id());
+            if (error == null) {
+                sent.add(new Object[] {claim.id()});
+            } else {
+                onFailure(claim, error);
+            }
+        }
+        if (!sent.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_SENT_SQL, sent);
+            sentCounter.increment(sent.size());
+        }
+        return sent.size();
+    }
+
+    /**
+     * Sends a chunk as one batch.
+     *
+     * @return the failed emails by id, empty if all went out
+     */
+    private Map<UUID, Exception> send(List<Claim> chunk) {
+        Map<UUID, Exception> errors = new HashMap<>();
+        // Identity, not equality: two identical emails must still be told apart
+        Map<Object, Claim> byMessage = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(chunk.size());
+        for (Claim claim : chunk) {
+            try {
+                MimeMessage message = toMessage(claim);
+                messages.add(message);
+                byMessage.put(message, claim);
+            } catch (MessagingException e) {
+                // A malformed email fails alone, the rest of the chunk still goes out
+                errors.put(claim.id(), new MailPreparationException("Could not prepare email: " + e.getMessage(), e));
+            }
+        }
+        if (messages.isEmpty()) {
+            return errors;
+        }
+        try {
+            mailSender.send(messages.toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                byMessage.values().forEach(claim -> errors.put(claim.id(), e));
+                return errors;
+            }
+            failed.forEach((message, cause) -> {
+                Claim claim = byMessage.get(message);
+                if (claim != null) {
+                    errors.put(claim.id(), cause);
+                }
+            });
+        } catch (RuntimeException e) {
+            byMessage.values().forEach(claim -> errors.put(claim.id(), e));
+        }
+        return errors;
+    }
+
+    private MimeMessage toMessage(Claim claim) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        // Emails rendered from a template carry both bodies and go out as multipart/alternative
+        boolean html = claim.htmlBody() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(message, html, StandardCharsets.UTF_8.name());
+        helper.setFrom(fromEmail);
+        helper.setTo(claim.recipient());
+        helper.setSubject(claim.subject());
+        if (html) {
+            helper.setText(claim.body(), claim.htmlBody());
+        } else {
+            helper.setText(claim.body());
+        }
+        return message;
+    }
+
+    private void onFailure(Claim claim, Exception error) {
+        // A message that cannot even be built, or a recipient the server rejects, will never go out
+        boolean permanent = error instanceof MailParseException || error instanceof MailPreparationException
+                || (error instanceof SendFailedException sendFailed && sendFailed.getInvalidAddresses() != null
+                        && sendFailed.getInvalidAddresses().length > 0);
+        if (permanent || claim.attempts() >= properties.getMaxAttempts()) {
+            jdbcTemplate.update(FAIL_SQL, truncate(error.getMessage()), claim.id());
+            failedCounter.increment();
+            loggerService.error("Email {} to {} failed after {} attempts: {}", "EmailOutboxDispatcher",
+                    LogContext.of("emailId", claim.id()), claim.id(), claim.recipient(), claim.attempts(), error.getMessage());
+            return;
+        }
+        long delay = Math.min(properties.getMaxDelaySeconds(),
+                properties.getBaseDelaySeconds() << Math.min(claim.attempts() - 1, 16));
+        jdbcTemplate.update(RESCHEDULE_SQL, Timestamp.from(Instant.now().plusSeconds(delay)), truncate(error.getMessage()),
+                claim.id());
+        retriedCounter.increment();
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    /**
+     * Lets the running batch finish on shutdown; unrecorded rows are picked up again after their lease.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A row claimed by this dispatcher; {@code attempts} already counts the current attempt.
+     */
+    record Claim(UUID id, String recipient, String subject, String body, String htmlBody, int attempts) {
+    }
+}
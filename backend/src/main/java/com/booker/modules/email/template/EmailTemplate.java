@@ -0,0 +1,136 @@
+package com.booker.modules.email.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template body parsed once into alternating literal and {@code {{variable}}} segments.
+ *
+ * Rendering is a single pass over the segments into a per-thread builder that is reused across
+ * calls, so the only allocation left is the resulting string. HTML templates escape the values they
+ * insert; plain text ones insert them as they are. A template without variables renders to its
+ * single literal without touching the builder.
+ */
+public final class EmailTemplate {
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    // Builders that grew past this are dropped rather than kept alive per thread
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private final String name;
+    private final String[] literals;
+    private final String[] variables;
+    private final boolean html;
+    private final int sizeHint;
+
+    private EmailTemplate(String name, String[] literals, String[] variables, boolean html) {
+        this.name = name;
+        this.literals = literals;
+        this.variables = variables;
+        this.html = html;
+        int size = 0;
+        for (String literal : literals) {
+            size += literal.length();
+        }
+        this.sizeHint = size + variables.length * 16;
+    }
+
+    /**
+     * Parses a template body.
+     *
+     * @param name   template name, used in error messages
+     * @param source the body with {@code {{variable}}} placeholders
+     * @param html   whether inserted values must be HTML escaped
+     * @return the compiled template
+     * @throws IllegalArgumentException if a placeholder is not closed or empty
+     */
+    public static EmailTemplate compile(String name, String source, boolean html) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int position = 0;
+        int open;
+        while ((open = source.indexOf("{{", position)) >= 0) {
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in email template " + name + " at " + open);
+            }
+            String variable = source.substring(open + 2, close).trim();
+            if (variable.isEmpty()) {
+                throw new IllegalArgumentException("Empty placeholder in email template " + name + " at " + open);
+            }
+            literals.add(source.substring(position, open));
+            variables.add(variable);
+            position = close + 2;
+        }
+        literals.add(source.substring(position));
+        return new EmailTemplate(name, literals.toArray(String[]::new), variables.toArray(String[]::new), html);
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param values variable values; a missing variable renders as an empty string
+     * @return the rendered body
+     */
+    public String render(Map<String, ?> values) {
+        if (variables.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        out.ensureCapacity(sizeHint);
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]);
+            Object value = values.get(variables[i]);
+            if (value != null) {
+                String text = value.toString();
+                if (html) {
+                    escapeHtml(text, out);
+                } else {
+                    out.append(text);
+                }
+            }
+        }
+        out.append(literals[variables.length]);
+        String rendered = out.toString();
+        if (out.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return rendered;
+    }
+
+    /**
+     * Escapes the characters that matter in HTML text and attributes straight into the output; the
+     * templates are UTF-8, so everything else is written as is.
+     */
+    private static void escapeHtml(String text, StringBuilder out) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    /**
+     * Names of the variables used, in order of appearance, repeated if used more than once.
+     */
+    public List<String> getVariables() {
+        return List.of(variables);
+    }
+}
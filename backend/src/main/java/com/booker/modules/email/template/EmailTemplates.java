@@ -0,0 +1,168 @@
+package com.booker.modules.email.template;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import com.booker.modules.email.config.EmailTemplateProperties;
+
+/**
+ * Email templates, read and compiled once at startup.
+ *
+ * Templates live under {@code mail.templates.location}, one directory per locale. Each template is a
+ * {@code <name>.txt} file whose first line is {@code Subject: ...} followed by a blank line and the plain
+ * text body, plus an optional {@code <name>.html} body sent as the HTML alternative. A
+ * {@code <name>.fragment.txt} file has no subject: it is a piece of text, such as one line of a list,
+ * rendered on its own and inserted into a template by the caller. A template is looked up
+ * for the exact locale, then its language, then {@code mail.templates.default-locale}, which must provide
+ * every template so that a lookup never fails at send time.
+ */
+@Component
+public class EmailTemplates {
+
+    static final String SUBJECT_PREFIX = "Subject:";
+    static final String FRAGMENT_SUFFIX = ".fragment";
+
+    // Keyed by template name, then locale; only read after construction
+    private final Map<String, Map<Locale, Variant>> variants = new HashMap<>();
+    private final Locale defaultLocale;
+
+    public EmailTemplates(EmailTemplateProperties properties) {
+        this.defaultLocale = properties.getDefaultLocale();
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        try {
+            Map<String, EmailTemplate> html = new HashMap<>();
+            for (Resource resource : resolver.getResources(properties.getLocation() + "*/*.html")) {
+                String id = id(resource, ".html");
+                html.put(id, EmailTemplate.compile(id + ".html", read(resource), true));
+            }
+            for (Resource resource : resolver.getResources(properties.getLocation() + "*/*.txt")) {
+                String id = id(resource, ".txt");
+                int slash = id.indexOf('/');
+                variants.computeIfAbsent(id.substring(slash + 1), name -> new HashMap<>())
+                        .put(Locale.forLanguageTag(id.substring(0, slash)), parse(id, read(resource), html.remove(id)));
+            }
+            if (!html.isEmpty()) {
+                throw new IllegalStateException("HTML email templates without a text variant: " + html.keySet());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load email templates from " + properties.getLocation(), e);
+        }
+
+        variants.forEach((name, locales) -> {
+            if (!locales.containsKey(defaultLocale)) {
+                throw new IllegalStateException("Email template " + name + " has no " + defaultLocale.toLanguageTag() + " variant");
+            }
+        });
+    }
+
+    /**
+     * Renders a template in the default locale.
+     *
+     * @see #render(String, Locale, Map)
+     */
+    public RenderedEmail render(String name, Map<String, ?> values) {
+        return render(name, defaultLocale, values);
+    }
+
+    /**
+     * Renders a template.
+     *
+     * @param name   template name, the file name without extension
+     * @param locale preferred locale, falling back to its language and then the default locale
+     * @param values variable values
+     * @return subject, text and, if the template has one, HTML body
+     * @throws IllegalArgumentException if no template has that name
+     */
+    public RenderedEmail render(String name, Locale locale, Map<String, ?> values) {
+        Variant variant = find(name, locale);
+        return new RenderedEmail(variant.subject().render(values), variant.text().render(values),
+                variant.html() != null ? variant.html().render(values) : null);
+    }
+
+    /**
+     * Renders a fragment in the default locale.
+     *
+     * @see #renderFragment(String, Locale, Map)
+     */
+    public String renderFragment(String name, Map<String, ?> values) {
+        return renderFragment(name, defaultLocale, values);
+    }
+
+    /**
+     * Renders a fragment.
+     *
+     * @param name   fragment name, the file name without {@code .fragment.txt}
+     * @param locale preferred locale, falling back to its language and then the default locale
+     * @param values variable values
+     * @return the rendered text
+     * @throws IllegalArgumentException if no fragment has that name
+     */
+    public String renderFragment(String name, Locale locale, Map<String, ?> values) {
+        return find(name + FRAGMENT_SUFFIX, locale).text().render(values);
+    }
+
+    public Locale getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    private Variant find(String name, Locale locale) {
+        Map<Locale, Variant> locales = variants.get(name);
+        if (locales == null) {
+            throw new IllegalArgumentException("Unknown email template " + name);
+        }
+        Variant variant = null;
+        if (locale != null) {
+            variant = locales.get(locale);
+            if (variant == null && !locale.getCountry().isEmpty()) {
+                variant = locales.get(Locale.of(locale.getLanguage()));
+            }
+        }
+        return variant != null ? variant : locales.get(defaultLocale);
+    }
+
+    private static Variant parse(String id, String source, EmailTemplate html) {
+        if (id.endsWith(FRAGMENT_SUFFIX)) {
+            return new Variant(null, EmailTemplate.compile(id + ".txt", source.stripTrailing(), false), html);
+        }
+        int newline = source.indexOf('\n');
+        String firstLine = newline < 0 ? source : source.substring(0, newline);
+        if (!firstLine.startsWith(SUBJECT_PREFIX)) {
+            throw new IllegalStateException("Email template " + id + ".txt must start with a " + SUBJECT_PREFIX + " line");
+        }
+        String subject = firstLine.substring(SUBJECT_PREFIX.length()).trim();
+        String body = newline < 0 ? "" : source.substring(newline + 1);
+        // A blank line separates the subject from the body, as in a message header
+        if (body.startsWith("\n")) {
+            body = body.substring(1);
+        }
+        return new Variant(EmailTemplate.compile(id + ".subject", subject, false),
+                EmailTemplate.compile(id + ".txt", body.stripTrailing(), false), html);
+    }
+
+    private static String read(Resource resource) throws IOException {
+        return resource.getContentAsString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+    }
+
+    /**
+     * Turns {@code .../<locale>/<name><extension>} into {@code <language tag>/<name>}.
+     */
+    private static String id(Resource resource, String extension) throws IOException {
+        String path = resource.getURI().toString();
+        int slash = path.lastIndexOf('/');
+        int parent = path.lastIndexOf('/', slash - 1);
+        String locale = Locale.forLanguageTag(path.substring(parent + 1, slash).replace('_', '-')).toLanguageTag();
+        return locale + "/" + path.substring(slash + 1, path.length() - extension.length());
+    }
+
+    private record Variant(EmailTemplate subject, EmailTemplate text, EmailTemplate html) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.booker.modules.email.template;
+
+/**
+ * An email rendered from a template.
+ *
+ * @param subject subject line
+ * @param text    plain text body
+ * @param html    HTML body, {@code null} when the template has no HTML variant
+ */
+public record RenderedEmail(String subject, String text, String html) {
+}
@@ -0,0 +1,65 @@
+package com.booker.modules.idempotency.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for idempotent request handling.
+ */
+@Component
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * How long a stored result is replayed for the same key, in seconds.
+     */
+    private long ttlSeconds = 86400;
+
+    /**
+     * Upper bound on results kept in the in-memory tier.
+     */
+    private int memoryMaxEntries = 10000;
+
+    /**
+     * How long a duplicate request waits for the in-flight original, in milliseconds.
+     */
+    private long inFlightWaitMs = 30000;
+
+    /**
+     * How long a key stays reserved for a request that has not finished, in seconds. A reservation
+     * left behind by an instance that stopped mid-request can be taken over after this.
+     */
+    private long reservationTtlSeconds = 300;
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public int getMemoryMaxEntries() {
+        return memoryMaxEntries;
+    }
+
+    public void setMemoryMaxEntries(int memoryMaxEntries) {
+        this.memoryMaxEntries = memoryMaxEntries;
+    }
+
+    public long getInFlightWaitMs() {
+        return inFlightWaitMs;
+    }
+
+    public void setInFlightWaitMs(long inFlightWaitMs) {
+        this.inFlightWaitMs = inFlightWaitMs;
+    }
+
+    public long getReservationTtlSeconds() {
+        return reservationTtlSeconds;
+    }
+
+    public void setReservationTtlSeconds(long reservationTtlSeconds) {
+        this.reservationTtlSeconds = reservationTtlSeconds;
+    }
+}
@@ -0,0 +1,86 @@
+package com.booker.modules.idempotency.entity;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+
+/**
+ * The stored outcome of a request sent with an idempotency key.
+ * Only the id of the created resource and the response code are kept; the response body
+ * is rebuilt from the resource when the key is replayed, which keeps rows small.
+ *
+ * A row is written as {@code in_progress} before the request runs, so the key is reserved across
+ * instances, and turned into {@code completed} once the response is known.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+
+    public static final String STATUS_IN_PROGRESS = "in_progress";
+    public static final String STATUS_COMPLETED = "completed";
+
+    @Id
+    @Column(name = "id", length = 320)
+    private String id;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "resource_id")
+    private UUID resourceId;
+
+    @Column(nullable = false, length = 64)
+    private String message;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(nullable = false, length = 16, columnDefinition = "VARCHAR(16) DEFAULT 'completed'")
+    private String status = STATUS_COMPLETED;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String id, String requestHash, UUID resourceId, String message, Instant expiresAt) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.resourceId = resourceId;
+        this.message = message;
+        this.expiresAt = expiresAt;
+    }
+
+    public IdempotencyRecord(String id, String requestHash, UUID resourceId, String message, Instant expiresAt,
+            String status) {
+        this(id, requestHash, resourceId, message, expiresAt);
+        this.status = status;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public UUID getResourceId() {
+        return resourceId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isInProgress() {
+        return STATUS_IN_PROGRESS.equals(status);
+    }
+}
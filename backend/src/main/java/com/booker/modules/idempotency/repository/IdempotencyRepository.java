@@ -0,0 +1,68 @@
+package com.booker.modules.idempotency.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.booker.modules.idempotency.entity.IdempotencyRecord;
+
+/**
+ * Repository for stored idempotency key results.
+ */
+@Repository
+public interface IdempotencyRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Reserves a key before its request runs. An expired row for the key, e.g. the reservation of an
+     * instance that died mid-request, is taken over; a live one is left alone.
+     *
+     * @return 1 if the key was reserved, 0 if it is held or completed by another request
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (id, request_hash, resource_id, message, expires_at, status) "
+            + "VALUES (:id, :requestHash, NULL, :message, :expiresAt, 'in_progress') "
+            + "ON CONFLICT (id) DO UPDATE SET request_hash = EXCLUDED.request_hash, resource_id = NULL, "
+            + "message = EXCLUDED.message, expires_at = EXCLUDED.expires_at, status = EXCLUDED.status "
+            + "WHERE idempotency_keys.expires_at < :now",
+            nativeQuery = true)
+    int reserve(@Param("id") String id, @Param("requestHash") String requestHash, @Param("message") String message,
+            @Param("expiresAt") Instant expiresAt, @Param("now") Instant now);
+
+    /**
+     * Records the result of a request on its reservation.
+     *
+     * @return 1 if the reservation was completed, 0 if it no longer exists
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'completed', r.resourceId = :resourceId, r.message = :message, "
+            + "r.expiresAt = :expiresAt WHERE r.id = :id AND r.status = 'in_progress'")
+    int complete(@Param("id") String id, @Param("resourceId") UUID resourceId, @Param("message") String message,
+            @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Drops the reservation of a request that failed, so the client can retry with the same key.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.status = 'in_progress'")
+    int release(@Param("id") String id);
+
+    /**
+     * Removes every result whose replay window has ended.
+     *
+     * @param now the current time
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,272 @@
+package com.booker.modules.idempotency.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.modules.idempotency.config.IdempotencyProperties;
+import com.booker.modules.idempotency.entity.IdempotencyRecord;
+import com.booker.modules.idempotency.repository.IdempotencyRepository;
+import com.booker.utils.base.Response;
+
+/**
+ * Makes request handling idempotent per client supplied key.
+ *
+ * The first successful response for a key is recorded and every later request with the same key
+ * receives the same response instead of running the action again. Results are looked up in a bounded
+ * in-memory tier first and in the {@code idempotency_keys} table second, so replays survive restarts
+ * and work across instances.
+ *
+ * Before the action runs the key is reserved with an {@code in_progress} row, so a duplicate on
+ * another instance never runs it a second time. Duplicates wait for the reservation to complete,
+ * on this instance through the in-flight request and elsewhere by polling the row, and get
+ * {@code IDEMPOTENCY_KEY_IN_PROGRESS} if it takes too long. Failed responses drop the reservation,
+ * so the client can retry them.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9._:-]{1,200}");
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final IdempotencyProperties properties;
+    private final Map<String, Stored> memory;
+    private final ConcurrentHashMap<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRepository idempotencyRepository, IdempotencyProperties properties) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.properties = properties;
+        int maxEntries = properties.getMemoryMaxEntries();
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Runs the action once per key and replays its response for repeated requests.
+     *
+     * @param scope the operation the key belongs to, e.g. "payments.create"
+     * @param key the client supplied idempotency key
+     * @param requestHash fingerprint of the request body; a key reused with a different body is rejected
+     * @param action produces the response the first time the key is seen
+     * @param resourceIdOf extracts the id of the created resource from the response data
+     * @param replay reloads the response data from the resource id
+     * @return the original response, or an error if the key is malformed, reused or still being processed
+     */
+    public <T> Response<T> execute(String scope, String key, String requestHash, Supplier<Response<T>> action,
+            Function<T, UUID> resourceIdOf, Function<UUID, T> replay) {
+        if (!isValidKey(key)) {
+            return new Response<>(false, null, ErrorCodes.INVALID_IDEMPOTENCY_KEY);
+        }
+        String id = scope + ":" + key;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getInFlightWaitMs());
+
+        while (true) {
+            Stored stored = lookup(id);
+            if (stored != null && !stored.inProgress()) {
+                return replay(stored, requestHash, replay);
+            }
+            if (stored != null) {
+                // Reserved by a request running on another instance
+                if (!stored.requestHash().equals(requestHash)) {
+                    return new Response<>(false, null, ErrorCodes.IDEMPOTENCY_KEY_REUSED);
+                }
+                if (!pause(deadline)) {
+                    return new Response<>(false, null, ErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS);
+                }
+                continue;
+            }
+
+            CompletableFuture<Stored> own = new CompletableFuture<>();
+            CompletableFuture<Stored> running = inFlight.putIfAbsent(id, own);
+            if (running != null) {
+                try {
+                    stored = running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    return new Response<>(false, null, ErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return new Response<>(false, null, ErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS);
+                } catch (ExecutionException e) {
+                    stored = null;
+                }
+                if (stored != null) {
+                    return replay(stored, requestHash, replay);
+                }
+                // The original failed and recorded nothing: run the action ourselves
+                continue;
+            }
+
+            boolean reserved = false;
+            try {
+                Instant now = Instant.now();
+                reserved = idempotencyRepository.reserve(id, requestHash, ErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS,
+                        now.plusSeconds(properties.getReservationTtlSeconds()), now) > 0;
+                if (!reserved) {
+                    // Another instance reserved or completed the key since the lookup
+                    own.complete(null);
+                    continue;
+                }
+
+                Response<T> response = action.get();
+                if (!Boolean.TRUE.equals(response.status) || response.data == null) {
+                    idempotencyRepository.release(id);
+                    own.complete(null);
+                    return response;
+                }
+
+                Stored outcome = new Stored(requestHash, resourceIdOf.apply(response.data), response.message,
+                        Instant.now().plusSeconds(properties.getTtlSeconds()), false);
+                Stored winner = persist(id, outcome);
+                own.complete(winner);
+                return winner == outcome ? response : replay(winner, requestHash, replay);
+            } catch (RuntimeException e) {
+                if (reserved) {
+                    idempotencyRepository.release(id);
+                }
+                own.complete(null);
+                throw e;
+            } finally {
+                inFlight.remove(id, own);
+            }
+        }
+    }
+
+    /**
+     * Computes a SHA-256 fingerprint of the request fields that must match when a key is replayed.
+     */
+    public static String fingerprint(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns true if the key is safe to store and forward to payment providers.
+     */
+    public static boolean isValidKey(String key) {
+        return key != null && VALID_KEY.matcher(key).matches();
+    }
+
+    /**
+     * Drops expired results from both tiers.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        synchronized (memory) {
+            memory.values().removeIf(stored -> stored.expiresAt().isBefore(now));
+        }
+        idempotencyRepository.deleteExpired(now);
+    }
+
+    private Stored lookup(String id) {
+        Instant now = Instant.now();
+        synchronized (memory) {
+            Stored stored = memory.get(id);
+            if (stored != null) {
+                if (stored.expiresAt().isAfter(now)) {
+                    return stored;
+                }
+                memory.remove(id);
+            }
+        }
+
+        IdempotencyRecord record = idempotencyRepository.findById(id).orElse(null);
+        if (record == null || !record.getExpiresAt().isAfter(now)) {
+            return null;
+        }
+        Stored stored = new Stored(record.getRequestHash(), record.getResourceId(), record.getMessage(),
+                record.getExpiresAt(), record.isInProgress());
+        if (!stored.inProgress()) {
+            remember(id, stored);
+        }
+        return stored;
+    }
+
+    /**
+     * Waits a little before the reservation of another instance is looked up again.
+     *
+     * @return false if the deadline has passed or the thread was interrupted
+     */
+    private static boolean pause(long deadline) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            return false;
+        }
+        try {
+            Thread.sleep(Math.min(POLL_INTERVAL_MS, remaining));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Completes the reservation with the outcome. If the reservation expired and another instance
+     * completed the key meanwhile, that result wins and is returned.
+     */
+    private Stored persist(String id, Stored outcome) {
+        int completed = idempotencyRepository.complete(id, outcome.resourceId(), outcome.message(), outcome.expiresAt());
+        if (completed == 0) {
+            Stored existing = lookup(id);
+            if (existing != null && !existing.inProgress()) {
+                return existing;
+            }
+        }
+        remember(id, outcome);
+        return outcome;
+    }
+
+    private void remember(String id, Stored stored) {
+        synchronized (memory) {
+            memory.put(id, stored);
+        }
+    }
+
+    private static <T> Response<T> replay(Stored stored, String requestHash, Function<UUID, T> replay) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return new Response<>(false, null, ErrorCodes.IDEMPOTENCY_KEY_REUSED);
+        }
+        T data = stored.resourceId() != null ? replay.apply(stored.resourceId()) : null;
+        if (data == null) {
+            return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
+        }
+        return new Response<>(true, data, stored.message());
+    }
+
+    private record Stored(String requestHash, UUID resourceId, String message, Instant expiresAt, boolean inProgress) {
+    }
+}
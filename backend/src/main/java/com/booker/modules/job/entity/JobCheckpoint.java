@@ -0,0 +1,54 @@
+package com.booker.modules.job.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+
+/**
+ * The position a long-running background job has reached, so an interrupted run
+ * resumes where it stopped instead of starting over.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+public class JobCheckpoint {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "cursor_value", length = 255)
+    private String cursor;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public JobCheckpoint() {
+    }
+
+    public JobCheckpoint(String name, String cursor) {
+        this.name = name;
+        this.cursor = cursor;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void onSave() {
+        this.updatedAt = Instant.now();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
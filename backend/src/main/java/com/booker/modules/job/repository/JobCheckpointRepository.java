@@ -0,0 +1,13 @@
+package com.booker.modules.job.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.booker.modules.job.entity.JobCheckpoint;
+
+/**
+ * Repository for background job checkpoints, keyed by job name.
+ */
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+}
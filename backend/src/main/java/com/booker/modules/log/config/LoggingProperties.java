@@ -21,6 +21,21 @@ public class LoggingProperties {
      */
     private Set<LogType> enabledTypes = Set.of(LogType.SUCCESS, LogType.INFO, LogType.WARNING, LogType.ERROR);
 
+    /**
+     * Collapsing of repeated messages into a single row with a repeat count.
+     */
+    private Dedup dedup = new Dedup();
+
+    /**
+     * Per-source rate limiting of INFO and SUCCESS messages.
+     */
+    private Sampling sampling = new Sampling();
+
+    /**
+     * Local write-ahead spill used when the database cannot accept log rows.
+     */
+    private Spill spill = new Spill();
+
     public Set<LogType> getEnabledTypes() {
         return enabledTypes;
     }
@@ -29,10 +44,214 @@ public class LoggingProperties {
         this.enabledTypes = enabledTypes;
     }
 
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    public void setDedup(Dedup dedup) {
+        this.dedup = dedup;
+    }
+
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    public void setSampling(Sampling sampling) {
+        this.sampling = sampling;
+    }
+
+    public Spill getSpill() {
+        return spill;
+    }
+
+    public void setSpill(Spill spill) {
+        this.spill = spill;
+    }
+
     /**
      * Checks if a specific log type is enabled.
      */
     public boolean isEnabled(LogType type) {
         return enabledTypes.isEmpty() || enabledTypes.contains(type);
     }
+
+    /**
+     * Settings for duplicate-message suppression.
+     */
+    public static class Dedup {
+
+        private boolean enabled = true;
+
+        /**
+         * How long identical messages are collapsed into the first row, in milliseconds.
+         */
+        private long windowMs = 10_000;
+
+        /**
+         * Maximum number of distinct messages tracked at once; the least recently seen are evicted first.
+         */
+        private int maxEntries = 10_000;
+
+        /**
+         * Number of independently locked partitions of the tracking map.
+         */
+        private int stripes = 16;
+
+        /**
+         * Log types whose messages are only collapsed when their context matches too, so e.g. errors
+         * about different appointments get a row each. Empty by default: an outage that fails the same
+         * call for every entity is stored as one row with a repeat count.
+         */
+        private Set<LogType> keyByContext = Set.of();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getWindowMs() {
+            return windowMs;
+        }
+
+        public void setWindowMs(long windowMs) {
+            this.windowMs = windowMs;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public Set<LogType> getKeyByContext() {
+            return keyByContext;
+        }
+
+        public void setKeyByContext(Set<LogType> keyByContext) {
+            this.keyByContext = keyByContext;
+        }
+    }
+
+    /**
+     * Settings for token-bucket sampling of INFO and SUCCESS messages.
+     */
+    public static class Sampling {
+
+        private boolean enabled = true;
+
+        /**
+         * Sustained number of messages per second allowed for each source.
+         */
+        private double ratePerSecond = 50;
+
+        /**
+         * Number of messages a source may emit in a burst before sampling kicks in.
+         */
+        private int burst = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        public void setRatePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+
+    /**
+     * Settings for the memory-mapped spill segments.
+     */
+    public static class Spill {
+
+        private boolean enabled = true;
+
+        /**
+         * Directory holding the segment files.
+         */
+        private String directory = "data/log-spill";
+
+        /**
+         * Size of each segment file in bytes; a new segment is started when the current one is full.
+         */
+        private int segmentSizeBytes = 64 * 1024 * 1024;
+
+        /**
+         * Upper bound on the size of all segments together; the oldest segments are dropped to stay under it.
+         */
+        private long maxTotalBytes = 1024L * 1024 * 1024;
+
+        /**
+         * Number of rows per batch insert when replaying segments into the database.
+         */
+        private int replayBatchSize = 5_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentSizeBytes() {
+            return segmentSizeBytes;
+        }
+
+        public void setSegmentSizeBytes(int segmentSizeBytes) {
+            this.segmentSizeBytes = segmentSizeBytes;
+        }
+
+        public long getMaxTotalBytes() {
+            return maxTotalBytes;
+        }
+
+        public void setMaxTotalBytes(long maxTotalBytes) {
+            this.maxTotalBytes = maxTotalBytes;
+        }
+
+        public int getReplayBatchSize() {
+            return replayBatchSize;
+        }
+
+        public void setReplayBatchSize(int replayBatchSize) {
+            this.replayBatchSize = replayBatchSize;
+        }
+    }
 }
@@ -1,9 +1,12 @@
 package com.booker.modules.log.entity;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import com.booker.modules.enums.log.LogType;
 
@@ -11,10 +14,11 @@ import jakarta.persistence.*;
 
 /**
  * Represents a log entry in the system.
- * Each log captures a message with its type and timestamp for auditing and debugging purposes.
+ * Each log captures a message with its type and timestamp for auditing and debugging purposes,
+ * the id of the request that produced it, and optional structured context stored as JSONB.
  */
 @Entity
-@Table(name = "logs")
+@Table(name = "logs", indexes = @Index(name = "idx_logs_request_id", columnList = "request_id"))
 public class Log {
 
     @Id
@@ -35,6 +39,16 @@ public class Log {
     @Column(length = 255)
     private String source;
 
+    @Column(name = "repeat_count", nullable = false, columnDefinition = "INT DEFAULT 1")
+    private Integer repeatCount = 1;
+
+    @Column(name = "request_id", length = 64)
+    private String requestId;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "context")
+    private Map<String, String> context;
+
     public Log() {
     }
 
@@ -89,4 +103,28 @@ public class Log {
     public void setSource(String source) {
         this.source = source;
     }
+
+    public Integer getRepeatCount() {
+        return repeatCount;
+    }
+
+    public void setRepeatCount(Integer repeatCount) {
+        this.repeatCount = repeatCount;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public Map<String, String> getContext() {
+        return context;
+    }
+
+    public void setContext(Map<String, String> context) {
+        this.context = context;
+    }
 }
@@ -5,7 +5,11 @@ import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.booker.modules.enums.log.LogType;
 import com.booker.modules.log.entity.Log;
@@ -58,4 +62,36 @@ public interface LogRepository extends JpaRepository<Log, UUID> {
      * @return list of matching logs
      */
     List<Log> findByTypeAndSource(LogType type, String source);
+
+    /**
+     * Finds all logs written while serving a specific request.
+     *
+     * @param requestId the correlation id of the request
+     * @return list of logs for the request
+     */
+    List<Log> findByRequestIdOrderByTimestampAsc(String requestId);
+
+    /**
+     * Finds all logs whose context contains the given key/value pair, newest first.
+     * Served by the GIN index on the context column, e.g. all logs for one appointment.
+     *
+     * @param key the context key (e.g. "appointmentId")
+     * @param value the value stored under the key
+     * @return list of matching logs
+     */
+    @Query(value = "SELECT * FROM logs WHERE context @> jsonb_build_object(CAST(:key AS text), CAST(:value AS text)) ORDER BY timestamp DESC",
+            nativeQuery = true)
+    List<Log> findByContextEntry(@Param("key") String key, @Param("value") String value);
+
+    /**
+     * Adds suppressed repeats to the count of an existing log entry.
+     *
+     * @param id the log entry that opened the deduplication window
+     * @param count number of repeats to add
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Log l SET l.repeatCount = l.repeatCount + :count WHERE l.id = :id")
+    int incrementRepeatCount(@Param("id") UUID id, @Param("count") int count);
 }
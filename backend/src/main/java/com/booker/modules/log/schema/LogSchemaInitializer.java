@@ -0,0 +1,31 @@
+package com.booker.modules.log.schema;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.booker.utils.jdbc.SchemaSupport;
+
+/**
+ * Creates the indexes on the logs table that JPA annotations cannot express.
+ * The context column gets a GIN index so lookups like "all logs for appointment X" use the index.
+ * It is built concurrently so log writes go on meanwhile.
+ */
+@Component
+public class LogSchemaInitializer implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LogSchemaInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!SchemaSupport.isPostgres(jdbcTemplate)) {
+            return;
+        }
+        SchemaSupport.createIndexConcurrently(jdbcTemplate, "idx_logs_context", "logs USING GIN (context jsonb_path_ops)");
+    }
+}
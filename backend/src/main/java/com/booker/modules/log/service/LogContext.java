@@ -0,0 +1,32 @@
+package com.booker.modules.log.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds the structured context attached to a log entry.
+ * Unlike {@code Map.of}, null values are accepted and simply left out of the stored context.
+ */
+public final class LogContext {
+
+    private LogContext() {
+    }
+
+    public static Map<String, Object> of(String key, Object value) {
+        Map<String, Object> context = new LinkedHashMap<>(2);
+        context.put(key, value);
+        return context;
+    }
+
+    public static Map<String, Object> of(String key1, Object value1, String key2, Object value2) {
+        Map<String, Object> context = of(key1, value1);
+        context.put(key2, value2);
+        return context;
+    }
+
+    public static Map<String, Object> of(String key1, Object value1, String key2, Object value2, String key3, Object value3) {
+        Map<String, Object> context = of(key1, value1, key2, value2);
+        context.put(key3, value3);
+        return context;
+    }
+}
@@ -0,0 +1,201 @@
+package com.booker.modules.log.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import com.booker.modules.enums.log.LogType;
+
+/**
+ * Collapses identical log events that occur within a time window.
+ *
+ * Events are keyed by type, source and message template. The first event of a window is
+ * let through and later ones only bump a counter on its entry. Entries live in a fixed number
+ * of independently locked LRU partitions, so the structure stays bounded and threads logging
+ * from different sources rarely contend. Closed windows with suppressed repeats are handed
+ * back through {@link #drainClosed(long)} so the caller can record the repeat count.
+ */
+public class LogDeduplicator {
+
+    private static final Pattern UUID_PATTERN =
+            Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("\\d+");
+
+    private final long windowMs;
+    private final Stripe[] stripes;
+    private final ConcurrentLinkedQueue<Entry> closed = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param windowMs how long an entry collapses repeats, in milliseconds
+     * @param maxEntries upper bound on tracked entries across all stripes
+     * @param stripeCount number of lock partitions
+     */
+    public LogDeduplicator(long windowMs, int maxEntries, int stripeCount) {
+        int count = Math.max(1, stripeCount);
+        int perStripe = Math.max(1, maxEntries / count);
+        this.windowMs = windowMs;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Derives a message template by masking ids and numbers, so "Payment 12 failed" and
+     * "Payment 13 failed" collapse together.
+     */
+    public static String templateOf(String message) {
+        if (message == null) {
+            return "";
+        }
+        String masked = UUID_PATTERN.matcher(message).replaceAll("{}");
+        return NUMBER_PATTERN.matcher(masked).replaceAll("{}");
+    }
+
+    /**
+     * Records an occurrence of the given event.
+     *
+     * @return the new entry if this event opens a window and should be written, or null if it was suppressed
+     */
+    public Entry offer(Key key, long nowMs) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Entry current = stripe.entries.get(key);
+            if (current != null && nowMs - current.windowStart < windowMs) {
+                current.suppressed.incrementAndGet();
+                return null;
+            }
+            if (current != null) {
+                close(current);
+            }
+            Entry entry = new Entry(key, nowMs);
+            stripe.entries.put(key, entry);
+            return entry;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry whose window has ended and returns those that suppressed at least one repeat,
+     * including entries evicted earlier to respect the size bound.
+     */
+    public List<Entry> drainClosed(long nowMs) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                Iterator<Entry> it = stripe.entries.values().iterator();
+                while (it.hasNext()) {
+                    Entry entry = it.next();
+                    if (nowMs - entry.windowStart >= windowMs) {
+                        it.remove();
+                        close(entry);
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        List<Entry> drained = new ArrayList<>();
+        Entry entry;
+        while ((entry = closed.poll()) != null) {
+            drained.add(entry);
+        }
+        return drained;
+    }
+
+    /**
+     * Returns the number of entries currently tracked.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private void close(Entry entry) {
+        if (entry.suppressed.get() > 0) {
+            closed.add(entry);
+        }
+    }
+
+    private Stripe stripeFor(Key key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[Math.floorMod(h, stripes.length)];
+    }
+
+    /**
+     * Identity of a log event for deduplication purposes.
+     *
+     * @param template the message template, with ids and numbers masked for plain calls
+     * @param context the structured context for types keyed by context, otherwise null
+     */
+    public record Key(LogType type, String source, String template, Map<String, ?> context) {
+    }
+
+    /**
+     * A deduplication window for one key.
+     */
+    public static final class Entry {
+        private final Key key;
+        private final long windowStart;
+        private final AtomicInteger suppressed = new AtomicInteger();
+        private volatile UUID logId;
+
+        Entry(Key key, long windowStart) {
+            this.key = key;
+            this.windowStart = windowStart;
+        }
+
+        public Key getKey() {
+            return key;
+        }
+
+        public int getSuppressed() {
+            return suppressed.get();
+        }
+
+        public UUID getLogId() {
+            return logId;
+        }
+
+        public void setLogId(UUID logId) {
+            this.logId = logId;
+        }
+    }
+
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Key, Entry> entries;
+
+        Stripe(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                    if (size() > capacity) {
+                        close(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
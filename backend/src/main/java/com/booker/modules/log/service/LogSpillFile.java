@@ -0,0 +1,385 @@
+package com.booker.modules.log.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.booker.modules.enums.log.LogType;
+import com.booker.modules.log.config.LoggingProperties;
+import com.booker.modules.log.entity.Log;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only, memory-mapped write-ahead file for log rows that could not be stored in the database.
+ *
+ * Records are appended to a fixed-size segment mapped into memory, so an append is a buffer copy
+ * with no system call. When a record does not fit, the segment is sealed and a new one started.
+ * Each record is framed as {@code [length][crc32c][payload]}; a zero length marks the end of the
+ * written area and a checksum mismatch marks a torn write, after which the rest of the segment is ignored.
+ * Sealed segments are drained back into the database by {@link LogSpillReplayer}. The segments
+ * together never take more than {@code logging.custom.spill.max-total-bytes}: when a new segment
+ * would go beyond it, the oldest ones are dropped.
+ */
+@Component
+public class LogSpillFile {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spill";
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final byte FORMAT_VERSION = 2;
+
+    private final LoggingProperties.Spill properties;
+    private final AtomicBoolean databaseDown = new AtomicBoolean(false);
+
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private Path directory;
+    private long nextSequence;
+    private Path activePath;
+    private MappedByteBuffer active;
+
+    public LogSpillFile(LoggingProperties loggingProperties) {
+        this.properties = loggingProperties.getSpill();
+    }
+
+    /**
+     * Appends a log row to the active segment, rolling to a new segment when it is full.
+     *
+     * @param log the row to spill; a missing timestamp is set to now
+     * @return true if the row was written, false if spilling is disabled or failed
+     */
+    public synchronized boolean append(Log log) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        try {
+            ensureInitialized();
+            ByteBuffer payload = encode(log);
+            int recordSize = HEADER_BYTES + payload.remaining();
+            if (recordSize + Integer.BYTES > properties.getSegmentSizeBytes()) {
+                System.err.println("Log record too large to spill (" + recordSize + " bytes), dropped");
+                return false;
+            }
+            if (active == null || active.remaining() < recordSize + Integer.BYTES) {
+                roll();
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            active.putInt(payload.remaining());
+            active.putInt((int) crc.getValue());
+            active.put(payload);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to spill log to disk: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Seals the active segment if it holds data and returns all sealed segments, oldest first.
+     */
+    public synchronized List<Path> sealForReplay() {
+        if (!properties.isEnabled()) {
+            return List.of();
+        }
+        try {
+            ensureInitialized();
+            if (active != null && active.position() > 0) {
+                seal();
+            }
+            List<Path> segments = new ArrayList<>();
+            for (Path segment : listSegments()) {
+                if (!segment.equals(activePath)) {
+                    segments.add(segment);
+                }
+            }
+            return segments;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads every intact record of a sealed segment in write order.
+     *
+     * @param segment the segment file
+     * @param consumer receives each decoded row
+     * @return true if the whole segment was intact, false if reading stopped at a corrupt record
+     */
+    public boolean read(Path segment, Consumer<Log> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32C crc = new CRC32C();
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int length = buffer.getInt();
+                if (length == 0) {
+                    return true;
+                }
+                int checksum = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    return false;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return false;
+                }
+                buffer.position(buffer.position() + length);
+                try {
+                    consumer.accept(decode(payload));
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Removes a segment once its records have been replayed.
+     */
+    public void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    /**
+     * Returns true while the database is known to be rejecting log rows,
+     * in which case new rows go straight to the spill file.
+     */
+    public boolean isDatabaseDown() {
+        return databaseDown.get();
+    }
+
+    public void markDatabaseDown() {
+        databaseDown.set(true);
+    }
+
+    public void markDatabaseUp() {
+        databaseDown.set(false);
+    }
+
+    /**
+     * Tells a failure that means the database cannot take writes right now, such as a lost
+     * connection or a lock timeout, from one where it rejected the row itself. Only the first kind
+     * is worth spilling and replaying: a rejected row fails the same way every time.
+     */
+    public static boolean isUnavailable(Throwable failure) {
+        for (Throwable e = failure; e != null; e = e.getCause()) {
+            if (e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                    || e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException
+                    || e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+                return true;
+            }
+            // Connection exceptions and server shutdowns in PostgreSQL
+            if (e instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("08") || sql.getSQLState().startsWith("57P"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flushes the active segment to disk on shutdown.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    private void ensureInitialized() throws IOException {
+        if (directory != null) {
+            return;
+        }
+        Path dir = Paths.get(properties.getDirectory());
+        Files.createDirectories(dir);
+        directory = dir;
+        long maxSequence = 0;
+        for (Path segment : listSegments()) {
+            maxSequence = Math.max(maxSequence, sequenceOf(segment));
+        }
+        nextSequence = maxSequence + 1;
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            seal();
+        }
+        dropOldestBeyondCap();
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0, properties.getSegmentSizeBytes());
+        }
+        activePath = path;
+    }
+
+    private void seal() {
+        active.force();
+        active = null;
+        activePath = null;
+    }
+
+    /**
+     * Deletes the oldest segments until the ones left and the segment about to be started fit in
+     * {@code max-total-bytes}. Losing the oldest records keeps the most recent ones, which matter
+     * most when the outage is finally looked into.
+     */
+    private void dropOldestBeyondCap() throws IOException {
+        long max = Math.max(properties.getMaxTotalBytes(), properties.getSegmentSizeBytes());
+        List<Path> segments = listSegments();
+        long total = properties.getSegmentSizeBytes();
+        for (Path segment : segments) {
+            total += Files.size(segment);
+        }
+        for (Path oldest : segments) {
+            if (total <= max) {
+                break;
+            }
+            long size = Files.size(oldest);
+            Files.deleteIfExists(oldest);
+            total -= size;
+            System.err.println("Log spill directory over " + max + " bytes, dropped oldest segment " + oldest.getFileName());
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private ByteBuffer encode(Log log) {
+        byte[] message = bytesOf(log.getMessage());
+        byte[] source = bytesOf(log.getSource());
+        byte[] requestId = bytesOf(log.getRequestId());
+        LocalDateTime timestamp = log.getTimestamp() != null ? log.getTimestamp() : LocalDateTime.now();
+
+        Map<String, String> context = log.getContext() != null ? log.getContext() : Map.of();
+        List<byte[]> contextBytes = new ArrayList<>(context.size() * 2);
+        int size = 2 + Long.BYTES + Integer.BYTES * 2
+                + sizeOf(message) + sizeOf(source) + sizeOf(requestId) + Integer.BYTES;
+        for (Map.Entry<String, String> entry : context.entrySet()) {
+            byte[] key = bytesOf(entry.getKey());
+            byte[] value = bytesOf(entry.getValue());
+            contextBytes.add(key);
+            contextBytes.add(value);
+            size += sizeOf(key) + sizeOf(value);
+        }
+
+        if (scratch.capacity() < size) {
+            scratch = ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        scratch.put(FORMAT_VERSION);
+        scratch.put((byte) log.getType().ordinal());
+        scratch.putLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        scratch.putInt(timestamp.getNano());
+        scratch.putInt(log.getRepeatCount() != null ? log.getRepeatCount() : 1);
+        putBytes(scratch, message);
+        putBytes(scratch, source);
+        putBytes(scratch, requestId);
+        scratch.putInt(context.size());
+        for (byte[] bytes : contextBytes) {
+            putBytes(scratch, bytes);
+        }
+        return scratch.flip();
+    }
+
+    private static Log decode(ByteBuffer payload) {
+        byte version = payload.get();
+        if (version != 1 && version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported spill record version " + version);
+        }
+        LogType type = LogType.values()[payload.get()];
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+        int repeatCount = payload.getInt();
+        String message = getString(payload);
+        String source = getString(payload);
+
+        Log log = new Log(type, message, source);
+        log.setTimestamp(timestamp);
+        log.setRepeatCount(repeatCount);
+        if (version >= 2) {
+            log.setRequestId(getString(payload));
+            int entries = payload.getInt();
+            if (entries > 0) {
+                Map<String, String> context = new LinkedHashMap<>(entries * 2);
+                for (int i = 0; i < entries; i++) {
+                    context.put(getString(payload), getString(payload));
+                }
+                log.setContext(context);
+            }
+        }
+        return log;
+    }
+
+    private static int sizeOf(byte[] bytes) {
+        return Integer.BYTES + (bytes != null ? bytes.length : 0);
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
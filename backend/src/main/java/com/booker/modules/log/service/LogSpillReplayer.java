@@ -0,0 +1,191 @@
+package com.booker.modules.log.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booker.modules.log.config.LoggingProperties;
+import com.booker.modules.log.entity.Log;
+import com.booker.utils.concurrent.TokenBucket;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Drains spilled log segments back into the {@code logs} table once the database accepts writes again.
+ *
+ * Each segment is replayed in a single transaction using JDBC batch inserts, and deleted only after
+ * the transaction commits. Every record gets an id derived from its place in the segment and rows
+ * that already exist are skipped, so replaying a segment again never produces duplicate rows.
+ *
+ * When the database is unavailable the run stops and the segment is left for the next one. When
+ * it rejects a record instead, the segment is replayed again one record at a time and the rejected
+ * records are skipped, so a single bad record never holds back the rest of the backlog.
+ */
+@Component
+public class LogSpillReplayer {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO logs (id, type, message, timestamp, source, repeat_count, request_id, context) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb)) ON CONFLICT (id) DO NOTHING";
+
+    private final LogSpillFile spillFile;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggingProperties loggingProperties;
+    private final ObjectMapper objectMapper;
+
+    // At most one progress line a minute while a large backlog drains
+    private final TokenBucket progressLines = new TokenBucket(1, 1.0 / 60);
+    private long pendingRecords;
+    private int pendingSegments;
+
+    public LogSpillReplayer(LogSpillFile spillFile, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            LoggingProperties loggingProperties, ObjectMapper objectMapper) {
+        this.spillFile = spillFile;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.loggingProperties = loggingProperties;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Replays all sealed segments, oldest first. Stops at the first segment that cannot be written
+     * because the database is unavailable and leaves it for the next run.
+     */
+    @Scheduled(fixedDelayString = "${logging.custom.spill.replay-interval-ms:10000}")
+    public void replay() {
+        List<Path> segments = spillFile.sealForReplay();
+        for (Path segment : segments) {
+            try {
+                int replayed;
+                try {
+                    replayed = replaySegment(segment);
+                } catch (RuntimeException e) {
+                    if (LogSpillFile.isUnavailable(e)) {
+                        throw e;
+                    }
+                    replayed = replayRecords(segment, e);
+                }
+                spillFile.delete(segment);
+                progress(replayed);
+            } catch (Exception e) {
+                System.err.println("Log spill replay paused, database still unavailable: " + e.getMessage());
+                return;
+            }
+        }
+        if (pendingSegments > 0) {
+            printProgress("Log spill drained");
+        }
+        spillFile.markDatabaseUp();
+    }
+
+    private int replaySegment(Path segment) {
+        int batchSize = loggingProperties.getSpill().getReplayBatchSize();
+        Integer replayed = transactionTemplate.execute(status -> {
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            int[] count = {0};
+            try {
+                boolean intact = spillFile.read(segment, log -> {
+                    batch.add(toRow(segment, count[0] + batch.size(), log));
+                    if (batch.size() >= batchSize) {
+                        jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                        count[0] += batch.size();
+                        batch.clear();
+                    }
+                });
+                if (!batch.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                    count[0] += batch.size();
+                }
+                if (!intact) {
+                    System.err.println("Spill segment " + segment.getFileName()
+                            + " has a corrupt record, skipped the remainder after " + count[0] + " records");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count[0];
+        });
+        return replayed != null ? replayed : 0;
+    }
+
+    /**
+     * Replays a segment the database rejected as a whole, one record per statement, skipping the
+     * records it rejects. Records committed before an outage cuts this short are skipped on the
+     * next run by their id.
+     */
+    private int replayRecords(Path segment, RuntimeException cause) {
+        int[] counts = {0, 0, 0};
+        try {
+            spillFile.read(segment, log -> {
+                int index = counts[0]++;
+                try {
+                    jdbcTemplate.update(INSERT_SQL, toRow(segment, index, log));
+                    counts[1]++;
+                } catch (RuntimeException e) {
+                    if (LogSpillFile.isUnavailable(e)) {
+                        throw e;
+                    }
+                    counts[2]++;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (counts[2] > 0) {
+            System.err.println("Spill segment " + segment.getFileName() + " had " + counts[2]
+                    + " records the database rejected, skipped them: " + cause.getMessage());
+        }
+        return counts[1];
+    }
+
+    private void progress(int replayed) {
+        pendingRecords += replayed;
+        pendingSegments++;
+        if (progressLines.tryAcquire()) {
+            printProgress("Log spill replay in progress");
+        }
+    }
+
+    private void printProgress(String prefix) {
+        System.out.println(prefix + ": replayed " + pendingRecords + " records from " + pendingSegments + " segments");
+        pendingRecords = 0;
+        pendingSegments = 0;
+    }
+
+    /**
+     * Turns a spilled record into insert parameters. The id is derived from the segment, the
+     * position in it and the timestamp, so the same record always gets the same id.
+     */
+    private Object[] toRow(Path segment, int index, Log log) {
+        String context = null;
+        if (log.getContext() != null) {
+            try {
+                context = objectMapper.writeValueAsString(log.getContext());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unserializable log context", e);
+            }
+        }
+        String key = segment.getFileName() + "#" + index + "#" + log.getTimestamp();
+        return new Object[] {
+                UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)),
+                log.getType().name(),
+                log.getMessage(),
+                Timestamp.valueOf(log.getTimestamp()),
+                log.getSource(),
+                log.getRepeatCount(),
+                log.getRequestId(),
+                context
+        };
+    }
+}
@@ -1,17 +1,36 @@
 package com.booker.modules.log.service;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.slf4j.MDC;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.booker.modules.enums.log.LogType;
 import com.booker.modules.log.entity.Log;
 import com.booker.modules.log.repository.LogRepository;
 import com.booker.modules.log.config.LoggingProperties;
+import com.booker.modules.log.filter.CorrelationIdFilter;
+import com.booker.utils.concurrent.TokenBucket;
 
 /**
  * Custom logging service that outputs colored logs to the CLI and persists them to the database.
  * Provides a convenient way to track application events with visual feedback and historical records.
+ *
+ * Messages with the same type, source and template repeated within a short window are collapsed
+ * into the first row, which keeps its own context and text, and whose repeat count is bumped when
+ * the window closes. Types listed in {@code logging.custom.dedup.key-by-context} only collapse
+ * when the context matches too. INFO and SUCCESS messages are additionally rate limited per source
+ * so a chatty component cannot flood the console or the logs table.
+ *
+ * Every row carries the request id of the HTTP request that produced it (see {@link CorrelationIdFilter})
+ * and, for parameterized calls, a JSON context such as {@code {"appointmentId": "..."}}.
+ *
+ * While the database is unreachable rows go to the {@link LogSpillFile}. A row the database
+ * rejects is dropped instead, since it would fail the same way when replayed.
  */
 @Service
 public class LoggerService {
@@ -26,10 +45,17 @@ public class LoggerService {
 
     private final LogRepository logRepository;
     private final LoggingProperties loggingProperties;
+    private final LogSpillFile spillFile;
+    private final LogDeduplicator deduplicator;
+    private final Map<String, TokenBucket> samplers = new ConcurrentHashMap<>();
 
-    public LoggerService(LogRepository logRepository, LoggingProperties loggingProperties) {
+    public LoggerService(LogRepository logRepository, LoggingProperties loggingProperties, LogSpillFile spillFile) {
         this.logRepository = logRepository;
         this.loggingProperties = loggingProperties;
+        this.spillFile = spillFile;
+
+        LoggingProperties.Dedup dedup = loggingProperties.getDedup();
+        this.deduplicator = new LogDeduplicator(dedup.getWindowMs(), dedup.getMaxEntries(), dedup.getStripes());
     }
 
     /**
@@ -50,21 +76,106 @@ public class LoggerService {
      * @param source optional source identifier (e.g., class name or component)
      */
     public void log(LogType type, String message, String source) {
-        // Check if this log type is enabled
         if (!loggingProperties.isEnabled(type)) {
             return;
         }
+        write(type, source, LogDeduplicator.templateOf(message), message, null, null);
+    }
+
+    /**
+     * Logs a parameterized message with structured context.
+     *
+     * The message is only formatted, and the context only converted, when the log type is enabled and the
+     * event survives sampling and deduplication. Each {@code {}} in the template is replaced by the next
+     * argument. The context is stored as JSON so logs can be looked up by entity,
+     * e.g. {@code LogContext.of("appointmentId", id)}.
+     *
+     * @param type the type of log (SUCCESS, INFO, WARNING, ERROR)
+     * @param template the message template with {@code {}} placeholders
+     * @param source optional source identifier (e.g., class name or component)
+     * @param context optional key/value pairs describing the entities involved
+     * @param args values for the template placeholders
+     */
+    public void log(LogType type, String template, String source, Map<String, ?> context, Object... args) {
+        if (!loggingProperties.isEnabled(type)) {
+            return;
+        }
+        write(type, source, template, null, context, args);
+    }
+
+    private void write(LogType type, String source, String template, String message, Map<String, ?> context, Object[] args) {
+        if (!isSampled(type, source)) {
+            return;
+        }
+
+        LogDeduplicator.Entry window = null;
+        if (loggingProperties.getDedup().isEnabled()) {
+            Map<String, ?> keyContext = loggingProperties.getDedup().getKeyByContext().contains(type) ? context : null;
+            LogDeduplicator.Key key = new LogDeduplicator.Key(type, source, template, keyContext);
+            window = deduplicator.offer(key, System.currentTimeMillis());
+            if (window == null) {
+                return;
+            }
+        }
+
+        String text = message != null ? message : format(template, args);
+        String requestId = MDC.get(CorrelationIdFilter.MDC_KEY);
 
         // Print colored log to CLI
-        printColoredLog(type, message, source);
+        printColoredLog(type, text, source, requestId);
 
-        // Save to database
+        // Save to database, or to the local spill file while the database is unavailable
+        Log log = new Log(type, text, source);
+        log.setRequestId(requestId);
+        log.setContext(toContext(context));
+        if (spillFile.isDatabaseDown()) {
+            spill(log);
+            return;
+        }
         try {
-            Log log = new Log(type, message, source);
-            logRepository.save(log);
+            Log saved = logRepository.save(log);
+            if (window != null && saved != null) {
+                window.setLogId(saved.getId());
+            }
         } catch (Exception e) {
-            // Fallback to standard error if database save fails
-            System.err.println("Failed to save log to database: " + e.getMessage());
+            if (LogSpillFile.isUnavailable(e)) {
+                System.err.println("Failed to save log to database, spilling to disk: " + e.getMessage());
+                spillFile.markDatabaseDown();
+                spill(log);
+            } else {
+                // The row itself was rejected: it would fail the same way on replay, and the database is fine
+                System.err.println("Log record rejected by the database, dropped: " + type + " " + text + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    /**
+     * Writes a row to the spill file, falling back to standard error if that fails too.
+     */
+    private void spill(Log log) {
+        if (!spillFile.append(log)) {
+            System.err.println("Lost log record: " + log.getType() + " " + log.getMessage());
+        }
+    }
+
+    /**
+     * Writes the repeat counts of closed deduplication windows back to their log rows.
+     * Runs periodically so a burst of identical messages ends up as a single row with its total count.
+     */
+    @Scheduled(fixedDelayString = "${logging.custom.dedup.flush-interval-ms:5000}")
+    public void flushSuppressed() {
+        for (LogDeduplicator.Entry entry : deduplicator.drainClosed(System.currentTimeMillis())) {
+            LogDeduplicator.Key key = entry.getKey();
+            printColoredLog(key.type(), key.template() + " (repeated " + entry.getSuppressed() + " more times)", key.source(), null);
+
+            if (entry.getLogId() == null) {
+                continue;
+            }
+            try {
+                logRepository.incrementRepeatCount(entry.getLogId(), entry.getSuppressed());
+            } catch (Exception e) {
+                System.err.println("Failed to update log repeat count: " + e.getMessage());
+            }
         }
     }
 
@@ -87,6 +198,18 @@ public class LoggerService {
         log(LogType.SUCCESS, message, source);
     }
 
+    /**
+     * Logs a success message from a template with structured context.
+     *
+     * @param template the message template with {} placeholders
+     * @param source the source identifier
+     * @param context key/value pairs describing the entities involved
+     * @param args values for the template placeholders
+     */
+    public void success(String template, String source, Map<String, ?> context, Object... args) {
+        log(LogType.SUCCESS, template, source, context, args);
+    }
+
     /**
      * Logs an informational message.
      *
@@ -106,6 +229,18 @@ public class LoggerService {
         log(LogType.INFO, message, source);
     }
 
+    /**
+     * Logs an informational message from a template with structured context.
+     *
+     * @param template the message template with {} placeholders
+     * @param source the source identifier
+     * @param context key/value pairs describing the entities involved
+     * @param args values for the template placeholders
+     */
+    public void info(String template, String source, Map<String, ?> context, Object... args) {
+        log(LogType.INFO, template, source, context, args);
+    }
+
     /**
      * Logs a warning message.
      *
@@ -125,6 +260,18 @@ public class LoggerService {
         log(LogType.WARNING, message, source);
     }
 
+    /**
+     * Logs a warning message from a template with structured context.
+     *
+     * @param template the message template with {} placeholders
+     * @param source the source identifier
+     * @param context key/value pairs describing the entities involved
+     * @param args values for the template placeholders
+     */
+    public void warning(String template, String source, Map<String, ?> context, Object... args) {
+        log(LogType.WARNING, template, source, context, args);
+    }
+
     /**
      * Logs an error message.
      *
@@ -144,13 +291,73 @@ public class LoggerService {
         log(LogType.ERROR, message, source);
     }
 
+    /**
+     * Logs an error message from a template with structured context.
+     *
+     * @param template the message template with {} placeholders
+     * @param source the source identifier
+     * @param context key/value pairs describing the entities involved
+     * @param args values for the template placeholders
+     */
+    public void error(String template, String source, Map<String, ?> context, Object... args) {
+        log(LogType.ERROR, template, source, context, args);
+    }
+
+    /**
+     * Applies the per-source token bucket to INFO and SUCCESS messages.
+     * Warnings and errors are never sampled.
+     */
+    private boolean isSampled(LogType type, String source) {
+        LoggingProperties.Sampling sampling = loggingProperties.getSampling();
+        if (!sampling.isEnabled() || (type != LogType.INFO && type != LogType.SUCCESS)) {
+            return true;
+        }
+        TokenBucket bucket = samplers.computeIfAbsent(source != null ? source : "",
+                s -> new TokenBucket(sampling.getBurst(), sampling.getRatePerSecond()));
+        return bucket.tryAcquire();
+    }
+
+    /**
+     * Replaces each {} in the template with the next argument.
+     */
+    static String format(String template, Object[] args) {
+        if (template == null || args == null || args.length == 0) {
+            return template;
+        }
+        StringBuilder sb = new StringBuilder(template.length() + 16 * args.length);
+        int argIndex = 0;
+        int from = 0;
+        int at;
+        while (argIndex < args.length && (at = template.indexOf("{}", from)) >= 0) {
+            sb.append(template, from, at).append(args[argIndex++]);
+            from = at + 2;
+        }
+        return sb.append(template, from, template.length()).toString();
+    }
+
+    /**
+     * Converts context values to strings so lookups by key and value behave the same for every type.
+     */
+    private static Map<String, String> toContext(Map<String, ?> context) {
+        if (context == null || context.isEmpty()) {
+            return null;
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        context.forEach((key, value) -> {
+            if (key != null && value != null) {
+                values.put(key, String.valueOf(value));
+            }
+        });
+        return values.isEmpty() ? null : values;
+    }
+
     /**
      * Prints a colored log message to the CLI based on the log type.
      */
-    private void printColoredLog(LogType type, String message, String source) {
+    private void printColoredLog(LogType type, String message, String source, String requestId) {
         String color = getColorForType(type);
         String timestamp = LocalDateTime.now().toString();
-        String sourceInfo = source != null ? " [" + source + "]" : "";
+        String sourceInfo = (source != null ? " [" + source + "]" : "") + (requestId != null ? " (" + requestId + ")" : "");
 
         String formattedLog = String.format(
                 "%s%s[%s]%s %s%s: %s",
@@ -0,0 +1,164 @@
+package com.booker.modules.media.config;
+
+import java.nio.file.Path;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the {@code /media} proxy that serves stored objects from a local disk cache, and
+ * for the collector that removes stored objects no longer in use.
+ */
+@Component
+@ConfigurationProperties(prefix = "media")
+public class MediaProperties {
+
+    /**
+     * Whether {@code /media} serves objects; when off it answers 404 and the cache is never created.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory of the cache; its content is discarded at startup.
+     */
+    private Path cacheDir = Path.of(System.getProperty("java.io.tmpdir"), "booker-media");
+
+    /**
+     * Total size of the cached files before the least recently used are evicted, in bytes.
+     */
+    private long maxCacheBytes = 512L * 1024 * 1024;
+
+    /**
+     * How long clients may cache an object, in seconds. Avatars get a new name on every upload, so
+     * this can be long.
+     */
+    private long maxAgeSeconds = 31_536_000;
+
+    /**
+     * How long a cached object is served before checking that it still exists and is unchanged
+     * in MinIO, in seconds.
+     */
+    private long revalidateSeconds = 3600;
+
+    /**
+     * Whether to hand files to Tomcat's sendfile when the connector supports it.
+     */
+    private boolean sendfile = true;
+
+    /**
+     * Background removal of objects no user refers to any more.
+     */
+    private Gc gc = new Gc();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public long getMaxCacheBytes() {
+        return maxCacheBytes;
+    }
+
+    public void setMaxCacheBytes(long maxCacheBytes) {
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    public long getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    public void setMaxAgeSeconds(long maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    public long getRevalidateSeconds() {
+        return revalidateSeconds;
+    }
+
+    public void setRevalidateSeconds(long revalidateSeconds) {
+        this.revalidateSeconds = revalidateSeconds;
+    }
+
+    public boolean isSendfile() {
+        return sendfile;
+    }
+
+    public void setSendfile(boolean sendfile) {
+        this.sendfile = sendfile;
+    }
+
+    public Gc getGc() {
+        return gc;
+    }
+
+    public void setGc(Gc gc) {
+        this.gc = gc;
+    }
+
+    public static class Gc {
+
+        /**
+         * Whether the scheduled run is active.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Objects listed per request to MinIO; MinIO returns at most 1000.
+         */
+        private int pageSize = 1000;
+
+        /**
+         * Requests per second to MinIO, listing and deleting together.
+         */
+        private double requestsPerSecond = 5;
+
+        /**
+         * Objects younger than this are never removed, so an upload whose user is not saved yet, or
+         * that is not confirmed yet, is left alone, in seconds.
+         */
+        private long minAgeSeconds = 86_400;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public long getMinAgeSeconds() {
+            return minAgeSeconds;
+        }
+
+        public void setMinAgeSeconds(long minAgeSeconds) {
+            this.minAgeSeconds = minAgeSeconds;
+        }
+    }
+}
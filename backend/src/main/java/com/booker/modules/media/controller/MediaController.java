@@ -0,0 +1,159 @@
+package com.booker.modules.media.controller;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.booker.constants.routes.Namespaces;
+import com.booker.constants.routes.Routes;
+import com.booker.modules.media.config.MediaProperties;
+import com.booker.modules.media.service.ByteRange;
+import com.booker.modules.media.service.CachedMedia;
+import com.booker.modules.media.service.MediaCache;
+import com.booker.services.AvatarRenditionService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serves stored objects, such as profile images, from the local media cache.
+ * Point {@code minio.public-url} at this endpoint to have clients use it instead of MinIO.
+ *
+ * Supports conditional requests on the object's ETag and single byte ranges. Files are handed to
+ * Tomcat's sendfile when the connector supports it, and otherwise copied with
+ * {@link FileChannel#transferTo}.
+ */
+@RestController
+@RequestMapping(Namespaces.MEDIA)
+public class MediaController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final MediaCache mediaCache;
+    private final MediaProperties properties;
+
+    public MediaController(MediaCache mediaCache, MediaProperties properties) {
+        this.mediaCache = mediaCache;
+        this.properties = properties;
+    }
+
+    /**
+     * Gets a stored object, or part of it.
+     */
+    @RequestMapping(value = Routes.MEDIA_OBJECT, method = { RequestMethod.GET, RequestMethod.HEAD })
+    public void get(@PathVariable String object, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String objectName = object.startsWith("/") ? object.substring(1) : object;
+        // Unconfirmed uploads have not been checked yet
+        if (!properties.isEnabled() || objectName.isEmpty() || objectName.startsWith(AvatarRenditionService.UPLOAD_PREFIX)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        CachedMedia media;
+        try {
+            media = mediaCache.get(objectName);
+        } catch (IOException e) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        if (media == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        String etag = "\"" + media.etag() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(Duration.ofSeconds(properties.getMaxAgeSeconds()))
+                .cachePublic().immutable().getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), media.etag())) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        ByteRange range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), media.size());
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && ifRange != null && !ifRange.equals(etag)) {
+            range = null;
+        }
+        if (range == ByteRange.UNSATISFIABLE) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + media.size());
+            return;
+        }
+
+        long start = 0;
+        long length = media.size();
+        if (range != null) {
+            start = range.start();
+            length = range.length();
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range.start() + "-" + range.end() + "/" + media.size());
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+        }
+        if (media.contentType() != null) {
+            response.setContentType(media.contentType());
+        }
+        response.setContentLengthLong(length);
+        if (RequestMethod.HEAD.name().equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (properties.isSendfile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, media.file().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+        } else {
+            try (FileChannel channel = FileChannel.open(media.file(), StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long position = start;
+                long end = start + length;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, out);
+                    if (sent <= 0) {
+                        throw new IOException("Cached media file ended early: " + media.file());
+                    }
+                    position += sent;
+                }
+            }
+        }
+        mediaCache.recordServed(length);
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header lists the ETag; weak and strong forms both match.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("\"" + etag + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
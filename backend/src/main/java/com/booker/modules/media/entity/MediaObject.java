@@ -0,0 +1,54 @@
+package com.booker.modules.media.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+
+/**
+ * A set of renditions stored once by content under {@code media/{hash}/}, with the number of
+ * users pointing at it. Rows are written by {@code MediaStore} with plain SQL, so concurrent
+ * uploads of the same content can share a row without lost updates.
+ */
+@Entity
+@Table(name = "media_objects")
+public class MediaObject {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public MediaObject() {
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.booker.modules.media.service;
+
+/**
+ * A single byte range of an object, with both ends included, as asked for by a {@code Range} header.
+ */
+public record ByteRange(long start, long end) {
+
+    /**
+     * A range that lies entirely past the end of the object.
+     */
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * Reads a {@code Range} header against an object of the given size.
+     *
+     * Only a single range of bytes is supported; anything else, including a malformed header, is
+     * ignored as the HTTP spec allows, so the whole object is sent.
+     *
+     * @return the range clamped to the object, {@link #UNSATISFIABLE}, or null to send the whole object
+     */
+    public static ByteRange parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size) {
+                return UNSATISFIABLE;
+            }
+            return start <= end ? new ByteRange(start, end) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.booker.modules.media.service;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * An object held in the media cache.
+ *
+ * @param objectName the object path in MinIO
+ * @param file       local copy of the object
+ * @param size       size of the object in bytes
+ * @param etag       ETag reported by MinIO, without quotes
+ * @param contentType content type stored with the object
+ * @param verifiedAt when the copy was last known to match MinIO
+ */
+public record CachedMedia(String objectName, Path file, long size, String etag, String contentType, Instant verifiedAt) {
+
+    CachedMedia verified(Instant at) {
+        return new CachedMedia(objectName, file, size, etag, contentType, at);
+    }
+}
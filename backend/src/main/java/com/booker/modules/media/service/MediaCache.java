@@ -0,0 +1,253 @@
+package com.booker.modules.media.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.media.config.MediaProperties;
+import com.booker.services.MinioService;
+import com.booker.services.MinioService.StoredObject;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Local disk copy of the MinIO objects served by {@code /media}, bounded by size and evicting the
+ * least recently used objects first.
+ *
+ * A miss downloads the object once however many requests are waiting for it: the first request
+ * fills the cache and the others wait for its result. Every fill writes a new file, so a file never
+ * changes while it is being sent. Evicted files are deleted a little later rather than at once, as
+ * a response handed to Tomcat's sendfile opens its file only after the controller returns. Objects
+ * are checked against MinIO again every {@code media.revalidate-seconds}, so a deleted or
+ * overwritten object stops being served within that time.
+ */
+@Service
+public class MediaCache {
+
+    // Time an evicted file stays on disk for responses that are still sending it
+    private static final Duration EVICTION_GRACE = Duration.ofMinutes(1);
+
+    private final MinioService minioService;
+    private final LoggerService loggerService;
+    private final MediaProperties properties;
+
+    // Access ordered, so iteration starts at the least recently used object; guarded by itself
+    private final LinkedHashMap<String, CachedMedia> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Deque<Evicted> evicted = new ArrayDeque<>();
+    private long cachedBytes;
+
+    private final Map<String, CompletableFuture<CachedMedia>> loading = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter bytesServedCounter;
+
+    public MediaCache(MinioService minioService, LoggerService loggerService, MediaProperties properties,
+            MeterRegistry meterRegistry) {
+        this.minioService = minioService;
+        this.loggerService = loggerService;
+        this.properties = properties;
+        this.hitCounter = meterRegistry.counter("media.cache.hits");
+        this.missCounter = meterRegistry.counter("media.cache.misses");
+        this.bytesServedCounter = meterRegistry.counter("media.bytes.served");
+        meterRegistry.gauge("media.cache.hit.ratio", this, MediaCache::hitRatio);
+        meterRegistry.gauge("media.cache.size.bytes", this, MediaCache::getCachedBytes);
+    }
+
+    /**
+     * Creates the cache directory and discards what a previous run left in it, whose index was
+     * only kept in memory.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Files.createDirectories(properties.getCacheDir());
+        try (Stream<Path> files = Files.list(properties.getCacheDir())) {
+            files.forEach(MediaCache::deleteQuietly);
+        }
+    }
+
+    /**
+     * Returns the cached copy of an object, downloading it from MinIO on a miss.
+     *
+     * @param objectName the object path in MinIO
+     * @return the cached object, or null if MinIO has no such object
+     * @throws IOException if MinIO or the local disk fail
+     */
+    public CachedMedia get(String objectName) throws IOException {
+        CachedMedia cached;
+        synchronized (entries) {
+            cached = entries.get(objectName);
+        }
+        if (cached != null && cached.verifiedAt().plusSeconds(properties.getRevalidateSeconds()).isAfter(Instant.now())) {
+            hitCounter.increment();
+            return cached;
+        }
+
+        CompletableFuture<CachedMedia> mine = new CompletableFuture<>();
+        CompletableFuture<CachedMedia> running = loading.putIfAbsent(objectName, mine);
+        if (running != null) {
+            hitCounter.increment();
+            return await(running);
+        }
+        try {
+            CachedMedia loaded = load(objectName, cached);
+            mine.complete(loaded);
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(objectName, mine);
+        }
+    }
+
+    /**
+     * Counts bytes sent to clients.
+     */
+    public void recordServed(long bytes) {
+        bytesServedCounter.increment(bytes);
+    }
+
+    /**
+     * Share of requests answered without downloading from MinIO.
+     */
+    public double hitRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    public long getCachedBytes() {
+        synchronized (entries) {
+            return cachedBytes;
+        }
+    }
+
+    private CachedMedia load(String objectName, CachedMedia previous) throws IOException {
+        StoredObject stored = minioService.statFile(objectName);
+        if (stored == null) {
+            missCounter.increment();
+            remove(objectName);
+            return null;
+        }
+        if (previous != null && stored.etag() != null && stored.etag().equals(previous.etag())) {
+            // Unchanged in MinIO: the copy on disk is still good
+            hitCounter.increment();
+            CachedMedia verified = previous.verified(Instant.now());
+            synchronized (entries) {
+                entries.replace(objectName, previous, verified);
+            }
+            return verified;
+        }
+
+        missCounter.increment();
+        Path directory = properties.getCacheDir();
+        Path temp = Files.createTempFile(directory, "fill-", ".tmp");
+        try {
+            try (InputStream in = minioService.openFile(objectName)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Path file = directory.resolve(UUID.randomUUID() + ".bin");
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            CachedMedia media = new CachedMedia(objectName, file, Files.size(file), stored.etag(),
+                    stored.contentType(), Instant.now());
+            put(media);
+            return media;
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private void put(CachedMedia media) {
+        synchronized (entries) {
+            CachedMedia replaced = entries.put(media.objectName(), media);
+            cachedBytes += media.size();
+            if (replaced != null) {
+                evict(replaced);
+            }
+            // The object just added is never evicted, even if it alone is over the limit
+            Iterator<CachedMedia> eldest = entries.values().iterator();
+            while (cachedBytes > properties.getMaxCacheBytes() && entries.size() > 1) {
+                CachedMedia victim = eldest.next();
+                eldest.remove();
+                evict(victim);
+            }
+            purgeEvicted();
+        }
+        loggerService.info("Cached media object {} ({} bytes)", "MediaCache",
+                LogContext.of("objectName", media.objectName()), media.objectName(), media.size());
+    }
+
+    private void remove(String objectName) {
+        synchronized (entries) {
+            CachedMedia removed = entries.remove(objectName);
+            if (removed != null) {
+                evict(removed);
+            }
+        }
+    }
+
+    // Callers hold the lock on entries
+    private void evict(CachedMedia media) {
+        cachedBytes -= media.size();
+        evicted.addLast(new Evicted(media.file(), Instant.now()));
+    }
+
+    private void purgeEvicted() {
+        Instant cutoff = Instant.now().minus(EVICTION_GRACE);
+        while (!evicted.isEmpty() && evicted.peekFirst().at().isBefore(cutoff)) {
+            deleteQuietly(evicted.removeFirst().file());
+        }
+    }
+
+    private static CachedMedia await(CompletableFuture<CachedMedia> running) throws IOException {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Failed to load media object", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for media object", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left for the next startup to clean up
+        }
+    }
+
+    private record Evicted(Path file, Instant at) {
+    }
+}
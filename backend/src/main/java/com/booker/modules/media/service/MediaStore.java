@@ -0,0 +1,124 @@
+package com.booker.modules.media.service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.booker.services.AvatarRenditionService;
+import com.booker.services.AvatarRenditionService.Rendition;
+import com.booker.services.MinioService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Stores rendition sets by content, so identical images are kept once however many users
+ * upload them.
+ *
+ * A set lives under {@code media/{hash}/} and has a {@code media_objects} row counting the users
+ * that point at it. Storing a set is split in two: {@link #upload} puts the objects in MinIO unless
+ * the row already exists, and {@link #acquire} counts the reference. The count only changes in the
+ * transaction that points a user at the set or away from it, so it never drifts from the users
+ * when a request fails half way. Releasing a set only lowers the count: sets nobody points at any
+ * more are removed by the media GC once they have been unused for {@code media.gc.min-age-seconds},
+ * so an upload of the same content in the meantime can still reuse them.
+ */
+@Service
+public class MediaStore {
+
+    private static final String TOUCH_SQL = "UPDATE media_objects SET updated_at = now() WHERE hash = ?";
+
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO media_objects (hash, size, ref_count, created_at, updated_at) VALUES (?, ?, 1, now(), now()) "
+                    + "ON CONFLICT (hash) DO UPDATE SET ref_count = media_objects.ref_count + 1, updated_at = now()";
+
+    private static final String RELEASE_SQL =
+            "UPDATE media_objects SET ref_count = ref_count - 1, updated_at = now() WHERE hash = ? AND ref_count > 0";
+
+    private final MinioService minioService;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter bytesSavedCounter;
+
+    public MediaStore(MinioService minioService, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.minioService = minioService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitCounter = meterRegistry.counter("media.dedup.hits");
+        this.missCounter = meterRegistry.counter("media.dedup.misses");
+        this.bytesSavedCounter = meterRegistry.counter("media.dedup.bytes.saved");
+        meterRegistry.gauge("media.dedup.ratio", this, MediaStore::dedupRatio);
+    }
+
+    /**
+     * Makes sure a set of renditions is stored, uploading it if it is not. No reference is taken:
+     * a set uploaded here and never acquired has no row and is removed by the media GC.
+     *
+     * An existing row has its {@code updated_at} refreshed, so the GC does not purge an unused set
+     * between this call and the {@link #acquire} that follows it.
+     *
+     * @param renditions renditions keyed by size, largest first
+     * @return the stored set, with public URLs keyed by size in the order given
+     * @throws IOException if the upload fails
+     */
+    public StoredSet upload(Map<Integer, Rendition> renditions) throws IOException {
+        String hash = AvatarRenditionService.setHash(renditions);
+        long size = renditions.values().stream().mapToLong(r -> r.content().length).sum();
+
+        if (jdbcTemplate.update(TOUCH_SQL, hash) > 0) {
+            hitCounter.increment();
+            bytesSavedCounter.increment(size);
+        } else {
+            missCounter.increment();
+            Map<String, byte[]> objects = new LinkedHashMap<>();
+            renditions.forEach((s, rendition) -> objects.put(AvatarRenditionService.objectName(hash, s), rendition.content()));
+            // Another request may be uploading the same set, so a failure leaves the objects to the GC
+            minioService.uploadFiles(objects, AvatarRenditionService.CONTENT_TYPE, false);
+        }
+
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        for (Integer s : renditions.keySet()) {
+            urls.put(s, minioService.buildPublicUrl(AvatarRenditionService.objectName(hash, s)));
+        }
+        return new StoredSet(hash, size, urls);
+    }
+
+    /**
+     * Takes a reference on an uploaded set, creating its row if needed. Meant to run in the
+     * transaction that points the user at the set.
+     */
+    public void acquire(StoredSet set) {
+        jdbcTemplate.update(ACQUIRE_SQL, set.hash(), set.size());
+    }
+
+    /**
+     * Drops a reference on a set of renditions. Meant to run in the transaction that points the
+     * user away from the set.
+     */
+    public void release(String hash) {
+        jdbcTemplate.update(RELEASE_SQL, hash);
+    }
+
+    /**
+     * Share of stored sets that were already present and not uploaded again.
+     */
+    public double dedupRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    /**
+     * A set of renditions stored by content.
+     *
+     * @param hash the set hash
+     * @param size total size of the renditions in bytes
+     * @param urls public URLs keyed by size, largest first
+     */
+    public record StoredSet(String hash, long size, Map<Integer, String> urls) {
+    }
+}
@@ -0,0 +1,357 @@
+package com.booker.modules.media.service;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.booker.modules.job.entity.JobCheckpoint;
+import com.booker.modules.job.repository.JobCheckpointRepository;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.media.config.MediaProperties;
+import com.booker.services.AvatarRenditionService;
+import com.booker.services.MinioService;
+import com.booker.services.MinioService.ListedObject;
+import com.booker.utils.concurrent.TokenBucket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Removes stored objects that no user refers to any more: previous profile images whose deletion
+ * failed, images of deleted users, uploads that were never confirmed and sets stored by content
+ * whose reference count has dropped to zero.
+ *
+ * A run first recounts the references of every {@code media_objects} row from
+ * {@code users.profile_image_url}, so a count that has drifted is corrected rather than trusted,
+ * then drops the rows that have had no references for {@code media.gc.min-age-seconds} and that
+ * no user points at. The objects of a set without a row are then removed like any other orphan.
+ *
+ * The bucket is listed a page at a time in name order. The owners of a page are looked up with
+ * one query, the sets stored by content with another, and the objects of the page that are
+ * neither the owner's current image nor younger than {@code media.gc.min-age-seconds} are removed
+ * with one multi-object delete. The sets are looked up again right before the delete, so a set
+ * stored anew while the collector waited is kept. The name of the last object of each page is
+ * stored as a checkpoint, so an interrupted run resumes from there. Requests
+ * to MinIO go through a token bucket so the collector never competes with uploads for long.
+ * Objects whose name does not follow a known layout are never touched.
+ */
+@Service
+public class OrphanObjectCollector {
+
+    static final String JOB_NAME = "media.gc";
+
+    private static final String AVATARS_PREFIX = "avatars/";
+
+    private static final String OWNERS_SQL =
+            "SELECT id, profile_image_url, profile_image_sizes FROM users WHERE id = ANY(?)";
+
+    private static final String STORED_SETS_SQL = "SELECT hash FROM media_objects WHERE hash = ANY(?)";
+
+    /** Hashes of the sets users point at, one row per user, read from their image URL. */
+    private static final String USER_SETS_SQL =
+            "SELECT substring(profile_image_url FROM '/media/([0-9a-f]+)/') AS hash FROM users "
+                    + "WHERE profile_image_url LIKE '%/media/%'";
+
+    // A corrected row counts as just used, so a set that was under-counted is not purged this run
+    private static final String RECOUNT_SQL =
+            "WITH refs AS (SELECT hash, count(*) AS refs FROM (" + USER_SETS_SQL + ") s "
+                    + "WHERE hash IS NOT NULL GROUP BY hash) "
+                    + "UPDATE media_objects m SET ref_count = coalesce(r.refs, 0), updated_at = now() "
+                    + "FROM media_objects c LEFT JOIN refs r ON r.hash = c.hash "
+                    + "WHERE m.hash = c.hash AND m.ref_count <> coalesce(r.refs, 0)";
+
+    private static final String PURGE_SQL =
+            "DELETE FROM media_objects WHERE ref_count <= 0 AND updated_at < ? "
+                    + "AND hash NOT IN (SELECT hash FROM (" + USER_SETS_SQL + ") s WHERE hash IS NOT NULL)";
+
+    private final MinioService minioService;
+    private final JdbcTemplate jdbcTemplate;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final LoggerService loggerService;
+    private final MediaProperties.Gc properties;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Counter deletedCounter;
+    private final Counter reclaimedCounter;
+
+    public OrphanObjectCollector(MinioService minioService, JdbcTemplate jdbcTemplate,
+            JobCheckpointRepository jobCheckpointRepository, LoggerService loggerService,
+            MediaProperties mediaProperties, MeterRegistry meterRegistry) {
+        this.minioService = minioService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.loggerService = loggerService;
+        this.properties = mediaProperties.getGc();
+
+        this.deletedCounter = meterRegistry.counter("media.gc.deleted");
+        this.reclaimedCounter = meterRegistry.counter("media.gc.reclaimed.bytes");
+        meterRegistry.gauge("media.gc.running", running, r -> r.get() ? 1 : 0);
+    }
+
+    /**
+     * Scheduled entry point. The run takes as long as the rate limit needs, so it is started on its
+     * own virtual thread and does not hold a scheduler thread the short periodic jobs need.
+     */
+    @Scheduled(cron = "${media.gc.cron:0 30 4 * * *}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            Thread.ofVirtual().name("media-gc").start(this::collect);
+        }
+    }
+
+    /**
+     * Goes through the whole bucket once, starting from the last checkpoint if a previous run was
+     * interrupted.
+     *
+     * @return the outcome of the run, or null if a run is already in progress
+     */
+    public Result collect() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        long started = System.nanoTime();
+        long listed = 0;
+        long deleted = 0;
+        long reclaimed = 0;
+        try {
+            String cursor = loadCheckpoint();
+            int pageSize = Math.min(1000, Math.max(1, properties.getPageSize()));
+            TokenBucket rateLimiter = new TokenBucket(1, Math.max(0.01, properties.getRequestsPerSecond()));
+            Instant youngest = Instant.now().minusSeconds(properties.getMinAgeSeconds());
+            int corrected = jdbcTemplate.update(RECOUNT_SQL);
+            if (corrected > 0) {
+                loggerService.warning("Media GC corrected the reference count of {} sets", "OrphanObjectCollector",
+                        LogContext.of("job", JOB_NAME), corrected);
+            }
+            int released = jdbcTemplate.update(PURGE_SQL, Timestamp.from(youngest));
+            if (released > 0) {
+                loggerService.info("Media GC released {} unreferenced sets", "OrphanObjectCollector",
+                        LogContext.of("job", JOB_NAME), released);
+            }
+
+            while (true) {
+                rateLimiter.acquire();
+                List<ListedObject> page = minioService.listFiles(cursor, pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                listed += page.size();
+
+                List<ListedObject> orphans = findOrphans(page, youngest);
+                if (!orphans.isEmpty()) {
+                    rateLimiter.acquire();
+                    orphans = withoutStoredSets(orphans);
+                }
+                if (!orphans.isEmpty()) {
+                    Set<String> failed = minioService.deleteFiles(orphans.stream().map(ListedObject::name).toList());
+                    for (ListedObject orphan : orphans) {
+                        if (!failed.contains(orphan.name())) {
+                            deleted++;
+                            reclaimed += orphan.size();
+                            deletedCounter.increment();
+                            reclaimedCounter.increment(orphan.size());
+                        }
+                    }
+                }
+
+                cursor = page.get(page.size() - 1).name();
+                saveCheckpoint(cursor);
+                if (page.size() < pageSize) {
+                    break;
+                }
+            }
+
+            jobCheckpointRepository.deleteById(JOB_NAME);
+            Result result = new Result(listed, deleted, reclaimed, (System.nanoTime() - started) / 1_000_000);
+            loggerService.info("Media GC finished: {} objects listed, {} deleted, {} bytes reclaimed in {} ms",
+                    "OrphanObjectCollector", LogContext.of("job", JOB_NAME),
+                    result.listed(), result.deleted(), result.reclaimedBytes(), result.elapsedMs());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            loggerService.warning("Media GC interrupted after {} objects, will resume from checkpoint",
+                    "OrphanObjectCollector", LogContext.of("job", JOB_NAME), listed);
+            return new Result(listed, deleted, reclaimed, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            loggerService.error("Media GC stopped after {} objects, will resume from checkpoint: {}", "OrphanObjectCollector",
+                    LogContext.of("job", JOB_NAME), listed, e.getMessage());
+            return new Result(listed, deleted, reclaimed, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            loggerService.error("Media GC failed after {} objects: {}", "OrphanObjectCollector",
+                    LogContext.of("job", JOB_NAME), listed, e.getMessage());
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Picks the objects of a page that can be removed.
+     */
+    List<ListedObject> findOrphans(List<ListedObject> page, Instant youngest) {
+        List<ListedObject> candidates = new ArrayList<>();
+        Set<UUID> owners = new LinkedHashSet<>();
+        Set<String> hashes = new LinkedHashSet<>();
+        for (ListedObject object : page) {
+            if (object.lastModified() == null || object.lastModified().isAfter(youngest)) {
+                continue;
+            }
+            String hash = AvatarRenditionService.setHash(object.name());
+            UUID owner = hash == null ? ownerOf(object.name()) : null;
+            if (hash != null) {
+                hashes.add(hash);
+            } else if (owner != null) {
+                owners.add(owner);
+            } else {
+                continue;
+            }
+            candidates.add(object);
+        }
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        Set<String> referenced = owners.isEmpty() ? Set.of() : referencedObjects(owners);
+        Set<String> stored = hashes.isEmpty() ? Set.of() : storedSets(hashes);
+        List<ListedObject> orphans = new ArrayList<>();
+        for (ListedObject candidate : candidates) {
+            String hash = AvatarRenditionService.setHash(candidate.name());
+            if (hash != null) {
+                if (!stored.contains(hash)) {
+                    orphans.add(candidate);
+                }
+            } else if (candidate.name().startsWith(AvatarRenditionService.UPLOAD_PREFIX) || !referenced.contains(candidate.name())) {
+                // Confirmed uploads are deleted right away, so anything left there this old was abandoned
+                orphans.add(candidate);
+            }
+        }
+        return orphans;
+    }
+
+    /**
+     * Drops the objects of sets that have been stored again since the page was checked. Waiting for
+     * the rate limiter can take a while, and an upload of the same content in that time reuses the
+     * objects about to be deleted, so the rows are looked up once more right before the delete.
+     */
+    List<ListedObject> withoutStoredSets(List<ListedObject> orphans) {
+        Set<String> hashes = new LinkedHashSet<>();
+        for (ListedObject orphan : orphans) {
+            String hash = AvatarRenditionService.setHash(orphan.name());
+            if (hash != null) {
+                hashes.add(hash);
+            }
+        }
+        if (hashes.isEmpty()) {
+            return orphans;
+        }
+        Set<String> stored = storedSets(hashes);
+        if (stored.isEmpty()) {
+            return orphans;
+        }
+        return orphans.stream()
+                .filter(orphan -> !stored.contains(AvatarRenditionService.setHash(orphan.name())))
+                .toList();
+    }
+
+    /**
+     * Hashes of the sets that still have a {@code media_objects} row.
+     */
+    private Set<String> storedSets(Set<String> hashes) {
+        String[] values = hashes.toArray(String[]::new);
+        Set<String> stored = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STORED_SETS_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", values));
+            return ps;
+        }, rs -> {
+            stored.add(rs.getString(1));
+        });
+        return stored;
+    }
+
+    /**
+     * Names of every object that is the current image of one of the users.
+     */
+    private Set<String> referencedObjects(Set<UUID> owners) {
+        UUID[] ids = owners.toArray(UUID[]::new);
+        Set<String> referenced = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(OWNERS_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            return ps;
+        }, rs -> {
+            String url = rs.getString(2);
+            if (url == null) {
+                return;
+            }
+            Map<Integer, String> urls = AvatarRenditionService.renditionUrls(url, rs.getString(3));
+            for (String rendition : urls.isEmpty() ? List.of(url) : urls.values()) {
+                String objectName = minioService.extractObjectName(rendition);
+                if (objectName != null) {
+                    referenced.add(objectName);
+                }
+            }
+        });
+        return referenced;
+    }
+
+    /**
+     * Reads the user an object belongs to from its name: {@code avatars/{userId}/...} for renditions,
+     * {@code avatars/{userId}.ext} for images stored as uploaded and {@code uploads/{userId}/...} for
+     * unconfirmed uploads.
+     *
+     * @return the user id, or null if the name does not follow a known layout
+     */
+    static UUID ownerOf(String objectName) {
+        String rest;
+        if (objectName.startsWith(AVATARS_PREFIX)) {
+            rest = objectName.substring(AVATARS_PREFIX.length());
+        } else if (objectName.startsWith(AvatarRenditionService.UPLOAD_PREFIX)) {
+            rest = objectName.substring(AvatarRenditionService.UPLOAD_PREFIX.length());
+        } else {
+            return null;
+        }
+        int end = rest.indexOf('/');
+        if (end < 0) {
+            end = rest.indexOf('.');
+        }
+        try {
+            return UUID.fromString(end < 0 ? rest : rest.substring(0, end));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String loadCheckpoint() {
+        return jobCheckpointRepository.findById(JOB_NAME)
+                .map(JobCheckpoint::getCursor)
+                .orElse(null);
+    }
+
+    private void saveCheckpoint(String cursor) {
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(JOB_NAME)
+                .orElseGet(() -> new JobCheckpoint(JOB_NAME, null));
+        checkpoint.setCursor(cursor);
+        jobCheckpointRepository.save(checkpoint);
+    }
+
+    /**
+     * Summary of a collection run.
+     */
+    public record Result(long listed, long deleted, long reclaimedBytes, long elapsedMs) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.booker.modules.notification.config;
+
+import java.time.ZoneId;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for appointment notifications and the professionals' daily digest.
+ */
+@Component
+@ConfigurationProperties(prefix = "notifications")
+public class NotificationProperties {
+
+    /**
+     * How long changes for a recipient are buffered, counted from the first one, in seconds.
+     */
+    private long windowSeconds = 60;
+
+    /**
+     * Recipients flushed per transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Zone used to format appointment times and to decide what "today" is for the digest.
+     */
+    private ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * Daily agenda sent to professionals who opted in.
+     */
+    private Digest digest = new Digest();
+
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public void setWindowSeconds(long windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public void setZone(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public Digest getDigest() {
+        return digest;
+    }
+
+    public void setDigest(Digest digest) {
+        this.digest = digest;
+    }
+
+    public static class Digest {
+
+        /**
+         * Whether the scheduled digest runs on this instance.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Professionals loaded per page.
+         */
+        private int pageSize = 200;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.booker.modules.notification.entity;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+
+/**
+ * An appointment change waiting to be told to the customer, buffered by {@code NotificationAggregator}.
+ *
+ * There is at most one row per appointment: a later change to the same appointment is merged into
+ * it, and a booking cancelled before it was ever announced removes the row. Rows are grouped by
+ * recipient when they are flushed, so a customer gets one email for everything that happened within
+ * the window.
+ */
+@Entity
+@Table(name = "pending_notifications",
+        uniqueConstraints = @UniqueConstraint(name = "uk_pending_notifications_appointment", columnNames = "appointment_id"),
+        indexes = @Index(name = "idx_pending_notifications_recipient_created_at", columnList = "recipient, created_at"))
+public class PendingNotification {
+
+    public static final String KIND_BOOKED = "booked";
+    public static final String KIND_RESCHEDULED = "rescheduled";
+    public static final String KIND_CANCELLED = "cancelled";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "appointment_id", nullable = false)
+    private UUID appointmentId;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(name = "customer_name", nullable = false)
+    private String customerName;
+
+    // Customer's language tag; null for the default locale
+    @Column(length = 35)
+    private String locale;
+
+    @Column(nullable = false, length = 20)
+    private String kind;
+
+    @Column(name = "start_time", nullable = false)
+    private Instant startTime;
+
+    // Set when the row is first written and kept through merges, so the window never slides
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public PendingNotification() {
+    }
+
+    public PendingNotification(UUID appointmentId, String recipient, String customerName, Locale locale, String kind,
+            Instant startTime) {
+        this.appointmentId = appointmentId;
+        this.recipient = recipient;
+        this.customerName = customerName;
+        setLocale(locale);
+        this.kind = kind;
+        this.startTime = startTime;
+    }
+
+    @PrePersist
+    void onCreate() {
+        this.createdAt = Instant.now();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getAppointmentId() {
+        return appointmentId;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public Locale getLocale() {
+        return locale != null ? Locale.forLanguageTag(locale) : null;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public void setLocale(Locale locale) {
+        this.locale = locale != null ? locale.toLanguageTag() : null;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public void setStartTime(Instant startTime) {
+        this.startTime = startTime;
+    }
+}
@@ -0,0 +1,24 @@
+package com.booker.modules.notification.repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.booker.modules.notification.entity.PendingNotification;
+
+import jakarta.persistence.LockModeType;
+
+public interface PendingNotificationRepository extends JpaRepository<PendingNotification, UUID> {
+
+    /**
+     * Loads the buffered notification of an appointment and locks it until the transaction ends, so
+     * a merge cannot interleave with a flush or another change to the same appointment.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n FROM PendingNotification n WHERE n.appointmentId = :appointmentId")
+    Optional<PendingNotification> findByAppointmentIdForUpdate(@Param("appointmentId") UUID appointmentId);
+}
@@ -0,0 +1,281 @@
+package com.booker.modules.notification.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booker.modules.appointment.entity.Appointment;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.customer.entity.Customer;
+import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.notification.config.NotificationProperties;
+import com.booker.modules.notification.entity.PendingNotification;
+import com.booker.modules.notification.repository.PendingNotificationRepository;
+import com.booker.modules.professional.entity.Professional;
+import com.booker.modules.professional.repository.ProfessionalRepository;
+import com.booker.modules.service.repository.ServiceRepository;
+import com.booker.services.EmailService;
+import com.booker.services.EmailService.AppointmentUpdate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Buffers appointment changes per customer and tells them about all of them in one email.
+ *
+ * Each change is written to {@code pending_notifications} in the transaction of the change itself,
+ * merged with what is already buffered for the same appointment: a booking cancelled before it was
+ * announced disappears, a booking that is moved is announced once at its new time, and otherwise the
+ * latest change wins. Once the oldest change of a customer is {@code notifications.window-seconds}
+ * old, all of that customer's rows are deleted and turned into one email in the outbox, in the same
+ * transaction, so a change is announced exactly once even with several instances flushing. The
+ * appointments, professionals and services of a whole batch are loaded with one query each.
+ */
+@Service
+public class NotificationAggregator {
+
+    private static final String FLUSH_SQL =
+            "DELETE FROM pending_notifications WHERE recipient IN ("
+                    + "SELECT recipient FROM pending_notifications GROUP BY recipient HAVING MIN(created_at) <= ? "
+                    + "ORDER BY MIN(created_at) LIMIT ?) "
+                    + "RETURNING appointment_id, recipient, customer_name, locale, kind, start_time";
+
+    private final PendingNotificationRepository pendingNotificationRepository;
+    private final CustomerRepository customerRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ProfessionalRepository professionalRepository;
+    private final ServiceRepository serviceRepository;
+    private final EmailService emailService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggerService loggerService;
+    private final NotificationProperties properties;
+    private final Counter coalescedCounter;
+    private final Counter sentCounter;
+
+    public NotificationAggregator(PendingNotificationRepository pendingNotificationRepository,
+            CustomerRepository customerRepository, AppointmentRepository appointmentRepository,
+            ProfessionalRepository professionalRepository, ServiceRepository serviceRepository, EmailService emailService,
+            JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, LoggerService loggerService,
+            NotificationProperties properties, MeterRegistry meterRegistry) {
+        this.pendingNotificationRepository = pendingNotificationRepository;
+        this.customerRepository = customerRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.professionalRepository = professionalRepository;
+        this.serviceRepository = serviceRepository;
+        this.emailService = emailService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.loggerService = loggerService;
+        this.properties = properties;
+        this.coalescedCounter = meterRegistry.counter("notifications.coalesced");
+        this.sentCounter = meterRegistry.counter("notifications.sent");
+    }
+
+    /**
+     * Records that an appointment was booked.
+     */
+    @Transactional
+    public void booked(Appointment appointment) {
+        record(appointment, PendingNotification.KIND_BOOKED);
+    }
+
+    /**
+     * Records that an appointment was moved to its current start time.
+     */
+    @Transactional
+    public void rescheduled(Appointment appointment) {
+        record(appointment, PendingNotification.KIND_RESCHEDULED);
+    }
+
+    /**
+     * Records that an appointment was cancelled.
+     */
+    @Transactional
+    public void cancelled(Appointment appointment) {
+        record(appointment, PendingNotification.KIND_CANCELLED);
+    }
+
+    /**
+     * Sends the buffered changes of every customer whose window has closed, batch by batch until no
+     * full batch is left.
+     *
+     * @return number of emails queued
+     */
+    @Scheduled(fixedDelayString = "${notifications.flush-interval-ms:5000}")
+    public int flush() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        int queued = 0;
+        while (true) {
+            Integer recipients = transactionTemplate.execute(status -> flushBatch(batchSize));
+            int flushed = recipients != null ? recipients : 0;
+            queued += flushed;
+            if (flushed < batchSize) {
+                return queued;
+            }
+        }
+    }
+
+    /**
+     * Merges a new change into the one already buffered for the same appointment.
+     *
+     * @return the kind to keep, or {@code null} if nothing is left to say
+     */
+    static String merge(String buffered, String next) {
+        if (PendingNotification.KIND_BOOKED.equals(buffered)) {
+            // The customer never heard of this booking: announce it at its new time, or not at all
+            return PendingNotification.KIND_CANCELLED.equals(next) ? null : PendingNotification.KIND_BOOKED;
+        }
+        return next;
+    }
+
+    private void record(Appointment appointment, String kind) {
+        Customer customer = customerRepository.findById(appointment.getCustomer()).orElse(null);
+        if (customer == null || customer.getEmail() == null) {
+            return;
+        }
+        String customerName = customer.getFirstName() + " " + customer.getLastName();
+
+        PendingNotification pending = pendingNotificationRepository.findByAppointmentIdForUpdate(appointment.getId()).orElse(null);
+        if (pending == null) {
+            pendingNotificationRepository.save(new PendingNotification(
+                    appointment.getId(), customer.getEmail(), customerName, customer.getLocale(), kind,
+                    appointment.getStartTime()));
+            return;
+        }
+
+        coalescedCounter.increment();
+        String merged = merge(pending.getKind(), kind);
+        if (merged == null) {
+            pendingNotificationRepository.delete(pending);
+            return;
+        }
+        pending.setKind(merged);
+        pending.setStartTime(appointment.getStartTime());
+        pending.setRecipient(customer.getEmail());
+        pending.setCustomerName(customerName);
+        pending.setLocale(customer.getLocale());
+        pendingNotificationRepository.save(pending);
+    }
+
+    private int flushBatch(int batchSize) {
+        Instant cutoff = Instant.now().minus(properties.getWindowSeconds(), ChronoUnit.SECONDS);
+        List<PendingNotification> rows = jdbcTemplate.query(FLUSH_SQL, (rs, rowNum) -> new PendingNotification(
+                rs.getObject(1, UUID.class), rs.getString(2), rs.getString(3),
+                rs.getString(4) != null ? Locale.forLanguageTag(rs.getString(4)) : null,
+                rs.getString(5), rs.getTimestamp(6).toInstant()),
+                Timestamp.from(cutoff), batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Names names = resolveNames(rows);
+        Map<String, List<PendingNotification>> byRecipient = new LinkedHashMap<>();
+        for (PendingNotification row : rows) {
+            byRecipient.computeIfAbsent(row.getRecipient(), recipient -> new ArrayList<>()).add(row);
+        }
+        byRecipient.forEach((recipient, changes) -> send(recipient, changes, names));
+        return byRecipient.size();
+    }
+
+    /**
+     * Loads the professional and service names of every change in a batch.
+     */
+    private Names resolveNames(List<PendingNotification> rows) {
+        Set<UUID> appointmentIds = new HashSet<>();
+        for (PendingNotification row : rows) {
+            appointmentIds.add(row.getAppointmentId());
+        }
+        Map<UUID, Appointment> appointments = new HashMap<>();
+        Set<UUID> professionalIds = new HashSet<>();
+        Set<UUID> serviceIds = new HashSet<>();
+        for (Appointment appointment : appointmentRepository.findAllById(appointmentIds)) {
+            appointments.put(appointment.getId(), appointment);
+            if (appointment.getProfessional() != null) {
+                professionalIds.add(appointment.getProfessional());
+            }
+            if (appointment.getService() != null) {
+                serviceIds.add(appointment.getService());
+            }
+        }
+
+        Map<UUID, String> professionalNames = new HashMap<>();
+        if (!professionalIds.isEmpty()) {
+            for (Professional professional : professionalRepository.findAllById(professionalIds)) {
+                professionalNames.put(professional.getId(), professional.getFirstName() + " " + professional.getLastName());
+            }
+        }
+        Map<UUID, String> serviceNames = new HashMap<>();
+        if (!serviceIds.isEmpty()) {
+            for (com.booker.modules.service.entity.Service service : serviceRepository.findAllById(serviceIds)) {
+                serviceNames.put(service.getId(), service.getName());
+            }
+        }
+        return new Names(appointments, professionalNames, serviceNames);
+    }
+
+    private void send(String recipient, List<PendingNotification> changes, Names names) {
+        changes.sort(Comparator.comparing(PendingNotification::getStartTime));
+        String customerName = changes.get(0).getCustomerName();
+        Locale locale = changes.get(0).getLocale();
+        if (changes.size() == 1) {
+            PendingNotification change = changes.get(0);
+            LocalDateTime dateTime = toLocal(change.getStartTime());
+            switch (change.getKind()) {
+                case PendingNotification.KIND_BOOKED ->
+                    emailService.sendAppointmentConfirmation(recipient, locale, customerName,
+                            names.professional(change), names.service(change), dateTime);
+                case PendingNotification.KIND_RESCHEDULED ->
+                    emailService.sendAppointmentRescheduled(recipient, locale, customerName, names.service(change), dateTime);
+                default ->
+                    emailService.sendAppointmentCancellation(recipient, locale, customerName, names.service(change), dateTime);
+            }
+        } else {
+            emailService.sendAppointmentUpdates(recipient, locale, customerName, changes.stream()
+                    .map(change -> new AppointmentUpdate(change.getKind(), names.service(change), toLocal(change.getStartTime())))
+                    .toList());
+            loggerService.info("Coalesced {} appointment changes into one email", "NotificationAggregator",
+                    LogContext.of("recipient", recipient), changes.size());
+        }
+        sentCounter.increment();
+    }
+
+    private LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, properties.getZone());
+    }
+
+    /**
+     * Professional and service names of the changes in a batch; {@code "-"} where one is missing.
+     */
+    private record Names(Map<UUID, Appointment> appointments, Map<UUID, String> professionals, Map<UUID, String> services) {
+
+        String professional(PendingNotification change) {
+            Appointment appointment = appointments.get(change.getAppointmentId());
+            return appointment != null ? professionals.getOrDefault(appointment.getProfessional(), "-") : "-";
+        }
+
+        String service(PendingNotification change) {
+            Appointment appointment = appointments.get(change.getAppointmentId());
+            return appointment != null ? services.getOrDefault(appointment.getService(), "-") : "-";
+        }
+    }
+}
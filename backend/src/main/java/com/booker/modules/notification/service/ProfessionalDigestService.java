@@ -0,0 +1,169 @@
+package com.booker.modules.notification.service;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booker.modules.appointment.entity.Appointment;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.customer.entity.Customer;
+import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.enums.appointment.AppointmentStatus;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.notification.config.NotificationProperties;
+import com.booker.modules.professional.entity.Professional;
+import com.booker.modules.professional.repository.ProfessionalRepository;
+import com.booker.modules.service.repository.ServiceRepository;
+import com.booker.services.EmailService;
+import com.booker.services.EmailService.DigestEntry;
+
+/**
+ * Sends professionals who opted in one email a day listing that day's appointments.
+ *
+ * Professionals are claimed a page at a time by stamping {@code last_digest_on} with
+ * {@code FOR UPDATE SKIP LOCKED}, in the same transaction that queues their emails, so a day is
+ * sent once even if the job runs on several instances or is started again after a crash. The
+ * appointments, customers and services of a whole page are loaded with one query each.
+ */
+@Service
+public class ProfessionalDigestService {
+
+    private static final String CLAIM_SQL =
+            "UPDATE professionals SET last_digest_on = ? WHERE id IN (SELECT id FROM professionals "
+                    + "WHERE digest_enabled AND (last_digest_on IS NULL OR last_digest_on < ?) "
+                    + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProfessionalRepository professionalRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final CustomerRepository customerRepository;
+    private final ServiceRepository serviceRepository;
+    private final EmailService emailService;
+    private final LoggerService loggerService;
+    private final NotificationProperties properties;
+
+    public ProfessionalDigestService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ProfessionalRepository professionalRepository, AppointmentRepository appointmentRepository,
+            CustomerRepository customerRepository, ServiceRepository serviceRepository, EmailService emailService,
+            LoggerService loggerService, NotificationProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.professionalRepository = professionalRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.customerRepository = customerRepository;
+        this.serviceRepository = serviceRepository;
+        this.emailService = emailService;
+        this.loggerService = loggerService;
+        this.properties = properties;
+    }
+
+    /**
+     * Scheduled entry point.
+     */
+    @Scheduled(cron = "${notifications.digest.cron:0 0 7 * * *}", zone = "${notifications.zone:}")
+    public void scheduledRun() {
+        if (properties.getDigest().isEnabled()) {
+            sendDigests(LocalDate.now(properties.getZone()));
+        }
+    }
+
+    /**
+     * Queues the digest of the given day for every opted-in professional who has not had it yet.
+     * Professionals without appointments that day are marked done without an email.
+     *
+     * @return number of digests queued
+     */
+    public int sendDigests(LocalDate day) {
+        int pageSize = Math.max(1, properties.getDigest().getPageSize());
+        int sent = 0;
+        while (true) {
+            Page page = transactionTemplate.execute(status -> claimPage(day, pageSize));
+            if (page == null) {
+                break;
+            }
+            sent += page.sent();
+            if (page.claimed() < pageSize) {
+                break;
+            }
+        }
+        loggerService.success("Professional digests queued for {}: {}", "ProfessionalDigestService",
+                LogContext.of("day", day), day, sent);
+        return sent;
+    }
+
+    private Page claimPage(LocalDate day, int pageSize) {
+        List<UUID> ids = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> rs.getObject(1, UUID.class),
+                Date.valueOf(day), Date.valueOf(day), pageSize);
+        return new Page(ids.size(), ids.isEmpty() ? 0 : sendPage(ids, day));
+    }
+
+    private int sendPage(List<UUID> professionalIds, LocalDate day) {
+        Instant start = day.atStartOfDay(properties.getZone()).toInstant();
+        // Between is inclusive; stop just before midnight, at the precision of a Postgres timestamp
+        Instant end = day.plusDays(1).atStartOfDay(properties.getZone()).toInstant().minus(1, ChronoUnit.MICROS);
+
+        Map<UUID, List<Appointment>> byProfessional = new HashMap<>();
+        Set<UUID> customerIds = new HashSet<>();
+        Set<UUID> serviceIds = new HashSet<>();
+        for (Appointment appointment : appointmentRepository.findByProfessionalInAndStartTimeBetweenOrderByStartTimeAsc(
+                professionalIds, start, end)) {
+            if (AppointmentStatus.CANCELLED.name().equalsIgnoreCase(appointment.getStatus())) {
+                continue;
+            }
+            byProfessional.computeIfAbsent(appointment.getProfessional(), id -> new ArrayList<>()).add(appointment);
+            customerIds.add(appointment.getCustomer());
+            if (appointment.getService() != null) {
+                serviceIds.add(appointment.getService());
+            }
+        }
+        if (byProfessional.isEmpty()) {
+            return 0;
+        }
+
+        Map<UUID, String> customerNames = new HashMap<>();
+        for (Customer customer : customerRepository.findAllById(customerIds)) {
+            customerNames.put(customer.getId(), customer.getFirstName() + " " + customer.getLastName());
+        }
+        Map<UUID, String> serviceNames = new HashMap<>();
+        if (!serviceIds.isEmpty()) {
+            for (com.booker.modules.service.entity.Service service : serviceRepository.findAllById(serviceIds)) {
+                serviceNames.put(service.getId(), service.getName());
+            }
+        }
+
+        int sent = 0;
+        for (Professional professional : professionalRepository.findAllById(byProfessional.keySet())) {
+            if (professional.getEmail() == null) {
+                continue;
+            }
+            List<DigestEntry> entries = byProfessional.get(professional.getId()).stream()
+                    .map(a -> new DigestEntry(LocalDateTime.ofInstant(a.getStartTime(), properties.getZone()),
+                            customerNames.getOrDefault(a.getCustomer(), "-"),
+                            serviceNames.getOrDefault(a.getService(), "-")))
+                    .toList();
+            emailService.sendProfessionalDigest(professional.getEmail(), professional.getLocale(),
+                    professional.getFirstName() + " " + professional.getLastName(), day, entries);
+            sent++;
+        }
+        return sent;
+    }
+
+    private record Page(int claimed, int sent) {
+    }
+}
@@ -0,0 +1,338 @@
+package com.booker.modules.payment.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for payment processing.
+ */
+@Component
+@ConfigurationProperties(prefix = "payments")
+public class PaymentProperties {
+
+    /**
+     * When enabled, new payments are stored as pending and the Stripe call runs in the background.
+     */
+    private boolean asyncCreate = false;
+
+    /**
+     * Maximum number of Stripe calls running at the same time in the background.
+     */
+    private int maxConcurrentStripeCalls = 64;
+
+    /**
+     * How long a queued Stripe call stays with the instance working on it before the retry queue
+     * hands it to another, in seconds. Pending payments that never got a PaymentIntent and are older
+     * than this are queued again by the stranded-payment sweep.
+     */
+    private long queueLeaseSeconds = 60;
+
+    /**
+     * Stripe webhook ingestion.
+     */
+    private Webhook webhook = new Webhook();
+
+    /**
+     * Periodic comparison of open payments with Stripe.
+     */
+    private Reconciliation reconciliation = new Reconciliation();
+
+    /**
+     * Daily revenue rollups.
+     */
+    private Revenue revenue = new Revenue();
+
+    /**
+     * Background refund processing.
+     */
+    private Refund refund = new Refund();
+
+    public boolean isAsyncCreate() {
+        return asyncCreate;
+    }
+
+    public void setAsyncCreate(boolean asyncCreate) {
+        this.asyncCreate = asyncCreate;
+    }
+
+    public int getMaxConcurrentStripeCalls() {
+        return maxConcurrentStripeCalls;
+    }
+
+    public void setMaxConcurrentStripeCalls(int maxConcurrentStripeCalls) {
+        this.maxConcurrentStripeCalls = maxConcurrentStripeCalls;
+    }
+
+    public long getQueueLeaseSeconds() {
+        return queueLeaseSeconds;
+    }
+
+    public void setQueueLeaseSeconds(long queueLeaseSeconds) {
+        this.queueLeaseSeconds = queueLeaseSeconds;
+    }
+
+    public Webhook getWebhook() {
+        return webhook;
+    }
+
+    public void setWebhook(Webhook webhook) {
+        this.webhook = webhook;
+    }
+
+    public Reconciliation getReconciliation() {
+        return reconciliation;
+    }
+
+    public void setReconciliation(Reconciliation reconciliation) {
+        this.reconciliation = reconciliation;
+    }
+
+    public Revenue getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(Revenue revenue) {
+        this.revenue = revenue;
+    }
+
+    public Refund getRefund() {
+        return refund;
+    }
+
+    public void setRefund(Refund refund) {
+        this.refund = refund;
+    }
+
+    public static class Webhook {
+
+        /**
+         * Signing secret of the webhook endpoint ({@code whsec_...}).
+         */
+        private String secret = "";
+
+        /**
+         * Maximum number of accepted events waiting to be applied; further events are refused so Stripe retries them.
+         */
+        private int queueCapacity = 50000;
+
+        /**
+         * Maximum number of events applied in one database round trip.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Number of recently seen event ids kept in memory.
+         */
+        private int dedupMaxEntries = 100000;
+
+        /**
+         * How long processed event ids are kept in the database, in days.
+         */
+        private int retentionDays = 7;
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getDedupMaxEntries() {
+            return dedupMaxEntries;
+        }
+
+        public void setDedupMaxEntries(int dedupMaxEntries) {
+            this.dedupMaxEntries = dedupMaxEntries;
+        }
+
+        public int getRetentionDays() {
+            return retentionDays;
+        }
+
+        public void setRetentionDays(int retentionDays) {
+            this.retentionDays = retentionDays;
+        }
+    }
+
+    public static class Reconciliation {
+
+        /**
+         * Whether the scheduled run is active.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of payments read per keyset page.
+         */
+        private int pageSize = 500;
+
+        /**
+         * Maximum number of Stripe requests in flight.
+         */
+        private int maxConcurrency = 16;
+
+        /**
+         * Stripe requests per second; Stripe allows 25 in test mode and 100 in live mode.
+         */
+        private double requestsPerSecond = 20;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+    }
+
+    public static class Revenue {
+
+        /**
+         * How many recent days the nightly repair recomputes from the payments table.
+         */
+        private int repairDays = 35;
+
+        /**
+         * Longest date range served by one revenue query, in days.
+         */
+        private int maxRangeDays = 366;
+
+        public int getRepairDays() {
+            return repairDays;
+        }
+
+        public void setRepairDays(int repairDays) {
+            this.repairDays = repairDays;
+        }
+
+        public int getMaxRangeDays() {
+            return maxRangeDays;
+        }
+
+        public void setMaxRangeDays(int maxRangeDays) {
+            this.maxRangeDays = maxRangeDays;
+        }
+    }
+
+    public static class Refund {
+
+        /**
+         * Worker threads calling Stripe for queued refunds.
+         */
+        private int workers = 4;
+
+        /**
+         * Jobs claimed per poll.
+         */
+        private int batchSize = 20;
+
+        /**
+         * Attempts before a refund is marked failed.
+         */
+        private int maxAttempts = 8;
+
+        /**
+         * Delay before the first retry, doubled on each further attempt, in seconds.
+         */
+        private long baseDelaySeconds = 5;
+
+        /**
+         * Upper bound for the retry delay, in seconds.
+         */
+        private long maxDelaySeconds = 600;
+
+        /**
+         * How long a claimed job stays with its worker before another worker may take it over, in seconds.
+         */
+        private long leaseSeconds = 120;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getBaseDelaySeconds() {
+            return baseDelaySeconds;
+        }
+
+        public void setBaseDelaySeconds(long baseDelaySeconds) {
+            this.baseDelaySeconds = baseDelaySeconds;
+        }
+
+        public long getMaxDelaySeconds() {
+            return maxDelaySeconds;
+        }
+
+        public void setMaxDelaySeconds(long maxDelaySeconds) {
+            this.maxDelaySeconds = maxDelaySeconds;
+        }
+
+        public long getLeaseSeconds() {
+            return leaseSeconds;
+        }
+
+        public void setLeaseSeconds(long leaseSeconds) {
+            this.leaseSeconds = leaseSeconds;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.booker.modules.payment.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -10,9 +12,15 @@ import org.springframework.web.bind.annotation.*;
 
 import com.booker.constants.routes.Namespaces;
 import com.booker.constants.routes.Routes;
+import com.booker.modules.idempotency.service.IdempotencyService;
 import com.booker.modules.payment.dto.PaymentDto;
 import com.booker.modules.payment.dto.PaymentUpsertRequest;
+import com.booker.modules.payment.dto.RefundDto;
+import com.booker.modules.payment.dto.RefundRequest;
+import com.booker.modules.payment.dto.RevenueDto;
 import com.booker.modules.payment.service.PaymentService;
+import com.booker.modules.payment.service.RefundService;
+import com.booker.modules.payment.service.RevenueService;
 import com.booker.utils.base.Response;
 import com.booker.utils.base.ResponseEntityBuilder;
 
@@ -27,9 +35,13 @@ import jakarta.validation.Valid;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final RevenueService revenueService;
+    private final RefundService refundService;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, RevenueService revenueService, RefundService refundService) {
         this.paymentService = paymentService;
+        this.revenueService = revenueService;
+        this.refundService = refundService;
     }
 
     /**
@@ -40,6 +52,18 @@ public class PaymentController {
         return ResponseEntityBuilder.build(paymentService.list());
     }
 
+    /**
+     * Gets the daily revenue of a professional between two dates (inclusive, UTC).
+     * Available to admins and to the professional themselves.
+     */
+    @PreAuthorize("@ownershipChecker.isAdminOrOwner(authentication, #professional)")
+    @GetMapping(Routes.REVENUE)
+    public ResponseEntity<Response<List<RevenueDto>>> revenue(@RequestParam @NonNull UUID professional,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntityBuilder.build(revenueService.getDaily(professional, from, to));
+    }
+
     /**
      * Gets a specific payment by its ID.
      */
@@ -50,10 +74,12 @@ public class PaymentController {
 
     /**
      * Creates a new payment record.
+     * Retries sent with the same Idempotency-Key header return the original payment.
      */
     @PostMapping(Routes.ROOT)
-    public ResponseEntity<Response<PaymentDto>> create(@Valid @RequestBody PaymentUpsertRequest req) {
-        return ResponseEntityBuilder.build(paymentService.create(req));
+    public ResponseEntity<Response<PaymentDto>> create(@Valid @RequestBody PaymentUpsertRequest req,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return ResponseEntityBuilder.build(paymentService.create(req, idempotencyKey));
     }
 
     /**
@@ -66,7 +92,25 @@ public class PaymentController {
     }
 
     /**
-     * Deletes a payment record.
+     * Gets the refunds of a payment.
+     */
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    @GetMapping(Routes.REFUNDS)
+    public ResponseEntity<Response<List<RefundDto>>> refunds(@PathVariable @NonNull UUID id) {
+        return ResponseEntityBuilder.build(refundService.list(id));
+    }
+
+    /**
+     * Queues a full or partial refund of a payment; Stripe is called in the background.
+     */
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    @PostMapping(Routes.REFUNDS)
+    public ResponseEntity<Response<RefundDto>> refund(@PathVariable @NonNull UUID id, @Valid @RequestBody RefundRequest req) {
+        return ResponseEntityBuilder.build(refundService.request(id, req.amountMinor, req.reason));
+    }
+
+    /**
+     * Cancels a payment: a paid payment is refunded in the background and kept as refunded.
      */
     @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
     @DeleteMapping(Routes.BY_ID)
@@ -0,0 +1,34 @@
+package com.booker.modules.payment.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.booker.constants.routes.Namespaces;
+import com.booker.constants.routes.Routes;
+import com.booker.modules.payment.service.StripeWebhookService;
+import com.booker.utils.base.Response;
+import com.booker.utils.base.ResponseEntityBuilder;
+
+/**
+ * Receives webhook events from Stripe.
+ * The endpoint is public; each delivery is authenticated by its Stripe-Signature header.
+ */
+@RestController
+@RequestMapping(Namespaces.PAYMENTS)
+public class StripeWebhookController {
+
+    private final StripeWebhookService stripeWebhookService;
+
+    public StripeWebhookController(StripeWebhookService stripeWebhookService) {
+        this.stripeWebhookService = stripeWebhookService;
+    }
+
+    /**
+     * Accepts a Stripe event. The body must be read raw, since the signature covers the exact bytes.
+     */
+    @PostMapping(Routes.STRIPE_WEBHOOK)
+    public ResponseEntity<Response<Void>> receive(@RequestBody String payload,
+            @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        return ResponseEntityBuilder.build(stripeWebhookService.receive(payload, signature));
+    }
+}
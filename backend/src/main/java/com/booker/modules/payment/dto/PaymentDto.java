@@ -5,17 +5,19 @@ import java.util.UUID;
 
 public class PaymentDto {
     public UUID id;
-    public Double amount;
+    public long amountMinor;
+    public long refundedMinor;
     public String currency;
     public String status;
     public String provider;
     public UUID appointment;
     public Instant createdAt;
 
-    public PaymentDto(UUID id, Double amount, String currency, String status, String provider, UUID appointment,
-            Instant createdAt) {
+    public PaymentDto(UUID id, long amountMinor, long refundedMinor, String currency, String status, String provider,
+            UUID appointment, Instant createdAt) {
         this.id = id;
-        this.amount = amount;
+        this.amountMinor = amountMinor;
+        this.refundedMinor = refundedMinor;
         this.currency = currency;
         this.status = status;
         this.provider = provider;
@@ -8,9 +8,12 @@ import jakarta.validation.constraints.NotNull;
 
 public class PaymentUpsertRequest {
 
+    /**
+     * Amount in minor units of the currency, e.g. 2500 for 25.00 EUR.
+     */
     @NotNull
     @Min(0)
-    public Double amount;
+    public Long amountMinor;
 
     @NotBlank
     public String currency;
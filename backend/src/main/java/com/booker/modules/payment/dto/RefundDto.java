@@ -0,0 +1,29 @@
+package com.booker.modules.payment.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public class RefundDto {
+    public UUID id;
+    public UUID payment;
+    public long amountMinor;
+    public String currency;
+    public String reason;
+    public String status;
+    public int attempts;
+    public String stripeRefundId;
+    public Instant createdAt;
+
+    public RefundDto(UUID id, UUID payment, long amountMinor, String currency, String reason, String status, int attempts,
+            String stripeRefundId, Instant createdAt) {
+        this.id = id;
+        this.payment = payment;
+        this.amountMinor = amountMinor;
+        this.currency = currency;
+        this.reason = reason;
+        this.status = status;
+        this.attempts = attempts;
+        this.stripeRefundId = stripeRefundId;
+        this.createdAt = createdAt;
+    }
+}
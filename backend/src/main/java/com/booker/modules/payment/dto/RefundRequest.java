@@ -0,0 +1,19 @@
+package com.booker.modules.payment.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+
+public class RefundRequest {
+
+    /**
+     * Amount to refund in minor units; when omitted the whole remaining amount is refunded.
+     */
+    @Min(1)
+    public Long amountMinor;
+
+    /**
+     * Stripe refund reason, defaults to {@code requested_by_customer}.
+     */
+    @Pattern(regexp = "duplicate|fraudulent|requested_by_customer")
+    public String reason;
+}
@@ -0,0 +1,17 @@
+package com.booker.modules.payment.dto;
+
+import java.time.LocalDate;
+
+public class RevenueDto {
+    public LocalDate day;
+    public String currency;
+    public long amountMinor;
+    public long paymentCount;
+
+    public RevenueDto(LocalDate day, String currency, long amountMinor, long paymentCount) {
+        this.day = day;
+        this.currency = currency;
+        this.amountMinor = amountMinor;
+        this.paymentCount = paymentCount;
+    }
+}
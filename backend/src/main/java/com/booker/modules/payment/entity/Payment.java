@@ -3,24 +3,33 @@ package com.booker.modules.payment.entity;
 import java.time.Instant;
 import java.util.UUID;
 
+import com.booker.utils.money.Money;
+
 import jakarta.persistence.*;
 
 /**
  * Represents a payment transaction for an appointment.
  * Tracks the amount, currency, payment status, and the payment provider used.
+ * The amount is stored in minor units of the currency (cents for EUR), see {@link Money}.
+ * Refunds are tracked in {@code refundedMinor}; a refunded payment is kept with status
+ * {@code partially_refunded} or {@code refunded} rather than deleted.
  * Currently supports Stripe as a payment provider.
  */
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
-@Table(name = "payments", indexes = @Index(name = "idx_appointment_email", columnList = "id"))
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_appointment_email", columnList = "id"),
+        @Index(name = "idx_payments_stripe_payment_intent_id", columnList = "stripe_payment_intent_id"),
+        @Index(name = "idx_payments_created_at", columnList = "created_at")
+})
 public class Payment {
     
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(nullable = false, columnDefinition = "DECIMAL(10,2) DEFAULT 0.00")
-    private Double amount;
+    @Column(name = "amount_minor", nullable = false)
+    private long amountMinor;
 
     @Column(nullable = false)
     private String currency;
@@ -34,10 +43,13 @@ public class Payment {
     @Column(name = "appointment_uuid", nullable = false)
     private UUID appointment;
 
+    @Column(name = "refunded_minor", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long refundedMinor;
+
     @Column(name = "stripe_payment_intent_id")
     private String stripePaymentIntentId;
 
-    @Column(nullable = false, updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
     @PrePersist
@@ -50,8 +62,12 @@ public class Payment {
         return id;
     }
 
-    public Double getAmount() {
-        return amount;
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public Money getAmount() {
+        return new Money(amountMinor, currency);
     }
 
     public String getCurrency() {
@@ -74,8 +90,8 @@ public class Payment {
         return createdAt;
     }
 
-    public void setAmount(Double amount) {
-        this.amount = amount;
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
     }
 
     public void setCurrency(String currency) {
@@ -94,6 +110,28 @@ public class Payment {
         this.appointment = appointment;
     }
 
+    public long getRefundedMinor() {
+        return refundedMinor;
+    }
+
+    /**
+     * Amount still available for refunds, in minor units.
+     */
+    public long getRefundableMinor() {
+        return amountMinor - refundedMinor;
+    }
+
+    /**
+     * Records a refund confirmed by the provider and moves the payment to
+     * {@code partially_refunded} or, once nothing is left, {@code refunded}.
+     *
+     * @param amountMinor refunded amount in minor units
+     */
+    public void applyRefund(long amountMinor) {
+        this.refundedMinor += amountMinor;
+        this.status = refundedMinor >= this.amountMinor ? "refunded" : "partially_refunded";
+    }
+
     public String getStripePaymentIntentId() {
         return stripePaymentIntentId;
     }
@@ -0,0 +1,142 @@
+package com.booker.modules.payment.entity;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+
+/**
+ * A refund requested for a payment, processed in the background by {@code RefundService}.
+ *
+ * Jobs move from {@code queued} to {@code processing} when a worker claims them, and end as
+ * {@code succeeded} or {@code failed}. A claim holds a lease until {@code lockedUntil}; a job whose
+ * worker died is picked up again once the lease expires. The job id doubles as the Stripe
+ * idempotency key, so a retried job never refunds twice.
+ */
+@Entity
+@Table(name = "refund_jobs", indexes = {
+        @Index(name = "idx_refund_jobs_status_next_attempt_at", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_refund_jobs_payment_id", columnList = "payment_id")
+})
+public class RefundJob {
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_PROCESSING = "processing";
+    public static final String STATUS_SUCCEEDED = "succeeded";
+    public static final String STATUS_FAILED = "failed";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "payment_id", nullable = false)
+    private UUID paymentId;
+
+    @Column(name = "amount_minor", nullable = false)
+    private long amountMinor;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(nullable = false)
+    private String reason;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "stripe_refund_id")
+    private String stripeRefundId;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public RefundJob() {
+    }
+
+    public RefundJob(UUID paymentId, long amountMinor, String currency, String reason) {
+        this.paymentId = paymentId;
+        this.amountMinor = amountMinor;
+        this.currency = currency;
+        this.reason = reason;
+        this.status = STATUS_QUEUED;
+        this.nextAttemptAt = Instant.now();
+    }
+
+    @PrePersist
+    void onCreate() {
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    @PreUpdate
+    void onUpdate() {
+        this.updatedAt = Instant.now();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getPaymentId() {
+        return paymentId;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public Instant getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public String getStripeRefundId() {
+        return stripeRefundId;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
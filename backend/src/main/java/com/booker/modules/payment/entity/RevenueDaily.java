@@ -0,0 +1,61 @@
+package com.booker.modules.payment.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+
+/**
+ * Succeeded payment totals for one professional, day (UTC, by payment creation time) and currency.
+ * Maintained incrementally by {@code RevenueService} and repaired nightly from the payments table.
+ */
+@Entity
+@IdClass(RevenueDaily.Key.class)
+@Table(name = "revenue_daily")
+public class RevenueDaily {
+
+    @Id
+    @Column(name = "professional_uuid")
+    private UUID professional;
+
+    @Id
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Id
+    @Column(length = 3)
+    private String currency;
+
+    @Column(name = "amount_minor", nullable = false)
+    private long amountMinor;
+
+    @Column(name = "payment_count", nullable = false)
+    private long paymentCount;
+
+    public UUID getProfessional() {
+        return professional;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public long getPaymentCount() {
+        return paymentCount;
+    }
+
+    /**
+     * Primary key of a rollup row.
+     */
+    public record Key(UUID professional, LocalDate day, String currency) implements Serializable {
+    }
+}
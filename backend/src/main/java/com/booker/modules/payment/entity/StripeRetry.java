@@ -0,0 +1,89 @@
+package com.booker.modules.payment.entity;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import jakarta.persistence.*;
+
+/**
+ * A pending payment whose PaymentIntent still has to be created: either Stripe was unavailable,
+ * or the payment was accepted in asynchronous mode and the call is running in the background.
+ * The payment stays pending until {@code StripeRetryService} or the background call creates the intent.
+ */
+@Entity
+@Table(name = "stripe_retry_queue", indexes = @Index(name = "idx_stripe_retry_queue_next_attempt_at", columnList = "next_attempt_at"))
+public class StripeRetry {
+
+    private static final long BASE_DELAY_SECONDS = 5;
+    private static final long MAX_DELAY_SECONDS = 300;
+
+    @Id
+    @Column(name = "payment_id")
+    private UUID paymentId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public StripeRetry() {
+    }
+
+    public StripeRetry(UUID paymentId, String idempotencyKey) {
+        this(paymentId, idempotencyKey, Instant.now());
+    }
+
+    /**
+     * @param nextAttemptAt when the queue may first pick the payment up
+     */
+    public StripeRetry(UUID paymentId, String idempotencyKey, Instant nextAttemptAt) {
+        this.paymentId = paymentId;
+        this.idempotencyKey = idempotencyKey;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    @PrePersist
+    void onCreate() {
+        this.createdAt = Instant.now();
+    }
+
+    /**
+     * Records a failed attempt and schedules the next one with exponential backoff.
+     */
+    public void scheduleRetry(String error) {
+        attempts++;
+        long delay = Math.min(MAX_DELAY_SECONDS, BASE_DELAY_SECONDS << Math.min(attempts - 1, 16));
+        nextAttemptAt = Instant.now().plusSeconds(delay);
+        lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    public UUID getPaymentId() {
+        return paymentId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,32 @@
+package com.booker.modules.payment.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+
+/**
+ * A Stripe webhook event that has already been applied.
+ * Stripe delivers events at least once, so the id is recorded to ignore redeliveries.
+ */
+@Entity
+@Table(name = "stripe_webhook_events", indexes = @Index(name = "idx_stripe_webhook_events_received_at", columnList = "received_at"))
+public class StripeWebhookEvent {
+
+    @Id
+    @Column(length = 255)
+    private String id;
+
+    @Column(name = "received_at", nullable = false)
+    private Instant receivedAt;
+
+    public StripeWebhookEvent() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getReceivedAt() {
+        return receivedAt;
+    }
+}
@@ -1,21 +1,62 @@
 package com.booker.modules.payment.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.booker.modules.payment.entity.Payment;
 
+import jakarta.persistence.LockModeType;
+
 public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     List<Payment> findByAppointment(UUID appointmentId);
     List<Payment> findByStatus(String status);
     List<Payment> findByProvider(String provider);
-    List<Payment> findByAmountGreaterThan(Double amount);
-    List<Payment> findByAmountLessThan(Double amount);
+    List<Payment> findByAmountMinorGreaterThan(long amountMinor);
+    List<Payment> findByAmountMinorLessThan(long amountMinor);
     List<Payment> findByCurrency(String currency);
-    List<Payment> findAllByOrderByAmountAsc();
-    List<Payment> findAllByOrderByAmountDesc();
+    List<Payment> findAllByOrderByAmountMinorAsc();
+    List<Payment> findAllByOrderByAmountMinorDesc();
     List<Payment> findAllByOrderByCreatedAtAsc();
     List<Payment> findAllByOrderByCreatedAtDesc();
+
+    /**
+     * Reads the next keyset page of payments whose Stripe status can still change.
+     *
+     * @param after the id of the last payment of the previous page
+     * @param terminalStatuses statuses that are final and need no reconciliation
+     * @param limit the page size
+     * @return payments ordered by id
+     */
+    @Query("SELECT p FROM Payment p WHERE p.id > :after AND p.stripePaymentIntentId IS NOT NULL "
+            + "AND p.status NOT IN :terminalStatuses ORDER BY p.id")
+    List<Payment> findOpenAfter(@Param("after") UUID after, @Param("terminalStatuses") Collection<String> terminalStatuses, Limit limit);
+
+    /**
+     * Writes the Stripe outcome to a payment created in asynchronous mode.
+     * Only applies while the payment is still pending, so a concurrent update or delete wins.
+     *
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Payment p SET p.stripePaymentIntentId = :intentId, p.status = :status WHERE p.id = :id AND p.status = 'pending'")
+    int completePending(@Param("id") UUID id, @Param("intentId") String intentId, @Param("status") String status);
+
+    /**
+     * Reads a payment and locks its row until the surrounding transaction ends,
+     * so refund bookkeeping on the same payment is serialized.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.id = :id")
+    Optional<Payment> findByIdForUpdate(@Param("id") UUID id);
 }
@@ -0,0 +1,23 @@
+package com.booker.modules.payment.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.booker.modules.payment.entity.RefundJob;
+
+public interface RefundJobRepository extends JpaRepository<RefundJob, UUID> {
+    List<RefundJob> findByPaymentIdOrderByCreatedAtAsc(UUID paymentId);
+
+    /**
+     * Sums the amounts of a payment's refunds in the given statuses, e.g. those not settled yet.
+     *
+     * @return total in minor units, 0 if there are none
+     */
+    @Query("SELECT COALESCE(SUM(r.amountMinor), 0) FROM RefundJob r WHERE r.paymentId = :paymentId AND r.status IN :statuses")
+    long sumAmountMinor(@Param("paymentId") UUID paymentId, @Param("statuses") Collection<String> statuses);
+}
@@ -0,0 +1,13 @@
+package com.booker.modules.payment.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.booker.modules.payment.entity.RevenueDaily;
+
+public interface RevenueDailyRepository extends JpaRepository<RevenueDaily, RevenueDaily.Key> {
+    List<RevenueDaily> findByProfessionalAndDayBetweenOrderByDayAscCurrencyAsc(UUID professional, LocalDate from, LocalDate to);
+}
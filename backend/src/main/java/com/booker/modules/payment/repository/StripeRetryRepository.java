@@ -0,0 +1,45 @@
+package com.booker.modules.payment.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.booker.modules.payment.entity.StripeRetry;
+
+public interface StripeRetryRepository extends JpaRepository<StripeRetry, UUID> {
+    List<StripeRetry> findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(Instant now, Limit limit);
+
+    /**
+     * Takes a due entry by moving its next attempt to the end of the lease, so another instance
+     * draining the queue at the same time skips it.
+     *
+     * @return 1 if the entry was claimed, 0 if it is no longer due
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StripeRetry r SET r.nextAttemptAt = :until WHERE r.paymentId = :paymentId AND r.nextAttemptAt <= :now")
+    int claim(@Param("paymentId") UUID paymentId, @Param("now") Instant now, @Param("until") Instant until);
+
+    /**
+     * Queues pending payments created before {@code before} that never got a PaymentIntent and have
+     * no queue entry, e.g. ones whose background call was lost before calls were queued durably.
+     *
+     * @return number of payments queued
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO stripe_retry_queue (payment_id, idempotency_key, attempts, next_attempt_at, created_at) "
+            + "SELECT p.id, 'payments.create:' || p.id, 0, now(), now() FROM payments p "
+            + "WHERE p.status = 'pending' AND p.stripe_payment_intent_id IS NULL AND p.created_at < :before "
+            + "AND NOT EXISTS (SELECT 1 FROM stripe_retry_queue q WHERE q.payment_id = p.id) "
+            + "ON CONFLICT (payment_id) DO NOTHING",
+            nativeQuery = true)
+    int requeueStranded(@Param("before") Instant before);
+}
@@ -0,0 +1,70 @@
+package com.booker.modules.payment.schema;
+
+import java.util.List;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.utils.jdbc.SchemaSupport;
+import com.booker.utils.money.Money;
+
+/**
+ * Moves {@code payments.amount} and {@code services.price} from {@code DECIMAL(10,2)} to whole minor units
+ * in {@code amount_minor} / {@code price_minor}.
+ *
+ * Runs once per table: each is converted in a single transaction, per currency (so JPY amounts are not
+ * multiplied by 100), and the old column is dropped at the end. On an already migrated schema it does nothing.
+ */
+@Component
+public class MoneySchemaMigration implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggerService loggerService;
+
+    public MoneySchemaMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            LoggerService loggerService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.loggerService = loggerService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!SchemaSupport.isPostgres(jdbcTemplate)) {
+            return;
+        }
+        migrate("payments", "amount", "amount_minor");
+        migrate("services", "price", "price_minor");
+    }
+
+    private void migrate(String table, String decimalColumn, String minorColumn) {
+        if (!SchemaSupport.columnExists(jdbcTemplate, table, decimalColumn)) {
+            return;
+        }
+        Integer migrated = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS currency VARCHAR(3) NOT NULL DEFAULT 'EUR'");
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS " + minorColumn + " BIGINT");
+
+            List<String> currencies = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT currency FROM " + table + " WHERE " + minorColumn + " IS NULL", String.class);
+            int converted = 0;
+            for (String currency : currencies) {
+                long factor = (long) Math.pow(10, Money.fractionDigits(currency));
+                converted += jdbcTemplate.update("UPDATE " + table + " SET " + minorColumn + " = ROUND(" + decimalColumn
+                        + " * ?) WHERE " + minorColumn + " IS NULL AND currency = ?", factor, currency);
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + minorColumn + " SET NOT NULL");
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN " + decimalColumn);
+            return converted;
+        });
+        loggerService.info("Migrated {} rows of {}.{} to {}", "MoneySchemaMigration", LogContext.of("table", table),
+                migrated, table, decimalColumn, minorColumn);
+    }
+}
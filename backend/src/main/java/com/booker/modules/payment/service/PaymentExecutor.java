@@ -0,0 +1,61 @@
+package com.booker.modules.payment.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.booker.modules.payment.config.PaymentProperties;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs background payment work, such as Stripe calls and confirmation emails, on virtual threads.
+ *
+ * Each task gets its own virtual thread, so a slow provider never ties up a request thread, while a
+ * semaphore caps how many tasks talk to the provider at once. Tasks over the limit park cheaply
+ * until a permit frees up.
+ */
+@Component
+public class PaymentExecutor {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("payment-", 0).factory());
+    private final Semaphore permits;
+
+    public PaymentExecutor(PaymentProperties paymentProperties) {
+        this.permits = new Semaphore(Math.max(1, paymentProperties.getMaxConcurrentStripeCalls()));
+    }
+
+    /**
+     * Schedules a task to run once a concurrency permit is available.
+     *
+     * @param task the work to run
+     */
+    public void submit(Runnable task) {
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Lets running tasks finish on shutdown so their results are written back.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,253 @@
+package com.booker.modules.payment.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.booker.modules.job.entity.JobCheckpoint;
+import com.booker.modules.job.repository.JobCheckpointRepository;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.services.StripeService;
+import com.booker.utils.concurrent.TokenBucket;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Brings the status of open payments in line with Stripe.
+ *
+ * Payments are streamed in keyset pages ordered by id. For each page the PaymentIntents are fetched
+ * in parallel on virtual threads, with a semaphore bounding requests in flight and a token bucket
+ * keeping under the Stripe rate limit. Drifted statuses are written with one JDBC batch per page, and
+ * the id of the last payment is stored as a checkpoint, so a run that is interrupted resumes from there.
+ * Progress and throughput are published as {@code payments.reconciliation.*} metrics.
+ */
+@Service
+public class PaymentReconciliationService {
+
+    static final String JOB_NAME = "payments.reconciliation";
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of("succeeded", "canceled", "failed", "partially_refunded", "refunded");
+    private static final UUID FIRST = new UUID(0L, 0L);
+    private static final int MAX_RATE_LIMIT_RETRIES = 3;
+
+    // Compare-and-set, so a webhook applied meanwhile is not overwritten with an older read
+    private static final String UPDATE_SQL = "UPDATE payments SET status = ? WHERE id = ? AND status = ?";
+
+    private final PaymentRepository paymentRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final StripeService stripeService;
+    private final JdbcTemplate jdbcTemplate;
+    private final LoggerService loggerService;
+    private final RevenueService revenueService;
+    private final PaymentProperties.Reconciliation properties;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong runChecked = new AtomicLong();
+    private final AtomicLong throughput = new AtomicLong();
+    private final Counter checkedCounter;
+    private final Counter fixedCounter;
+    private final Counter errorCounter;
+
+    public PaymentReconciliationService(PaymentRepository paymentRepository, JobCheckpointRepository jobCheckpointRepository,
+            StripeService stripeService, JdbcTemplate jdbcTemplate, LoggerService loggerService,
+            RevenueService revenueService, PaymentProperties paymentProperties, MeterRegistry meterRegistry) {
+        this.paymentRepository = paymentRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.stripeService = stripeService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.loggerService = loggerService;
+        this.revenueService = revenueService;
+        this.properties = paymentProperties.getReconciliation();
+
+        this.checkedCounter = meterRegistry.counter("payments.reconciliation.checked");
+        this.fixedCounter = meterRegistry.counter("payments.reconciliation.fixed");
+        this.errorCounter = meterRegistry.counter("payments.reconciliation.errors");
+        meterRegistry.gauge("payments.reconciliation.running", running, r -> r.get() ? 1 : 0);
+        meterRegistry.gauge("payments.reconciliation.run.checked", runChecked);
+        meterRegistry.gauge("payments.reconciliation.throughput", throughput);
+    }
+
+    /**
+     * Scheduled entry point. The run takes as long as the rate limit needs, so it is started on its
+     * own virtual thread and does not hold a scheduler thread the short periodic jobs need.
+     */
+    @Scheduled(cron = "${payments.reconciliation.cron:0 0 4 * * *}")
+    public void scheduledRun() {
+        if (properties.isEnabled()) {
+            Thread.ofVirtual().name("payments-reconciliation").start(this::reconcile);
+        }
+    }
+
+    /**
+     * Reconciles every open payment, starting from the last checkpoint if a previous run was interrupted.
+     *
+     * @return the outcome of the run, or null if a run is already in progress
+     */
+    public Result reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        long started = System.nanoTime();
+        long checked = 0;
+        long fixed = 0;
+        long errors = 0;
+        runChecked.set(0);
+        throughput.set(0);
+        try {
+            UUID cursor = loadCheckpoint();
+            Semaphore permits = new Semaphore(Math.max(1, properties.getMaxConcurrency()));
+            TokenBucket rateLimiter = new TokenBucket(Math.max(1, properties.getRequestsPerSecond()), properties.getRequestsPerSecond());
+            Limit pageSize = Limit.of(Math.max(1, properties.getPageSize()));
+
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                while (true) {
+                    List<Payment> page = paymentRepository.findOpenAfter(cursor, TERMINAL_STATUSES, pageSize);
+                    if (page.isEmpty()) {
+                        break;
+                    }
+
+                    List<Future<Object[]>> checks = new ArrayList<>(page.size());
+                    for (Payment payment : page) {
+                        checks.add(pool.submit(() -> check(payment, permits, rateLimiter)));
+                    }
+
+                    List<Object[]> updates = new ArrayList<>();
+                    List<Payment> updated = new ArrayList<>();
+                    for (int i = 0; i < checks.size(); i++) {
+                        try {
+                            Object[] update = checks.get(i).get();
+                            if (update != null) {
+                                updates.add(update);
+                                updated.add(page.get(i));
+                            }
+                        } catch (ExecutionException e) {
+                            errors++;
+                            errorCounter.increment();
+                        }
+                    }
+                    int applied = applyUpdates(updates, updated);
+
+                    cursor = page.get(page.size() - 1).getId();
+                    saveCheckpoint(cursor);
+
+                    checked += page.size();
+                    fixed += applied;
+                    checkedCounter.increment(page.size());
+                    fixedCounter.increment(applied);
+                    runChecked.set(checked);
+                    throughput.set(perSecond(checked, started));
+                }
+            }
+
+            jobCheckpointRepository.deleteById(JOB_NAME);
+            Result result = new Result(checked, fixed, errors, (System.nanoTime() - started) / 1_000_000);
+            loggerService.info("Payment reconciliation finished: {} checked, {} fixed, {} errors in {} ms", "PaymentReconciliationService",
+                    LogContext.of("job", JOB_NAME), result.checked(), result.fixed(), result.errors(), result.elapsedMs());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            loggerService.warning("Payment reconciliation interrupted after {} payments, will resume from checkpoint",
+                    "PaymentReconciliationService", LogContext.of("job", JOB_NAME), checked);
+            return new Result(checked, fixed, errors, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            loggerService.error("Payment reconciliation failed after {} payments: {}", "PaymentReconciliationService",
+                    LogContext.of("job", JOB_NAME), checked, e.getMessage());
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Fetches the PaymentIntent of one payment.
+     *
+     * @return the update row if the status drifted, or null if it matches
+     */
+    private Object[] check(Payment payment, Semaphore permits, TokenBucket rateLimiter) throws InterruptedException, StripeException {
+        permits.acquire();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                rateLimiter.acquire();
+                try {
+                    PaymentIntent intent = stripeService.retrievePaymentIntent(payment.getStripePaymentIntentId());
+                    String status = intent.getStatus();
+                    if (status == null || status.equals(payment.getStatus())) {
+                        return null;
+                    }
+                    return new Object[] {status, payment.getId(), payment.getStatus()};
+                } catch (RateLimitException e) {
+                    if (attempt >= MAX_RATE_LIMIT_RETRIES) {
+                        throw e;
+                    }
+                    Thread.sleep(1000L << attempt);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private int applyUpdates(List<Object[]> updates, List<Payment> payments) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        int applied = 0;
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        List<RevenueService.Change> changes = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                applied += counts[i];
+                RevenueService.Snapshot before = RevenueService.Snapshot.of(payments.get(i));
+                changes.add(new RevenueService.Change(before, before.withStatus((String) updates.get(i)[0])));
+            }
+        }
+        revenueService.apply(changes);
+        return applied;
+    }
+
+    private UUID loadCheckpoint() {
+        return jobCheckpointRepository.findById(JOB_NAME)
+                .map(JobCheckpoint::getCursor)
+                .map(UUID::fromString)
+                .orElse(FIRST);
+    }
+
+    private void saveCheckpoint(UUID cursor) {
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(JOB_NAME)
+                .orElseGet(() -> new JobCheckpoint(JOB_NAME, null));
+        checkpoint.setCursor(cursor.toString());
+        jobCheckpointRepository.save(checkpoint);
+    }
+
+    private static long perSecond(long count, long startedNanos) {
+        long elapsedMs = Math.max(1, (System.nanoTime() - startedNanos) / 1_000_000);
+        return count * 1000 / elapsedMs;
+    }
+
+    /**
+     * Summary of a reconciliation run.
+     */
+    public record Result(long checked, long fixed, long errors, long elapsedMs) {
+    }
+}
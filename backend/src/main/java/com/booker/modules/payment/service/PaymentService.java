@@ -1,24 +1,34 @@
 package com.booker.modules.payment.service;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.booker.constants.ErrorCodes;
 import com.booker.constants.SuccessCodes;
+import com.booker.modules.payment.config.PaymentProperties;
 import com.booker.modules.payment.dto.PaymentDto;
 import com.booker.modules.payment.dto.PaymentUpsertRequest;
 import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.entity.StripeRetry;
 import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.modules.payment.repository.StripeRetryRepository;
 import com.booker.modules.appointment.repository.AppointmentRepository;
 import com.booker.modules.appointment.entity.Appointment;
 import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.service.repository.ServiceRepository;
 import com.booker.modules.customer.entity.Customer;
+import com.booker.modules.idempotency.service.IdempotencyService;
 import com.booker.services.EmailService;
 import com.booker.services.StripeService;
+import com.booker.services.StripeUnavailableException;
+import com.booker.modules.log.service.LogContext;
 import com.booker.modules.log.service.LoggerService;
 import com.booker.utils.base.Response;
 import com.stripe.exception.StripeException;
@@ -29,26 +39,47 @@ import com.stripe.model.PaymentIntent;
  * 
  * This service handles payment creation, updates, and deletions, integrating with
  * Stripe for payment processing. It creates PaymentIntents for new payments and
- * can issue refunds when payments are deleted. Email notifications are sent for
- * successful payments and refunds.
+ * queues refunds through {@link RefundService} when payments are deleted. Email
+ * notifications are sent for successful payments and, by the refund worker, for refunds.
  */
 @Service
 public class PaymentService {
 
+    private static final String IDEMPOTENCY_SCOPE = "payments.create";
+    static final String STATUS_PENDING = "pending";
+    static final String STATUS_CANCELED = "canceled";
+    private static final Set<String> FINAL_STATUSES = Set.of("failed", STATUS_CANCELED, "refunded");
+
     private final PaymentRepository paymentRepository;
     private final AppointmentRepository appointmentRepository;
     private final CustomerRepository customerRepository;
+    private final ServiceRepository serviceRepository;
     private final StripeService stripeService;
     private final EmailService emailService;
     private final LoggerService loggerService;
+    private final IdempotencyService idempotencyService;
+    private final PaymentExecutor paymentExecutor;
+    private final PaymentProperties paymentProperties;
+    private final StripeRetryRepository stripeRetryRepository;
+    private final RevenueService revenueService;
+    private final RefundService refundService;
+    private final TransactionTemplate transactionTemplate;
 
-    public PaymentService(PaymentRepository paymentRepository, AppointmentRepository appointmentRepository, CustomerRepository customerRepository, StripeService stripeService, EmailService emailService, LoggerService loggerService) {
+    public PaymentService(PaymentRepository paymentRepository, AppointmentRepository appointmentRepository, CustomerRepository customerRepository, ServiceRepository serviceRepository, StripeService stripeService, EmailService emailService, LoggerService loggerService, IdempotencyService idempotencyService, PaymentExecutor paymentExecutor, PaymentProperties paymentProperties, StripeRetryRepository stripeRetryRepository, RevenueService revenueService, RefundService refundService, TransactionTemplate transactionTemplate) {
         this.paymentRepository = paymentRepository;
         this.appointmentRepository = appointmentRepository;
         this.customerRepository = customerRepository;
+        this.serviceRepository = serviceRepository;
         this.stripeService = stripeService;
         this.emailService = emailService;
         this.loggerService = loggerService;
+        this.idempotencyService = idempotencyService;
+        this.paymentExecutor = paymentExecutor;
+        this.paymentProperties = paymentProperties;
+        this.stripeRetryRepository = stripeRetryRepository;
+        this.revenueService = revenueService;
+        this.refundService = refundService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
@@ -82,63 +113,231 @@ public class PaymentService {
      * If the payment processing succeeds, sends a confirmation email to the customer.
      * If Stripe integration fails, the payment is saved with a "failed" status.
      * 
+     * When {@code payments.async-create} is enabled, the payment is saved as "pending" and returned
+     * right away; the Stripe call and the email run on a {@link PaymentExecutor} and the final
+     * status is written back when Stripe answers. The call is also queued in the same transaction
+     * as the payment, so {@link StripeRetryService} makes it if the background task is lost.
+     * 
+     * While the Stripe circuit breaker is open the payment is also saved as "pending" and parked
+     * in the retry queue drained by {@link StripeRetryService}.
+     * 
      * @param req the payment creation request containing amount, currency, and appointment details
      * @return a response containing the created payment data with its Stripe status
      */
     public Response<PaymentDto> create(PaymentUpsertRequest req) {
+        return create(req, null);
+    }
+
+    /**
+     * Creates a new payment, at most once per idempotency key.
+     * 
+     * A repeated request with the same key gets the original response back instead of creating
+     * another PaymentIntent and payment row; the key is also forwarded to Stripe so a retry that
+     * reaches Stripe twice still yields one PaymentIntent. A key reused with a different body is rejected.
+     * 
+     * @param req the payment creation request containing amount, currency, and appointment details
+     * @param idempotencyKey optional client supplied key identifying retries of the same request
+     * @return a response containing the created payment data with its Stripe status
+     */
+    public Response<PaymentDto> create(PaymentUpsertRequest req, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createPayment(req, null);
+        }
+        String requestHash = IdempotencyService.fingerprint(req.amountMinor, req.currency, req.provider, req.appointment);
+        return idempotencyService.execute(IDEMPOTENCY_SCOPE, idempotencyKey, requestHash,
+                () -> createPayment(req, IDEMPOTENCY_SCOPE + ":" + idempotencyKey),
+                dto -> dto.id,
+                id -> paymentRepository.findById(id).map(PaymentService::toDto).orElse(null));
+    }
+
+    private Response<PaymentDto> createPayment(PaymentUpsertRequest req, String stripeIdempotencyKey) {
         Payment payment = new Payment();
-        payment.setAmount(req.amount);
+        payment.setAmountMinor(req.amountMinor);
         payment.setCurrency(req.currency.trim());
         payment.setProvider(req.provider.trim());
         payment.setAppointment(req.appointment);
 
+        if (paymentProperties.isAsyncCreate()) {
+            // Risponde subito: la chiamata a Stripe e l'email proseguono in background.
+            // La coda e' salvata insieme al pagamento, cosi' un riavvio non lo lascia pending per sempre
+            payment.setStatus(STATUS_PENDING);
+            Payment saved = transactionTemplate.execute(status -> {
+                Payment stored = paymentRepository.save(payment);
+                stripeRetryRepository.save(new StripeRetry(stored.getId(), stripeKeyFor(stored, stripeIdempotencyKey),
+                        Instant.now().plusSeconds(paymentProperties.getQueueLeaseSeconds())));
+                return stored;
+            });
+            loggerService.info("Payment accepted: {} (status: {})", "PaymentService",
+                    LogContext.of("paymentId", saved.getId(), "appointmentId", saved.getAppointment()),
+                    saved.getId(), saved.getStatus());
+            String key = stripeKeyFor(saved, stripeIdempotencyKey);
+            try {
+                paymentExecutor.submit(() -> completeQueued(saved, key));
+            } catch (RejectedExecutionException e) {
+                loggerService.warning("Background executor unavailable, payment {} left to the retry queue", "PaymentService",
+                        LogContext.of("paymentId", saved.getId()), saved.getId());
+            }
+            return new Response<>(true, toDto(saved), SuccessCodes.PAYMENT_PENDING);
+        }
+
         // Crea PaymentIntent su Stripe
         try {
-            BigDecimal amount = BigDecimal.valueOf(req.amount);
-            String description = "Payment for appointment " + req.appointment;
-            
-            PaymentIntent paymentIntent = stripeService.createPaymentIntentFromBooking(
-                amount,
-                req.currency,
-                description,
-                req.appointment.toString(),
-                null // userId - da recuperare se disponibile
-            );
-            
+            PaymentIntent paymentIntent = createPaymentIntent(payment, stripeIdempotencyKey);
             payment.setStripePaymentIntentId(paymentIntent.getId());
             payment.setStatus(paymentIntent.getStatus()); // "requires_payment_method", "succeeded", etc.
+        } catch (StripeUnavailableException e) {
+            // Stripe non disponibile: il pagamento resta pending e viene ritentato in background
+            payment.setStatus(STATUS_PENDING);
+            Payment saved = paymentRepository.save(payment);
+            park(saved, stripeIdempotencyKey, e.getMessage());
+            return new Response<>(true, toDto(saved), SuccessCodes.PAYMENT_PENDING);
         } catch (StripeException e) {
             // Fallback: salva comunque il payment con status failed
             payment.setStatus("failed");
-            loggerService.error("Stripe PaymentIntent creation failed: " + e.getMessage(), "PaymentService");
+            loggerService.error("Stripe PaymentIntent creation failed: {}", "PaymentService",
+                    LogContext.of("appointmentId", payment.getAppointment()), e.getMessage());
         }
 
-        Payment saved = paymentRepository.save(payment);
+        // Il pagamento e l'email di conferma (se riuscito) vengono salvati insieme
+        Payment saved = transactionTemplate.execute(status -> {
+            Payment stored = paymentRepository.save(payment);
+            if ("succeeded".equals(stored.getStatus())) {
+                sendPaymentConfirmation(stored);
+            }
+            return stored;
+        });
+        revenueService.onChange(null, RevenueService.Snapshot.of(saved));
         
-        loggerService.success("Payment created: " + saved.getId() + " (status: " + saved.getStatus() + ")", "PaymentService");
+        loggerService.success("Payment created: {} (status: {})", "PaymentService",
+                LogContext.of("paymentId", saved.getId(), "appointmentId", saved.getAppointment()),
+                saved.getId(), saved.getStatus());
         
-        // Invia email di conferma (se pagamento riuscito)
-        if ("succeeded".equals(saved.getStatus())) {
-            try {
-                Appointment appointment = appointmentRepository.findById(saved.getAppointment()).orElse(null);
-                if (appointment != null) {
-                    Customer customer = customerRepository.findById(appointment.getCustomer()).orElse(null);
-                    if (customer != null && customer.getEmail() != null) {
-                        emailService.sendPaymentConfirmation(
-                            customer.getEmail(),
-                            customer.getFirstName() + " " + customer.getLastName(),
-                            String.format("%.2f %s", saved.getAmount(), saved.getCurrency()),
-                            "Servizio prenotato"
-                        );
-                    }
+        return new Response<>(true, toDto(saved), SuccessCodes.PAYMENT_PROCESSED);
+    }
+
+    /**
+     * Runs the queued Stripe call of a payment accepted in asynchronous mode and removes its queue
+     * entry once the payment has left pending. If this never runs, e.g. because the instance stops,
+     * {@link StripeRetryService} picks the entry up when its lease ends.
+     */
+    private void completeQueued(Payment payment, String stripeIdempotencyKey) {
+        completePending(payment, stripeIdempotencyKey);
+        if (!STATUS_PENDING.equals(payment.getStatus())) {
+            stripeRetryRepository.deleteById(payment.getId());
+        }
+    }
+
+    /**
+     * Creates the Stripe PaymentIntent for a pending payment and writes the outcome back.
+     * Runs on a {@link PaymentExecutor} virtual thread or from the retry queue.
+     * 
+     * @param payment the pending payment as it was stored
+     * @param stripeIdempotencyKey optional key forwarded to Stripe
+     */
+    void completePending(Payment payment, String stripeIdempotencyKey) {
+        String paymentIntentId = null;
+        String status;
+        try {
+            PaymentIntent paymentIntent = createPaymentIntent(payment, stripeIdempotencyKey);
+            paymentIntentId = paymentIntent.getId();
+            status = paymentIntent.getStatus();
+        } catch (StripeUnavailableException e) {
+            park(payment, stripeIdempotencyKey, e.getMessage());
+            return;
+        } catch (StripeException | RuntimeException e) {
+            status = "failed";
+            loggerService.error("Stripe PaymentIntent creation failed: {}", "PaymentService",
+                    LogContext.of("paymentId", payment.getId(), "appointmentId", payment.getAppointment()), e.getMessage());
+        }
+
+        String intentId = paymentIntentId;
+        String outcome = status;
+        Boolean completed = transactionTemplate.execute(tx -> {
+            if (paymentRepository.completePending(payment.getId(), intentId, outcome) == 0) {
+                return false;
+            }
+            if ("succeeded".equals(outcome)) {
+                sendPaymentConfirmation(payment);
+            }
+            return true;
+        });
+        if (!Boolean.TRUE.equals(completed)) {
+            // Il pagamento e' stato modificato o cancellato nel frattempo
+            loggerService.warning("Payment {} no longer pending, Stripe result {} discarded", "PaymentService",
+                    LogContext.of("paymentId", payment.getId()), payment.getId(), status);
+            return;
+        }
+        RevenueService.Snapshot before = RevenueService.Snapshot.of(payment);
+        payment.setStripePaymentIntentId(paymentIntentId);
+        payment.setStatus(status);
+        revenueService.onChange(before, before.withStatus(status));
+
+        loggerService.success("Payment created: {} (status: {})", "PaymentService",
+                LogContext.of("paymentId", payment.getId(), "appointmentId", payment.getAppointment()),
+                payment.getId(), status);
+    }
+
+    /**
+     * Queues a pending payment for another attempt once Stripe is reachable again.
+     * Without a client key, one derived from the payment id makes the retries idempotent on Stripe's side.
+     */
+    private void park(Payment payment, String stripeIdempotencyKey, String reason) {
+        StripeRetry retry = stripeRetryRepository.findById(payment.getId())
+                .orElseGet(() -> new StripeRetry(payment.getId(), stripeKeyFor(payment, stripeIdempotencyKey)));
+        retry.scheduleRetry(reason);
+        stripeRetryRepository.save(retry);
+        loggerService.warning("Stripe unavailable, payment {} parked for retry (attempt {})", "PaymentService",
+                LogContext.of("paymentId", payment.getId()), payment.getId(), retry.getAttempts());
+    }
+
+    /**
+     * The key a payment's Stripe calls are made with: the client's, or one derived from the payment id.
+     */
+    private static String stripeKeyFor(Payment payment, String stripeIdempotencyKey) {
+        return stripeIdempotencyKey != null ? stripeIdempotencyKey : IDEMPOTENCY_SCOPE + ":" + payment.getId();
+    }
+
+    private PaymentIntent createPaymentIntent(Payment payment, String stripeIdempotencyKey) throws StripeException {
+        String description = "Payment for appointment " + payment.getAppointment();
+
+        return stripeService.createPaymentIntentFromBooking(
+            payment.getAmount(),
+            description,
+            payment.getAppointment().toString(),
+            null, // userId - da recuperare se disponibile
+            stripeIdempotencyKey
+        );
+    }
+
+    private void sendPaymentConfirmation(Payment payment) {
+        try {
+            Appointment appointment = appointmentRepository.findById(payment.getAppointment()).orElse(null);
+            if (appointment != null) {
+                Customer customer = customerRepository.findById(appointment.getCustomer()).orElse(null);
+                if (customer != null && customer.getEmail() != null) {
+                    emailService.sendPaymentConfirmation(
+                        customer.getEmail(),
+                        customer.getLocale(),
+                        customer.getFirstName() + " " + customer.getLastName(),
+                        payment.getAmount().format(),
+                        serviceNameOf(appointment)
+                    );
                 }
-            } catch (Exception e) {
-                // Log error ma non fallire l'operazione
-                loggerService.error("Failed to send payment confirmation email: " + e.getMessage(), "PaymentService");
             }
+        } catch (Exception e) {
+            // Log error ma non fallire l'operazione
+            loggerService.error("Failed to send payment confirmation email: {}", "PaymentService",
+                    LogContext.of("paymentId", payment.getId()), e.getMessage());
         }
-        
-        return new Response<>(true, toDto(saved), SuccessCodes.PAYMENT_PROCESSED);
+    }
+
+    private String serviceNameOf(Appointment appointment) {
+        if (appointment.getService() == null) {
+            return "-";
+        }
+        return serviceRepository.findById(appointment.getService())
+                .map(com.booker.modules.service.entity.Service::getName)
+                .orElse("-");
     }
 
     /**
@@ -146,76 +345,75 @@ public class PaymentService {
      * 
      * Allows modification of payment amount, currency, status, provider, and
      * associated appointment. Note that this does not update the Stripe PaymentIntent.
+     * The payment row is locked while it changes, and the revenue rollup is updated
+     * in the same transaction.
      * 
      * @param id the unique identifier of the payment to update
      * @param req the update request containing the new payment data
      * @return a response containing the updated payment data or an error if not found
      */
     public Response<PaymentDto> update(@NonNull UUID id, PaymentUpsertRequest req) {
-        Payment payment = paymentRepository.findById(id).orElse(null);
-        if (payment == null) {
-            return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
-        }
+        // Riga bloccata: il delta sul revenue parte da uno stato che nessun altro può cambiare nel frattempo
+        return transactionTemplate.execute(status -> {
+            Payment payment = paymentRepository.findByIdForUpdate(id).orElse(null);
+            if (payment == null) {
+                return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
+            }
 
-        payment.setAmount(req.amount);
-        payment.setCurrency(req.currency.trim());
-        payment.setStatus(req.status.trim());
-        payment.setProvider(req.provider.trim());
-        payment.setAppointment(req.appointment);
+            RevenueService.Snapshot before = RevenueService.Snapshot.of(payment);
+            payment.setAmountMinor(req.amountMinor);
+            payment.setCurrency(req.currency.trim());
+            payment.setStatus(req.status.trim());
+            payment.setProvider(req.provider.trim());
+            payment.setAppointment(req.appointment);
 
-        Payment saved = paymentRepository.save(payment);
-        return new Response<>(true, toDto(saved), SuccessCodes.PAYMENT_UPDATED);
+            Payment saved = paymentRepository.save(payment);
+            revenueService.onChange(before, RevenueService.Snapshot.of(saved));
+            return new Response<>(true, toDto(saved), SuccessCodes.PAYMENT_UPDATED);
+        });
     }
 
     /**
-     * Deletes a payment record and issues a refund if applicable.
+     * Cancels a payment, refunding it if it was paid.
      * 
-     * If the payment was successfully processed through Stripe, initiates a refund
-     * via the Stripe API and sends a refund confirmation email to the customer.
-     * The payment record is then permanently deleted from the database.
+     * The payment row is kept. A paid payment gets a refund of everything not yet refunded queued with
+     * {@link RefundService}; its status becomes {@code refunded} once Stripe confirms, and the customer
+     * is notified then. A payment that was never paid is marked {@code canceled}.
      * 
-     * @param id the unique identifier of the payment to delete
-     * @return a response indicating success or an error if the payment is not found
+     * @param id the unique identifier of the payment to cancel
+     * @return a response indicating the refund was queued or the payment canceled, or an error
+     *         if the payment is not found
      */
     public Response<Void> delete(@NonNull UUID id) {
         Payment payment = paymentRepository.findById(id).orElse(null);
         if (payment == null) {
             return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
         }
-        
-        // Se c'è un PaymentIntent su Stripe, crea rimborso
-        if (payment.getStripePaymentIntentId() != null && "succeeded".equals(payment.getStatus())) {
-            try {
-                stripeService.refundPaymentIntent(payment.getStripePaymentIntentId());
-                
-                // Invia email di conferma rimborso
-                Appointment appointment = appointmentRepository.findById(payment.getAppointment()).orElse(null);
-                if (appointment != null) {
-                    Customer customer = customerRepository.findById(appointment.getCustomer()).orElse(null);
-                    if (customer != null && customer.getEmail() != null) {
-                        emailService.sendRefundConfirmation(
-                            customer.getEmail(),
-                            customer.getFirstName() + " " + customer.getLastName(),
-                            String.format("%.2f %s", payment.getAmount(), payment.getCurrency()),
-                            "Servizio"
-                        );
-                    }
-                }
-            } catch (StripeException e) {
-                // Log error ma procedi comunque con la cancellazione
-                loggerService.error("Stripe refund failed for payment " + payment.getId() + ": " + e.getMessage(), "PaymentService");
+
+        if (payment.getStripePaymentIntentId() != null && RefundService.REFUNDABLE_STATUSES.contains(payment.getStatus())) {
+            Response<?> refund = refundService.request(id, null, RefundService.DEFAULT_REASON);
+            if (!refund.status) {
+                return new Response<>(false, null, refund.message);
             }
+            return new Response<>(true, null, SuccessCodes.REFUND_QUEUED);
         }
-        
-        paymentRepository.deleteById(id);
-        loggerService.success("Payment deleted and refunded: " + id, "PaymentService");
+
+        if (!FINAL_STATUSES.contains(payment.getStatus())) {
+            RevenueService.Snapshot before = RevenueService.Snapshot.of(payment);
+            payment.setStatus(STATUS_CANCELED);
+            Payment saved = paymentRepository.save(payment);
+            revenueService.onChange(before, RevenueService.Snapshot.of(saved));
+        }
+        loggerService.success("Payment canceled: {} (status: {})", "PaymentService", LogContext.of("paymentId", id),
+                id, payment.getStatus());
         return new Response<>(true, null, SuccessCodes.PAYMENT_DELETED);
     }
 
     private static PaymentDto toDto(Payment p) {
         return new PaymentDto(
                 p.getId(),
-                p.getAmount(),
+                p.getAmountMinor(),
+                p.getRefundedMinor(),
                 p.getCurrency(),
                 p.getStatus(),
                 p.getProvider(),
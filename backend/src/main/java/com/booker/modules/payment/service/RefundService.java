@@ -0,0 +1,329 @@
+package com.booker.modules.payment.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.appointment.entity.Appointment;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.customer.entity.Customer;
+import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.dto.RefundDto;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.entity.RefundJob;
+import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.modules.payment.repository.RefundJobRepository;
+import com.booker.modules.service.repository.ServiceRepository;
+import com.booker.services.EmailService;
+import com.booker.services.StripeService;
+import com.booker.utils.base.Response;
+import com.booker.utils.money.Money;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Refund;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Queues refunds and sends them to Stripe in the background.
+ *
+ * A refund request only reserves the amount and stores a job in {@code refund_jobs}, under a row lock on
+ * the payment so concurrent requests can never refund more than was paid. A scheduled poller claims due
+ * jobs with {@code FOR UPDATE SKIP LOCKED}, so several instances share the queue without handing out the
+ * same job twice, and runs them on a fixed worker pool. Connection errors, Stripe server errors and rate
+ * limits are retried with exponential backoff; rejected refunds fail at once. A confirmed refund updates
+ * the payment, the revenue rollup and notifies the customer.
+ */
+@Service
+public class RefundService {
+
+    static final String DEFAULT_REASON = "requested_by_customer";
+    static final Set<String> REFUNDABLE_STATUSES = Set.of("succeeded", "partially_refunded");
+    private static final Set<String> OPEN_STATUSES = Set.of(RefundJob.STATUS_QUEUED, RefundJob.STATUS_PROCESSING);
+
+    // Jobs whose worker died keep status processing; they become claimable again once the lease expires
+    private static final String CLAIM_SQL =
+            "UPDATE refund_jobs SET status = 'processing', attempts = attempts + 1, "
+                    + "locked_until = now() + make_interval(secs => ?), updated_at = now() "
+                    + "WHERE id IN (SELECT id FROM refund_jobs "
+                    + "WHERE (status = 'queued' AND next_attempt_at <= now()) OR (status = 'processing' AND locked_until < now()) "
+                    + "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) "
+                    + "RETURNING id, payment_id, amount_minor, currency, reason, attempts";
+
+    private static final String COMPLETE_SQL =
+            "UPDATE refund_jobs SET status = 'succeeded', stripe_refund_id = ?, locked_until = NULL, last_error = NULL, "
+                    + "updated_at = now() WHERE id = ? AND status = 'processing'";
+
+    private static final String RESCHEDULE_SQL =
+            "UPDATE refund_jobs SET status = 'queued', next_attempt_at = ?, last_error = ?, locked_until = NULL, "
+                    + "updated_at = now() WHERE id = ? AND status = 'processing'";
+
+    private static final String FAIL_SQL =
+            "UPDATE refund_jobs SET status = 'failed', last_error = ?, locked_until = NULL, updated_at = now() "
+                    + "WHERE id = ? AND status = 'processing'";
+
+    private final RefundJobRepository refundJobRepository;
+    private final PaymentRepository paymentRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final CustomerRepository customerRepository;
+    private final ServiceRepository serviceRepository;
+    private final StripeService stripeService;
+    private final EmailService emailService;
+    private final RevenueService revenueService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggerService loggerService;
+    private final PaymentProperties.Refund properties;
+    private final ExecutorService workers;
+
+    public RefundService(RefundJobRepository refundJobRepository, PaymentRepository paymentRepository,
+            AppointmentRepository appointmentRepository, CustomerRepository customerRepository,
+            ServiceRepository serviceRepository, StripeService stripeService, EmailService emailService, RevenueService revenueService, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate, LoggerService loggerService, PaymentProperties paymentProperties) {
+        this.refundJobRepository = refundJobRepository;
+        this.paymentRepository = paymentRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.customerRepository = customerRepository;
+        this.serviceRepository = serviceRepository;
+        this.stripeService = stripeService;
+        this.emailService = emailService;
+        this.revenueService = revenueService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.loggerService = loggerService;
+        this.properties = paymentProperties.getRefund();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, properties.getWorkers()),
+                Thread.ofPlatform().name("refund-", 0).daemon().factory());
+    }
+
+    /**
+     * Queues a refund of a paid payment.
+     *
+     * @param paymentId the payment to refund
+     * @param amountMinor amount in minor units, or null for everything not yet refunded or queued
+     * @param reason Stripe refund reason, or null for {@code requested_by_customer}
+     * @return the queued refund, or an error if the payment is missing, not refundable,
+     *         or the amount exceeds what is left
+     */
+    public Response<RefundDto> request(@NonNull UUID paymentId, Long amountMinor, String reason) {
+        String refundReason = reason != null ? reason : DEFAULT_REASON;
+        return transactionTemplate.execute(status -> {
+            Payment payment = paymentRepository.findByIdForUpdate(paymentId).orElse(null);
+            if (payment == null) {
+                return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
+            }
+            if (payment.getStripePaymentIntentId() == null || !REFUNDABLE_STATUSES.contains(payment.getStatus())) {
+                return new Response<>(false, null, ErrorCodes.OPERATION_NOT_ALLOWED);
+            }
+
+            long available = payment.getRefundableMinor() - refundJobRepository.sumAmountMinor(paymentId, OPEN_STATUSES);
+            long amount = amountMinor != null ? amountMinor : available;
+            if (amount <= 0 || amount > available) {
+                return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
+            }
+
+            RefundJob job = refundJobRepository.save(new RefundJob(paymentId, amount, payment.getCurrency(), refundReason));
+            loggerService.info("Refund {} queued for payment {}: {}", "RefundService",
+                    LogContext.of("paymentId", paymentId, "refundId", job.getId()),
+                    job.getId(), paymentId, Money.of(amount, payment.getCurrency()).format());
+            return new Response<>(true, toDto(job), SuccessCodes.REFUND_QUEUED);
+        });
+    }
+
+    /**
+     * Lists the refunds of a payment, oldest first.
+     */
+    public Response<List<RefundDto>> list(@NonNull UUID paymentId) {
+        if (!paymentRepository.existsById(paymentId)) {
+            return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
+        }
+        List<RefundDto> data = refundJobRepository.findByPaymentIdOrderByCreatedAtAsc(paymentId).stream()
+                .map(RefundService::toDto)
+                .toList();
+        return new Response<>(true, data, SuccessCodes.OK);
+    }
+
+    /**
+     * Claims due refund jobs and runs them on the worker pool, waiting for the batch to finish.
+     * Skipped while the Stripe circuit breaker is open, so jobs do not burn attempts on an outage.
+     *
+     * @return number of refunds confirmed by Stripe
+     */
+    @Scheduled(fixedDelayString = "${payments.refund.poll-interval-ms:1000}")
+    public int processDue() {
+        if (!stripeService.isAvailable()) {
+            return 0;
+        }
+        List<Claim> claims = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> new Claim(
+                rs.getObject(1, UUID.class), rs.getObject(2, UUID.class), rs.getLong(3), rs.getString(4),
+                rs.getString(5), rs.getInt(6)), properties.getLeaseSeconds(), Math.max(1, properties.getBatchSize()));
+        if (claims.isEmpty()) {
+            return 0;
+        }
+
+        List<Future<Boolean>> results = new ArrayList<>(claims.size());
+        for (Claim claim : claims) {
+            results.add(workers.submit(() -> process(claim)));
+        }
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (result.get()) {
+                    succeeded++;
+                }
+            } catch (ExecutionException e) {
+                // process() handles its own errors; the lease brings the job back if it did not
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * Sends one claimed refund to Stripe and records the outcome.
+     *
+     * @return true if Stripe confirmed the refund
+     */
+    boolean process(Claim claim) {
+        Payment payment = paymentRepository.findById(claim.paymentId()).orElse(null);
+        if (payment == null || payment.getStripePaymentIntentId() == null) {
+            fail(claim, "Payment no longer refundable");
+            return false;
+        }
+
+        Refund refund;
+        try {
+            refund = stripeService.createRefund(payment.getStripePaymentIntentId(), claim.amountMinor(), claim.reason(),
+                    "refunds:" + claim.id());
+        } catch (ApiConnectionException | ApiException | RateLimitException e) {
+            retry(claim, e.getMessage());
+            return false;
+        } catch (StripeException e) {
+            fail(claim, e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            retry(claim, e.getMessage());
+            return false;
+        }
+
+        RevenueService.Change change = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(COMPLETE_SQL, refund.getId(), claim.id()) == 0) {
+                // Another worker took over after the lease expired and already recorded it
+                return null;
+            }
+            Payment locked = paymentRepository.findByIdForUpdate(claim.paymentId()).orElseThrow();
+            RevenueService.Snapshot before = RevenueService.Snapshot.of(locked);
+            locked.applyRefund(claim.amountMinor());
+            paymentRepository.save(locked);
+            sendRefundConfirmation(locked.getAppointment(), Money.of(claim.amountMinor(), claim.currency()));
+            return new RevenueService.Change(before, RevenueService.Snapshot.of(locked));
+        });
+        if (change == null) {
+            return false;
+        }
+        revenueService.apply(List.of(change));
+
+        loggerService.success("Refund {} of payment {} confirmed by Stripe: {}", "RefundService",
+                LogContext.of("paymentId", claim.paymentId(), "refundId", claim.id()),
+                claim.id(), claim.paymentId(), refund.getId());
+        return true;
+    }
+
+    private void retry(Claim claim, String error) {
+        if (claim.attempts() >= properties.getMaxAttempts()) {
+            fail(claim, error);
+            return;
+        }
+        long delay = Math.min(properties.getMaxDelaySeconds(),
+                properties.getBaseDelaySeconds() << Math.min(claim.attempts() - 1, 16));
+        jdbcTemplate.update(RESCHEDULE_SQL, Timestamp.from(Instant.now().plusSeconds(delay)), truncate(error), claim.id());
+        loggerService.warning("Refund {} failed (attempt {}), retrying in {}s: {}", "RefundService",
+                LogContext.of("paymentId", claim.paymentId(), "refundId", claim.id()),
+                claim.id(), claim.attempts(), delay, error);
+    }
+
+    private void fail(Claim claim, String error) {
+        jdbcTemplate.update(FAIL_SQL, truncate(error), claim.id());
+        loggerService.error("Refund {} of payment {} failed after {} attempts: {}", "RefundService",
+                LogContext.of("paymentId", claim.paymentId(), "refundId", claim.id()),
+                claim.id(), claim.paymentId(), claim.attempts(), error);
+    }
+
+    private void sendRefundConfirmation(UUID appointmentId, Money amount) {
+        try {
+            Appointment appointment = appointmentRepository.findById(appointmentId).orElse(null);
+            if (appointment != null) {
+                Customer customer = customerRepository.findById(appointment.getCustomer()).orElse(null);
+                if (customer != null && customer.getEmail() != null) {
+                    emailService.sendRefundConfirmation(
+                        customer.getEmail(),
+                        customer.getLocale(),
+                        customer.getFirstName() + " " + customer.getLastName(),
+                        amount.format(),
+                        serviceNameOf(appointment)
+                    );
+                }
+            }
+        } catch (Exception e) {
+            // Il rimborso e' gia' confermato da Stripe, l'email non deve annullarne la registrazione
+            loggerService.error("Failed to send refund confirmation email: {}", "RefundService",
+                    LogContext.of("appointmentId", appointmentId), e.getMessage());
+        }
+    }
+
+    private String serviceNameOf(Appointment appointment) {
+        if (appointment.getService() == null) {
+            return "-";
+        }
+        return serviceRepository.findById(appointment.getService())
+                .map(com.booker.modules.service.entity.Service::getName)
+                .orElse("-");
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    private static RefundDto toDto(RefundJob job) {
+        return new RefundDto(job.getId(), job.getPaymentId(), job.getAmountMinor(), job.getCurrency(), job.getReason(),
+                job.getStatus(), job.getAttempts(), job.getStripeRefundId(), job.getCreatedAt());
+    }
+
+    /**
+     * Lets the running batch finish on shutdown; unfinished jobs are picked up again after their lease.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A job claimed by this instance; {@code attempts} already counts the current attempt.
+     */
+    record Claim(UUID id, UUID paymentId, long amountMinor, String currency, String reason, int attempts) {
+    }
+}
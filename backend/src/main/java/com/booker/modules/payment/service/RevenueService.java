@@ -0,0 +1,234 @@
+package com.booker.modules.payment.service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.appointment.entity.Appointment;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.dto.RevenueDto;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.repository.RevenueDailyRepository;
+import com.booker.utils.base.Response;
+import com.booker.utils.money.Money;
+
+/**
+ * Keeps the {@code revenue_daily} rollup of paid payments per professional, day and currency.
+ * A payment counts with its amount net of refunds while it is succeeded or partially refunded.
+ *
+ * Every payment write hands over the payment as it was before and after the change; only the
+ * difference is applied, as an additive upsert, so concurrent writers never conflict and a revenue
+ * query reads one row per day instead of scanning payments. A nightly pass recomputes the recent
+ * days from the payments table, fixing any drift, and drops rows that no longer hold revenue.
+ */
+@Service
+public class RevenueService {
+
+    static final Set<String> REVENUE_STATUSES = Set.of("succeeded", "partially_refunded");
+
+    private static final String UPSERT_DELTA_SQL =
+            "INSERT INTO revenue_daily (professional_uuid, day, currency, amount_minor, payment_count) VALUES (?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (professional_uuid, day, currency) DO UPDATE SET "
+                    + "amount_minor = revenue_daily.amount_minor + EXCLUDED.amount_minor, "
+                    + "payment_count = revenue_daily.payment_count + EXCLUDED.payment_count";
+
+    private static final String SOURCE_SQL =
+            "SELECT a.professional_uuid, CAST(p.created_at AT TIME ZONE 'UTC' AS date) AS day, UPPER(p.currency) AS currency, "
+                    + "SUM(p.amount_minor - p.refunded_minor) AS amount_minor, COUNT(*) AS payment_count "
+                    + "FROM payments p JOIN appointment a ON a.id = p.appointment_uuid "
+                    + "WHERE p.status IN ('succeeded', 'partially_refunded') AND p.created_at >= ? "
+                    + "GROUP BY 1, 2, 3";
+
+    private static final String REPAIR_UPSERT_SQL =
+            "INSERT INTO revenue_daily (professional_uuid, day, currency, amount_minor, payment_count) " + SOURCE_SQL + " "
+                    + "ON CONFLICT (professional_uuid, day, currency) DO UPDATE SET "
+                    + "amount_minor = EXCLUDED.amount_minor, payment_count = EXCLUDED.payment_count "
+                    + "WHERE revenue_daily.amount_minor <> EXCLUDED.amount_minor "
+                    + "OR revenue_daily.payment_count <> EXCLUDED.payment_count";
+
+    private static final String REPAIR_DELETE_SQL =
+            "DELETE FROM revenue_daily r WHERE r.day >= ? AND NOT EXISTS ("
+                    + "SELECT 1 FROM (" + SOURCE_SQL + ") s "
+                    + "WHERE s.professional_uuid = r.professional_uuid AND s.day = r.day AND s.currency = r.currency)";
+
+    private static final String COMPACT_SQL = "DELETE FROM revenue_daily WHERE amount_minor = 0 AND payment_count = 0";
+
+    private final RevenueDailyRepository revenueDailyRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggerService loggerService;
+    private final PaymentProperties.Revenue properties;
+
+    public RevenueService(RevenueDailyRepository revenueDailyRepository, AppointmentRepository appointmentRepository,
+            JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, LoggerService loggerService,
+            PaymentProperties paymentProperties) {
+        this.revenueDailyRepository = revenueDailyRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.loggerService = loggerService;
+        this.properties = paymentProperties.getRevenue();
+    }
+
+    /**
+     * Returns the daily revenue of a professional, one entry per day and currency with revenue.
+     *
+     * @param professional the professional id
+     * @param from first day, inclusive (UTC)
+     * @param to last day, inclusive (UTC)
+     * @return the rollup rows ordered by day, or an error if the range is invalid
+     */
+    public Response<List<RevenueDto>> getDaily(UUID professional, LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= properties.getMaxRangeDays()) {
+            return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
+        }
+        List<RevenueDto> days = revenueDailyRepository
+                .findByProfessionalAndDayBetweenOrderByDayAscCurrencyAsc(professional, from, to).stream()
+                .map(r -> new RevenueDto(r.getDay(), r.getCurrency(), r.getAmountMinor(), r.getPaymentCount()))
+                .toList();
+        return new Response<>(true, days, SuccessCodes.OK);
+    }
+
+    /**
+     * Applies one payment write to the rollup.
+     *
+     * @param before the payment before the write, or null if it was created
+     * @param after the payment after the write, or null if it was deleted
+     */
+    public void onChange(Snapshot before, Snapshot after) {
+        apply(List.of(new Change(before, after)));
+    }
+
+    /**
+     * Applies a batch of payment writes to the rollup in one round trip.
+     * A failure is logged and left to the nightly repair rather than failing the payment write.
+     */
+    public void apply(List<Change> changes) {
+        Set<UUID> appointmentIds = new HashSet<>();
+        for (Change change : changes) {
+            if (counts(change.before())) {
+                appointmentIds.add(change.before().appointment());
+            }
+            if (counts(change.after())) {
+                appointmentIds.add(change.after().appointment());
+            }
+        }
+        if (appointmentIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<UUID, UUID> professionals = new HashMap<>();
+            for (Appointment appointment : appointmentRepository.findAllById(appointmentIds)) {
+                professionals.put(appointment.getId(), appointment.getProfessional());
+            }
+
+            Map<Key, long[]> deltas = new HashMap<>();
+            for (Change change : changes) {
+                add(deltas, professionals, change.before(), -1);
+                add(deltas, professionals, change.after(), 1);
+            }
+
+            List<Object[]> rows = new ArrayList<>(deltas.size());
+            deltas.forEach((key, delta) -> {
+                if (delta[0] != 0 || delta[1] != 0) {
+                    rows.add(new Object[] {key.professional(), Date.valueOf(key.day()), key.currency(), delta[0], delta[1]});
+                }
+            });
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_DELTA_SQL, rows);
+            }
+        } catch (DataAccessException e) {
+            loggerService.error("Failed to update revenue rollup, the nightly repair will fix it: {}", "RevenueService",
+                    LogContext.of("changes", changes.size()), e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the rollup for the last {@code payments.revenue.repair-days} days from the payments table
+     * and removes rows without revenue.
+     *
+     * @return number of rollup rows that were corrected or removed
+     */
+    @Scheduled(cron = "${payments.revenue.repair-cron:0 30 2 * * *}")
+    public int repair() {
+        LocalDate firstDay = LocalDate.now(ZoneOffset.UTC).minusDays(Math.max(1, properties.getRepairDays()));
+        Timestamp since = Timestamp.from(firstDay.atStartOfDay(ZoneOffset.UTC).toInstant());
+        Integer repaired = transactionTemplate.execute(status -> {
+            int upserted = jdbcTemplate.update(REPAIR_UPSERT_SQL, since);
+            int stale = jdbcTemplate.update(REPAIR_DELETE_SQL, Date.valueOf(firstDay), since);
+            int compacted = jdbcTemplate.update(COMPACT_SQL);
+            return upserted + stale + compacted;
+        });
+        int total = repaired != null ? repaired : 0;
+        loggerService.info("Revenue rollup repaired since {}: {} rows corrected", "RevenueService",
+                LogContext.of("job", "revenue-repair"), firstDay, total);
+        return total;
+    }
+
+    private static void add(Map<Key, long[]> deltas, Map<UUID, UUID> professionals, Snapshot snapshot, int sign) {
+        if (!counts(snapshot)) {
+            return;
+        }
+        UUID professional = professionals.get(snapshot.appointment());
+        if (professional == null) {
+            return;
+        }
+        Instant createdAt = snapshot.createdAt() != null ? snapshot.createdAt() : Instant.now();
+        Key key = new Key(professional, LocalDate.ofInstant(createdAt, ZoneOffset.UTC), Money.of(0, snapshot.currency()).currency());
+        long[] delta = deltas.computeIfAbsent(key, k -> new long[2]);
+        delta[0] += sign * snapshot.amountMinor();
+        delta[1] += sign;
+    }
+
+    private static boolean counts(Snapshot snapshot) {
+        return snapshot != null && REVENUE_STATUSES.contains(snapshot.status()) && snapshot.appointment() != null;
+    }
+
+    private record Key(UUID professional, LocalDate day, String currency) {
+    }
+
+    /**
+     * The fields of a payment that determine its contribution to the rollup;
+     * {@code amountMinor} is the amount net of refunds.
+     */
+    public record Snapshot(UUID appointment, Instant createdAt, String currency, long amountMinor, String status) {
+
+        public static Snapshot of(Payment payment) {
+            return new Snapshot(payment.getAppointment(), payment.getCreatedAt(), payment.getCurrency(),
+                    payment.getAmountMinor() - payment.getRefundedMinor(), payment.getStatus());
+        }
+
+        public Snapshot withStatus(String status) {
+            return new Snapshot(appointment, createdAt, currency, amountMinor, status);
+        }
+    }
+
+    /**
+     * One payment write; {@code before} is null for a creation and {@code after} for a deletion.
+     */
+    public record Change(Snapshot before, Snapshot after) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.booker.modules.payment.service;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.booker.config.StripeResilienceProperties;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.entity.StripeRetry;
+import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.modules.payment.repository.StripeRetryRepository;
+import com.booker.services.StripeService;
+
+/**
+ * Drains payments parked while Stripe was unavailable, and background Stripe calls whose
+ * instance never finished them.
+ *
+ * Runs only while the circuit breaker lets calls through, and stops as soon as it opens again.
+ * Each entry is claimed for {@code payments.queue-lease-seconds} before it is worked on, so
+ * instances draining at the same time do not take the same one, and retried with its stored
+ * idempotency key, so a request that did reach Stripe before the failure does not create a
+ * second PaymentIntent.
+ */
+@Service
+public class StripeRetryService {
+
+    private final StripeRetryRepository stripeRetryRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final StripeService stripeService;
+    private final StripeResilienceProperties properties;
+    private final PaymentProperties paymentProperties;
+    private final LoggerService loggerService;
+
+    public StripeRetryService(StripeRetryRepository stripeRetryRepository, PaymentRepository paymentRepository,
+            PaymentService paymentService, StripeService stripeService, StripeResilienceProperties properties,
+            PaymentProperties paymentProperties, LoggerService loggerService) {
+        this.stripeRetryRepository = stripeRetryRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.stripeService = stripeService;
+        this.properties = properties;
+        this.paymentProperties = paymentProperties;
+        this.loggerService = loggerService;
+    }
+
+    /**
+     * Retries parked payments that are due.
+     *
+     * @return number of parked payments resolved
+     */
+    @Scheduled(fixedDelayString = "${stripe.resilience.retry-interval-ms:5000}")
+    public int drain() {
+        if (!stripeService.isAvailable()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<StripeRetry> due = stripeRetryRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                now, Limit.of(Math.max(1, properties.getRetryBatchSize())));
+
+        int resolved = 0;
+        for (StripeRetry retry : due) {
+            if (!stripeService.isAvailable()) {
+                break;
+            }
+            if (stripeRetryRepository.claim(retry.getPaymentId(), now,
+                    Instant.now().plusSeconds(paymentProperties.getQueueLeaseSeconds())) == 0) {
+                // Taken by another instance since the read
+                continue;
+            }
+            Payment payment = paymentRepository.findById(retry.getPaymentId()).orElse(null);
+            if (payment != null && PaymentService.STATUS_PENDING.equals(payment.getStatus())) {
+                paymentService.completePending(payment, retry.getIdempotencyKey());
+                if (PaymentService.STATUS_PENDING.equals(payment.getStatus())) {
+                    // Parked again, with a later attempt time
+                    continue;
+                }
+            }
+            stripeRetryRepository.deleteById(retry.getPaymentId());
+            resolved++;
+        }
+        return resolved;
+    }
+
+    /**
+     * Queues pending payments that never got a PaymentIntent and have no queue entry, so a payment
+     * whose background call was lost is still completed.
+     *
+     * @return number of payments queued
+     */
+    @Scheduled(fixedDelayString = "${payments.stranded-sweep-interval-ms:600000}")
+    public int requeueStranded() {
+        int queued = stripeRetryRepository.requeueStranded(
+                Instant.now().minusSeconds(paymentProperties.getQueueLeaseSeconds()));
+        if (queued > 0) {
+            loggerService.warning("Queued {} pending payments without a PaymentIntent", "StripeRetryService",
+                    LogContext.of("job", "payments.stranded"), queued);
+        }
+        return queued;
+    }
+}
@@ -0,0 +1,252 @@
+package com.booker.modules.payment.service;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.utils.base.Response;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+
+/**
+ * Ingests Stripe webhook events and moves payments to the status Stripe reports.
+ *
+ * Receiving an event only verifies its signature, drops ids seen recently and puts the status change
+ * on a bounded queue, so the acknowledgement stays fast during event storms. A scheduled job drains
+ * the queue in batches: event ids are recorded in {@code stripe_webhook_events} to filter redeliveries
+ * that the in-memory set no longer remembers, the remaining changes are collapsed to the latest one per
+ * PaymentIntent, and all of them are applied with a single UPDATE.
+ */
+@Service
+public class StripeWebhookService {
+
+    private static final String EVENT_PREFIX = "payment_intent.";
+
+    private static final String RECORD_EVENTS_SQL =
+            "INSERT INTO stripe_webhook_events (id, received_at) SELECT unnest(?), now() "
+                    + "ON CONFLICT (id) DO NOTHING RETURNING id";
+
+    // Final statuses are never overwritten by an event that arrives out of order
+    // The self join reads the row as it was before the update, so the revenue rollup gets both sides
+    private static final String APPLY_STATUS_SQL =
+            "UPDATE payments p SET status = u.status "
+                    + "FROM (SELECT unnest(?) AS intent_id, unnest(?) AS status) u, payments old "
+                    + "WHERE p.stripe_payment_intent_id = u.intent_id AND p.status <> u.status "
+                    + "AND p.status NOT IN ('succeeded', 'canceled', 'partially_refunded', 'refunded') AND old.id = p.id "
+                    + "RETURNING p.appointment_uuid, p.created_at, p.currency, p.amount_minor - p.refunded_minor, old.status, p.status";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoggerService loggerService;
+    private final RevenueService revenueService;
+    private final PaymentProperties.Webhook properties;
+    private final BlockingQueue<StatusChange> queue;
+    private final Map<String, Boolean> recentEvents;
+
+    public StripeWebhookService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            LoggerService loggerService, RevenueService revenueService, PaymentProperties paymentProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.revenueService = revenueService;
+        this.loggerService = loggerService;
+        this.properties = paymentProperties.getWebhook();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        int maxEntries = properties.getDedupMaxEntries();
+        this.recentEvents = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Verifies and enqueues a webhook delivery.
+     *
+     * @param payload the raw request body, exactly as received
+     * @param signature the {@code Stripe-Signature} header
+     * @return OK once the event is accepted or known, an error if the signature is invalid
+     *         or the queue is full (Stripe then retries later)
+     */
+    public Response<Void> receive(String payload, String signature) {
+        String secret = properties.getSecret();
+        if (secret == null || secret.isBlank() || signature == null) {
+            return new Response<>(false, null, ErrorCodes.INVALID_WEBHOOK_SIGNATURE);
+        }
+
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, signature, secret);
+        } catch (SignatureVerificationException e) {
+            return new Response<>(false, null, ErrorCodes.INVALID_WEBHOOK_SIGNATURE);
+        } catch (RuntimeException e) {
+            return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
+        }
+
+        if (event.getType() == null || !event.getType().startsWith(EVENT_PREFIX)) {
+            return new Response<>(true, null, SuccessCodes.OK);
+        }
+        PaymentIntent intent = paymentIntentOf(event);
+        if (intent == null || intent.getId() == null || intent.getStatus() == null) {
+            return new Response<>(true, null, SuccessCodes.OK);
+        }
+
+        synchronized (recentEvents) {
+            if (recentEvents.containsKey(event.getId())) {
+                return new Response<>(true, null, SuccessCodes.OK);
+            }
+            StatusChange change = new StatusChange(event.getId(), intent.getId(), intent.getStatus(),
+                    event.getCreated() != null ? event.getCreated() : 0L);
+            if (!queue.offer(change)) {
+                return new Response<>(false, null, ErrorCodes.SERVICE_UNAVAILABLE);
+            }
+            recentEvents.put(event.getId(), Boolean.TRUE);
+        }
+        return new Response<>(true, null, SuccessCodes.OK);
+    }
+
+    /**
+     * Applies queued status changes in batches until the queue is empty.
+     */
+    @Scheduled(fixedDelayString = "${payments.webhook.flush-interval-ms:200}")
+    public void applyPending() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<StatusChange> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                int updated = applyBatch(batch);
+                loggerService.info("Applied {} Stripe webhook events, {} payments updated", "StripeWebhookService",
+                        LogContext.of("events", batch.size()), batch.size(), updated);
+            } catch (RuntimeException e) {
+                requeue(batch);
+                loggerService.error("Failed to apply Stripe webhook events, will retry: {}", "StripeWebhookService",
+                        LogContext.of("events", batch.size()), e.getMessage());
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Returns the number of accepted events not applied yet.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Forgets processed event ids once Stripe can no longer redeliver them.
+     */
+    @Scheduled(cron = "${payments.webhook.cleanup-cron:0 30 3 * * *}")
+    public void purgeProcessedEvents() {
+        Instant cutoff = Instant.now().minus(properties.getRetentionDays(), ChronoUnit.DAYS);
+        jdbcTemplate.update("DELETE FROM stripe_webhook_events WHERE received_at < ?", Timestamp.from(cutoff));
+    }
+
+    int applyBatch(List<StatusChange> batch) {
+        List<RevenueService.Change> updated = transactionTemplate.execute(status -> {
+            String[] eventIds = batch.stream().map(StatusChange::eventId).toArray(String[]::new);
+            Set<String> fresh = new HashSet<>(jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(RECORD_EVENTS_SQL);
+                ps.setArray(1, con.createArrayOf("text", eventIds));
+                return ps;
+            }, (rs, rowNum) -> rs.getString(1)));
+
+            Map<String, StatusChange> latest = collapse(batch, fresh);
+            if (latest.isEmpty()) {
+                return List.<RevenueService.Change>of();
+            }
+            String[] intentIds = latest.keySet().toArray(String[]::new);
+            String[] statuses = latest.values().stream().map(StatusChange::status).toArray(String[]::new);
+            return jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(APPLY_STATUS_SQL);
+                Array intents = con.createArrayOf("text", intentIds);
+                Array values = con.createArrayOf("text", statuses);
+                ps.setArray(1, intents);
+                ps.setArray(2, values);
+                return ps;
+            }, (rs, rowNum) -> {
+                RevenueService.Snapshot before = new RevenueService.Snapshot(rs.getObject(1, UUID.class),
+                        rs.getTimestamp(2).toInstant(), rs.getString(3), rs.getLong(4), rs.getString(5));
+                return new RevenueService.Change(before, before.withStatus(rs.getString(6)));
+            });
+        });
+        if (updated == null) {
+            return 0;
+        }
+        // Outside the transaction: a rollup failure must not send the events back to the queue
+        revenueService.apply(updated);
+        return updated.size();
+    }
+
+    /**
+     * Keeps only the newest change per PaymentIntent among the events not processed before.
+     */
+    static Map<String, StatusChange> collapse(List<StatusChange> batch, Set<String> freshEventIds) {
+        Map<String, StatusChange> latest = new LinkedHashMap<>();
+        for (StatusChange change : batch) {
+            if (!freshEventIds.contains(change.eventId())) {
+                continue;
+            }
+            latest.merge(change.paymentIntentId(), change,
+                    (current, candidate) -> candidate.created() >= current.created() ? candidate : current);
+        }
+        return latest;
+    }
+
+    private void requeue(List<StatusChange> batch) {
+        for (StatusChange change : batch) {
+            if (!queue.offer(change)) {
+                synchronized (recentEvents) {
+                    recentEvents.remove(change.eventId());
+                }
+                loggerService.error("Dropped Stripe webhook event {}, queue full", "StripeWebhookService",
+                        LogContext.of("paymentIntentId", change.paymentIntentId()), change.eventId());
+            }
+        }
+    }
+
+    private static PaymentIntent paymentIntentOf(Event event) {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        if (object == null) {
+            // Event rendered with a different API version than the library's: fall back to a lenient read
+            try {
+                object = event.getDataObjectDeserializer().deserializeUnsafe();
+            } catch (EventDataObjectDeserializationException e) {
+                return null;
+            }
+        }
+        return object instanceof PaymentIntent intent ? intent : null;
+    }
+
+    /**
+     * A status reported by Stripe for a PaymentIntent.
+     */
+    record StatusChange(String eventId, String paymentIntentId, String status, long created) {
+    }
+}
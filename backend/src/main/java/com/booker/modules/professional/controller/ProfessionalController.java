@@ -5,15 +5,21 @@ import java.util.UUID;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import com.booker.constants.routes.Namespaces;
 import com.booker.constants.routes.Routes;
+import com.booker.modules.professional.dto.DigestPreferenceRequest;
 import com.booker.modules.professional.dto.ProfessionalPublicDto;
+import com.booker.modules.professional.dto.TopProfessionalDto;
 import com.booker.modules.professional.service.ProfessionalService;
+import com.booker.modules.review.service.ProfessionalLeaderboard;
 import com.booker.utils.base.Response;
 import com.booker.utils.base.ResponseEntityBuilder;
 
+import jakarta.validation.Valid;
+
 /**
  * REST controller that provides public access to professional profiles.
  * Allows customers to view professionals and their information for booking appointments.
@@ -23,9 +29,11 @@ import com.booker.utils.base.ResponseEntityBuilder;
 public class ProfessionalController {
 
     private final ProfessionalService professionalService;
+    private final ProfessionalLeaderboard professionalLeaderboard;
 
-    public ProfessionalController(ProfessionalService professionalService) {
+    public ProfessionalController(ProfessionalService professionalService, ProfessionalLeaderboard professionalLeaderboard) {
         this.professionalService = professionalService;
+        this.professionalLeaderboard = professionalLeaderboard;
     }
 
     /**
@@ -38,6 +46,17 @@ public class ProfessionalController {
         return ResponseEntityBuilder.build(professionalService.list());
     }
 
+    /**
+     * Retrieves the best rated professionals, ranked by their average rating weighted by the number of reviews.
+     *
+     * @param limit how many professionals to return, at most {@code reviews.leaderboard.size}
+     * @return a response entity containing the professionals, best first
+     */
+    @GetMapping(Routes.TOP)
+    public ResponseEntity<Response<List<TopProfessionalDto>>> top(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntityBuilder.build(professionalLeaderboard.top(limit));
+    }
+
     /**
      * Retrieves detailed information about a specific professional.
      *
@@ -48,4 +67,17 @@ public class ProfessionalController {
     public ResponseEntity<Response<ProfessionalPublicDto>> getById(@PathVariable @NonNull UUID id) {
         return ResponseEntityBuilder.build(professionalService.getById(id));
     }
+
+    /**
+     * Turns the daily appointments digest email on or off for a professional.
+     *
+     * @param id  the unique identifier of the professional
+     * @param req whether the digest is wanted
+     * @return a response entity confirming the change
+     */
+    @PreAuthorize("@ownershipChecker.isAdminOrOwner(authentication, #id)")
+    @PutMapping(Routes.DIGEST)
+    public ResponseEntity<Response<Void>> updateDigest(@PathVariable @NonNull UUID id, @Valid @RequestBody DigestPreferenceRequest req) {
+        return ResponseEntityBuilder.build(professionalService.updateDigest(id, req.enabled));
+    }
 }
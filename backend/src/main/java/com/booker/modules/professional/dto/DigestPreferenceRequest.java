@@ -0,0 +1,9 @@
+package com.booker.modules.professional.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public class DigestPreferenceRequest {
+
+    @NotNull
+    public Boolean enabled;
+}
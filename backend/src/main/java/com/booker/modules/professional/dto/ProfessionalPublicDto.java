@@ -1,5 +1,6 @@
 package com.booker.modules.professional.dto;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -16,6 +17,8 @@ public class ProfessionalPublicDto {
     public Integer yearsOfExperience;
     public Boolean isVerified;
     public Integer averageRating;
+    public BigDecimal rating;
+    public Integer ratingCount;
 
     public ProfessionalPublicDto(
             UUID id,
@@ -28,7 +31,9 @@ public class ProfessionalPublicDto {
             String bio,
             Integer yearsOfExperience,
             Boolean isVerified,
-            Integer averageRating
+            Integer averageRating,
+            BigDecimal rating,
+            Integer ratingCount
     ) {
         this.id = id;
         this.email = email;
@@ -41,5 +46,7 @@ public class ProfessionalPublicDto {
         this.yearsOfExperience = yearsOfExperience;
         this.isVerified = isVerified;
         this.averageRating = averageRating;
+        this.rating = rating;
+        this.ratingCount = ratingCount;
     }
 }
@@ -0,0 +1,23 @@
+package com.booker.modules.professional.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public class TopProfessionalDto {
+    public UUID id;
+    public String firstName;
+    public String lastName;
+    public BigDecimal score;
+    public BigDecimal rating;
+    public Integer ratingCount;
+
+    public TopProfessionalDto(UUID id, String firstName, String lastName, BigDecimal score, BigDecimal rating,
+            Integer ratingCount) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.score = score;
+        this.rating = rating;
+        this.ratingCount = ratingCount;
+    }
+}
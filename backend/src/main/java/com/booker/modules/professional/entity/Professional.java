@@ -1,5 +1,9 @@
 package com.booker.modules.professional.entity;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
 import jakarta.persistence.*;
 
 import com.booker.modules.user.entity.User;
@@ -22,9 +26,26 @@ public class Professional extends User {
     @Column(columnDefinition = "BOOLEAN DEFAULT FALSE")
     private Boolean isVerified;
 
-    @Column(columnDefinition = "INT DEFAULT 0", nullable = false)
+    // Rounded to a whole star; kept in step with the counters below.
+    // Columns written only with SQL are not updatable, so saving a professional never writes back a stale read
+    @Column(columnDefinition = "INT DEFAULT 0", nullable = false, updatable = false)
     private Integer averageRating;
 
+    // Sum and number of review ratings, changed only by ReviewRatingService
+    @Column(name = "rating_sum", nullable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long ratingSum;
+
+    @Column(name = "rating_count", nullable = false, updatable = false, columnDefinition = "INT DEFAULT 0")
+    private int ratingCount;
+
+    // Opt-in for the daily agenda email
+    @Column(name = "digest_enabled", nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
+    private boolean digestEnabled;
+
+    // Day of the last digest sent, so a day is never sent twice; stamped by ProfessionalDigestService
+    @Column(name = "last_digest_on", updatable = false)
+    private LocalDate lastDigestOn;
+
     // getters/setters
 
     public String getBio() {
@@ -43,6 +64,34 @@ public class Professional extends User {
         return averageRating;
     }
 
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
+    /**
+     * The exact average of all review ratings, to two decimals.
+     *
+     * @return the average, or null if there are no reviews
+     */
+    public BigDecimal getRating() {
+        if (ratingCount == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(ratingSum).divide(BigDecimal.valueOf(ratingCount), 2, RoundingMode.HALF_UP);
+    }
+
+    public boolean isDigestEnabled() {
+        return digestEnabled;
+    }
+
+    public LocalDate getLastDigestOn() {
+        return lastDigestOn;
+    }
+
     public void setBio(String bio) {
         this.bio = bio;
     }
@@ -58,4 +107,16 @@ public class Professional extends User {
     public void setAverageRating(Integer averageRating) {
         this.averageRating = averageRating;
     }
+
+    public void setRatingSum(long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public void setRatingCount(int ratingCount) {
+        this.ratingCount = ratingCount;
+    }
+
+    public void setDigestEnabled(boolean digestEnabled) {
+        this.digestEnabled = digestEnabled;
+    }
 }
@@ -52,6 +52,23 @@ public class ProfessionalService {
         return new Response<>(true, toDto(professional), SuccessCodes.OK);
     }
 
+    /**
+     * Opts a professional in or out of the daily appointments digest.
+     *
+     * @param id      the unique identifier of the professional
+     * @param enabled whether the digest should be sent
+     * @return a response confirming the change, or an error if the professional is not found
+     */
+    public Response<Void> updateDigest(@NonNull UUID id, boolean enabled) {
+        Professional professional = professionalRepository.findById(id).orElse(null);
+        if (professional == null) {
+            return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
+        }
+        professional.setDigestEnabled(enabled);
+        professionalRepository.save(professional);
+        return new Response<>(true, null, SuccessCodes.PROFESSIONAL_UPDATED);
+    }
+
     private static ProfessionalPublicDto toDto(Professional p) {
         return new ProfessionalPublicDto(
                 p.getId(),
@@ -64,7 +81,9 @@ public class ProfessionalService {
                 p.getBio(),
                 p.getYearsOfExperience(),
                 p.getIsVerified(),
-                p.getAverageRating()
+                p.getAverageRating(),
+                p.getRating(),
+                p.getRatingCount()
         );
     }
 }
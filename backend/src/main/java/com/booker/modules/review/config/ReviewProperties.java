@@ -0,0 +1,166 @@
+package com.booker.modules.review.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for reviews and the queries built on them.
+ */
+@Component
+@ConfigurationProperties(prefix = "reviews")
+public class ReviewProperties {
+
+    /**
+     * Full-text search over review comments.
+     */
+    private Search search = new Search();
+
+    /**
+     * Top rated professionals, kept in memory.
+     */
+    private Leaderboard leaderboard = new Leaderboard();
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public void setSearch(Search search) {
+        this.search = search;
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    public static class Search {
+
+        /**
+         * Largest page a search returns.
+         */
+        private int maxPageSize = 50;
+
+        /**
+         * Results that can be skipped with paging; deeper pages are refused, as every skipped
+         * result still has to be ranked.
+         */
+        private int maxOffset = 1000;
+
+        /**
+         * Most words of a query that are used; the rest are ignored.
+         */
+        private int maxTerms = 8;
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public int getMaxOffset() {
+            return maxOffset;
+        }
+
+        public void setMaxOffset(int maxOffset) {
+            this.maxOffset = maxOffset;
+        }
+
+        public int getMaxTerms() {
+            return maxTerms;
+        }
+
+        public void setMaxTerms(int maxTerms) {
+            this.maxTerms = maxTerms;
+        }
+    }
+
+    public static class Leaderboard {
+
+        /**
+         * Whether the leaderboard is loaded and kept up to date; when off it is always empty.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Most professionals a request can ask for.
+         */
+        private int size = 20;
+
+        /**
+         * Professionals held in memory beyond {@code size}, so one whose rating drops can be
+         * replaced without going back to the database.
+         */
+        private int buffer = 80;
+
+        /**
+         * Weight of the average rating of all professionals in a professional's score, in reviews.
+         * A professional with few reviews ranks close to the overall average until their own
+         * reviews outweigh it.
+         */
+        private int priorWeight = 10;
+
+        /**
+         * Reviews a professional needs to be ranked at all.
+         */
+        private int minReviews = 1;
+
+        /**
+         * How often the leaderboard is reloaded from the database, which also refreshes the overall
+         * average the scores are based on, in milliseconds.
+         */
+        private long rebuildIntervalMs = 600_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getBuffer() {
+            return buffer;
+        }
+
+        public void setBuffer(int buffer) {
+            this.buffer = buffer;
+        }
+
+        public int getPriorWeight() {
+            return priorWeight;
+        }
+
+        public void setPriorWeight(int priorWeight) {
+            this.priorWeight = priorWeight;
+        }
+
+        public int getMinReviews() {
+            return minReviews;
+        }
+
+        public void setMinReviews(int minReviews) {
+            this.minReviews = minReviews;
+        }
+
+        public long getRebuildIntervalMs() {
+            return rebuildIntervalMs;
+        }
+
+        public void setRebuildIntervalMs(long rebuildIntervalMs) {
+            this.rebuildIntervalMs = rebuildIntervalMs;
+        }
+    }
+}
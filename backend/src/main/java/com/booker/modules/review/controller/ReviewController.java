@@ -11,7 +11,9 @@ import org.springframework.web.bind.annotation.*;
 import com.booker.constants.routes.Namespaces;
 import com.booker.constants.routes.Routes;
 import com.booker.modules.review.dto.ReviewDto;
+import com.booker.modules.review.dto.ReviewSearchDto;
 import com.booker.modules.review.dto.ReviewUpsertRequest;
+import com.booker.modules.review.service.ReviewSearchService;
 import com.booker.modules.review.service.ReviewService;
 import com.booker.utils.base.Response;
 import com.booker.utils.base.ResponseEntityBuilder;
@@ -27,9 +29,11 @@ import jakarta.validation.Valid;
 public class ReviewController {
 
     private final ReviewService reviewService;
+    private final ReviewSearchService reviewSearchService;
 
-    public ReviewController(ReviewService reviewService) {
+    public ReviewController(ReviewService reviewService, ReviewSearchService reviewSearchService) {
         this.reviewService = reviewService;
+        this.reviewSearchService = reviewSearchService;
     }
 
     /**
@@ -42,6 +46,27 @@ public class ReviewController {
         return ResponseEntityBuilder.build(reviewService.list());
     }
 
+    /**
+     * Searches review comments for words, best matches first. The last word also matches as a prefix.
+     *
+     * @param q the words to look for
+     * @param professional only reviews of this professional
+     * @param minRating lowest rating, inclusive
+     * @param maxRating highest rating, inclusive
+     * @param page zero-based page number
+     * @param size results per page
+     * @return a response entity containing one page of matching reviews
+     */
+    @GetMapping(Routes.SEARCH)
+    public ResponseEntity<Response<ReviewSearchDto>> search(@RequestParam String q,
+            @RequestParam(required = false) UUID professional,
+            @RequestParam(required = false) Integer minRating,
+            @RequestParam(required = false) Integer maxRating,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntityBuilder.build(reviewSearchService.search(q, professional, minRating, maxRating, page, size));
+    }
+
     /**
      * Retrieves a specific review by its unique identifier.
      *
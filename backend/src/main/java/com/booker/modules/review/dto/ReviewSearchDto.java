@@ -0,0 +1,17 @@
+package com.booker.modules.review.dto;
+
+import java.util.List;
+
+public class ReviewSearchDto {
+    public List<ReviewDto> reviews;
+    public int page;
+    public int size;
+    public boolean hasMore;
+
+    public ReviewSearchDto(List<ReviewDto> reviews, int page, int size, boolean hasMore) {
+        this.reviews = reviews;
+        this.page = page;
+        this.size = size;
+        this.hasMore = hasMore;
+    }
+}
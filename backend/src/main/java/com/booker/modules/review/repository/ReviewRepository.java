@@ -5,9 +5,14 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.booker.modules.review.entity.Review;
 
+import jakarta.persistence.LockModeType;
+
 public interface ReviewRepository extends JpaRepository<Review, UUID> {
     List<Review> findByProfessional(UUID professionalId);
     List<Review> findByCustomer(UUID customerId);
@@ -19,4 +24,12 @@ public interface ReviewRepository extends JpaRepository<Review, UUID> {
     List<Review> findAllByOrderByCreatedAtDesc();
     List<Review> findAllByOrderByRatingAsc();
     List<Review> findAllByOrderByRatingDesc();
+
+    /**
+     * Reads a review and locks its row until the surrounding transaction ends,
+     * so concurrent writes to the same review apply their rating changes one after the other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :id")
+    Optional<Review> findByIdForUpdate(@Param("id") UUID id);
 }
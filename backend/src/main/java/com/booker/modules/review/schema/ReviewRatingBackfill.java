@@ -0,0 +1,37 @@
+package com.booker.modules.review.schema;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.booker.modules.review.service.ReviewRatingService;
+import com.booker.utils.jdbc.SchemaSupport;
+
+/**
+ * Brings the rating counters of every professional in line with the reviews table at startup.
+ *
+ * The {@code rating_sum} and {@code rating_count} columns are added at zero on an existing
+ * database, and review writes only apply differences to them, so they have to be filled before
+ * the first write rather than at the nightly repair. On later startups the repair finds nothing
+ * to correct and writes no rows.
+ */
+@Component
+public class ReviewRatingBackfill implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReviewRatingService reviewRatingService;
+
+    public ReviewRatingBackfill(JdbcTemplate jdbcTemplate, ReviewRatingService reviewRatingService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reviewRatingService = reviewRatingService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!SchemaSupport.isPostgres(jdbcTemplate)) {
+            return;
+        }
+        reviewRatingService.repair();
+    }
+}
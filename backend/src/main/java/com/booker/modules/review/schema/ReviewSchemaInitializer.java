@@ -0,0 +1,45 @@
+package com.booker.modules.review.schema;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.booker.utils.jdbc.SchemaSupport;
+
+/**
+ * Adds the full-text search column and the indexes on the reviews table that JPA annotations
+ * cannot express.
+ *
+ * {@code search_vector} is a generated column, so Postgres keeps it in step with every insert and
+ * update of a comment; the GIN index on it answers searches without reading the comments. The
+ * {@code simple} configuration only lower-cases words, as comments are written in several
+ * languages.
+ *
+ * Adding a stored generated column rewrites the whole table under an exclusive lock, blocking
+ * reads and writes of reviews until every row has its vector, so it is only issued while the
+ * column is missing. The indexes are built concurrently, outside any transaction, and do not
+ * block writes.
+ */
+@Component
+public class ReviewSchemaInitializer implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReviewSchemaInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!SchemaSupport.isPostgres(jdbcTemplate)) {
+            return;
+        }
+        if (!SchemaSupport.columnExists(jdbcTemplate, "reviews", "search_vector")) {
+            jdbcTemplate.execute("ALTER TABLE reviews ADD COLUMN IF NOT EXISTS search_vector tsvector "
+                    + "GENERATED ALWAYS AS (to_tsvector('simple', coalesce(comment, ''))) STORED");
+        }
+        SchemaSupport.createIndexConcurrently(jdbcTemplate, "idx_reviews_search", "reviews USING GIN (search_vector)");
+        SchemaSupport.createIndexConcurrently(jdbcTemplate, "idx_reviews_professional", "reviews (professional_uuid)");
+    }
+}
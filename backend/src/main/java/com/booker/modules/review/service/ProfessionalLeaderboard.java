@@ -0,0 +1,322 @@
+package com.booker.modules.review.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.professional.dto.TopProfessionalDto;
+import com.booker.modules.review.config.ReviewProperties;
+import com.booker.utils.base.Response;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * The best rated professionals, held in memory and served without touching the database.
+ *
+ * Professionals are ranked by a Bayesian average: their ratings plus {@code prior-weight} reviews
+ * at the average rating of all professionals, so a single five star review does not beat a
+ * hundred good ones. The overall average is refreshed on every reload, every
+ * {@code rebuild-interval-ms}; between reloads it is fixed, so a review only moves the professional
+ * it belongs to.
+ *
+ * The leaderboard keeps {@code size + buffer} professionals, best first, and remembers the best
+ * score of any professional it does not hold. Entries that score at least that much are certain
+ * to be in the right place; when fewer than {@code size} of them are left, the leaderboard is
+ * reloaded. Rating changes reach every instance as Postgres notifications, which are only
+ * delivered once the review write commits; an instance that loses its listening connection
+ * reloads once it is back, so no change is missed.
+ */
+@Service
+public class ProfessionalLeaderboard {
+
+    /**
+     * Channel carrying rating changes as {@code id,rating_sum,rating_count}, or {@link #REBUILD}.
+     */
+    public static final String CHANNEL = "review_ratings";
+
+    /**
+     * Notification asking every instance to reload.
+     */
+    public static final String REBUILD = "rebuild";
+
+    private static final String MEAN_SQL =
+            "SELECT COALESCE(SUM(rating_sum)::float8 / NULLIF(SUM(rating_count), 0), 0) FROM professionals";
+
+    private static final String LOAD_SQL =
+            "SELECT p.id, u.first_name, u.last_name, p.rating_sum, p.rating_count "
+                    + "FROM professionals p JOIN users u ON u.id = p.id WHERE p.rating_count >= ? "
+                    + "ORDER BY (? + p.rating_sum) / (? + p.rating_count) DESC, p.id LIMIT ?";
+
+    private static final String NAME_SQL = "SELECT first_name, last_name FROM users WHERE id = ?";
+
+    private static final long MAX_RECONNECT_DELAY_MS = 60_000;
+
+    // Best first; ties in the order Postgres sorts uuids
+    private static final Comparator<Entry> ORDER = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparing(e -> e.id().toString());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final LoggerService loggerService;
+    private final ReviewProperties.Leaderboard properties;
+
+    // Written by the listener and the scheduled reload only; guarded by itself, also across reloads
+    private final TreeSet<Entry> ranked = new TreeSet<>(ORDER);
+    private final Map<UUID, Entry> byId = new HashMap<>();
+    private double mean;
+    private double bound = Double.NEGATIVE_INFINITY;
+
+    private volatile List<TopProfessionalDto> top = List.of();
+    private volatile boolean running;
+    private Thread listener;
+
+    private final Counter rebuildCounter;
+    private final Counter updateCounter;
+
+    public ProfessionalLeaderboard(JdbcTemplate jdbcTemplate, DataSource dataSource, LoggerService loggerService,
+            ReviewProperties reviewProperties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.loggerService = loggerService;
+        this.properties = reviewProperties.getLeaderboard();
+        this.rebuildCounter = meterRegistry.counter("reviews.leaderboard.rebuilds");
+        this.updateCounter = meterRegistry.counter("reviews.leaderboard.updates");
+    }
+
+    /**
+     * Starts listening for rating changes; the leaderboard is loaded once the listener is connected.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        listener = Thread.ofPlatform().name("leaderboard-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(5000);
+        }
+    }
+
+    /**
+     * Returns the best rated professionals.
+     *
+     * @param limit how many, at most {@code reviews.leaderboard.size}
+     * @return the professionals best first, or an error if the limit is out of range
+     */
+    public Response<List<TopProfessionalDto>> top(int limit) {
+        if (limit < 1 || limit > properties.getSize()) {
+            return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
+        }
+        List<TopProfessionalDto> current = top;
+        return new Response<>(true, current.subList(0, Math.min(limit, current.size())), SuccessCodes.OK);
+    }
+
+    /**
+     * Scheduled reload, which also brings the overall average up to date.
+     */
+    @Scheduled(fixedDelayString = "${reviews.leaderboard.rebuild-interval-ms:600000}",
+            initialDelayString = "${reviews.leaderboard.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        if (running) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Loads the leaderboard from the professionals' rating counters.
+     *
+     * The lock is held while reading, so a notification cannot be applied between the read and the
+     * swap and then be overwritten by the older read; it is applied after, on top of it. As
+     * notifications carry absolute counters, applying one the read already saw changes nothing.
+     * Readers are not held up, they use the published list.
+     */
+    public void rebuild() {
+        synchronized (ranked) {
+            double overall = jdbcTemplate.queryForObject(MEAN_SQL, Double.class);
+            int priorWeight = properties.getPriorWeight();
+            int capacity = capacity();
+            // One row more than is kept tells the best score left out
+            List<Entry> rows = jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> {
+                long sum = rs.getLong(4);
+                int count = rs.getInt(5);
+                return new Entry(rs.getObject(1, UUID.class), rs.getString(2), rs.getString(3), sum, count,
+                        score(sum, count, overall, priorWeight));
+            }, properties.getMinReviews(), priorWeight * overall, (double) priorWeight, capacity + 1);
+
+            mean = overall;
+            ranked.clear();
+            byId.clear();
+            bound = rows.size() > capacity ? rows.get(capacity).score() : Double.NEGATIVE_INFINITY;
+            for (Entry entry : rows.subList(0, Math.min(capacity, rows.size()))) {
+                ranked.add(entry);
+                byId.put(entry.id(), entry);
+            }
+            publish();
+        }
+        rebuildCounter.increment();
+    }
+
+    /**
+     * Applies a notification.
+     */
+    void handle(String payload) {
+        if (REBUILD.equals(payload)) {
+            rebuild();
+            return;
+        }
+        String[] fields = payload.split(",");
+        try {
+            apply(UUID.fromString(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            loggerService.warning("Ignored malformed leaderboard notification: {}", "ProfessionalLeaderboard",
+                    LogContext.of("payload", payload), payload);
+        }
+    }
+
+    /**
+     * Applies the new rating counters of one professional.
+     */
+    void apply(UUID id, long sum, int count) {
+        boolean incomplete;
+        synchronized (ranked) {
+            Entry previous = byId.remove(id);
+            if (previous != null) {
+                ranked.remove(previous);
+            }
+            if (count >= properties.getMinReviews()) {
+                double score = score(sum, count, mean, properties.getPriorWeight());
+                if (ranked.size() < capacity() || score > ranked.last().score()) {
+                    String[] name = previous != null ? new String[] {previous.firstName(), previous.lastName()} : name(id);
+                    Entry entry = new Entry(id, name[0], name[1], sum, count, score);
+                    ranked.add(entry);
+                    byId.put(id, entry);
+                    if (ranked.size() > capacity()) {
+                        Entry evicted = ranked.pollLast();
+                        byId.remove(evicted.id());
+                        bound = Math.max(bound, evicted.score());
+                    }
+                } else {
+                    bound = Math.max(bound, score);
+                }
+            }
+            incomplete = publish();
+        }
+        updateCounter.increment();
+        if (incomplete) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Bayesian average: the professional's ratings plus {@code priorWeight} ratings at the overall average.
+     */
+    static double score(long sum, int count, double mean, int priorWeight) {
+        return (priorWeight * mean + sum) / (priorWeight + count);
+    }
+
+    /**
+     * Publishes the entries that are certainly in place.
+     * Callers hold the lock on ranked.
+     *
+     * @return whether fewer than {@code size} are, while professionals outside might belong
+     */
+    private boolean publish() {
+        List<TopProfessionalDto> result = new ArrayList<>(properties.getSize());
+        for (Entry entry : ranked) {
+            if (result.size() == properties.getSize() || entry.score() < bound) {
+                break;
+            }
+            result.add(new TopProfessionalDto(entry.id(), entry.firstName(), entry.lastName(),
+                    BigDecimal.valueOf(entry.score()).setScale(2, RoundingMode.HALF_UP),
+                    BigDecimal.valueOf(entry.sum()).divide(BigDecimal.valueOf(entry.count()), 2, RoundingMode.HALF_UP),
+                    entry.count()));
+        }
+        top = List.copyOf(result);
+        return result.size() < properties.getSize() && bound != Double.NEGATIVE_INFINITY;
+    }
+
+    private String[] name(UUID id) {
+        List<String[]> names = jdbcTemplate.query(NAME_SQL,
+                (rs, rowNum) -> new String[] {rs.getString(1), rs.getString(2)}, id);
+        return names.isEmpty() ? new String[] {null, null} : names.get(0);
+    }
+
+    private int capacity() {
+        return Math.max(1, properties.getSize() + properties.getBuffer());
+    }
+
+    private void listen() {
+        long delay = 1000;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    loggerService.warning("Leaderboard disabled: the database does not support notifications",
+                            "ProfessionalLeaderboard");
+                    return;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Changes committed before LISTEN took effect are picked up by loading after it
+                rebuild();
+                delay = 1000;
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | DataAccessException e) {
+                if (!running) {
+                    return;
+                }
+                loggerService.warning("Leaderboard listener lost its connection, retrying in {} ms: {}",
+                        "ProfessionalLeaderboard", LogContext.of("channel", CHANNEL), delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    record Entry(UUID id, String firstName, String lastName, long sum, int count, double score) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.booker.modules.review.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.booker.modules.log.service.LogContext;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.review.entity.Review;
+
+/**
+ * Keeps the {@code rating_sum} and {@code rating_count} of every professional in step with their
+ * reviews, so the average rating is read from one row instead of from every review.
+ *
+ * Every review write hands over the review as it was before and after the change, and only the
+ * difference is applied, as an additive UPDATE in the transaction of the review write, so
+ * concurrent reviews of the same professional never overwrite each other. The rounded
+ * {@code average_rating} is set by the same statement. A nightly repair recomputes the counters
+ * from the reviews table in one aggregate pass and fixes the professionals that drifted.
+ *
+ * Every change is also announced on {@link ProfessionalLeaderboard#CHANNEL} with the new counters,
+ * and a repair that corrected anything asks for a reload. Postgres delivers notifications only
+ * when the transaction commits, so a write that rolls back is never seen by the leaderboard.
+ */
+@Service
+public class ReviewRatingService {
+
+    private static final String ADJUST_SQL =
+            "WITH adjusted AS (UPDATE professionals SET rating_sum = rating_sum + ?, rating_count = rating_count + ?, "
+                    + "average_rating = CASE WHEN rating_count + ? > 0 "
+                    + "THEN ROUND((rating_sum + ?)::numeric / (rating_count + ?)) ELSE 0 END "
+                    + "WHERE id = ? RETURNING id, rating_sum, rating_count) "
+                    + "SELECT pg_notify('" + ProfessionalLeaderboard.CHANNEL + "', "
+                    + "id || ',' || rating_sum || ',' || rating_count) FROM adjusted";
+
+    private static final String REBUILD_SQL =
+            "SELECT pg_notify('" + ProfessionalLeaderboard.CHANNEL + "', '" + ProfessionalLeaderboard.REBUILD + "')";
+
+    private static final String REPAIR_SQL =
+            "UPDATE professionals p SET rating_sum = s.rating_sum, rating_count = s.rating_count, "
+                    + "average_rating = CASE WHEN s.rating_count > 0 THEN ROUND(s.rating_sum::numeric / s.rating_count) ELSE 0 END "
+                    + "FROM (SELECT pr.id, COALESCE(SUM(r.rating), 0) AS rating_sum, COUNT(r.id) AS rating_count "
+                    + "FROM professionals pr LEFT JOIN reviews r ON r.professional_uuid = pr.id GROUP BY pr.id) s "
+                    + "WHERE p.id = s.id AND (p.rating_sum <> s.rating_sum OR p.rating_count <> s.rating_count)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LoggerService loggerService;
+
+    public ReviewRatingService(JdbcTemplate jdbcTemplate, LoggerService loggerService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.loggerService = loggerService;
+    }
+
+    /**
+     * Applies one review write to the counters. Must run in the transaction of the write.
+     *
+     * @param before the review before the write, or null if it was created
+     * @param after the review after the write, or null if it was deleted
+     */
+    public void onChange(Snapshot before, Snapshot after) {
+        // Moving a review to another professional changes two rows
+        Map<UUID, long[]> deltas = new LinkedHashMap<>();
+        add(deltas, before, -1);
+        add(deltas, after, 1);
+
+        // The statement returns the notification rows, so it cannot be batched
+        deltas.forEach((professional, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0) {
+                jdbcTemplate.queryForList(ADJUST_SQL, delta[0], delta[1], delta[1], delta[0], delta[1], professional);
+            }
+        });
+    }
+
+    /**
+     * Recomputes the counters of every professional from the reviews table.
+     *
+     * A review written while the repair runs can be missed by it and is then fixed by the next run.
+     *
+     * @return number of professionals whose counters were corrected
+     */
+    @Scheduled(cron = "${reviews.rating.repair-cron:0 15 3 * * *}")
+    public int repair() {
+        long started = System.nanoTime();
+        int repaired = jdbcTemplate.update(REPAIR_SQL);
+        if (repaired > 0) {
+            jdbcTemplate.queryForList(REBUILD_SQL);
+        }
+        loggerService.info("Rating counters repaired: {} professionals corrected in {} ms", "ReviewRatingService",
+                LogContext.of("job", "rating-repair"), repaired, (System.nanoTime() - started) / 1_000_000);
+        return repaired;
+    }
+
+    private static void add(Map<UUID, long[]> deltas, Snapshot snapshot, int sign) {
+        if (snapshot == null || snapshot.professional() == null || snapshot.rating() == null) {
+            return;
+        }
+        long[] delta = deltas.computeIfAbsent(snapshot.professional(), p -> new long[2]);
+        delta[0] += (long) sign * snapshot.rating();
+        delta[1] += sign;
+    }
+
+    /**
+     * The fields of a review that determine its contribution to the counters.
+     */
+    public record Snapshot(UUID professional, Integer rating) {
+
+        public static Snapshot of(Review review) {
+            return new Snapshot(review.getProfessional(), review.getRating());
+        }
+    }
+}
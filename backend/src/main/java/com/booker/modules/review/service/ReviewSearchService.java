@@ -0,0 +1,119 @@
+package com.booker.modules.review.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.review.config.ReviewProperties;
+import com.booker.modules.review.dto.ReviewDto;
+import com.booker.modules.review.dto.ReviewSearchDto;
+import com.booker.utils.base.Response;
+
+/**
+ * Full-text search over review comments, answered from the GIN index on {@code search_vector}
+ * instead of scanning every comment.
+ *
+ * Every word of the query must appear in the comment; the last one also matches as a prefix, so
+ * results show up while the user is still typing. Results are ranked by how often and how close
+ * together the words appear, newest first among equals, and can be narrowed to one professional
+ * and a range of ratings. Pages are read one extra row ahead to tell whether another page exists,
+ * rather than counting every match.
+ */
+@Service
+public class ReviewSearchService {
+
+    private static final String SELECT_SQL =
+            "SELECT r.id, r.rating, r.comment, r.customer_uuid, r.professional_uuid, r.appointment_uuid, r.created_at "
+                    + "FROM reviews r, to_tsquery('simple', ?) q WHERE r.search_vector @@ q";
+
+    private static final String ORDER_SQL = " ORDER BY ts_rank_cd(r.search_vector, q) DESC, r.created_at DESC, r.id LIMIT ? OFFSET ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReviewProperties.Search properties;
+
+    public ReviewSearchService(JdbcTemplate jdbcTemplate, ReviewProperties reviewProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = reviewProperties.getSearch();
+    }
+
+    /**
+     * Searches review comments.
+     *
+     * @param text the words to look for
+     * @param professional only reviews of this professional, or null for all
+     * @param minRating lowest rating, inclusive, or null
+     * @param maxRating highest rating, inclusive, or null
+     * @param page zero-based page number
+     * @param size results per page
+     * @return one page of matching reviews, best first, or an error if the query has no words or
+     *         the page is out of range
+     */
+    public Response<ReviewSearchDto> search(String text, UUID professional, Integer minRating, Integer maxRating,
+            int page, int size) {
+        String tsQuery = toTsQuery(text, properties.getMaxTerms());
+        if (tsQuery == null || page < 0 || size < 1 || size > properties.getMaxPageSize()
+                || (long) page * size > properties.getMaxOffset()) {
+            return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(tsQuery);
+        if (professional != null) {
+            sql.append(" AND r.professional_uuid = ?");
+            args.add(professional);
+        }
+        if (minRating != null) {
+            sql.append(" AND r.rating >= ?");
+            args.add(minRating);
+        }
+        if (maxRating != null) {
+            sql.append(" AND r.rating <= ?");
+            args.add(maxRating);
+        }
+        sql.append(ORDER_SQL);
+        args.add(size + 1);
+        args.add(page * size);
+
+        List<ReviewDto> reviews = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new ReviewDto(
+                rs.getObject(1, UUID.class),
+                rs.getInt(2),
+                rs.getString(3),
+                rs.getObject(4, UUID.class),
+                rs.getObject(5, UUID.class),
+                rs.getObject(6, UUID.class),
+                rs.getTimestamp(7).toInstant()), args.toArray());
+
+        boolean hasMore = reviews.size() > size;
+        List<ReviewDto> data = hasMore ? reviews.subList(0, size) : reviews;
+        return new Response<>(true, new ReviewSearchDto(data, page, size, hasMore), SuccessCodes.OK);
+    }
+
+    /**
+     * Turns free text into a tsquery that requires every word, matching the last one as a prefix.
+     * Only letters and digits are kept, so nothing the user types is read as tsquery syntax.
+     *
+     * @return the query, or null if the text has no words
+     */
+    static String toTsQuery(String text, int maxTerms) {
+        if (text == null) {
+            return null;
+        }
+        List<String> terms = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty() && terms.size() < maxTerms) {
+                terms.add(word);
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return String.join(" & ", terms) + ":*";
+    }
+}
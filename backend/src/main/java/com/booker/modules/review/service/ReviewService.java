@@ -5,6 +5,7 @@ import java.util.UUID;
 
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.booker.constants.ErrorCodes;
 import com.booker.constants.SuccessCodes;
@@ -17,14 +18,20 @@ import com.booker.utils.base.Response;
 /**
  * Service that handles the business logic for customer reviews.
  * Manages review submissions, updates, and retrieval for appointments.
+ * Every write updates the rating counters of the professional in the same transaction.
  */
 @Service
 public class ReviewService {
 
     private final ReviewRepository reviewRepository;
+    private final ReviewRatingService reviewRatingService;
+    private final TransactionTemplate transactionTemplate;
 
-    public ReviewService(ReviewRepository reviewRepository) {
+    public ReviewService(ReviewRepository reviewRepository, ReviewRatingService reviewRatingService,
+            TransactionTemplate transactionTemplate) {
         this.reviewRepository = reviewRepository;
+        this.reviewRatingService = reviewRatingService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
@@ -65,7 +72,11 @@ public class ReviewService {
         review.setProfessional(req.professional);
         review.setAppointment(req.appointment);
 
-        Review saved = reviewRepository.save(review);
+        Review saved = transactionTemplate.execute(status -> {
+            Review created = reviewRepository.save(review);
+            reviewRatingService.onChange(null, ReviewRatingService.Snapshot.of(created));
+            return created;
+        });
         return new Response<>(true, toDto(saved), SuccessCodes.REVIEW_SUBMITTED);
     }
 
@@ -77,18 +88,26 @@ public class ReviewService {
      * @return a response containing the updated review, or an error if the review is not found
      */
     public Response<ReviewDto> update(@NonNull UUID id, ReviewUpsertRequest req) {
-        Review review = reviewRepository.findById(id).orElse(null);
-        if (review == null) {
-            return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
-        }
+        Review saved = transactionTemplate.execute(status -> {
+            Review review = reviewRepository.findByIdForUpdate(id).orElse(null);
+            if (review == null) {
+                return null;
+            }
 
-        review.setRating(req.rating);
-        review.setComment(req.comment != null ? req.comment.trim() : null);
-        review.setCustomer(req.customer);
-        review.setProfessional(req.professional);
-        review.setAppointment(req.appointment);
+            ReviewRatingService.Snapshot before = ReviewRatingService.Snapshot.of(review);
+            review.setRating(req.rating);
+            review.setComment(req.comment != null ? req.comment.trim() : null);
+            review.setCustomer(req.customer);
+            review.setProfessional(req.professional);
+            review.setAppointment(req.appointment);
 
-        Review saved = reviewRepository.save(review);
+            Review updated = reviewRepository.save(review);
+            reviewRatingService.onChange(before, ReviewRatingService.Snapshot.of(updated));
+            return updated;
+        });
+        if (saved == null) {
+            return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
+        }
         return new Response<>(true, toDto(saved), SuccessCodes.REVIEW_UPDATED);
     }
 
@@ -99,10 +118,18 @@ public class ReviewService {
      * @return a response indicating success or failure of the deletion
      */
     public Response<Void> delete(@NonNull UUID id) {
-        if (!reviewRepository.existsById(id)) {
+        Boolean deleted = transactionTemplate.execute(status -> {
+            Review review = reviewRepository.findByIdForUpdate(id).orElse(null);
+            if (review == null) {
+                return false;
+            }
+            reviewRepository.deleteById(id);
+            reviewRatingService.onChange(ReviewRatingService.Snapshot.of(review), null);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(deleted)) {
             return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
         }
-        reviewRepository.deleteById(id);
         return new Response<>(true, null, SuccessCodes.REVIEW_DELETED);
     }
 
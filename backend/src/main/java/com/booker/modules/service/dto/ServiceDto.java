@@ -8,18 +8,20 @@ public class ServiceDto {
     public String name;
     public String description;
     public Integer durationInMinutes;
-    public Double price;
+    public long priceMinor;
+    public String currency;
     public UUID professional;
     public Boolean active;
     public Instant createdAt;
 
-    public ServiceDto(UUID id, String name, String description, Integer durationInMinutes, Double price, UUID professional,
+    public ServiceDto(UUID id, String name, String description, Integer durationInMinutes, long priceMinor, String currency, UUID professional,
             Boolean active, Instant createdAt) {
         this.id = id;
         this.name = name;
         this.description = description;
         this.durationInMinutes = durationInMinutes;
-        this.price = price;
+        this.priceMinor = priceMinor;
+        this.currency = currency;
         this.professional = professional;
         this.active = active;
         this.createdAt = createdAt;
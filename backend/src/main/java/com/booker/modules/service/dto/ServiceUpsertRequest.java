@@ -5,6 +5,7 @@ import java.util.UUID;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 public class ServiceUpsertRequest {
 
@@ -18,9 +19,18 @@ public class ServiceUpsertRequest {
     @Min(1)
     public Integer durationInMinutes;
 
+    /**
+     * Price in minor units of the currency, e.g. 2500 for 25.00 EUR.
+     */
     @NotNull
     @Min(0)
-    public Double price;
+    public Long priceMinor;
+
+    /**
+     * ISO 4217 code; defaults to EUR.
+     */
+    @Size(min = 3, max = 3)
+    public String currency;
 
     @NotNull
     public UUID professional;
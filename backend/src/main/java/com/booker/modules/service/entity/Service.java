@@ -2,11 +2,14 @@ package com.booker.modules.service.entity;
 
 import java.time.Instant;
 
+import com.booker.utils.money.Money;
+
 import jakarta.persistence.*;
 
 /**
  * Represents a service offered by a professional.
  * Each service has a name, description, duration, and price.
+ * The price is stored in minor units of its currency (cents for EUR), see {@link Money}.
  * Services can be activated or deactivated by the professional.
  */
 @Entity
@@ -26,8 +29,13 @@ public class Service {
     @Column(nullable = false, columnDefinition = "INT DEFAULT 0")
     private Integer durationInMinutes;
 
-    @Column(nullable = false, columnDefinition = "DECIMAL(10,2) DEFAULT 0.00")
-    private Double price;
+    public static final String DEFAULT_CURRENCY = "EUR";
+
+    @Column(name = "price_minor", nullable = false)
+    private long priceMinor;
+
+    @Column(length = 3, nullable = false, columnDefinition = "VARCHAR(3) DEFAULT 'EUR'")
+    private String currency = DEFAULT_CURRENCY;
 
     @Column(name = "professional_uuid", nullable = false)
     private java.util.UUID professional;
@@ -60,8 +68,16 @@ public class Service {
         return durationInMinutes;
     }
 
-    public Double getPrice() {
-        return price;
+    public long getPriceMinor() {
+        return priceMinor;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public Money getPrice() {
+        return new Money(priceMinor, currency);
     }
 
     public java.util.UUID getProfessional() {
@@ -88,8 +104,12 @@ public class Service {
         this.durationInMinutes = durationInMinutes;
     }
 
-    public void setPrice(Double price) {
-        this.price = price;
+    public void setPriceMinor(long priceMinor) {
+        this.priceMinor = priceMinor;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
     }
 
     public void setProfessional(java.util.UUID professional) {
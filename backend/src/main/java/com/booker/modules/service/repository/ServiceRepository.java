@@ -17,6 +17,6 @@ public interface ServiceRepository extends JpaRepository<Service, UUID> {
     List<Service> findAllByActive(Boolean active);
     List<Service> findByDurationInMinutesLessThan(Integer durationInMinutes);
     List<Service> findByDurationInMinutesGreaterThan(Integer durationInMinutes);
-    List<Service> findByPriceLessThan(Double price);
-    List<Service> findByPriceGreaterThan(Double price);
+    List<Service> findByPriceMinorLessThan(long priceMinor);
+    List<Service> findByPriceMinorGreaterThan(long priceMinor);
 }
@@ -1,6 +1,7 @@
 package com.booker.modules.service.service;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 import org.springframework.lang.NonNull;
@@ -65,7 +66,8 @@ public class ServiceService {
         service.setName(req.name.trim());
         service.setDescription(req.description.trim());
         service.setDurationInMinutes(req.durationInMinutes);
-        service.setPrice(req.price);
+        service.setPriceMinor(req.priceMinor);
+        service.setCurrency(req.currency != null ? req.currency.trim().toUpperCase(Locale.ROOT) : Service.DEFAULT_CURRENCY);
         service.setProfessional(req.professional);
         service.setActive(req.active != null ? req.active : Boolean.TRUE);
 
@@ -89,7 +91,10 @@ public class ServiceService {
         service.setName(req.name.trim());
         service.setDescription(req.description.trim());
         service.setDurationInMinutes(req.durationInMinutes);
-        service.setPrice(req.price);
+        service.setPriceMinor(req.priceMinor);
+        if (req.currency != null) {
+            service.setCurrency(req.currency.trim().toUpperCase(Locale.ROOT));
+        }
         service.setProfessional(req.professional);
         service.setActive(req.active != null ? req.active : service.getActive());
 
@@ -117,7 +122,8 @@ public class ServiceService {
                 s.getName(),
                 s.getDescription(),
                 s.getDurationInMinutes(),
-                s.getPrice(),
+                s.getPriceMinor(),
+                s.getCurrency(),
                 s.getProfessional(),
                 s.getActive(),
                 s.getCreatedAt());
@@ -12,6 +12,9 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.booker.constants.routes.Namespaces;
 import com.booker.constants.routes.Routes;
+import com.booker.modules.user.dto.ProfileImageConfirmRequest;
+import com.booker.modules.user.dto.ProfileImageUploadDto;
+import com.booker.modules.user.dto.ProfileImageUploadRequest;
 import com.booker.modules.user.dto.UserPublicDto;
 import com.booker.modules.user.dto.UserUpdateRequest;
 import com.booker.modules.user.service.UserService;
@@ -71,6 +74,28 @@ public class UserController {
         return ResponseEntityBuilder.build(userService.upsertProfileImage(id, file));
     }
 
+    /**
+     * Starts an upload of a profile image straight to object storage.
+     */
+    @PreAuthorize("@ownershipChecker.isAdminOrOwner(authentication, #id)")
+    @PostMapping(Routes.BY_ID + Routes.PROFILE_IMAGE_UPLOAD_URL)
+    public ResponseEntity<Response<ProfileImageUploadDto>> createProfileImageUpload(
+            @PathVariable @NonNull UUID id,
+            @Valid @RequestBody ProfileImageUploadRequest req) {
+        return ResponseEntityBuilder.build(userService.createProfileImageUpload(id, req));
+    }
+
+    /**
+     * Makes a profile image uploaded straight to object storage the user's profile image.
+     */
+    @PreAuthorize("@ownershipChecker.isAdminOrOwner(authentication, #id)")
+    @PostMapping(Routes.BY_ID + Routes.PROFILE_IMAGE_CONFIRM)
+    public ResponseEntity<Response<UserPublicDto>> confirmProfileImageUpload(
+            @PathVariable @NonNull UUID id,
+            @Valid @RequestBody ProfileImageConfirmRequest req) {
+        return ResponseEntityBuilder.build(userService.confirmProfileImageUpload(id, req));
+    }
+
     /**
      * Removes a user's profile image.
      */
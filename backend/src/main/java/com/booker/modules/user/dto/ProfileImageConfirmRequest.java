@@ -0,0 +1,11 @@
+package com.booker.modules.user.dto;
+
+import java.util.UUID;
+
+import jakarta.validation.constraints.NotNull;
+
+public class ProfileImageConfirmRequest {
+
+    @NotNull
+    public UUID uploadId;
+}
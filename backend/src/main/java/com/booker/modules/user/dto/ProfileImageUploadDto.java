@@ -0,0 +1,22 @@
+package com.booker.modules.user.dto;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+public class ProfileImageUploadDto {
+    public UUID uploadId;
+    public String uploadUrl;
+    public String method;
+    // Form fields to send, in order, before the file field
+    public Map<String, String> fields;
+    public Instant expiresAt;
+
+    public ProfileImageUploadDto(UUID uploadId, String uploadUrl, String method, Map<String, String> fields, Instant expiresAt) {
+        this.uploadId = uploadId;
+        this.uploadUrl = uploadUrl;
+        this.method = method;
+        this.fields = fields;
+        this.expiresAt = expiresAt;
+    }
+}
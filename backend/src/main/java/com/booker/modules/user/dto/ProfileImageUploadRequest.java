@@ -0,0 +1,16 @@
+package com.booker.modules.user.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public class ProfileImageUploadRequest {
+
+    @NotBlank
+    public String contentType;
+
+    // Size of the file in bytes
+    @NotNull
+    @Positive
+    public Long size;
+}
@@ -1,6 +1,7 @@
 package com.booker.modules.user.dto;
 
 import java.time.Instant;
+import java.util.Map;
 import java.util.UUID;
 
 public class UserPublicDto {
@@ -10,15 +11,19 @@ public class UserPublicDto {
     public String lastName;
     public UUID role;
     public String profileImageUrl;
+    // Square renditions keyed by edge length in pixels; empty if the image has none
+    public Map<Integer, String> profileImageUrls;
     public Instant createdAt;
 
-    public UserPublicDto(UUID id, String email, String firstName, String lastName, UUID role, String profileImageUrl, Instant createdAt) {
+    public UserPublicDto(UUID id, String email, String firstName, String lastName, UUID role, String profileImageUrl,
+            Map<Integer, String> profileImageUrls, Instant createdAt) {
         this.id = id;
         this.email = email;
         this.firstName = firstName;
         this.lastName = lastName;
         this.role = role;
         this.profileImageUrl = profileImageUrl;
+        this.profileImageUrls = profileImageUrls;
         this.createdAt = createdAt;
     }
 }
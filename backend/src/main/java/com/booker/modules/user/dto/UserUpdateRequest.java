@@ -4,6 +4,8 @@ import java.util.UUID;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 
 public class UserUpdateRequest {
 
@@ -18,4 +20,9 @@ public class UserUpdateRequest {
 
     @NotNull
     public UUID role;
+
+    // Language tag emails are written in, e.g. "en"; left unchanged if omitted
+    @Size(max = 35)
+    @Pattern(regexp = "[a-zA-Z]{2,3}(-[a-zA-Z0-9]{2,8})*")
+    public String locale;
 }
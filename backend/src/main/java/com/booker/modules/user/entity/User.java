@@ -2,6 +2,7 @@ package com.booker.modules.user.entity;
 
 import jakarta.persistence.*;
 import java.time.Instant;
+import java.util.Locale;
 import java.util.UUID;
 
 /**
@@ -36,6 +37,14 @@ public class User {
     @Column(name = "profile_image_url", length = 2048)
     private String profileImageUrl;
 
+    // Sizes of the renditions next to profileImageUrl, e.g. "1024,256,64"; null for an image stored as uploaded
+    @Column(name = "profile_image_sizes", length = 64)
+    private String profileImageSizes;
+
+    // Language tag emails to the user are written in, e.g. "en"; null for the default locale
+    @Column(length = 35)
+    private String locale;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -73,6 +82,14 @@ public class User {
         return profileImageUrl;
     }
 
+    public String getProfileImageSizes() {
+        return profileImageSizes;
+    }
+
+    public Locale getLocale() {
+        return locale != null ? Locale.forLanguageTag(locale) : null;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -100,4 +117,12 @@ public class User {
     public void setProfileImageUrl(String profileImageUrl) {
         this.profileImageUrl = profileImageUrl;
     }
+
+    public void setProfileImageSizes(String profileImageSizes) {
+        this.profileImageSizes = profileImageSizes;
+    }
+
+    public void setLocale(Locale locale) {
+        this.locale = locale != null ? locale.toLanguageTag() : null;
+    }
 }
\ No newline at end of file
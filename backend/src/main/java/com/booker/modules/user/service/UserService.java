@@ -1,20 +1,37 @@
 package com.booker.modules.user.service;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.booker.config.AvatarProperties;
 import com.booker.constants.ErrorCodes;
 import com.booker.constants.SuccessCodes;
+import com.booker.modules.media.service.MediaStore;
+import com.booker.modules.media.service.MediaStore.StoredSet;
+import com.booker.modules.user.dto.ProfileImageConfirmRequest;
+import com.booker.modules.user.dto.ProfileImageUploadDto;
+import com.booker.modules.user.dto.ProfileImageUploadRequest;
 import com.booker.modules.user.dto.UserPublicDto;
 import com.booker.modules.user.dto.UserUpdateRequest;
 import com.booker.modules.user.entity.User;
 import com.booker.modules.user.repository.UserRepository;
+import com.booker.services.AvatarRenditionService;
+import com.booker.services.AvatarRenditionService.Rendition;
 import com.booker.services.MinioService;
+import com.booker.services.MinioService.PresignedPost;
+import com.booker.services.MinioService.StoredObject;
 import com.booker.utils.base.Response;
 
 /**
@@ -22,16 +39,31 @@ import com.booker.utils.base.Response;
  * 
  * This service handles all user-related operations including listing users,
  * retrieving user details, updating profiles, and managing profile images.
- * Profile images are stored in MinIO object storage.
+ * Profile images are stored in MinIO object storage as a set of square renditions,
+ * kept once per distinct image however many users upload it.
+ * Clients either send the image through the API, or upload it straight to MinIO
+ * with a presigned form upload and then confirm it. Every change of a user's image
+ * locks the user row and moves the reference from the previous set to the new one
+ * in the same transaction.
  */
 @Service
 public class UserService {
     private final UserRepository userRepository;
     private final MinioService minioService;
+    private final AvatarRenditionService avatarRenditionService;
+    private final AvatarProperties avatarProperties;
+    private final MediaStore mediaStore;
+    private final TransactionTemplate transactionTemplate;
 
-    public UserService(UserRepository userRepository, MinioService minioService) {
+    public UserService(UserRepository userRepository, MinioService minioService,
+            AvatarRenditionService avatarRenditionService, AvatarProperties avatarProperties, MediaStore mediaStore,
+            TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
         this.minioService = minioService;
+        this.avatarRenditionService = avatarRenditionService;
+        this.avatarProperties = avatarProperties;
+        this.mediaStore = mediaStore;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
@@ -80,6 +112,9 @@ public class UserService {
         user.setFirstName(req.firstName.trim());
         user.setLastName(req.lastName.trim());
         user.setRole(req.role);
+        if (req.locale != null) {
+            user.setLocale(Locale.forLanguageTag(req.locale));
+        }
 
         User saved = userRepository.save(user);
         return new Response<>(true, toDto(saved), SuccessCodes.USER_UPDATED);
@@ -88,17 +123,17 @@ public class UserService {
     /**
      * Uploads or replaces a user's profile image.
      * 
-     * If the user already has a profile image, the old one is deleted from MinIO
-     * before uploading the new one. The image is stored in MinIO object storage
-     * and the user's profile is updated with the new public URL.
+     * The image is decoded once and stored in MinIO as square JPEG renditions of
+     * every configured size, uploaded in parallel under a new version so that
+     * cached URLs of the previous image are never served for the new one. Only
+     * once they are all stored is the user updated and the previous image deleted.
      * 
      * @param id the unique identifier of the user
      * @param file the image file to upload
-     * @return a response containing the updated user data with the new image URL or an error
+     * @return a response containing the updated user data with the new image URLs or an error
      */
     public Response<UserPublicDto> upsertProfileImage(@NonNull UUID id, MultipartFile file) {
-        User user = userRepository.findById(id).orElse(null);
-        if (user == null) {
+        if (!userRepository.existsById(id)) {
             return new Response<>(false, null, ErrorCodes.USER_NOT_FOUND);
         }
 
@@ -112,21 +147,80 @@ public class UserService {
             return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
         }
 
-        if (user.getProfileImageUrl() != null) {
-            String oldObjectName = minioService.extractObjectName(user.getProfileImageUrl());
-            if (oldObjectName != null) {
-                minioService.deleteFile(oldObjectName);
-            }
+        return storeRenditions(id, file);
+    }
+
+    /**
+     * Starts an upload of a profile image straight to MinIO.
+     * 
+     * Returns a presigned POST policy the client sends the image to as a form upload, and the
+     * upload id to confirm it with. The policy binds the object name, the declared content type
+     * and a size of at most {@code avatars.max-upload-bytes}, so MinIO rejects anything else; the
+     * stored object is still checked again when the upload is confirmed.
+     * 
+     * @param id the unique identifier of the user
+     * @param req the content type and size of the image about to be uploaded
+     * @return a response containing the upload URL or an error
+     */
+    public Response<ProfileImageUploadDto> createProfileImageUpload(@NonNull UUID id, ProfileImageUploadRequest req) {
+        if (!userRepository.existsById(id)) {
+            return new Response<>(false, null, ErrorCodes.USER_NOT_FOUND);
+        }
+
+        if (!isAllowedUpload(req.contentType, req.size)) {
+            return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
         }
 
+        UUID uploadId = UUID.randomUUID();
+        int expirySeconds = avatarProperties.getUploadUrlExpirySeconds();
         try {
-            String publicUrl = minioService.uploadFile(file, user.getId());
-            user.setProfileImageUrl(publicUrl);
-            User saved = userRepository.save(user);
-            return new Response<>(true, toDto(saved), SuccessCodes.PROFILE_IMAGE_UPDATED);
+            PresignedPost post = minioService.presignedUploadForm(AvatarRenditionService.uploadObjectName(id, uploadId),
+                    req.contentType, avatarProperties.getMaxUploadBytes(), expirySeconds);
+            ProfileImageUploadDto data = new ProfileImageUploadDto(uploadId, post.url(), "POST", post.fields(),
+                    Instant.now().plusSeconds(expirySeconds));
+            return new Response<>(true, data, SuccessCodes.PROFILE_IMAGE_UPLOAD_CREATED);
+        } catch (IOException e) {
+            return new Response<>(false, null, ErrorCodes.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Makes an image uploaded with a presigned URL the user's profile image.
+     * 
+     * The stored object is checked with a metadata request, then read once from MinIO
+     * to make the renditions. The uploaded original is deleted once its renditions are
+     * stored or it turns out not to be a valid image; if the service is busy or MinIO
+     * fails it is kept, so the same upload can be confirmed again.
+     * 
+     * @param id the unique identifier of the user
+     * @param req the upload id returned when the upload was started
+     * @return a response containing the updated user data with the new image URLs or an error
+     */
+    public Response<UserPublicDto> confirmProfileImageUpload(@NonNull UUID id, ProfileImageConfirmRequest req) {
+        if (!userRepository.existsById(id)) {
+            return new Response<>(false, null, ErrorCodes.USER_NOT_FOUND);
+        }
+
+        String objectName = AvatarRenditionService.uploadObjectName(id, req.uploadId);
+        StoredObject stored;
+        try {
+            stored = minioService.statFile(objectName);
         } catch (IOException e) {
             return new Response<>(false, null, ErrorCodes.INTERNAL_SERVER_ERROR);
         }
+        if (stored == null) {
+            return new Response<>(false, null, ErrorCodes.RESOURCE_NOT_FOUND);
+        }
+        if (!isAllowedUpload(stored.contentType(), stored.size())) {
+            minioService.deleteFile(objectName);
+            return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
+        }
+
+        Response<UserPublicDto> response = storeRenditions(id, () -> minioService.openFile(objectName));
+        if (response.status || ErrorCodes.INVALID_REQUEST_DATA.equals(response.message)) {
+            minioService.deleteFile(objectName);
+        }
+        return response;
     }
 
     /**
@@ -139,37 +233,132 @@ public class UserService {
      * @return a response containing the updated user data without the profile image or an error
      */
     public Response<UserPublicDto> deleteProfileImage(@NonNull UUID id) {
-        User user = userRepository.findById(id).orElse(null);
-        if (user == null) {
+        ImageChange change = replaceImage(id, null, null);
+        if (change == null) {
             return new Response<>(false, null, ErrorCodes.USER_NOT_FOUND);
         }
-
-        if (user.getProfileImageUrl() != null) {
-            String objectName = minioService.extractObjectName(user.getProfileImageUrl());
-            if (objectName != null) {
-                minioService.deleteFile(objectName);
-            }
-        }
-
-        user.setProfileImageUrl(null);
-        User saved = userRepository.save(user);
-        return new Response<>(true, toDto(saved), SuccessCodes.PROFILE_IMAGE_DELETED);
+        deleteLegacyImage(change.previousUrl(), change.previousSizes());
+        return new Response<>(true, toDto(change.user()), SuccessCodes.PROFILE_IMAGE_DELETED);
     }
 
     /**
-     * Permanently deletes a user from the system.
+     * Permanently deletes a user from the system, together with their profile image.
      * 
      * @param id the unique identifier of the user to delete
      * @return a response indicating success or an error if the user is not found
      */
     public Response<Void> delete(@NonNull UUID id) {
-        if (!userRepository.existsById(id)) {
+        User user = transactionTemplate.execute(status -> {
+            User locked = userRepository.findByIdForUpdate(id).orElse(null);
+            if (locked != null) {
+                userRepository.deleteById(id);
+                releaseStoredSet(locked.getProfileImageUrl());
+            }
+            return locked;
+        });
+        if (user == null) {
             return new Response<>(false, null, ErrorCodes.USER_NOT_FOUND);
         }
-        userRepository.deleteById(id);
+        // Whatever is left behind if this fails is removed by the media GC
+        deleteLegacyImage(user.getProfileImageUrl(), user.getProfileImageSizes());
         return new Response<>(true, null, SuccessCodes.USER_DELETED);
     }
 
+    /**
+     * Makes the renditions of an image, stores them by content and points the user at them.
+     * The renditions are uploaded before the user row is locked; if the user is not updated in
+     * the end they have no reference and are removed by the media GC.
+     */
+    private Response<UserPublicDto> storeRenditions(UUID id, InputStreamSource source) {
+        try {
+            Map<Integer, Rendition> renditions = avatarRenditionService.render(source);
+            StoredSet set = mediaStore.upload(renditions);
+            ImageChange change = replaceImage(id, set, AvatarRenditionService.joinSizes(List.copyOf(renditions.keySet())));
+            if (change == null) {
+                return new Response<>(false, null, ErrorCodes.USER_NOT_FOUND);
+            }
+            deleteLegacyImage(change.previousUrl(), change.previousSizes());
+            return new Response<>(true, toDto(change.user()), SuccessCodes.PROFILE_IMAGE_UPDATED);
+        } catch (IllegalArgumentException e) {
+            return new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA);
+        } catch (RejectedExecutionException e) {
+            return new Response<>(false, null, ErrorCodes.SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            return new Response<>(false, null, ErrorCodes.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Points a user at a stored set, or at no image, in one transaction: the user row is locked,
+     * the new set acquired and the previous one, read from the locked row, released. Two changes
+     * of the same user therefore never release the same set twice.
+     *
+     * @param set   the new image, or null to remove it
+     * @param sizes the rendition sizes of the new image
+     * @return the updated user and their previous image, or null if the user does not exist
+     */
+    private ImageChange replaceImage(UUID id, StoredSet set, String sizes) {
+        return transactionTemplate.execute(status -> {
+            User user = userRepository.findByIdForUpdate(id).orElse(null);
+            if (user == null) {
+                return null;
+            }
+            String previousUrl = user.getProfileImageUrl();
+            String previousSizes = user.getProfileImageSizes();
+            if (set != null) {
+                mediaStore.acquire(set);
+            }
+            // The largest rendition stands in for the original for clients that only know one URL
+            user.setProfileImageUrl(set == null ? null : set.urls().values().iterator().next());
+            user.setProfileImageSizes(sizes);
+            User saved = userRepository.save(user);
+            releaseStoredSet(previousUrl);
+            return new ImageChange(saved, previousUrl, previousSizes);
+        });
+    }
+
+    private boolean isAllowedUpload(String contentType, long size) {
+        return contentType != null && avatarProperties.getUploadContentTypes().contains(contentType)
+                && size > 0 && size <= avatarProperties.getMaxUploadBytes();
+    }
+
+    /**
+     * Drops the reference on an image stored by content. Runs in the transaction that points the
+     * user away from it.
+     */
+    private void releaseStoredSet(String url) {
+        String hash = storedSetHash(url);
+        if (hash != null) {
+            mediaStore.release(hash);
+        }
+    }
+
+    /**
+     * Deletes an image stored per user, before images were stored by content: every rendition,
+     * or its single object. Images stored by content are left to {@link #releaseStoredSet}.
+     *
+     * @param url   the image URL the user had
+     * @param sizes the rendition sizes the user had
+     */
+    private void deleteLegacyImage(String url, String sizes) {
+        if (url == null || storedSetHash(url) != null) {
+            return;
+        }
+        List<String> objectNames = new ArrayList<>();
+        Map<Integer, String> urls = AvatarRenditionService.renditionUrls(url, sizes);
+        for (String rendition : urls.isEmpty() ? List.of(url) : urls.values()) {
+            String objectName = minioService.extractObjectName(rendition);
+            if (objectName != null) {
+                objectNames.add(objectName);
+            }
+        }
+        minioService.deleteFiles(objectNames);
+    }
+
+    private String storedSetHash(String url) {
+        return url == null ? null : AvatarRenditionService.setHash(minioService.extractObjectName(url));
+    }
+
     private static UserPublicDto toDto(User u) {
         return new UserPublicDto(
                 u.getId(),
@@ -178,7 +367,14 @@ public class UserService {
                 u.getLastName(),
                 u.getRole(),
                 u.getProfileImageUrl(),
+                AvatarRenditionService.renditionUrls(u.getProfileImageUrl(), u.getProfileImageSizes()),
                 u.getCreatedAt()
         );
     }
+
+    /**
+     * Outcome of a change of profile image.
+     */
+    private record ImageChange(User user, String previousUrl, String previousSizes) {
+    }
 }
@@ -1,5 +1,7 @@
 package com.booker.security;
 
+import com.booker.modules.idempotency.service.IdempotencyService;
+import com.booker.modules.log.filter.CorrelationIdFilter;
 import com.booker.security.filter.TokenBlacklistFilter;
 import org.springframework.security.config.Customizer;
 import org.springframework.context.annotation.Bean;
@@ -64,6 +66,10 @@ public class SecurityConfig {
                 // Swagger/OpenAPI documentation - public access
                 .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                 
+                // Health is public, other actuator endpoints (metrics) are for admins
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasAuthority("SCOPE_ADMIN")
+
                 // Admin only - full system management
                 .requestMatchers("/roles/**").hasAuthority("SCOPE_ADMIN")
                 .requestMatchers(HttpMethod.DELETE, "/users/**").hasAuthority("SCOPE_ADMIN")
@@ -74,6 +80,10 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.PUT, "/services/**").hasAnyAuthority("SCOPE_ADMIN", "SCOPE_PROFESSIONAL")
                 .requestMatchers(HttpMethod.DELETE, "/services/**").hasAnyAuthority("SCOPE_ADMIN", "SCOPE_PROFESSIONAL")
                 .requestMatchers(HttpMethod.GET, "/professionals/**").permitAll()
+
+                // Media proxy - the same objects are public in the bucket
+                .requestMatchers(HttpMethod.GET, "/media/**").permitAll()
+                .requestMatchers(HttpMethod.HEAD, "/media/**").permitAll()
                 
                 // Customer - can book appointments and leave reviews
                 .requestMatchers(HttpMethod.POST, "/appointments").hasAnyAuthority("SCOPE_ADMIN", "SCOPE_CUSTOMER")
@@ -84,6 +94,8 @@ public class SecurityConfig {
                 
                 // Payments - customer can create, admin can manage
                 .requestMatchers(HttpMethod.POST, "/payments").hasAnyAuthority("SCOPE_ADMIN", "SCOPE_CUSTOMER")
+                // Stripe webhooks - authenticated by their signature
+                .requestMatchers(HttpMethod.POST, "/payments/webhooks/stripe").permitAll()
                 .requestMatchers(HttpMethod.DELETE, "/payments/**").hasAuthority("SCOPE_ADMIN")
                 
                 // Profile management - any authenticated user can manage their own profile
@@ -134,8 +146,8 @@ public class SecurityConfig {
         //         "http://127.0.0.1:5173"
         // ));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", CorrelationIdFilter.HEADER, IdempotencyService.HEADER));
+        config.setExposedHeaders(List.of("Authorization", CorrelationIdFilter.HEADER));
         config.setAllowCredentials(false);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,300 @@
+package com.booker.services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import com.booker.config.AvatarProperties;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Turns an uploaded profile image into square JPEG renditions of the sizes in {@code avatars.sizes}.
+ *
+ * The source is decoded once, and only the centred square is decoded, skipping rows and columns
+ * the largest rendition cannot use, so a 12 megapixel photo never becomes a 12 megapixel bitmap.
+ * Each rendition is scaled down from the previous, larger one in halving steps, which keeps
+ * bilinear scaling sharp at a fraction of the cost of scaling every size from the source. Work runs
+ * on a fixed pool with a bounded queue, which caps the decoded images held in memory at once; when
+ * the queue is full, uploads are turned away instead of piling up. The SHA-256 of every rendition
+ * is computed while it is encoded, so the renditions can be stored by content without another pass.
+ */
+@Service
+public class AvatarRenditionService {
+
+    public static final String CONTENT_TYPE = "image/jpeg";
+    public static final String EXTENSION = ".jpg";
+    public static final String UPLOAD_PREFIX = "uploads/";
+    public static final String MEDIA_PREFIX = "media/";
+
+    private final AvatarProperties properties;
+    private final List<Integer> sizes;
+    private final ThreadPoolExecutor workers;
+
+    public AvatarRenditionService(AvatarProperties properties) {
+        this.properties = properties;
+        this.sizes = properties.getSizes().stream().distinct().sorted(Comparator.reverseOrder()).toList();
+        if (sizes.isEmpty() || sizes.get(sizes.size() - 1) <= 0) {
+            throw new IllegalStateException("avatars.sizes must list positive sizes");
+        }
+        int threads = Math.max(1, properties.getWorkers());
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                Thread.ofPlatform().name("avatar-renditions-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Makes every rendition of an image on the worker pool.
+     *
+     * @param source the uploaded image
+     * @return renditions keyed by size, largest first
+     * @throws IllegalArgumentException if the content is not a readable image or is too large
+     * @throws java.util.concurrent.RejectedExecutionException if too many images are already waiting
+     * @throws IOException if processing fails or does not finish within {@code avatars.timeout-ms}
+     */
+    public Map<Integer, Rendition> render(InputStreamSource source) throws IOException {
+        Future<Map<Integer, Rendition>> task = workers.submit(() -> {
+            try (InputStream in = source.getInputStream()) {
+                return render(in, sizes, properties.getJpegQuality(), properties.getMaxSourcePixels());
+            }
+        });
+        try {
+            return task.get(properties.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException invalid) {
+                throw invalid;
+            }
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to process image", e.getCause());
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            throw new IOException("Image processing timed out", e);
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing image", e);
+        }
+    }
+
+    /**
+     * Sizes made for every image, largest first.
+     */
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    /**
+     * Object name of one rendition of a set stored by content. The name changes whenever the content
+     * does, so the URLs of an image can be cached forever.
+     */
+    public static String objectName(String setHash, int size) {
+        return MEDIA_PREFIX + setHash + "/" + size + EXTENSION;
+    }
+
+    /**
+     * Reads the set hash back from the name of one of its renditions.
+     *
+     * @return the hash, or null if the object is not part of a set stored by content
+     */
+    public static String setHash(String objectName) {
+        if (objectName == null || !objectName.startsWith(MEDIA_PREFIX)) {
+            return null;
+        }
+        int end = objectName.indexOf('/', MEDIA_PREFIX.length());
+        return end < 0 ? null : objectName.substring(MEDIA_PREFIX.length(), end);
+    }
+
+    /**
+     * Hash identifying a whole set of renditions: the SHA-256 of every size and rendition hash.
+     * The same image with the same settings always gives the same set hash.
+     */
+    public static String setHash(Map<Integer, Rendition> renditions) {
+        MessageDigest digest = sha256();
+        renditions.forEach((size, rendition) ->
+                digest.update((size + ":" + rendition.sha256() + "\n").getBytes(StandardCharsets.US_ASCII)));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Object name a client uploads an original to with a presigned URL, before it is confirmed.
+     */
+    public static String uploadObjectName(UUID userId, UUID uploadId) {
+        return UPLOAD_PREFIX + userId + "/" + uploadId;
+    }
+
+    /**
+     * Lists sizes the way they are stored on the user, e.g. {@code 1024,256,64}.
+     */
+    public static String joinSizes(List<Integer> sizes) {
+        return sizes.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Derives the URL of every rendition from the URL of one of them; renditions of an upload only
+     * differ in the file name.
+     *
+     * @param url   URL of any rendition
+     * @param sizes sizes stored on the user, or {@code null} for an image uploaded before renditions
+     * @return URLs keyed by size, empty if there are no renditions
+     */
+    public static Map<Integer, String> renditionUrls(String url, String sizes) {
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        if (url == null || sizes == null || sizes.isBlank()) {
+            return urls;
+        }
+        String base = url.substring(0, url.lastIndexOf('/') + 1);
+        for (String size : sizes.split(",")) {
+            urls.put(Integer.valueOf(size.trim()), base + size.trim() + EXTENSION);
+        }
+        return urls;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Decodes an image and encodes its renditions on the calling thread.
+     *
+     * @param sizesDescending rendition sizes, largest first
+     */
+    static Map<Integer, Rendition> render(InputStream in, List<Integer> sizesDescending, float quality, long maxSourcePixels)
+            throws IOException {
+        BufferedImage current = decodeSquare(in, sizesDescending.get(0), maxSourcePixels);
+        Map<Integer, Rendition> renditions = new LinkedHashMap<>();
+        for (int size : sizesDescending) {
+            // A source smaller than a rendition is not scaled up
+            int side = Math.min(size, current.getWidth());
+            while (current.getWidth() / 2 >= side) {
+                current = scale(current, current.getWidth() / 2);
+            }
+            if (current.getWidth() != side || current.getType() != BufferedImage.TYPE_INT_RGB) {
+                current = scale(current, side);
+            }
+            renditions.put(size, encode(current, quality));
+        }
+        return renditions;
+    }
+
+    private static BufferedImage decodeSquare(InputStream in, int largestSize, long maxSourcePixels) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IllegalArgumentException("Image too large: " + width + "x" + height);
+                }
+                int side = Math.min(width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle((width - side) / 2, (height - side) / 2, side, side));
+                // Skip whole rows and columns while at least the largest rendition is left to scale down from
+                int subsampling = Math.max(1, side / largestSize);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } catch (IIOException e) {
+                throw new IllegalArgumentException("Unreadable image: " + e.getMessage(), e);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales a square image into an opaque RGB one; transparent pixels become white, as JPEG has no alpha.
+     */
+    private static BufferedImage scale(BufferedImage source, int side) {
+        BufferedImage target = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, side, side);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, side, side, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static Rendition encode(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(1024, image.getWidth() * image.getHeight() / 8));
+        MessageDigest digest = sha256();
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(new DigestOutputStream(bytes, digest))) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return new Rendition(bytes.toByteArray(), HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * One encoded rendition.
+     *
+     * @param content JPEG bytes
+     * @param sha256  hex SHA-256 of the bytes
+     */
+    public record Rendition(byte[] content, String sha256) {
+    }
+}
@@ -1,164 +1,230 @@
 package com.booker.services;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import com.booker.modules.email.entity.EmailOutbox;
+import com.booker.modules.email.repository.EmailOutboxRepository;
+import com.booker.modules.email.template.EmailTemplates;
+import com.booker.modules.email.template.RenderedEmail;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Handles all email notifications for the booking system.
  * Uses MailHog in development for testing emails without sending real ones.
+ *
+ * Emails are not sent here: they are written to the outbox, joining the caller's transaction if
+ * there is one, and delivered by {@code EmailOutboxDispatcher}. An email is therefore queued if and
+ * only if the change that caused it commits, and a slow SMTP server never holds up a request.
+ *
+ * Subjects and bodies come from the precompiled templates in {@link EmailTemplates}, rendered in
+ * the recipient's locale as plain text plus an HTML alternative. A recipient without a locale, or
+ * with one no template is written in, gets the default locale.
  */
 @Service
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
 
-    @Value("${mail.from}")
-    private String fromEmail;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailTemplates emailTemplates;
 
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(EmailOutboxRepository emailOutboxRepository, EmailTemplates emailTemplates) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailTemplates = emailTemplates;
     }
 
     /**
-     * Sends a plain text email.
+     * Queues a plain text email.
      * 
      * @param to      recipient email address
      * @param subject email subject
      * @param text    email body
      */
     public void sendEmail(String to, String subject, String text) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(fromEmail);
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(text);
+        emailOutboxRepository.save(new EmailOutbox(to, subject, text));
+    }
 
-        mailSender.send(message);
+    /**
+     * Queues an email rendered from a template.
+     *
+     * @param to       recipient email address
+     * @param locale   recipient's locale, or {@code null} for the default locale
+     * @param template template name, see {@link EmailTemplates}
+     * @param values   template variables
+     */
+    public void sendTemplate(String to, Locale locale, String template, Map<String, ?> values) {
+        RenderedEmail email = emailTemplates.render(template, locale, values);
+        emailOutboxRepository.save(new EmailOutbox(to, email.subject(), email.text(), email.html(), locale));
     }
 
     /**
      * Sends a welcome email after successful registration.
      * 
      * @param to        user's email address
+     * @param locale    user's locale, or {@code null} for the default locale
      * @param firstName user's first name for personalization
      */
-    public void sendRegistrationConfirmation(String to, String firstName) {
-        String subject = "Benvenuto su Booker!";
-        String text = String.format(
-                "Ciao %s,\n\n" +
-                        "La tua registrazione su Booker è stata completata con successo!\n\n" +
-                        "Puoi ora effettuare il login e prenotare i tuoi appuntamenti.\n\n" +
-                        "Il Team di Booker",
-                firstName);
-
-        sendEmail(to, subject, text);
+    public void sendRegistrationConfirmation(String to, Locale locale, String firstName) {
+        sendTemplate(to, locale, "registration", Map.of("firstName", firstName));
     }
 
     /**
      * Notifies customer that their appointment has been confirmed.
      * 
      * @param to                  customer's email
+     * @param locale              customer's locale, or {@code null} for the default locale
      * @param customerName        customer's full name
      * @param professionalName    the professional they're booking with
      * @param serviceName         the service they booked
      * @param appointmentDateTime when the appointment is scheduled
      */
-    public void sendAppointmentConfirmation(String to, String customerName, String professionalName,
+    public void sendAppointmentConfirmation(String to, Locale locale, String customerName, String professionalName,
             String serviceName, LocalDateTime appointmentDateTime) {
-        String subject = "Conferma Appuntamento - Booker";
-        String formattedDateTime = appointmentDateTime.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
-
-        String text = String.format(
-                "Ciao %s,\n\n" +
-                        "Il tuo appuntamento è stato confermato!\n\n" +
-                        "Dettagli:\n" +
-                        "- Professionista: %s\n" +
-                        "- Servizio: %s\n" +
-                        "- Data e Ora: %s\n\n" +
-                        "Ti aspettiamo!\n\n" +
-                        "Il Team di Booker",
-                customerName, professionalName, serviceName, formattedDateTime);
-
-        sendEmail(to, subject, text);
+        sendTemplate(to, locale, "appointment-confirmation", Map.of(
+                "customerName", customerName,
+                "professionalName", professionalName,
+                "serviceName", serviceName,
+                "dateTime", DATE_TIME_FORMAT.format(appointmentDateTime)));
     }
 
     /**
      * Notifies customer about appointment cancellation.
      * 
      * @param to                  customer's email
+     * @param locale              customer's locale, or {@code null} for the default locale
      * @param customerName        customer's full name
      * @param serviceName         the service that was cancelled
      * @param appointmentDateTime when the appointment was scheduled
      */
-    public void sendAppointmentCancellation(String to, String customerName, String serviceName,
+    public void sendAppointmentCancellation(String to, Locale locale, String customerName, String serviceName,
             LocalDateTime appointmentDateTime) {
-        String subject = "Cancellazione Appuntamento - Booker";
-        String formattedDateTime = appointmentDateTime.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
-
-        String text = String.format(
-                "Ciao %s,\n\n" +
-                        "Il tuo appuntamento è stato cancellato.\n\n" +
-                        "Dettagli:\n" +
-                        "- Servizio: %s\n" +
-                        "- Data e Ora: %s\n\n" +
-                        "Puoi prenotare un nuovo appuntamento quando vuoi.\n\n" +
-                        "Il Team di Booker",
-                customerName, serviceName, formattedDateTime);
-
-        sendEmail(to, subject, text);
+        sendTemplate(to, locale, "appointment-cancellation", Map.of(
+                "customerName", customerName,
+                "serviceName", serviceName,
+                "dateTime", DATE_TIME_FORMAT.format(appointmentDateTime)));
+    }
+
+    /**
+     * Notifies customer that their appointment has been moved.
+     *
+     * @param to                  customer's email
+     * @param locale              customer's locale, or {@code null} for the default locale
+     * @param customerName        customer's full name
+     * @param serviceName         the service they booked
+     * @param appointmentDateTime the new appointment time
+     */
+    public void sendAppointmentRescheduled(String to, Locale locale, String customerName, String serviceName,
+            LocalDateTime appointmentDateTime) {
+        sendTemplate(to, locale, "appointment-rescheduled", Map.of(
+                "customerName", customerName,
+                "serviceName", serviceName,
+                "dateTime", DATE_TIME_FORMAT.format(appointmentDateTime)));
+    }
+
+    /**
+     * Tells a customer about several appointment changes in one email, one line per change.
+     *
+     * @param to           customer's email
+     * @param locale       customer's locale, or {@code null} for the default locale
+     * @param customerName customer's full name
+     * @param updates      the changes, in the order they are listed
+     */
+    public void sendAppointmentUpdates(String to, Locale locale, String customerName, List<AppointmentUpdate> updates) {
+        StringBuilder changes = new StringBuilder();
+        for (AppointmentUpdate update : updates) {
+            if (!changes.isEmpty()) {
+                changes.append('\n');
+            }
+            changes.append(emailTemplates.renderFragment("appointment-update-" + update.kind(), locale, Map.of(
+                    "serviceName", update.serviceName(),
+                    "dateTime", DATE_TIME_FORMAT.format(update.dateTime()))));
+        }
+        sendTemplate(to, locale, "appointment-updates", Map.of(
+                "customerName", customerName,
+                "changes", changes.toString()));
+    }
+
+    /**
+     * Sends a professional the list of their appointments for a day.
+     *
+     * @param to               professional's email
+     * @param locale           professional's locale, or {@code null} for the default locale
+     * @param professionalName professional's full name
+     * @param day              the day the agenda is for
+     * @param entries          the day's appointments, in the order they are listed
+     */
+    public void sendProfessionalDigest(String to, Locale locale, String professionalName, LocalDate day,
+            List<DigestEntry> entries) {
+        StringBuilder agenda = new StringBuilder();
+        for (DigestEntry entry : entries) {
+            if (!agenda.isEmpty()) {
+                agenda.append('\n');
+            }
+            agenda.append(emailTemplates.renderFragment("professional-digest-entry", locale, Map.of(
+                    "time", TIME_FORMAT.format(entry.startTime()),
+                    "customerName", entry.customerName(),
+                    "serviceName", entry.serviceName())));
+        }
+        sendTemplate(to, locale, "professional-digest", Map.of(
+                "professionalName", professionalName,
+                "date", DATE_FORMAT.format(day),
+                "count", entries.size(),
+                "agenda", agenda.toString()));
     }
 
     /**
      * Confirms successful payment to the customer.
      * 
      * @param to           customer's email
+     * @param locale       customer's locale, or {@code null} for the default locale
      * @param customerName customer's full name
      * @param amount       formatted amount string (e.g., "50.00 EUR")
      * @param serviceName  the service they paid for
      */
-    public void sendPaymentConfirmation(String to, String customerName, String amount, String serviceName) {
-        String subject = "Conferma Pagamento - Booker";
-
-        String text = String.format(
-                "Ciao %s,\n\n" +
-                        "Il tuo pagamento è stato completato con successo!\n\n" +
-                        "Dettagli:\n" +
-                        "- Servizio: %s\n" +
-                        "- Importo: %s\n\n" +
-                        "Grazie per aver scelto Booker!\n\n" +
-                        "Il Team di Booker",
-                customerName, serviceName, amount);
-
-        sendEmail(to, subject, text);
+    public void sendPaymentConfirmation(String to, Locale locale, String customerName, String amount, String serviceName) {
+        sendTemplate(to, locale, "payment-confirmation", Map.of(
+                "customerName", customerName,
+                "serviceName", serviceName,
+                "amount", amount));
     }
 
     /**
      * Notifies customer that their refund has been processed.
      * 
      * @param to           customer's email
+     * @param locale       customer's locale, or {@code null} for the default locale
      * @param customerName customer's full name
      * @param amount       formatted refund amount (e.g., "50.00 EUR")
      * @param serviceName  the service they got refunded for
      */
-    public void sendRefundConfirmation(String to, String customerName, String amount, String serviceName) {
-        String subject = "Conferma Rimborso - Booker";
-
-        String text = String.format(
-                "Ciao %s,\n\n" +
-                        "Il tuo rimborso è stato elaborato con successo.\n\n" +
-                        "Dettagli:\n" +
-                        "- Servizio: %s\n" +
-                        "- Importo rimborsato: %s\n\n" +
-                        "L'importo sarà accreditato sul tuo metodo di pagamento originale entro 5-10 giorni lavorativi.\n\n"
-                        +
-                        "Il Team di Booker",
-                customerName, serviceName, amount);
-
-        sendEmail(to, subject, text);
+    public void sendRefundConfirmation(String to, Locale locale, String customerName, String amount, String serviceName) {
+        sendTemplate(to, locale, "refund-confirmation", Map.of(
+                "customerName", customerName,
+                "serviceName", serviceName,
+                "amount", amount));
+    }
+
+    /**
+     * One line of {@link #sendAppointmentUpdates}.
+     *
+     * @param kind        {@code booked}, {@code rescheduled} or {@code cancelled}
+     * @param serviceName the service booked
+     * @param dateTime    the appointment time, the new one if it was moved
+     */
+    public record AppointmentUpdate(String kind, String serviceName, LocalDateTime dateTime) {
+    }
+
+    /**
+     * One appointment in {@link #sendProfessionalDigest}.
+     */
+    public record DigestEntry(LocalDateTime startTime, String customerName, String serviceName) {
     }
 }
@@ -0,0 +1,152 @@
+package com.booker.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.booker.config.StripeHttpProperties;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import com.stripe.net.StripeResponseStream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Stripe SDK transport built on the JDK {@link java.net.http.HttpClient}.
+ *
+ * A single client instance is shared by every request, so TLS handshakes are paid once per pooled
+ * connection instead of once per call, and HTTP/2 multiplexes concurrent calls over one connection
+ * when Stripe negotiates it. Every request is timed into {@code stripe.http.requests}, tagged with
+ * method, API resource and outcome.
+ */
+public class JdkStripeHttpClient extends HttpClient {
+
+    private static final String METRIC = "stripe.http.requests";
+
+    /** Headers the JDK client manages itself and refuses to have set. */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final java.net.http.HttpClient client;
+    private final MeterRegistry meterRegistry;
+
+    public JdkStripeHttpClient(StripeHttpProperties properties, int connectTimeoutMs, MeterRegistry meterRegistry) {
+        configurePool(properties);
+        this.client = java.net.http.HttpClient.newBuilder()
+                .version(properties.isHttp2() ? Version.HTTP_2 : Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(Redirect.NEVER)
+                .build();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws ApiConnectionException {
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        return new StripeResponse(response.statusCode(), HttpHeaders.of(response.headers().map()), response.body());
+    }
+
+    @Override
+    public StripeResponseStream requestStream(StripeRequest request) throws ApiConnectionException {
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        return new StripeResponseStream(response.statusCode(), HttpHeaders.of(response.headers().map()), response.body());
+    }
+
+    private <T> HttpResponse<T> send(StripeRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws ApiConnectionException {
+        HttpRequest httpRequest = toHttpRequest(request);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "IO_ERROR";
+        try {
+            HttpResponse<T> response = client.send(httpRequest, bodyHandler);
+            outcome = Integer.toString(response.statusCode());
+            return response;
+        } catch (HttpTimeoutException e) {
+            outcome = "TIMEOUT";
+            throw connectionError(request, e);
+        } catch (IOException e) {
+            throw connectionError(request, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw connectionError(request, new IOException("Interrupted while waiting for Stripe", e));
+        } finally {
+            sample.stop(meterRegistry.timer(METRIC,
+                    "method", request.method().name(),
+                    "resource", resource(request.url().getPath()),
+                    "outcome", outcome));
+        }
+    }
+
+    private static HttpRequest toHttpRequest(StripeRequest request) throws ApiConnectionException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("Invalid Stripe URL: " + request.url(), e);
+        }
+
+        Integer readTimeout = request.options().getReadTimeout();
+        if (readTimeout != null && readTimeout > 0) {
+            builder.timeout(Duration.ofMillis(readTimeout));
+        }
+
+        HttpHeaders headers = request.headers().withAdditionalHeaders(Map.of(
+                "User-Agent", List.of(buildUserAgentString()),
+                "X-Stripe-Client-User-Agent", List.of(buildXStripeClientUserAgentString())));
+        headers.map().forEach((name, values) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                builder.header(name, String.join(",", values));
+            }
+        });
+
+        if (request.content() != null) {
+            builder.header("Content-Type", request.content().contentType());
+            builder.method(request.method().name(), HttpRequest.BodyPublishers.ofByteArray(request.content().byteArrayContent()));
+        } else {
+            builder.method(request.method().name(), HttpRequest.BodyPublishers.noBody());
+        }
+        return builder.build();
+    }
+
+    private static ApiConnectionException connectionError(StripeRequest request, IOException e) {
+        URI base = URI.create(request.url().getProtocol() + "://" + request.url().getAuthority());
+        return new ApiConnectionException(String.format(
+                "IOException during API request to Stripe (%s): %s Please check your internet connection and try again.",
+                base, e.getMessage()), e);
+    }
+
+    /**
+     * Reduces a Stripe path such as {@code /v1/payment_intents/pi_123/confirm} to {@code payment_intents},
+     * keeping object ids out of the metric tags.
+     */
+    static String resource(String path) {
+        String[] segments = path.split("/");
+        return segments.length > 2 && !segments[2].isEmpty() ? segments[2] : "unknown";
+    }
+
+    /**
+     * The JDK reads its pool settings once, when the first client is created, so they are set as
+     * system properties before that unless the operator already passed them on the command line.
+     */
+    private static void configurePool(StripeHttpProperties properties) {
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", Integer.toString(properties.getKeepAliveSeconds()));
+        }
+        if (System.getProperty("jdk.httpclient.connectionPoolSize") == null) {
+            System.setProperty("jdk.httpclient.connectionPoolSize", Integer.toString(properties.getMaxIdleConnections()));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.booker.services;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.booker.modules.log.service.LoggerService;
+
+/**
+ * Verifies the MinIO bucket and its policy once at startup, so uploads do not have to.
+ *
+ * A MinIO that is down at startup does not stop the application: the bucket stays unverified and
+ * the first upload checks it instead.
+ */
+@Component
+public class MinioBucketInitializer implements ApplicationRunner {
+
+    private final MinioService minioService;
+    private final LoggerService loggerService;
+
+    public MinioBucketInitializer(MinioService minioService, LoggerService loggerService) {
+        this.minioService = minioService;
+        this.loggerService = loggerService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            minioService.ensureBucketExists();
+        } catch (RuntimeException e) {
+            loggerService.warning("MinIO bucket not verified at startup, uploads will retry: " + e.getMessage(),
+                    "MinioBucketInitializer");
+        }
+    }
+}
@@ -1,41 +1,95 @@
 package com.booker.services;
 
 import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import com.booker.modules.log.service.LogContext;
 import com.booker.modules.log.service.LoggerService;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.UUID;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manages file storage operations using MinIO object storage.
  * Handles avatar uploads, deletions, and public URL generation.
+ *
+ * The bucket and its policy are checked once, at startup, by {@code MinioBucketInitializer}, and
+ * the outcome is cached, so an upload is a single request to MinIO. If the bucket disappears
+ * afterwards, the upload that gets {@code NoSuchBucket} creates it again and retries once.
  */
 @Service
 public class MinioService {
 
-    private final MinioClient minioClient;
-    private final LoggerService loggerService;
+    static final String NO_SUCH_BUCKET = "NoSuchBucket";
+    static final String NO_SUCH_KEY = "NoSuchKey";
 
-    @Value("${minio.bucket}")
-    private String bucketName;
+    // Prefixes of the objects anyone may read: images stored by content and per user
+    static final List<String> PUBLIC_PREFIXES = List.of("media/", "avatars/");
 
-    @Value("${minio.endpoint}")
-    private String endpoint;
+    private final MinioClient minioClient;
+    private final LoggerService loggerService;
+    private final String bucketName;
+    private final String publicUrl;
+    private final String uploadUrl;
+    private final AtomicBoolean bucketReady = new AtomicBoolean();
 
-    public MinioService(MinioClient minioClient, LoggerService loggerService) {
+    public MinioService(MinioClient minioClient, LoggerService loggerService,
+            @Value("${minio.bucket}") String bucketName, @Value("${minio.endpoint}") String endpoint,
+            @Value("${minio.public-url:}") String publicUrl) {
         this.minioClient = minioClient;
         this.loggerService = loggerService;
+        this.bucketName = bucketName;
+        this.publicUrl = publicUrl == null || publicUrl.isBlank() ? endpoint + "/" + bucketName : publicUrl.replaceAll("/+$", "");
+        this.uploadUrl = endpoint.replaceAll("/+$", "") + "/" + bucketName;
     }
 
     /**
-     * Creates the storage bucket if it doesn't exist yet.
-     * Applies a public-read policy so files can be accessed via direct URLs.
+     * Creates the storage bucket if it doesn't exist yet, and applies a public-read policy to the
+     * stored images if it has none, or only the earlier one that made the whole bucket public, so
+     * files can be accessed via direct URLs. Unconfirmed uploads are never publicly readable. Does
+     * nothing once the bucket is known to be ready.
      */
     public void ensureBucketExists() {
+        if (bucketReady.get()) {
+            return;
+        }
+        // Uploads racing after a NoSuchBucket would otherwise all try to create the bucket
+        synchronized (bucketReady) {
+            if (!bucketReady.get()) {
+                initializeBucket();
+                bucketReady.set(true);
+            }
+        }
+    }
+
+    /**
+     * Whether the bucket has been verified since startup or since the last {@code NoSuchBucket}.
+     */
+    public boolean isBucketReady() {
+        return bucketReady.get();
+    }
+
+    private void initializeBucket() {
         try {
             boolean exists = minioClient.bucketExists(
                     BucketExistsArgs.builder().bucket(bucketName).build()
@@ -44,7 +98,12 @@ public class MinioService {
                 minioClient.makeBucket(
                         MakeBucketArgs.builder().bucket(bucketName).build()
                 );
-                // bucket with public-read
+            }
+            String current = exists
+                    ? minioClient.getBucketPolicy(GetBucketPolicyArgs.builder().bucket(bucketName).build())
+                    : "";
+            if (current.isBlank() || current.contains("\"arn:aws:s3:::" + bucketName + "/*\"")) {
+                // public-read on stored images only
                 String policy = """
                         {
                             "Version": "2012-10-17",
@@ -53,11 +112,11 @@ public class MinioService {
                                     "Effect": "Allow",
                                     "Principal": {"AWS": "*"},
                                     "Action": ["s3:GetObject"],
-                                    "Resource": ["arn:aws:s3:::%s/*"]
+                                    "Resource": ["arn:aws:s3:::%1$s/%2$s*", "arn:aws:s3:::%1$s/%3$s*"]
                                 }
                             ]
                         }
-                        """.formatted(bucketName);
+                        """.formatted(bucketName, PUBLIC_PREFIXES.get(0), PUBLIC_PREFIXES.get(1));
                 minioClient.setBucketPolicy(
                         SetBucketPolicyArgs.builder()
                                 .bucket(bucketName)
@@ -71,85 +130,220 @@ public class MinioService {
     }
 
     /**
-     * Uploads a file to MinIO and returns its public URL.
-     * Files are stored as "avatars/{userId}{extension}".
-     * 
-     * @param file the uploaded file
-     * @param userId user ID used in the filename
-     * @return public URL to access the uploaded file
-     * @throws IOException if upload fails
+     * Uploads several objects in parallel, one virtual thread each. Either every object is stored
+     * or none is: if one upload fails, the ones that succeeded are removed again.
+     *
+     * @param objects     content keyed by object name
+     * @param contentType MIME type shared by all objects
+     * @return public URLs keyed by object name, in the order given
+     * @throws IOException if any upload fails
      */
-    public String uploadFile(MultipartFile file, UUID userId) throws IOException {
+    public Map<String, String> uploadFiles(Map<String, byte[]> objects, String contentType) throws IOException {
+        return uploadFiles(objects, contentType, true);
+    }
+
+    /**
+     * Uploads several objects in parallel, one virtual thread each.
+     *
+     * @param objects         content keyed by object name
+     * @param contentType     MIME type shared by all objects
+     * @param removeOnFailure whether to remove the objects that were stored when another upload
+     *                        fails; objects stored by content may be written by several requests at
+     *                        once and must be left alone
+     * @return public URLs keyed by object name, in the order given
+     * @throws IOException if any upload fails
+     */
+    public Map<String, String> uploadFiles(Map<String, byte[]> objects, String contentType, boolean removeOnFailure)
+            throws IOException {
         ensureBucketExists();
+        Map<String, Future<?>> uploads = new LinkedHashMap<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            objects.forEach((objectName, content) -> uploads.put(objectName, pool.submit(() -> {
+                putObject(objectName, content.length, contentType, () -> new ByteArrayInputStream(content));
+                return null;
+            })));
+        }
 
-        String extension = getFileExtension(file.getOriginalFilename());
-        String objectName = "avatars/" + userId + extension;
+        Map<String, String> urls = new LinkedHashMap<>();
+        IOException failure = null;
+        for (Map.Entry<String, Future<?>> upload : uploads.entrySet()) {
+            try {
+                upload.getValue().get();
+                urls.put(upload.getKey(), buildPublicUrl(upload.getKey()));
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException("Failed to upload file to MinIO", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IOException("Interrupted while uploading to MinIO", e);
+                break;
+            }
+        }
+        if (failure != null) {
+            if (removeOnFailure) {
+                deleteFiles(urls.keySet());
+            }
+            throw failure;
+        }
+        return urls;
+    }
 
-        try (InputStream inputStream = file.getInputStream()) {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
+    /**
+     * Deletes several files with one request.
+     * Doesn't throw errors if files don't exist.
+     *
+     * @param objectNames the object paths in MinIO, at most 1000
+     * @return the names that could not be deleted; failures are also logged
+     */
+    public Set<String> deleteFiles(Collection<String> objectNames) {
+        Set<String> failed = new HashSet<>();
+        if (objectNames.isEmpty()) {
+            return failed;
+        }
+        try {
+            Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                    RemoveObjectsArgs.builder()
                             .bucket(bucketName)
-                            .object(objectName)
-                            .stream(inputStream, file.getSize(), -1)
-                            .contentType(file.getContentType())
+                            .objects(objectNames.stream().map(DeleteObject::new).toList())
                             .build()
             );
+            // The request is only sent while the results are read
+            for (Result<DeleteError> result : results) {
+                DeleteError error = result.get();
+                failed.add(error.objectName());
+                loggerService.error("Failed to delete file from MinIO: {} - {}", "MinioService",
+                        LogContext.of("objectName", error.objectName()), error.objectName(), error.message());
+            }
         } catch (Exception e) {
-            throw new IOException("Failed to upload file to MinIO", e);
+            failed.addAll(objectNames);
+            loggerService.error("Failed to delete files from MinIO: {} - {}", "MinioService",
+                    LogContext.of("objectCount", objectNames.size()), objectNames, e.getMessage());
         }
+        return failed;
+    }
 
-        return buildPublicUrl(objectName);
+    /**
+     * Lists one page of the bucket's objects in name order.
+     *
+     * @param startAfter name to continue after, or null to start from the first object
+     * @param maxKeys    most objects to return; MinIO caps a page at 1000
+     * @return the objects, fewer than {@code maxKeys} only on the last page
+     */
+    public List<ListedObject> listFiles(String startAfter, int maxKeys) throws IOException {
+        List<ListedObject> page = new ArrayList<>(maxKeys);
+        try {
+            ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                    .bucket(bucketName)
+                    .recursive(true)
+                    .maxKeys(maxKeys);
+            if (startAfter != null) {
+                args.startAfter(startAfter);
+            }
+            // The iterable fetches further pages lazily; stopping at maxKeys keeps this to one request
+            for (Result<Item> result : minioClient.listObjects(args.build())) {
+                Item item = result.get();
+                page.add(new ListedObject(item.objectName(), item.size(),
+                        item.lastModified() != null ? item.lastModified().toInstant() : null));
+                if (page.size() >= maxKeys) {
+                    break;
+                }
+            }
+            return page;
+        } catch (Exception e) {
+            throw new IOException("Failed to list files in MinIO", e);
+        }
     }
 
     /**
-     * Uploads a file from an input stream.
-     * Alternative upload method when you already have the stream.
+     * Deletes a file from MinIO storage.
+     * Doesn't throw errors if file doesn't exist.
      * 
-     * @param inputStream file content stream
-     * @param size file size in bytes
-     * @param contentType MIME type
-     * @param userId user ID for filename
-     * @param extension file extension (e.g., ".jpg")
-     * @return public URL to the uploaded file
-     * @throws IOException if upload fails
-     */
-    public String uploadFile(InputStream inputStream, long size, String contentType, UUID userId, String extension) throws IOException {
-        ensureBucketExists();
+     * @param objectName the object path in MinIO (e.g., "avatars/123.jpg")
+     */
+    public void deleteFile(String objectName) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .build()
+            );
+        } catch (Exception e) {
+            loggerService.error("Failed to delete file from MinIO: {} - {}", "MinioService",
+                    LogContext.of("objectName", objectName), objectName, e.getMessage());
+        }
+    }
 
-        String objectName = "avatars/" + userId + extension;
+    /**
+     * Creates a presigned POST policy that lets a client upload one object straight to MinIO with
+     * an HTML form upload. MinIO itself rejects an upload to another object name, of another
+     * content type or outside the size range.
+     *
+     * @param objectName the object path the client may write
+     * @param contentType the only content type the object may be stored with
+     * @param maxBytes the largest object accepted
+     * @param expirySeconds how long the policy stays valid
+     * @return the URL to post to and the form fields to send before the file
+     */
+    public PresignedPost presignedUploadForm(String objectName, String contentType, long maxBytes, int expirySeconds)
+            throws IOException {
+        ensureBucketExists();
+        PostPolicy policy = new PostPolicy(bucketName, ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(expirySeconds));
+        policy.addEqualsCondition("key", objectName);
+        policy.addEqualsCondition("Content-Type", contentType);
+        policy.addContentLengthRangeCondition(1L, maxBytes);
+        try {
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("key", objectName);
+            fields.put("Content-Type", contentType);
+            fields.putAll(minioClient.getPresignedPostFormData(policy));
+            return new PresignedPost(uploadUrl, fields);
+        } catch (Exception e) {
+            throw new IOException("Failed to create MinIO upload policy", e);
+        }
+    }
 
+    /**
+     * Reads the metadata of a stored object without downloading it.
+     *
+     * @param objectName the object path in MinIO
+     * @return size, content type and ETag, or null if there is no such object
+     */
+    public StoredObject statFile(String objectName) throws IOException {
         try {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
+            StatObjectResponse stat = minioClient.statObject(
+                    StatObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
-                            .stream(inputStream, size, -1)
-                            .contentType(contentType)
                             .build()
             );
+            return new StoredObject(stat.size(), stat.contentType(), stat.etag());
+        } catch (ErrorResponseException e) {
+            if (NO_SUCH_KEY.equals(e.errorResponse().code())) {
+                return null;
+            }
+            throw new IOException("Failed to read file metadata from MinIO", e);
         } catch (Exception e) {
-            throw new IOException("Failed to upload file to MinIO", e);
+            throw new IOException("Failed to read file metadata from MinIO", e);
         }
-
-        return buildPublicUrl(objectName);
     }
 
     /**
-     * Deletes a file from MinIO storage.
-     * Doesn't throw errors if file doesn't exist.
-     * 
-     * @param objectName the object path in MinIO (e.g., "avatars/123.jpg")
+     * Opens a stored object for reading; the caller closes the stream.
+     *
+     * @param objectName the object path in MinIO
      */
-    public void deleteFile(String objectName) {
+    public InputStream openFile(String objectName) throws IOException {
         try {
-            minioClient.removeObject(
-                    RemoveObjectArgs.builder()
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
                             .build()
             );
         } catch (Exception e) {
-            loggerService.error("Failed to delete file from MinIO: " + objectName + " - " + e.getMessage(), "MinioService");
+            throw new IOException("Failed to read file from MinIO", e);
         }
     }
 
@@ -161,6 +355,10 @@ public class MinioService {
      * @return object name, or null if URL format is invalid
      */
     public String extractObjectName(String publicUrl) {
+        if (publicUrl != null && publicUrl.startsWith(this.publicUrl + "/")) {
+            return publicUrl.substring(this.publicUrl.length() + 1);
+        }
+        // URLs stored before minio.public-url was changed still point at the bucket
         if (publicUrl == null || !publicUrl.contains("/" + bucketName + "/")) {
             return null;
         }
@@ -169,19 +367,69 @@ public class MinioService {
     }
 
     /**
-     * Builds the public URL for accessing a stored object.
+     * Puts an object, recreating the bucket and retrying once if MinIO says it does not exist.
      */
-    private String buildPublicUrl(String objectName) {
-        return endpoint + "/" + bucketName + "/" + objectName;
+    private void putObject(String objectName, long size, String contentType, StreamSource source) throws IOException {
+        ensureBucketExists();
+        try {
+            try {
+                put(objectName, size, contentType, source);
+            } catch (ErrorResponseException e) {
+                if (!NO_SUCH_BUCKET.equals(e.errorResponse().code())) {
+                    throw e;
+                }
+                loggerService.warning("MinIO bucket {} is missing, creating it again", "MinioService",
+                        LogContext.of("objectName", objectName), bucketName);
+                bucketReady.set(false);
+                ensureBucketExists();
+                put(objectName, size, contentType, source);
+            }
+        } catch (Exception e) {
+            throw new IOException("Failed to upload file to MinIO", e);
+        }
+    }
+
+    private void put(String objectName, long size, String contentType, StreamSource source) throws Exception {
+        try (InputStream inputStream = source.open()) {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .stream(inputStream, size, -1)
+                            .contentType(contentType)
+                            .build()
+            );
+        }
     }
 
     /**
-     * Extracts file extension from filename.
+     * Builds the public URL for accessing a stored object: the bucket on MinIO itself, or
+     * {@code minio.public-url} when objects are served through the media proxy.
      */
-    private String getFileExtension(String filename) {
-        if (filename == null || !filename.contains(".")) {
-            return "";
-        }
-        return filename.substring(filename.lastIndexOf("."));
+    public String buildPublicUrl(String objectName) {
+        return publicUrl + "/" + objectName;
+    }
+
+    /**
+     * Metadata of a stored object.
+     */
+    public record StoredObject(long size, String contentType, String etag) {
+    }
+
+    /**
+     * A presigned form upload: post {@code fields} and then the file, as {@code file}, to {@code url}.
+     */
+    public record PresignedPost(String url, Map<String, String> fields) {
+    }
+
+    /**
+     * An object as listed in the bucket.
+     */
+    public record ListedObject(String name, long size, Instant lastModified) {
+    }
+
+    @FunctionalInterface
+    private interface StreamSource {
+        InputStream open() throws IOException;
     }
 }
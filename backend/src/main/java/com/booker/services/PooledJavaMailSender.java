@@ -0,0 +1,203 @@
+package com.booker.services;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.booker.config.MailPoolProperties;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * {@link JavaMailSenderImpl} that keeps its SMTP connections open between sends.
+ *
+ * The stock sender connects, authenticates and quits on every {@code send} call. This one borrows an
+ * already authenticated transport from a bounded pool, sends the whole batch over it and gives it back.
+ * Connections idle for a while are checked with a NOOP before reuse, old or overused ones are replaced,
+ * and a connection the server dropped mid-batch is reopened once before the message is reported failed.
+ * Failures are reported exactly like the stock sender, through {@link MailSendException#getFailedMessages()}.
+ */
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private final MailPoolProperties properties;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    public PooledJavaMailSender(MailPoolProperties properties) {
+        this.properties = properties;
+        this.permits = new Semaphore(Math.max(1, properties.getSize()));
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport pooled;
+        try {
+            pooled = borrow();
+        } catch (AuthenticationFailedException ex) {
+            throw new MailAuthenticationException(ex);
+        } catch (MessagingException | RuntimeException ex) {
+            // Same contract as the stock sender: every message of the batch failed
+            for (int i = 0; i < mimeMessages.length; i++) {
+                failedMessages.put(original(mimeMessages, originalMessages, i), ex);
+            }
+            throw new MailSendException("Mail server connection failed", ex, failedMessages);
+        }
+
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                Object original = original(mimeMessages, originalMessages, i);
+                if (pooled == null) {
+                    failedMessages.put(original, new MessagingException("Mail server connection lost"));
+                    continue;
+                }
+                try {
+                    send(pooled, mimeMessages[i]);
+                } catch (MessagingException ex) {
+                    if (pooled.transport.isConnected()) {
+                        // Rejected by the server, the connection itself is fine
+                        failedMessages.put(original, ex);
+                        continue;
+                    }
+                    // The server dropped the connection (idle timeout, session limit): reconnect once
+                    closeQuietly(pooled);
+                    pooled = null;
+                    try {
+                        pooled = open();
+                        send(pooled, mimeMessages[i]);
+                    } catch (MessagingException retryEx) {
+                        failedMessages.put(original, retryEx);
+                    }
+                }
+            }
+        } finally {
+            release(pooled);
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private static Object original(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages, int i) {
+        return originalMessages != null ? originalMessages[i] : mimeMessages[i];
+    }
+
+    private void send(PooledTransport pooled, MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        // saveChanges() regenerates the Message-ID, keep the one set by the caller
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            mimeMessage.setHeader("Message-ID", messageId);
+        }
+        Address[] addresses = mimeMessage.getAllRecipients();
+        pooled.transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+        pooled.sent++;
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(properties.getBorrowTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection available within " + properties.getBorrowTimeoutMs() + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isReusable(pooled)) {
+                    return pooled;
+                }
+                closeQuietly(pooled);
+            }
+            return open();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private boolean isReusable(PooledTransport pooled) {
+        long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pooled.lastUsedNanos);
+        if (idleMs > properties.getMaxIdleMs() || pooled.sent >= properties.getMaxMessagesPerConnection()) {
+            return false;
+        }
+        // isConnected() sends a NOOP on SMTP, only pay for it when the connection sat idle a while
+        return idleMs <= properties.getValidateAfterMs() || pooled.transport.isConnected();
+    }
+
+    private PooledTransport open() throws MessagingException {
+        return new PooledTransport(connectTransport());
+    }
+
+    private void release(@Nullable PooledTransport pooled) {
+        try {
+            if (pooled != null) {
+                pooled.lastUsedNanos = System.nanoTime();
+                // LIFO: the hottest connection is reused first, surplus ones age out
+                if (closed || pooled.sent >= properties.getMaxMessagesPerConnection()) {
+                    closeQuietly(pooled);
+                } else {
+                    idle.offerFirst(pooled);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException | RuntimeException ignored) {
+            // The connection is being discarded anyway
+        }
+    }
+
+    /**
+     * Number of connections currently open and waiting to be reused.
+     */
+    public int idleConnections() {
+        return idle.size();
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private long lastUsedNanos = System.nanoTime();
+        private int sent;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
@@ -1,24 +1,68 @@
 package com.booker.services;
 
-import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
+import com.booker.config.StripeResilienceProperties;
+import com.booker.utils.concurrent.Bulkhead;
+import com.booker.utils.concurrent.CircuitBreaker;
+import com.booker.utils.money.Money;
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 import com.stripe.param.RefundCreateParams;
 
 /**
  * Handles all Stripe payment operations for the booking system.
  * Works with both real Stripe API and mock server for development.
+ *
+ * Every call goes through a circuit breaker and a bulkhead. Connection errors, Stripe server errors
+ * and slow calls count as failures; when too many happen in the rolling window the circuit opens and
+ * calls fail immediately with {@link StripeUnavailableException} instead of waiting on a network timeout.
+ * The bulkhead caps how many threads can be waiting on Stripe at the same time.
+ *
+ * Requests go through the injected {@link StripeClient}, never through the SDK's static API, so the
+ * key, base URL and pooled transport are those configured in {@link com.booker.config.StripeConfig}.
  */
 @Service
 public class StripeService {
 
+    private final StripeClient stripeClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final long slowCallThresholdNanos;
+
+    public StripeService(StripeClient stripeClient, StripeResilienceProperties properties) {
+        this.stripeClient = stripeClient;
+        this.circuitBreaker = new CircuitBreaker(properties.getWindowMs(), properties.getWindowBuckets(),
+                properties.getMinimumCalls(), properties.getFailureRateThreshold(), properties.getOpenMs(),
+                properties.getHalfOpenCalls());
+        this.bulkhead = new Bulkhead(properties.getMaxConcurrentCalls(), properties.getMaxWaitMs());
+        this.slowCallThresholdNanos = properties.getSlowCallThresholdMs() * 1_000_000;
+    }
+
+    /**
+     * Returns true unless the circuit breaker is currently refusing calls.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Returns the current circuit breaker state.
+     */
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
     /**
      * Creates a new payment intent on Stripe.
      * 
@@ -30,6 +74,22 @@ public class StripeService {
      * @throws StripeException if Stripe API call fails
      */
     public PaymentIntent createPaymentIntent(Long amount, String currency, String description, Map<String, String> metadata) throws StripeException {
+        return createPaymentIntent(amount, currency, description, metadata, null);
+    }
+
+    /**
+     * Creates a new payment intent on Stripe, letting Stripe deduplicate retries of the same request.
+     *
+     * @param amount amount in cents (e.g., 1000 = 10.00 EUR)
+     * @param currency currency code (e.g., "eur", "usd")
+     * @param description payment description shown in Stripe dashboard
+     * @param metadata optional metadata like appointmentId or userId
+     * @param idempotencyKey optional key; Stripe returns the original intent when a key is reused
+     * @return the created PaymentIntent
+     * @throws StripeException if Stripe API call fails
+     */
+    public PaymentIntent createPaymentIntent(Long amount, String currency, String description, Map<String, String> metadata,
+            String idempotencyKey) throws StripeException {
         PaymentIntentCreateParams.Builder paramsBuilder = PaymentIntentCreateParams.builder()
                 .setAmount(amount)
                 .setCurrency(currency)
@@ -39,24 +99,40 @@ public class StripeService {
             paramsBuilder.putAllMetadata(metadata);
         }
 
-        return PaymentIntent.create(paramsBuilder.build());
+        if (idempotencyKey != null) {
+            RequestOptions options = RequestOptions.builder().setIdempotencyKey(idempotencyKey).build();
+            return call(() -> stripeClient.paymentIntents().create(paramsBuilder.build(), options));
+        }
+        return call(() -> stripeClient.paymentIntents().create(paramsBuilder.build()));
     }
 
     /**
      * Convenience method to create a payment intent from booking data.
-     * Automatically converts decimal amounts to cents for Stripe.
      * 
-     * @param amount decimal amount that will be converted to cents
-     * @param currency currency code
+     * @param amount amount in minor units with its currency, passed to Stripe as is
      * @param description payment description
      * @param appointmentId optional appointment ID stored as metadata
      * @param userId optional user ID stored as metadata
      * @return the created PaymentIntent
      * @throws StripeException if Stripe API call fails
      */
-    public PaymentIntent createPaymentIntentFromBooking(BigDecimal amount, String currency, String description, String appointmentId, String userId) throws StripeException {
-        // Converti BigDecimal in long (centesimi)
-        long amountInCents = amount.multiply(BigDecimal.valueOf(100)).longValue();
+    public PaymentIntent createPaymentIntentFromBooking(Money amount, String description, String appointmentId, String userId) throws StripeException {
+        return createPaymentIntentFromBooking(amount, description, appointmentId, userId, null);
+    }
+
+    /**
+     * Creates a payment intent from booking data, forwarding the client's idempotency key to Stripe.
+     *
+     * @param amount amount in minor units with its currency, passed to Stripe as is
+     * @param description payment description
+     * @param appointmentId optional appointment ID stored as metadata
+     * @param userId optional user ID stored as metadata
+     * @param idempotencyKey optional key identifying retries of the same request
+     * @return the created PaymentIntent
+     * @throws StripeException if Stripe API call fails
+     */
+    public PaymentIntent createPaymentIntentFromBooking(Money amount, String description, String appointmentId,
+            String userId, String idempotencyKey) throws StripeException {
 
         Map<String, String> metadata = new HashMap<>();
         if (appointmentId != null) {
@@ -66,7 +142,7 @@ public class StripeService {
             metadata.put("userId", userId);
         }
 
-        return createPaymentIntent(amountInCents, currency, description, metadata);
+        return createPaymentIntent(amount.amountMinor(), amount.currency().toLowerCase(Locale.ROOT), description, metadata, idempotencyKey);
     }
 
     /**
@@ -77,7 +153,7 @@ public class StripeService {
      * @throws StripeException if Stripe API call fails
      */
     public PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException {
-        return PaymentIntent.retrieve(paymentIntentId);
+        return call(() -> stripeClient.paymentIntents().retrieve(paymentIntentId));
     }
 
     /**
@@ -90,6 +166,20 @@ public class StripeService {
      * @throws StripeException if Stripe API call fails
      */
     public Refund createRefund(String paymentIntentId, Long amount, String reason) throws StripeException {
+        return createRefund(paymentIntentId, amount, reason, null);
+    }
+
+    /**
+     * Creates a refund for a payment intent, letting Stripe deduplicate retries of the same refund.
+     *
+     * @param paymentIntentId the payment intent to refund
+     * @param amount amount to refund in cents (null for full refund)
+     * @param reason refund reason: "duplicate", "fraudulent", or "requested_by_customer"
+     * @param idempotencyKey optional key; Stripe returns the original refund when a key is reused
+     * @return the created Refund
+     * @throws StripeException if Stripe API call fails
+     */
+    public Refund createRefund(String paymentIntentId, Long amount, String reason, String idempotencyKey) throws StripeException {
         RefundCreateParams.Builder paramsBuilder = RefundCreateParams.builder()
                 .setPaymentIntent(paymentIntentId);
 
@@ -109,7 +199,11 @@ public class StripeService {
             }
         }
 
-        return Refund.create(paramsBuilder.build());
+        if (idempotencyKey != null) {
+            RequestOptions options = RequestOptions.builder().setIdempotencyKey(idempotencyKey).build();
+            return call(() -> stripeClient.refunds().create(paramsBuilder.build(), options));
+        }
+        return call(() -> stripeClient.refunds().create(paramsBuilder.build()));
     }
 
     /**
@@ -122,4 +216,44 @@ public class StripeService {
     public Refund refundPaymentIntent(String paymentIntentId) throws StripeException {
         return createRefund(paymentIntentId, null, "requested_by_customer");
     }
+
+    /**
+     * Runs a Stripe call through the circuit breaker and the bulkhead.
+     */
+    private <T> T call(StripeCall<T> call) throws StripeException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new StripeUnavailableException("Stripe circuit breaker is open");
+        }
+        if (!bulkhead.tryEnter()) {
+            circuitBreaker.onIgnored();
+            throw new StripeUnavailableException("Too many concurrent Stripe calls");
+        }
+        long started = System.nanoTime();
+        try {
+            T result = call.execute();
+            if (System.nanoTime() - started > slowCallThresholdNanos) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            return result;
+        } catch (ApiConnectionException | ApiException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } catch (StripeException e) {
+            // Client errors (invalid request, card declined, ...) say nothing about Stripe's health
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } finally {
+            bulkhead.exit();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StripeCall<T> {
+        T execute() throws StripeException;
+    }
 }
@@ -0,0 +1,16 @@
+package com.booker.services;
+
+import com.stripe.exception.ApiConnectionException;
+
+/**
+ * Thrown without contacting Stripe when the circuit breaker is open or the bulkhead is full.
+ * Extends {@link ApiConnectionException} so existing {@code StripeException} handling still applies.
+ */
+public class StripeUnavailableException extends ApiConnectionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StripeUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -43,18 +43,24 @@ public class ResponseEntityBuilder {
             case ErrorCodes.RESOURCE_NOT_FOUND, ErrorCodes.USER_NOT_FOUND -> HttpStatus.NOT_FOUND;
             case ErrorCodes.UNAUTHORIZED_ACCESS, ErrorCodes.TOKEN_EXPIRED -> HttpStatus.UNAUTHORIZED;
             case ErrorCodes.INSUFFICIENT_PERMISSIONS, ErrorCodes.OPERATION_NOT_ALLOWED -> HttpStatus.FORBIDDEN;
-            case ErrorCodes.INVALID_REQUEST_DATA, ErrorCodes.VALIDATION_FAILED, ErrorCodes.INVALID_CREDENTIALS ->
+            case ErrorCodes.INVALID_REQUEST_DATA, ErrorCodes.VALIDATION_FAILED, ErrorCodes.INVALID_CREDENTIALS,
+                 ErrorCodes.INVALID_IDEMPOTENCY_KEY, ErrorCodes.INVALID_WEBHOOK_SIGNATURE ->
                     HttpStatus.BAD_REQUEST;
-            case ErrorCodes.DUPLICATE_RESOURCE, ErrorCodes.EMAIL_ALREADY_EXISTS -> HttpStatus.CONFLICT;
+            case ErrorCodes.DUPLICATE_RESOURCE, ErrorCodes.EMAIL_ALREADY_EXISTS, ErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS ->
+                    HttpStatus.CONFLICT;
+            case ErrorCodes.IDEMPOTENCY_KEY_REUSED -> HttpStatus.UNPROCESSABLE_ENTITY;
             case ErrorCodes.RATE_LIMIT_EXCEEDED -> HttpStatus.TOO_MANY_REQUESTS;
             case ErrorCodes.SERVICE_UNAVAILABLE -> HttpStatus.SERVICE_UNAVAILABLE;
             case ErrorCodes.INTERNAL_SERVER_ERROR -> HttpStatus.INTERNAL_SERVER_ERROR;
 
             // SuccessCodes mapping
             case SuccessCodes.USER_REGISTERED, SuccessCodes.APPOINTMENT_BOOKED, SuccessCodes.PAYMENT_PROCESSED,
-                 SuccessCodes.REVIEW_SUBMITTED, SuccessCodes.ROLE_CREATED, SuccessCodes.SERVICE_ADDED ->
+                 SuccessCodes.REVIEW_SUBMITTED, SuccessCodes.ROLE_CREATED, SuccessCodes.SERVICE_ADDED,
+                 SuccessCodes.PROFILE_IMAGE_UPLOAD_CREATED ->
                     HttpStatus.CREATED;
 
+            case SuccessCodes.PAYMENT_PENDING, SuccessCodes.REFUND_QUEUED -> HttpStatus.ACCEPTED;
+
             case SuccessCodes.USER_DELETED, SuccessCodes.PROFILE_IMAGE_DELETED, SuccessCodes.PAYMENT_DELETED,
                  SuccessCodes.REVIEW_DELETED, SuccessCodes.ROLE_DELETED, SuccessCodes.SERVICE_DELETED,
                  SuccessCodes.APPOINTMENT_CANCELLED ->
@@ -0,0 +1,51 @@
+package com.booker.utils.concurrent;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of concurrent calls to a dependency, so a slow dependency can hold at most
+ * that many threads instead of the whole request pool.
+ */
+public class Bulkhead {
+
+    private final Semaphore permits;
+    private final long maxWaitMs;
+
+    /**
+     * @param maxConcurrentCalls maximum number of calls in progress
+     * @param maxWaitMs how long a call waits for a free slot before being rejected, in milliseconds
+     */
+    public Bulkhead(int maxConcurrentCalls, long maxWaitMs) {
+        this.permits = new Semaphore(Math.max(1, maxConcurrentCalls), true);
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+    }
+
+    /**
+     * Takes a slot, waiting up to the configured time.
+     *
+     * @return true if a slot was taken and {@link #exit()} must follow, false if the bulkhead is full
+     */
+    public boolean tryEnter() {
+        try {
+            return maxWaitMs == 0 ? permits.tryAcquire() : permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Releases a slot taken by {@link #tryEnter()}.
+     */
+    public void exit() {
+        permits.release();
+    }
+
+    /**
+     * Returns the number of free slots.
+     */
+    public int available() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,167 @@
+package com.booker.utils.concurrent;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker over a rolling time window.
+ *
+ * Outcomes are counted in fixed-width time buckets that together cover the window. When at least
+ * {@code minimumCalls} calls fall inside the window and the share of failures reaches the threshold,
+ * the circuit opens and calls are refused without being attempted. After the open period a limited
+ * number of trial calls is let through (half-open): if all of them succeed the circuit closes,
+ * and a single failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final long bucketNanos;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    private final long[] bucketEpochs;
+    private final int[] bucketCalls;
+    private final int[] bucketFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    /**
+     * @param windowMs length of the rolling window, in milliseconds
+     * @param buckets number of buckets the window is divided into
+     * @param minimumCalls calls needed in the window before the failure rate is evaluated
+     * @param failureRateThreshold failure share, between 0 and 1, that opens the circuit
+     * @param openMs how long the circuit stays open before trial calls are allowed
+     * @param halfOpenCalls number of trial calls that must succeed to close the circuit
+     */
+    public CircuitBreaker(long windowMs, int buckets, int minimumCalls, double failureRateThreshold, long openMs, int halfOpenCalls) {
+        this(windowMs, buckets, minimumCalls, failureRateThreshold, openMs, halfOpenCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(long windowMs, int buckets, int minimumCalls, double failureRateThreshold, long openMs, int halfOpenCalls,
+            LongSupplier clock) {
+        int count = Math.max(1, buckets);
+        this.bucketNanos = Math.max(1, windowMs * 1_000_000 / count);
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openMs * 1_000_000;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.clock = clock;
+        this.bucketEpochs = new long[count];
+        this.bucketCalls = new int[count];
+        this.bucketFailures = new int[count];
+    }
+
+    /**
+     * Asks whether a call may be attempted. Every permitted call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     *
+     * @return true if the call may proceed, false if the circuit refuses it
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitted >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    /**
+     * Records a successful call.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * Records a failed call, opening the circuit if the failure rate is reached.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        int calls = 0;
+        int failures = 0;
+        long current = clock.getAsLong() / bucketNanos;
+        for (int i = 0; i < bucketEpochs.length; i++) {
+            if (current - bucketEpochs[i] < bucketEpochs.length) {
+                calls += bucketCalls[i];
+                failures += bucketFailures[i];
+            }
+        }
+        if (calls >= minimumCalls && failures >= calls * failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Gives back a permit for a call that was not attempted.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > 0) {
+            halfOpenPermitted--;
+        }
+    }
+
+    /**
+     * Returns the current state, moving from OPEN to HALF_OPEN if the open period has ended.
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void record(boolean failure) {
+        long epoch = clock.getAsLong() / bucketNanos;
+        int index = (int) Math.floorMod(epoch, (long) bucketEpochs.length);
+        if (bucketEpochs[index] != epoch) {
+            bucketEpochs[index] = epoch;
+            bucketCalls[index] = 0;
+            bucketFailures[index] = 0;
+        }
+        bucketCalls[index]++;
+        if (failure) {
+            bucketFailures[index]++;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        for (int i = 0; i < bucketEpochs.length; i++) {
+            bucketCalls[i] = 0;
+            bucketFailures[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.booker.utils.jdbc;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helpers for the startup runners that change the schema beyond what JPA annotations express.
+ * They only apply to Postgres; the in-memory databases used by tests skip them.
+ */
+public final class SchemaSupport {
+
+    private static final String INVALID_INDEX_SQL = """
+            SELECT EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                           WHERE c.relname = ? AND c.relnamespace = current_schema()::regnamespace
+                             AND NOT i.indisvalid)""";
+
+    private SchemaSupport() {
+    }
+
+    /**
+     * Whether the database behind the template is Postgres.
+     */
+    public static boolean isPostgres(JdbcTemplate jdbcTemplate) {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    /**
+     * Whether the table in the current schema has the column.
+     */
+    public static boolean columnExists(JdbcTemplate jdbcTemplate, String table, String column) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns "
+                        + "WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?)",
+                Boolean.class, table, column);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * Creates an index with {@code CREATE INDEX CONCURRENTLY}, so writes to the table go on while it
+     * is built. Postgres refuses that inside a transaction block, so it must be called on an
+     * auto-commit connection. A build that was interrupted leaves an invalid index behind that
+     * {@code IF NOT EXISTS} would keep skipping; it is dropped and built again.
+     *
+     * @param name       index name
+     * @param definition everything after {@code ON}, e.g. {@code reviews (professional_uuid)}
+     */
+    public static void createIndexConcurrently(JdbcTemplate jdbcTemplate, String name, String definition) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Index " + name + " cannot be built concurrently inside a transaction");
+        }
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(INVALID_INDEX_SQL, Boolean.class, name))) {
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        }
+        jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + definition);
+    }
+}
@@ -0,0 +1,106 @@
+package com.booker.utils.money;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Locale;
+
+/**
+ * An amount of money as a whole number of minor units (cents for EUR, yen for JPY) plus its ISO 4217 currency.
+ *
+ * Minor units are what Stripe expects, so amounts travel from the database to Stripe without any
+ * floating point or {@link BigDecimal} conversion. The number of decimals per currency comes from
+ * {@link Currency#getDefaultFractionDigits()}, defaulting to 2 for codes the JDK does not know.
+ */
+public record Money(long amountMinor, String currency) {
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    public Money {
+        if (currency == null || currency.isBlank()) {
+            throw new IllegalArgumentException("currency is required");
+        }
+        currency = normalize(currency);
+    }
+
+    public static Money of(long amountMinor, String currency) {
+        return new Money(amountMinor, currency);
+    }
+
+    /**
+     * Converts a decimal amount in major units (e.g. 25.50) to minor units.
+     *
+     * @throws ArithmeticException if the amount has more decimals than the currency allows
+     */
+    public static Money ofMajor(BigDecimal amount, String currency) {
+        int digits = fractionDigits(currency);
+        return new Money(amount.setScale(digits).unscaledValue().longValueExact(), currency);
+    }
+
+    /**
+     * Returns the number of decimals of the currency, 2 if it is unknown.
+     */
+    public static int fractionDigits(String currency) {
+        try {
+            int digits = Currency.getInstance(normalize(currency)).getDefaultFractionDigits();
+            return digits >= 0 && digits < POWERS_OF_TEN.length ? digits : 2;
+        } catch (IllegalArgumentException e) {
+            return 2;
+        }
+    }
+
+    /**
+     * Returns the amount in major units.
+     */
+    public BigDecimal toMajor() {
+        return BigDecimal.valueOf(amountMinor, fractionDigits(currency));
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(amountMinor, other.amountMinor), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(amountMinor, other.amountMinor), currency);
+    }
+
+    /**
+     * Formats the amount for people, e.g. {@code "25.50 EUR"} or {@code "1200 JPY"}.
+     */
+    public String format() {
+        int digits = fractionDigits(currency);
+        long factor = POWERS_OF_TEN[digits];
+        long whole = amountMinor / factor;
+        long fraction = Math.abs(amountMinor % factor);
+
+        StringBuilder sb = new StringBuilder(24);
+        if (amountMinor < 0 && whole == 0) {
+            sb.append('-');
+        }
+        sb.append(whole);
+        if (digits > 0) {
+            sb.append('.');
+            for (long p = factor / 10; p > 1 && fraction < p; p /= 10) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+        return sb.append(' ').append(currency).toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    private static String normalize(String currency) {
+        return currency.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -6,10 +6,8 @@ import com.booker.modules.appointment.dto.AppointmentDto;
 import com.booker.modules.appointment.dto.AppointmentUpsertRequest;
 import com.booker.modules.appointment.entity.Appointment;
 import com.booker.modules.appointment.repository.AppointmentRepository;
-import com.booker.modules.customer.entity.Customer;
-import com.booker.modules.customer.repository.CustomerRepository;
 import com.booker.modules.log.service.LoggerService;
-import com.booker.services.EmailService;
+import com.booker.modules.notification.service.NotificationAggregator;
 import com.booker.utils.base.Response;
 
 import org.junit.jupiter.api.Test;
@@ -36,10 +34,7 @@ class AppointmentServiceTest {
     private AppointmentRepository appointmentRepository;
 
     @Mock
-    private CustomerRepository customerRepository;
-
-    @Mock
-    private EmailService emailService;
+    private NotificationAggregator notificationAggregator;
 
     @Mock
     private LoggerService loggerService;
@@ -89,7 +84,7 @@ class AppointmentServiceTest {
     }
 
     @Test
-    void create_shouldCreateAppointmentAndSendEmail() {
+    void create_shouldCreateAppointmentAndNotifyBooking() {
         AppointmentUpsertRequest request = new AppointmentUpsertRequest();
         request.startTime = Instant.now().plusSeconds(86400);
         request.endTime = Instant.now().plusSeconds(90000);
@@ -98,25 +93,18 @@ class AppointmentServiceTest {
         request.professional = UUID.randomUUID();
         request.service = UUID.randomUUID();
         
-        Customer customer = new Customer();
-        customer.setEmail("customer@example.com");
-        customer.setFirstName("John");
-        customer.setLastName("Doe");
-        
         Appointment savedAppointment = createTestAppointment();
         savedAppointment.setCustomer(request.customer);
         
         when(appointmentRepository.save(any(Appointment.class))).thenReturn(savedAppointment);
-        when(customerRepository.findById(request.customer)).thenReturn(Optional.of(customer));
 
         Response<AppointmentDto> response = appointmentService.create(request);
 
         assertTrue(response.status);
         assertEquals(SuccessCodes.APPOINTMENT_BOOKED, response.message);
         verify(appointmentRepository).save(any(Appointment.class));
-        verify(customerRepository).findById(request.customer);
-        verify(emailService).sendAppointmentConfirmation(anyString(), anyString(), anyString(), anyString(), any());
-        verify(loggerService).success(anyString(), anyString());
+        verify(notificationAggregator).booked(savedAppointment);
+        verify(loggerService).success(anyString(), anyString(), anyMap(), any(Object[].class));
     }
 
     @Test
@@ -140,25 +128,91 @@ class AppointmentServiceTest {
     }
 
     @Test
-    void delete_whenAppointmentExists_shouldCancelAndSendEmail() {
+    void update_whenStartTimeChanges_shouldNotifyReschedule() {
+        UUID appointmentId = UUID.randomUUID();
+        Appointment appointment = createTestAppointment();
+        AppointmentUpsertRequest request = requestFor(appointment);
+        request.startTime = appointment.getStartTime().plusSeconds(3600);
+
+        when(appointmentRepository.findById(appointmentId)).thenReturn(Optional.of(appointment));
+        when(appointmentRepository.save(appointment)).thenReturn(appointment);
+
+        Response<AppointmentDto> response = appointmentService.update(appointmentId, request);
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.APPOINTMENT_UPDATED, response.message);
+        verify(notificationAggregator).rescheduled(appointment);
+        verifyNoMoreInteractions(notificationAggregator);
+    }
+
+    @Test
+    void update_whenStatusBecomesCancelled_shouldNotifyCancellation() {
+        UUID appointmentId = UUID.randomUUID();
+        Appointment appointment = createTestAppointment();
+        AppointmentUpsertRequest request = requestFor(appointment);
+        request.status = "cancelled";
+
+        when(appointmentRepository.findById(appointmentId)).thenReturn(Optional.of(appointment));
+        when(appointmentRepository.save(appointment)).thenReturn(appointment);
+
+        appointmentService.update(appointmentId, request);
+
+        verify(notificationAggregator).cancelled(appointment);
+        verifyNoMoreInteractions(notificationAggregator);
+    }
+
+    @Test
+    void update_whenNothingCustomerFacingChanges_shouldNotNotify() {
+        UUID appointmentId = UUID.randomUUID();
+        Appointment appointment = createTestAppointment();
+        AppointmentUpsertRequest request = requestFor(appointment);
+        request.endTime = appointment.getEndTime().plusSeconds(900);
+
+        when(appointmentRepository.findById(appointmentId)).thenReturn(Optional.of(appointment));
+        when(appointmentRepository.save(appointment)).thenReturn(appointment);
+
+        appointmentService.update(appointmentId, request);
+
+        verifyNoInteractions(notificationAggregator);
+    }
+
+    @Test
+    void delete_whenAppointmentExists_shouldCancelAndNotify() {
         UUID appointmentId = UUID.randomUUID();
         Appointment appointment = createTestAppointment();
-        
-        Customer customer = new Customer();
-        customer.setEmail("customer@example.com");
-        customer.setFirstName("John");
-        customer.setLastName("Doe");
         
         when(appointmentRepository.findById(appointmentId)).thenReturn(Optional.of(appointment));
-        when(customerRepository.findById(appointment.getCustomer())).thenReturn(Optional.of(customer));
 
         Response<Void> response = appointmentService.delete(appointmentId);
 
         assertTrue(response.status);
         assertEquals(SuccessCodes.APPOINTMENT_CANCELLED, response.message);
         verify(appointmentRepository).deleteById(appointmentId);
-        verify(emailService).sendAppointmentCancellation(anyString(), anyString(), anyString(), any());
-        verify(loggerService).success(anyString(), anyString());
+        verify(notificationAggregator).cancelled(appointment);
+        verify(loggerService).success(anyString(), anyString(), anyMap(), any(Object[].class));
+    }
+
+    @Test
+    void create_whenNotificationCannotBeRecorded_shouldFailSoTheBookingRollsBack() {
+        Appointment savedAppointment = createTestAppointment();
+        when(appointmentRepository.save(any(Appointment.class))).thenReturn(savedAppointment);
+        doThrow(new IllegalStateException("pending_notifications unavailable"))
+                .when(notificationAggregator).booked(savedAppointment);
+
+        // The exception reaches the transaction boundary, which rolls the booking back with it
+        assertThrows(IllegalStateException.class, () -> appointmentService.create(requestFor(savedAppointment)));
+    }
+
+    @Test
+    void delete_whenNotificationCannotBeRecorded_shouldNotDelete() {
+        UUID appointmentId = UUID.randomUUID();
+        Appointment appointment = createTestAppointment();
+        when(appointmentRepository.findById(appointmentId)).thenReturn(Optional.of(appointment));
+        doThrow(new IllegalStateException("pending_notifications unavailable"))
+                .when(notificationAggregator).cancelled(appointment);
+
+        assertThrows(IllegalStateException.class, () -> appointmentService.delete(appointmentId));
+        verify(appointmentRepository, never()).deleteById(any());
     }
 
     @Test
@@ -172,6 +226,17 @@ class AppointmentServiceTest {
         assertEquals(ErrorCodes.RESOURCE_NOT_FOUND, response.message);
     }
 
+    private static AppointmentUpsertRequest requestFor(Appointment appointment) {
+        AppointmentUpsertRequest request = new AppointmentUpsertRequest();
+        request.startTime = appointment.getStartTime();
+        request.endTime = appointment.getEndTime();
+        request.status = appointment.getStatus();
+        request.customer = appointment.getCustomer();
+        request.professional = appointment.getProfessional();
+        request.service = appointment.getService();
+        return request;
+    }
+
     private Appointment createTestAppointment() {
         Appointment appointment = new Appointment();
         appointment.setStartTime(Instant.now().plusSeconds(86400));
@@ -115,8 +115,8 @@ class AuthServiceTest {
         assertEquals(SuccessCodes.USER_REGISTERED, response.message);
         assertNotNull(response.data);
         verify(userRepository).save(any(User.class));
-        verify(emailService).sendRegistrationConfirmation(anyString(), anyString());
-        verify(loggerService).success(anyString(), eq("AuthService"));
+        verify(emailService).sendRegistrationConfirmation(anyString(), any(), anyString());
+        verify(loggerService).success(anyString(), eq("AuthService"), anyMap(), any(Object[].class));
     }
 
     @Test
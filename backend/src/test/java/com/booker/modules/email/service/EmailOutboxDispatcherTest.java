@@ -0,0 +1,200 @@
+package com.booker.modules.email.service;
+
+import com.booker.modules.email.config.EmailOutboxProperties;
+import com.booker.modules.log.service.LoggerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxDispatcherTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private LoggerService loggerService;
+
+    private final EmailOutboxProperties properties = new EmailOutboxProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBatchSize(4);
+        properties.setWorkers(2);
+        lenient().when(mailSender.createMimeMessage()).thenAnswer(inv -> new MimeMessage((Session) null));
+        dispatcher = new EmailOutboxDispatcher(jdbcTemplate, mailSender, loggerService, properties, meterRegistry,
+                "noreply@booker.local");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dispatch_shouldSendEachWorkerShareAsOneBatchAndMarkThemSentTogether() throws Exception {
+        List<EmailOutboxDispatcher.Claim> claims = List.of(claim("a@example.com", 1), claim("b@example.com", 1),
+                claim("c@example.com", 1), claim("d@example.com", 1));
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(claims, List.of());
+        List<MimeMessage[]> batches = recordBatches();
+
+        assertEquals(4, dispatcher.dispatch());
+
+        // Four claims over two workers: two batches of two, each over one SMTP connection
+        assertEquals(2, batches.size());
+        batches.forEach(batch -> assertEquals(2, batch.length));
+        assertEquals("noreply@booker.local", batches.get(0)[0].getFrom()[0].toString());
+        ArgumentCaptor<List<Object[]>> sent = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("status = 'sent'"), sent.capture());
+        assertEquals(4, sent.getValue().size());
+        assertEquals(4.0, meterRegistry.counter("email.outbox.sent").count());
+        // A full batch means more may be due
+        verify(jdbcTemplate, times(2)).query(contains("RETURNING"), any(RowMapper.class), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dispatch_whenEmailHasHtmlBody_shouldSendMultipartAlternative() throws Exception {
+        EmailOutboxDispatcher.Claim claim = new EmailOutboxDispatcher.Claim(UUID.randomUUID(), "a@example.com", "Conferma",
+                "Ciao", "<p>Ciao</p>", 1);
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(List.of(claim));
+        List<MimeMessage[]> batches = recordBatches();
+
+        assertEquals(1, dispatcher.dispatch());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batches.get(0)[0].writeTo(out);
+        String raw = out.toString(StandardCharsets.UTF_8);
+        assertTrue(raw.contains("multipart/alternative"));
+        assertTrue(raw.contains("text/plain"));
+        assertTrue(raw.contains("text/html"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dispatch_whenServerRejectsOneRecipient_shouldFailOnlyThatEmail() throws Exception {
+        properties.setWorkers(1);
+        EmailOutboxDispatcher.Claim good = claim("a@example.com", 1);
+        EmailOutboxDispatcher.Claim rejected = claim("ghost@example.com", 1);
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(List.of(good, rejected));
+        Address ghost = new InternetAddress("ghost@example.com");
+        doAnswer(inv -> {
+            MimeMessage[] batch = (MimeMessage[]) inv.getRawArguments()[0];
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            failed.put(batch[1], new SendFailedException("550 No such user", null, null, null, new Address[] {ghost}));
+            throw new MailSendException(failed);
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        assertEquals(1, dispatcher.dispatch());
+
+        verify(jdbcTemplate).update(contains("status = 'failed'"), eq("550 No such user"), eq(rejected.id()));
+        ArgumentCaptor<List<Object[]>> sent = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("status = 'sent'"), sent.capture());
+        assertEquals(good.id(), sent.getValue().get(0)[0]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dispatch_whenOneEmailIsMalformed_shouldStillSendTheRestOfItsBatch() {
+        properties.setWorkers(1);
+        EmailOutboxDispatcher.Claim good = claim("a@example.com", 1);
+        EmailOutboxDispatcher.Claim malformed = claim("<broken", 1);
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(List.of(good, malformed));
+        List<MimeMessage[]> batches = recordBatches();
+
+        assertEquals(1, dispatcher.dispatch());
+
+        // The malformed email never reaches the server, the other one goes out alone
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).length);
+        verify(jdbcTemplate).update(contains("status = 'failed'"), startsWith("Could not prepare email"), eq(malformed.id()));
+        verify(jdbcTemplate, never()).update(contains("status = 'pending'"), any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dispatch_whenSmtpFails_shouldRescheduleWithBackoff() {
+        EmailOutboxDispatcher.Claim claim = claim("a@example.com", 3);
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(List.of(claim));
+        doThrow(new MailSendException("Connection refused")).when(mailSender).send(any(MimeMessage[].class));
+
+        assertEquals(0, dispatcher.dispatch());
+
+        ArgumentCaptor<Timestamp> nextAttempt = ArgumentCaptor.forClass(Timestamp.class);
+        verify(jdbcTemplate).update(contains("status = 'pending'"), nextAttempt.capture(), eq("Connection refused"), eq(claim.id()));
+        // Third attempt: 10s doubled twice
+        long delay = Duration.between(Instant.now(), nextAttempt.getValue().toInstant()).toSeconds();
+        assertTrue(delay >= 38 && delay <= 40, "unexpected delay " + delay);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertEquals(1.0, meterRegistry.counter("email.outbox.retried").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dispatch_whenAttemptsExhausted_shouldFail() {
+        EmailOutboxDispatcher.Claim claim = claim("a@example.com", properties.getMaxAttempts());
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(List.of(claim));
+        doThrow(new MailSendException("Connection refused")).when(mailSender).send(any(MimeMessage[].class));
+
+        dispatcher.dispatch();
+
+        verify(jdbcTemplate).update(contains("status = 'failed'"), eq("Connection refused"), eq(claim.id()));
+        verify(jdbcTemplate, never()).update(contains("status = 'pending'"), any(), any(), any());
+        assertEquals(1.0, meterRegistry.counter("email.outbox.failed").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dispatch_whenNothingIsDue_shouldNotTouchTheMailServer() {
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, dispatcher.dispatch());
+
+        verifyNoInteractions(mailSender);
+    }
+
+    private List<MimeMessage[]> recordBatches() {
+        List<MimeMessage[]> batches = new CopyOnWriteArrayList<>();
+        doAnswer(inv -> batches.add((MimeMessage[]) inv.getRawArguments()[0])).when(mailSender).send(any(MimeMessage[].class));
+        return batches;
+    }
+
+    private static EmailOutboxDispatcher.Claim claim(String recipient, int attempts) {
+        return new EmailOutboxDispatcher.Claim(UUID.randomUUID(), recipient, "Conferma", "Ciao", null, attempts);
+    }
+}
@@ -0,0 +1,91 @@
+package com.booker.modules.email.template;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.booker.modules.email.config.EmailTemplateProperties;
+
+/**
+ * Compares building the appointment confirmation body the old way, {@link String#format} over a
+ * concatenated string with a {@link DateTimeFormatter} created per call, with rendering the
+ * precompiled template using a shared formatter.
+ *
+ * Not part of the test suite; run with
+ * {@code mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt} and then
+ * {@code java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.booker.modules.email.template.EmailTemplateBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private static final DateTimeFormatter SHARED_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final EmailTemplates templates = new EmailTemplates(new EmailTemplateProperties());
+    private final EmailTemplate text = EmailTemplate.compile("appointment-confirmation",
+            "Ciao {{customerName}},\n\n"
+                    + "Il tuo appuntamento è stato confermato!\n\n"
+                    + "Dettagli:\n"
+                    + "- Professionista: {{professionalName}}\n"
+                    + "- Servizio: {{serviceName}}\n"
+                    + "- Data e Ora: {{dateTime}}\n\n"
+                    + "Ti aspettiamo!\n\n"
+                    + "Il Team di Booker", false);
+    private final LocalDateTime start = LocalDateTime.of(2026, 3, 14, 9, 30);
+    private final String customerName = "Mario Rossi";
+
+    @Benchmark
+    public String stringFormat() {
+        String formattedDateTime = start.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+        return String.format(
+                "Ciao %s,\n\n" +
+                        "Il tuo appuntamento è stato confermato!\n\n" +
+                        "Dettagli:\n" +
+                        "- Professionista: %s\n" +
+                        "- Servizio: %s\n" +
+                        "- Data e Ora: %s\n\n" +
+                        "Ti aspettiamo!\n\n" +
+                        "Il Team di Booker",
+                customerName, "Professionista", "Servizio", formattedDateTime);
+    }
+
+    @Benchmark
+    public String precompiledText() {
+        return text.render(values());
+    }
+
+    @Benchmark
+    public RenderedEmail precompiledTextAndHtml() {
+        return templates.render("appointment-confirmation", values());
+    }
+
+    private Map<String, String> values() {
+        return Map.of(
+                "customerName", customerName,
+                "professionalName", "Professionista",
+                "serviceName", "Servizio",
+                "dateTime", SHARED_FORMAT.format(start));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EmailTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
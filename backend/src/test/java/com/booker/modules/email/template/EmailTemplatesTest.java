@@ -0,0 +1,70 @@
+package com.booker.modules.email.template;
+
+import com.booker.modules.email.config.EmailTemplateProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplatesTest {
+
+    private final EmailTemplates templates = new EmailTemplates(new EmailTemplateProperties());
+
+    @Test
+    void compile_shouldSplitLiteralsAndVariables() {
+        EmailTemplate template = EmailTemplate.compile("t", "Ciao {{ name }}, {{name}}!{{missing}}", false);
+
+        assertEquals(List.of("name", "name", "missing"), template.getVariables());
+        assertEquals("Ciao Mario, Mario!", template.render(Map.of("name", "Mario")));
+    }
+
+    @Test
+    void compile_whenPlaceholderNotClosed_shouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("t", "Ciao {{name", false));
+    }
+
+    @Test
+    void render_shouldReuseNothingFromThePreviousCall() {
+        EmailTemplate template = EmailTemplate.compile("t", "[{{v}}]", false);
+
+        assertEquals("[a long value]", template.render(Map.of("v", "a long value")));
+        assertEquals("[b]", template.render(Map.of("v", "b")));
+    }
+
+    @Test
+    void render_shouldPickTheRequestedLocale() {
+        RenderedEmail email = templates.render("registration", Locale.ENGLISH, Map.of("firstName", "Anna"));
+
+        assertEquals("Welcome to Booker!", email.subject());
+        assertTrue(email.text().startsWith("Hi Anna,"));
+        assertTrue(email.html().contains("<html lang=\"en\">"));
+    }
+
+    @Test
+    void render_whenLocaleHasNoVariant_shouldFallBackToLanguageThenDefault() {
+        assertEquals("Welcome to Booker!",
+                templates.render("registration", Locale.UK, Map.of("firstName", "Anna")).subject());
+        assertEquals("Benvenuto su Booker!",
+                templates.render("registration", Locale.GERMAN, Map.of("firstName", "Anna")).subject());
+    }
+
+    @Test
+    void render_whenTemplateUnknown_shouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> templates.render("nope", Map.of()));
+    }
+
+    @Test
+    void renderFragment_shouldRenderTheLineWithoutSubjectOrTrailingNewline() {
+        assertEquals("- 09:00 Mario Rossi (Taglio)", templates.renderFragment("professional-digest-entry",
+                Map.of("time", "09:00", "customerName", "Mario Rossi", "serviceName", "Taglio")));
+    }
+
+    @Test
+    void renderFragment_shouldUseTheRequestedLocale() {
+        assertEquals("- Booked: Haircut, 14/03/2026 09:30", templates.renderFragment("appointment-update-booked",
+                Locale.ENGLISH, Map.of("serviceName", "Haircut", "dateTime", "14/03/2026 09:30")));
+    }
+}
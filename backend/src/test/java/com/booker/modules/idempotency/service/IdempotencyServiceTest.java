@@ -0,0 +1,296 @@
+package com.booker.modules.idempotency.service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.idempotency.config.IdempotencyProperties;
+import com.booker.modules.idempotency.entity.IdempotencyRecord;
+import com.booker.modules.idempotency.repository.IdempotencyRepository;
+import com.booker.utils.base.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRepository idempotencyRepository;
+
+    private IdempotencyService idempotencyService;
+
+    private final UUID resourceId = UUID.randomUUID();
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRepository, new IdempotencyProperties());
+    }
+
+    @Test
+    void execute_whenKeyIsNew_shouldRunActionAndStoreResult() {
+        when(idempotencyRepository.findById("payments.create:key-1")).thenReturn(Optional.empty());
+        when(idempotencyRepository.reserve(eq("payments.create:key-1"), eq("hash"), anyString(), any(), any())).thenReturn(1);
+        when(idempotencyRepository.complete(eq("payments.create:key-1"), eq(resourceId),
+                eq(SuccessCodes.PAYMENT_PROCESSED), any())).thenReturn(1);
+
+        Response<String> result = execute("key-1", "hash");
+
+        assertTrue(result.status);
+        assertEquals("created", result.data);
+        assertEquals(1, executions.get());
+        InOrder order = inOrder(idempotencyRepository);
+        order.verify(idempotencyRepository).reserve(anyString(), anyString(), anyString(), any(), any());
+        order.verify(idempotencyRepository).complete(anyString(), any(), anyString(), any());
+    }
+
+    @Test
+    void execute_whenKeyRepeated_shouldReplayFromMemory() {
+        when(idempotencyRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(idempotencyRepository.reserve(anyString(), anyString(), anyString(), any(), any())).thenReturn(1);
+        when(idempotencyRepository.complete(anyString(), any(), anyString(), any())).thenReturn(1);
+
+        execute("key-1", "hash");
+        Response<String> replayed = execute("key-1", "hash");
+
+        assertTrue(replayed.status);
+        assertEquals("replayed " + resourceId, replayed.data);
+        assertEquals(SuccessCodes.PAYMENT_PROCESSED, replayed.message);
+        assertEquals(1, executions.get());
+        // Only the first request looks the key up; the replay is served from memory
+        verify(idempotencyRepository, times(1)).findById(anyString());
+    }
+
+    @Test
+    void execute_whenKeyStoredInDatabase_shouldReplayWithoutRunningAction() {
+        IdempotencyRecord record = new IdempotencyRecord("payments.create:key-1", "hash", resourceId,
+                SuccessCodes.PAYMENT_PROCESSED, Instant.now().plusSeconds(60));
+        when(idempotencyRepository.findById("payments.create:key-1")).thenReturn(Optional.of(record));
+
+        Response<String> result = execute("key-1", "hash");
+
+        assertEquals("replayed " + resourceId, result.data);
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_whenKeyReusedWithDifferentBody_shouldReject() {
+        IdempotencyRecord record = new IdempotencyRecord("payments.create:key-1", "hash", resourceId,
+                SuccessCodes.PAYMENT_PROCESSED, Instant.now().plusSeconds(60));
+        when(idempotencyRepository.findById("payments.create:key-1")).thenReturn(Optional.of(record));
+
+        Response<String> result = execute("key-1", "other-hash");
+
+        assertFalse(result.status);
+        assertEquals(ErrorCodes.IDEMPOTENCY_KEY_REUSED, result.message);
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_whenKeyMalformed_shouldReject() {
+        Response<String> result = execute("not a valid key!", "hash");
+
+        assertEquals(ErrorCodes.INVALID_IDEMPOTENCY_KEY, result.message);
+        verifyNoInteractions(idempotencyRepository);
+    }
+
+    @Test
+    void execute_whenActionFails_shouldNotStoreResult() {
+        when(idempotencyRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(idempotencyRepository.reserve(anyString(), anyString(), anyString(), any(), any())).thenReturn(1);
+
+        Response<String> result = idempotencyService.execute("payments.create", "key-1", "hash",
+                () -> new Response<>(false, null, ErrorCodes.INTERNAL_SERVER_ERROR), s -> resourceId, id -> "replayed");
+
+        assertEquals(ErrorCodes.INTERNAL_SERVER_ERROR, result.message);
+        verify(idempotencyRepository).release("payments.create:key-1");
+        verify(idempotencyRepository, never()).complete(anyString(), any(), anyString(), any());
+    }
+
+    @Test
+    void execute_whenAnotherInstanceStoredFirst_shouldReturnItsResult() {
+        UUID winnerId = UUID.randomUUID();
+        IdempotencyRecord winner = new IdempotencyRecord("payments.create:key-1", "hash", winnerId,
+                SuccessCodes.PAYMENT_PROCESSED, Instant.now().plusSeconds(60));
+        when(idempotencyRepository.findById("payments.create:key-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(idempotencyRepository.reserve(anyString(), anyString(), anyString(), any(), any())).thenReturn(0);
+
+        Response<String> result = execute("key-1", "hash");
+
+        assertEquals("replayed " + winnerId, result.data);
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_whenDuplicatesConcurrent_shouldRunActionOnce() throws Exception {
+        when(idempotencyRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(idempotencyRepository.reserve(anyString(), anyString(), anyString(), any(), any())).thenReturn(1);
+        when(idempotencyRepository.complete(anyString(), any(), anyString(), any())).thenReturn(1);
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Response<String>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return idempotencyService.execute("payments.create", "key-1", "hash", () -> {
+                        executions.incrementAndGet();
+                        awaitQuietly(release);
+                        return new Response<>(true, "created", SuccessCodes.PAYMENT_PROCESSED);
+                    }, s -> resourceId, id -> "replayed " + id);
+                }));
+            }
+            start.countDown();
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Response<String>> result : results) {
+                assertTrue(result.get().status);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_whenKeyReservedByAnotherInstance_shouldWaitForItsResult() throws Exception {
+        Map<String, IdempotencyRecord> table = shareTable();
+        IdempotencyService other = new IdempotencyService(idempotencyRepository, new IdempotencyProperties());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Response<String>> first = pool.submit(() -> other.execute("payments.create", "key-1", "hash", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                awaitQuietly(release);
+                return new Response<>(true, "created", SuccessCodes.PAYMENT_PROCESSED);
+            }, s -> resourceId, id -> "replayed " + id));
+            started.await();
+            assertTrue(table.get("payments.create:key-1").isInProgress());
+            pool.submit(() -> {
+                sleepQuietly(200);
+                release.countDown();
+            });
+
+            Response<String> second = execute("key-1", "hash");
+
+            assertEquals("created", first.get().data);
+            assertEquals("replayed " + resourceId, second.data);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertFalse(table.get("payments.create:key-1").isInProgress());
+    }
+
+    @Test
+    void execute_whenReservationOutlivesTheWait_shouldReportInProgress() {
+        Map<String, IdempotencyRecord> table = shareTable();
+        table.put("payments.create:key-1", new IdempotencyRecord("payments.create:key-1", "hash", null,
+                ErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS, Instant.now().plusSeconds(60), IdempotencyRecord.STATUS_IN_PROGRESS));
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setInFlightWaitMs(150);
+        idempotencyService = new IdempotencyService(idempotencyRepository, properties);
+
+        Response<String> result = execute("key-1", "hash");
+
+        assertEquals(ErrorCodes.IDEMPOTENCY_KEY_IN_PROGRESS, result.message);
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_whenActionThrows_shouldDropTheReservation() {
+        Map<String, IdempotencyRecord> table = shareTable();
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("payments.create", "key-1", "hash",
+                () -> {
+                    throw new IllegalStateException("boom");
+                }, s -> resourceId, id -> "replayed"));
+
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void fingerprint_shouldDependOnEveryPart() {
+        assertEquals(IdempotencyService.fingerprint(10.0, "EUR"), IdempotencyService.fingerprint(10.0, "EUR"));
+        assertNotEquals(IdempotencyService.fingerprint(10.0, "EUR"), IdempotencyService.fingerprint(10.0, "USD"));
+        assertNotEquals(IdempotencyService.fingerprint("a", "bc"), IdempotencyService.fingerprint("ab", "c"));
+    }
+
+    private Response<String> execute(String key, String hash) {
+        return idempotencyService.execute("payments.create", key, hash, () -> {
+            executions.incrementAndGet();
+            return new Response<>(true, "created", SuccessCodes.PAYMENT_PROCESSED);
+        }, s -> resourceId, id -> "replayed " + id);
+    }
+
+    /**
+     * Backs the repository mock with a map, so several service instances see the same rows.
+     */
+    private Map<String, IdempotencyRecord> shareTable() {
+        Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+        when(idempotencyRepository.findById(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(table.get(inv.<String>getArgument(0))));
+        lenient().when(idempotencyRepository.reserve(anyString(), anyString(), anyString(), any(), any())).thenAnswer(inv -> {
+            IdempotencyRecord reservation = new IdempotencyRecord(inv.getArgument(0), inv.getArgument(1), null,
+                    inv.getArgument(2), inv.getArgument(3), IdempotencyRecord.STATUS_IN_PROGRESS);
+            return table.putIfAbsent(reservation.getId(), reservation) == null ? 1 : 0;
+        });
+        lenient().when(idempotencyRepository.complete(anyString(), any(), anyString(), any())).thenAnswer(inv -> {
+            IdempotencyRecord reservation = table.get(inv.<String>getArgument(0));
+            if (reservation == null || !reservation.isInProgress()) {
+                return 0;
+            }
+            table.put(reservation.getId(), new IdempotencyRecord(reservation.getId(), reservation.getRequestHash(),
+                    inv.getArgument(1), inv.getArgument(2), inv.getArgument(3)));
+            return 1;
+        });
+        lenient().when(idempotencyRepository.release(anyString()))
+                .thenAnswer(inv -> table.remove(inv.<String>getArgument(0)) != null ? 1 : 0);
+        return table;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.booker.modules.log.service;
+
+import com.booker.modules.enums.log.LogType;
+import com.booker.modules.log.config.LoggingProperties;
+import com.booker.modules.log.entity.Log;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSpillFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingProperties properties;
+    private LogSpillFile spillFile;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LoggingProperties();
+        properties.getSpill().setDirectory(tempDir.toString());
+        properties.getSpill().setSegmentSizeBytes(4096);
+        spillFile = new LogSpillFile(properties);
+    }
+
+    @Test
+    void append_thenRead_shouldReturnRecordsInOrder() throws IOException {
+        LocalDateTime timestamp = LocalDateTime.of(2026, 1, 2, 3, 4, 5, 6000);
+        Log first = new Log(LogType.ERROR, "Stripe down", "PaymentService");
+        first.setTimestamp(timestamp);
+        first.setRepeatCount(3);
+
+        assertTrue(spillFile.append(first));
+        assertTrue(spillFile.append(new Log(LogType.INFO, "No source")));
+
+        List<Path> segments = spillFile.sealForReplay();
+        List<Log> read = new ArrayList<>();
+        assertEquals(1, segments.size());
+        assertTrue(spillFile.read(segments.get(0), read::add));
+
+        assertEquals(2, read.size());
+        assertEquals(LogType.ERROR, read.get(0).getType());
+        assertEquals("Stripe down", read.get(0).getMessage());
+        assertEquals("PaymentService", read.get(0).getSource());
+        assertEquals(timestamp, read.get(0).getTimestamp());
+        assertEquals(3, read.get(0).getRepeatCount());
+        assertNull(read.get(1).getSource());
+    }
+
+    @Test
+    void append_thenRead_shouldKeepRequestIdAndContext() throws IOException {
+        Log log = new Log(LogType.SUCCESS, "Payment created", "PaymentService");
+        log.setRequestId("req-1");
+        log.setContext(Map.of("paymentId", "42"));
+
+        assertTrue(spillFile.append(log));
+
+        List<Log> read = new ArrayList<>();
+        assertTrue(spillFile.read(spillFile.sealForReplay().get(0), read::add));
+        assertEquals("req-1", read.get(0).getRequestId());
+        assertEquals(Map.of("paymentId", "42"), read.get(0).getContext());
+    }
+
+    @Test
+    void append_whenSegmentFull_shouldRollToNewSegment() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(spillFile.append(new Log(LogType.WARNING, "Message number " + i, "TestModule")));
+        }
+
+        List<Path> segments = spillFile.sealForReplay();
+        int total = 0;
+        for (Path segment : segments) {
+            List<Log> read = new ArrayList<>();
+            assertTrue(spillFile.read(segment, read::add));
+            total += read.size();
+        }
+
+        assertTrue(segments.size() > 1);
+        assertEquals(100, total);
+    }
+
+    @Test
+    void append_whenSpillGrowsBeyondTheCap_shouldDropTheOldestSegments() throws IOException {
+        properties.getSpill().setMaxTotalBytes(3 * 4096);
+        for (int i = 0; i < 300; i++) {
+            assertTrue(spillFile.append(new Log(LogType.WARNING, "Message number " + i, "TestModule")));
+        }
+
+        List<Path> segments = spillFile.sealForReplay();
+        List<Log> read = new ArrayList<>();
+        for (Path segment : segments) {
+            spillFile.read(segment, read::add);
+        }
+
+        assertEquals(3, segments.size());
+        assertTrue(read.size() < 300);
+        assertEquals("Message number 299", read.get(read.size() - 1).getMessage());
+    }
+
+    @Test
+    void isUnavailable_shouldTellLostConnectionsFromRejectedRows() {
+        assertTrue(LogSpillFile.isUnavailable(new DataAccessResourceFailureException("connection refused")));
+        assertTrue(LogSpillFile.isUnavailable(new QueryTimeoutException("canceling statement due to lock timeout")));
+        assertTrue(LogSpillFile.isUnavailable(new RuntimeException(new SQLException("I/O error", "08006"))));
+        assertFalse(LogSpillFile.isUnavailable(new DataIntegrityViolationException("null value in column \"type\"")));
+        assertFalse(LogSpillFile.isUnavailable(new IllegalStateException("Unserializable log context")));
+    }
+
+    @Test
+    void read_whenChecksumMismatch_shouldStopAtCorruptRecord() throws IOException {
+        spillFile.append(new Log(LogType.INFO, "first", "TestModule"));
+        spillFile.append(new Log(LogType.INFO, "second", "TestModule"));
+        Path segment = spillFile.sealForReplay().get(0);
+
+        List<Log> firstPass = new ArrayList<>();
+        spillFile.read(segment, firstPass::add);
+        int secondRecordOffset = 8 + 2 + 8 + 4 + 4 + 4 + "first".length() + 4 + "TestModule".length();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42}), secondRecordOffset + 8 + 10);
+        }
+
+        List<Log> read = new ArrayList<>();
+        boolean intact = spillFile.read(segment, read::add);
+
+        assertEquals(2, firstPass.size());
+        assertFalse(intact);
+        assertEquals(1, read.size());
+        assertEquals("first", read.get(0).getMessage());
+    }
+
+    @Test
+    void sealForReplay_shouldNotReturnSegmentsAfterDelete() throws IOException {
+        spillFile.append(new Log(LogType.INFO, "message", "TestModule"));
+        Path segment = spillFile.sealForReplay().get(0);
+
+        spillFile.delete(segment);
+
+        assertTrue(spillFile.sealForReplay().isEmpty());
+    }
+
+    @Test
+    void append_whenDisabled_shouldReturnFalse() {
+        properties.getSpill().setEnabled(false);
+
+        assertFalse(spillFile.append(new Log(LogType.INFO, "message", "TestModule")));
+    }
+}
@@ -0,0 +1,120 @@
+package com.booker.modules.log.service;
+
+import com.booker.modules.enums.log.LogType;
+import com.booker.modules.log.config.LoggingProperties;
+import com.booker.modules.log.entity.Log;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LogSpillReplayerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private LogSpillFile spillFile;
+    private LogSpillReplayer replayer;
+
+    @BeforeEach
+    void setUp() {
+        LoggingProperties properties = new LoggingProperties();
+        properties.getSpill().setDirectory(tempDir.toString());
+        properties.getSpill().setSegmentSizeBytes(4096);
+        spillFile = new LogSpillFile(properties);
+        replayer = new LogSpillReplayer(spillFile, jdbcTemplate, transactionTemplate, properties, new ObjectMapper());
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        spillFile.markDatabaseDown();
+        spillFile.append(new Log(LogType.ERROR, "first", "TestModule"));
+        spillFile.append(new Log(LogType.ERROR, "second", "TestModule"));
+        spillFile.append(new Log(LogType.ERROR, "third", "TestModule"));
+    }
+
+    @Test
+    void replay_whenDatabaseRejectsARecord_shouldSkipItAndReplayTheRest() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataIntegrityViolationException("value too long for type character varying(255)"));
+        List<String> inserted = new ArrayList<>();
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            String message = (String) invocation.getArguments()[3];
+            if (message.equals("second")) {
+                throw new DataIntegrityViolationException("value too long for type character varying(255)");
+            }
+            inserted.add(message);
+            return 1;
+        });
+
+        replayer.replay();
+
+        assertEquals(List.of("first", "third"), inserted);
+        assertNoSegmentsLeft();
+        assertFalse(spillFile.isDatabaseDown());
+    }
+
+    @Test
+    void replay_whenDatabaseUnavailable_shouldKeepTheSegmentForTheNextRun() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new CannotGetJdbcConnectionException("Connection refused"));
+
+        replayer.replay();
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        assertEquals(1, spillFile.sealForReplay().size());
+        assertTrue(spillFile.isDatabaseDown());
+    }
+
+    @Test
+    void replay_whenSegmentIsReplayedAgain_shouldReuseTheRecordIds() throws Exception {
+        List<List<Object>> ids = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            ids.add(rows.stream().map(row -> row[0]).toList());
+            if (ids.size() == 1) {
+                throw new CannotGetJdbcConnectionException("Connection reset");
+            }
+            return new int[rows.size()];
+        });
+
+        replayer.replay();
+        replayer.replay();
+
+        assertEquals(2, ids.size());
+        assertEquals(3, ids.get(0).size());
+        assertEquals(ids.get(0), ids.get(1));
+        assertNoSegmentsLeft();
+    }
+
+    private void assertNoSegmentsLeft() throws Exception {
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -3,15 +3,26 @@ package com.booker.modules.log.service;
 import com.booker.modules.log.config.LoggingProperties;
 import com.booker.modules.log.entity.Log;
 import com.booker.modules.enums.log.LogType;
+import com.booker.modules.log.filter.CorrelationIdFilter;
 import com.booker.modules.log.repository.LogRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -20,8 +31,11 @@ class LoggerServiceTest {
     @Mock
     private LogRepository logRepository;
 
+    @Spy
+    private LoggingProperties loggingProperties = new LoggingProperties();
+
     @Mock
-    private LoggingProperties loggingProperties;
+    private LogSpillFile spillFile;
 
     @InjectMocks
     private LoggerService loggerService;
@@ -88,4 +102,188 @@ class LoggerServiceTest {
 
         verify(logRepository).save(any(Log.class));
     }
+
+    @Test
+    void log_whenSameTemplateRepeated_shouldSaveOnlyFirstOccurrence() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+
+        loggerService.error("Stripe PaymentIntent creation failed for 1", "PaymentService");
+        loggerService.error("Stripe PaymentIntent creation failed for 2", "PaymentService");
+        loggerService.error("Stripe PaymentIntent creation failed for 3", "PaymentService");
+
+        verify(logRepository, times(1)).save(any(Log.class));
+    }
+
+    @Test
+    void error_whenStripeFailsForEveryAppointment_shouldCollapseIntoTheFirstRow() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+        Log saved = new Log(LogType.ERROR, "Error", "PaymentService");
+        saved.setId(UUID.randomUUID());
+        when(logRepository.save(any(Log.class))).thenReturn(saved);
+        loggingProperties.getDedup().setWindowMs(500);
+        LoggerService service = new LoggerService(logRepository, loggingProperties, spillFile);
+        UUID firstAppointment = UUID.randomUUID();
+
+        // Same loop as PaymentService.create during a Stripe outage
+        service.error("Stripe PaymentIntent creation failed: {}", "PaymentService",
+                LogContext.of("appointmentId", firstAppointment), "Connection reset (req_0)");
+        for (int i = 1; i < 50; i++) {
+            service.error("Stripe PaymentIntent creation failed: {}", "PaymentService",
+                    LogContext.of("appointmentId", UUID.randomUUID()), "Connection reset (req_" + i + ")");
+        }
+        sleep(550);
+        service.flushSuppressed();
+
+        ArgumentCaptor<Log> row = ArgumentCaptor.forClass(Log.class);
+        verify(logRepository, times(1)).save(row.capture());
+        assertEquals("Stripe PaymentIntent creation failed: Connection reset (req_0)", row.getValue().getMessage());
+        assertEquals(firstAppointment.toString(), row.getValue().getContext().get("appointmentId"));
+        verify(logRepository).incrementRepeatCount(saved.getId(), 49);
+    }
+
+    @Test
+    void error_whenTypeIsKeyedByContext_shouldKeepDifferentEntitiesApart() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+        loggingProperties.getDedup().setKeyByContext(Set.of(LogType.ERROR));
+        Map<String, Object> context = LogContext.of("appointmentId", UUID.randomUUID());
+
+        loggerService.error("Refund failed: {}", "RefundService", context, "card_declined");
+        loggerService.error("Refund failed: {}", "RefundService", context, "expired_card");
+        loggerService.error("Refund failed: {}", "RefundService", LogContext.of("appointmentId", UUID.randomUUID()), "card_declined");
+
+        verify(logRepository, times(2)).save(any(Log.class));
+    }
+
+    @Test
+    void log_whenSourceDiffers_shouldNotDeduplicate() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+
+        loggerService.error("Same message", "ModuleA");
+        loggerService.error("Same message", "ModuleB");
+
+        verify(logRepository, times(2)).save(any(Log.class));
+    }
+
+    @Test
+    void flushSuppressed_shouldWriteSuppressedCountToFirstRow() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+        Log saved = new Log(LogType.ERROR, "Error", "TestModule");
+        saved.setId(UUID.randomUUID());
+        when(logRepository.save(any(Log.class))).thenReturn(saved);
+        loggingProperties.getDedup().setWindowMs(50);
+        LoggerService service = new LoggerService(logRepository, loggingProperties, spillFile);
+
+        service.error("Error", "TestModule");
+        service.error("Error", "TestModule");
+        service.error("Error", "TestModule");
+        sleep(60);
+        service.flushSuppressed();
+
+        verify(logRepository, times(1)).save(any(Log.class));
+        verify(logRepository).incrementRepeatCount(saved.getId(), 2);
+    }
+
+    @Test
+    void info_whenSourceExceedsBurst_shouldSampleOut() {
+        when(loggingProperties.isEnabled(LogType.INFO)).thenReturn(true);
+        loggingProperties.getSampling().setBurst(2);
+        loggingProperties.getSampling().setRatePerSecond(0.001);
+
+        loggerService.info("Info 1 a", "Chatty");
+        loggerService.info("Info 2 b", "Chatty");
+        loggerService.info("Info 3 c", "Chatty");
+
+        verify(logRepository, times(2)).save(any(Log.class));
+    }
+
+    @Test
+    void error_whenSourceExceedsBurst_shouldNotBeSampled() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+        loggingProperties.getSampling().setBurst(1);
+        loggingProperties.getSampling().setRatePerSecond(0.001);
+
+        loggerService.error("Error a", "Chatty");
+        loggerService.error("Error b", "Chatty");
+
+        verify(logRepository, times(2)).save(any(Log.class));
+    }
+
+    @Test
+    void log_whenDatabaseSaveFails_shouldSpillToDisk() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+        when(logRepository.save(any(Log.class))).thenThrow(new DataAccessResourceFailureException("connection refused"));
+        when(spillFile.append(any(Log.class))).thenReturn(true);
+
+        loggerService.error("Error message", "TestModule");
+
+        verify(spillFile).markDatabaseDown();
+        verify(spillFile).append(any(Log.class));
+    }
+
+    @Test
+    void log_whenDatabaseRejectsTheRow_shouldDropItAndKeepUsingTheDatabase() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+        when(logRepository.save(any(Log.class)))
+                .thenThrow(new DataIntegrityViolationException("value too long for type character varying(255)"));
+
+        loggerService.error("Error message", "TestModule");
+
+        verify(spillFile, never()).markDatabaseDown();
+        verify(spillFile, never()).append(any());
+    }
+
+    @Test
+    void log_whenDatabaseKnownDown_shouldSpillWithoutTryingDatabase() {
+        when(loggingProperties.isEnabled(LogType.ERROR)).thenReturn(true);
+        when(spillFile.isDatabaseDown()).thenReturn(true);
+        when(spillFile.append(any(Log.class))).thenReturn(true);
+
+        loggerService.error("Error message", "TestModule");
+
+        verify(logRepository, never()).save(any());
+        verify(spillFile).append(any(Log.class));
+    }
+
+    @Test
+    void log_withTemplate_shouldFormatMessageAndStoreContext() {
+        when(loggingProperties.isEnabled(LogType.SUCCESS)).thenReturn(true);
+        MDC.put(CorrelationIdFilter.MDC_KEY, "req-1");
+        try {
+            loggerService.success("Payment created: {} (status: {})", "PaymentService",
+                    LogContext.of("paymentId", 42, "appointmentId", null), 42, "succeeded");
+        } finally {
+            MDC.remove(CorrelationIdFilter.MDC_KEY);
+        }
+
+        ArgumentCaptor<Log> captor = ArgumentCaptor.forClass(Log.class);
+        verify(logRepository).save(captor.capture());
+        assertEquals("Payment created: 42 (status: succeeded)", captor.getValue().getMessage());
+        assertEquals("req-1", captor.getValue().getRequestId());
+        assertEquals(Map.of("paymentId", "42"), captor.getValue().getContext());
+    }
+
+    @Test
+    void log_withTemplate_whenTypeDisabled_shouldNotFormat() {
+        when(loggingProperties.isEnabled(LogType.INFO)).thenReturn(false);
+
+        loggerService.info("Value {}", "TestModule", LogContext.of("id", 1), 1);
+
+        verify(logRepository, never()).save(any());
+    }
+
+    @Test
+    void format_shouldReplacePlaceholdersInOrder() {
+        assertEquals("a 1 b 2", LoggerService.format("a {} b {}", new Object[] {1, 2}));
+        assertEquals("a 1 b {}", LoggerService.format("a {} b {}", new Object[] {1}));
+        assertEquals("no args", LoggerService.format("no args", new Object[] {1}));
+        assertEquals("a null", LoggerService.format("a {}", new Object[] {null}));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
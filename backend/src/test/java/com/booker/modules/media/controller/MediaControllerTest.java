@@ -0,0 +1,146 @@
+package com.booker.modules.media.controller;
+
+import com.booker.modules.media.config.MediaProperties;
+import com.booker.modules.media.service.CachedMedia;
+import com.booker.modules.media.service.MediaCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaControllerTest {
+
+    @Mock
+    private MediaCache mediaCache;
+
+    @TempDir
+    Path dir;
+
+    private MediaProperties properties;
+    private MediaController controller;
+    private CachedMedia media;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new MediaProperties();
+        properties.setEnabled(true);
+        controller = new MediaController(mediaCache, properties);
+        Path file = Files.writeString(dir.resolve("a.bin"), "0123456789");
+        media = new CachedMedia("a/64.jpg", file, 10, "abc", "image/jpeg", Instant.now());
+    }
+
+    @Test
+    void get_shouldSendTheWholeObjectWithCachingHeaders() throws Exception {
+        when(mediaCache.get("a/64.jpg")).thenReturn(media);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.get("/a/64.jpg", request("GET"), response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals("\"abc\"", response.getHeader("ETag"));
+        assertEquals("image/jpeg", response.getContentType());
+        assertTrue(response.getHeader("Cache-Control").contains("max-age=31536000"));
+        verify(mediaCache).recordServed(10);
+    }
+
+    @Test
+    void get_whenEtagMatches_shouldAnswerNotModified() throws Exception {
+        when(mediaCache.get("a/64.jpg")).thenReturn(media);
+        MockHttpServletRequest request = request("GET");
+        request.addHeader("If-None-Match", "W/\"other\", \"abc\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.get("/a/64.jpg", request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void get_withRange_shouldSendOnlyThatPart() throws Exception {
+        when(mediaCache.get("a/64.jpg")).thenReturn(media);
+        MockHttpServletRequest request = request("GET");
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.get("/a/64.jpg", request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals(4, response.getContentLengthLong());
+    }
+
+    @Test
+    void get_withRangeAndStaleIfRange_shouldSendTheWholeObject() throws Exception {
+        when(mediaCache.get("a/64.jpg")).thenReturn(media);
+        MockHttpServletRequest request = request("GET");
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"old\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.get("/a/64.jpg", request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void get_withRangePastTheEnd_shouldAnswerRangeNotSatisfiable() throws Exception {
+        when(mediaCache.get("a/64.jpg")).thenReturn(media);
+        MockHttpServletRequest request = request("GET");
+        request.addHeader("Range", "bytes=20-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.get("/a/64.jpg", request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void get_whenTomcatSupportsSendfile_shouldHandTheFileOver() throws Exception {
+        when(mediaCache.get("a/64.jpg")).thenReturn(media);
+        MockHttpServletRequest request = request("GET");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.get("/a/64.jpg", request, response);
+
+        assertEquals(media.file().toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(0L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void get_whenDisabledOrUnconfirmedUpload_shouldAnswerNotFound() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.get("/uploads/u/1", request("GET"), response);
+        assertEquals(404, response.getStatus());
+
+        properties.setEnabled(false);
+        response = new MockHttpServletResponse();
+        controller.get("/a/64.jpg", request("GET"), response);
+        assertEquals(404, response.getStatus());
+        verify(mediaCache, never()).get(anyString());
+    }
+
+    private static MockHttpServletRequest request(String method) {
+        return new MockHttpServletRequest(method, "/media/a/64.jpg");
+    }
+}
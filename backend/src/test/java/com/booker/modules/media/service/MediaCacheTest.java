@@ -0,0 +1,161 @@
+package com.booker.modules.media.service;
+
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.media.config.MediaProperties;
+import com.booker.services.MinioService;
+import com.booker.services.MinioService.StoredObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaCacheTest {
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private LoggerService loggerService;
+
+    @TempDir
+    Path cacheDir;
+
+    private MediaProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private MediaCache mediaCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new MediaProperties();
+        properties.setEnabled(true);
+        properties.setCacheDir(cacheDir);
+        meterRegistry = new SimpleMeterRegistry();
+        mediaCache = new MediaCache(minioService, loggerService, properties, meterRegistry);
+        mediaCache.init();
+    }
+
+    @Test
+    void get_shouldDownloadOnceAndServeLaterRequestsFromDisk() throws Exception {
+        stub("a/64.jpg", "hello", "e1");
+
+        CachedMedia first = mediaCache.get("a/64.jpg");
+        CachedMedia second = mediaCache.get("a/64.jpg");
+
+        assertEquals("hello", Files.readString(second.file()));
+        assertEquals(first.file(), second.file());
+        assertEquals("e1", second.etag());
+        verify(minioService, times(1)).openFile("a/64.jpg");
+        assertEquals(0.5, mediaCache.hitRatio());
+        assertEquals(1.0, meterRegistry.get("media.cache.misses").counter().count());
+    }
+
+    @Test
+    void get_whenObjectMissing_shouldReturnNull() throws Exception {
+        when(minioService.statFile("missing")).thenReturn(null);
+
+        assertNull(mediaCache.get("missing"));
+        verify(minioService, never()).openFile(anyString());
+    }
+
+    @Test
+    void get_whenManyRequestsMissTogether_shouldDownloadOnce() throws Exception {
+        CountDownLatch downloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(minioService.statFile("a/1024.jpg")).thenReturn(new StoredObject(4, "image/jpeg", "e1"));
+        when(minioService.openFile("a/1024.jpg")).thenAnswer(invocation -> {
+            downloading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new ByteArrayInputStream("data".getBytes());
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CachedMedia>> results = new ArrayList<>();
+            results.add(pool.submit(() -> mediaCache.get("a/1024.jpg")));
+            assertTrue(downloading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(pool.submit(() -> mediaCache.get("a/1024.jpg")));
+            }
+            // Let the waiting requests reach the pending fill before it completes
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<CachedMedia> result : results) {
+                assertEquals("e1", result.get(5, TimeUnit.SECONDS).etag());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(minioService, times(1)).openFile("a/1024.jpg");
+    }
+
+    @Test
+    void get_whenOverTheLimit_shouldEvictTheLeastRecentlyUsed() throws Exception {
+        properties.setMaxCacheBytes(12);
+        stub("a", "123456", "ea");
+        stub("b", "123456", "eb");
+        stub("c", "123456", "ec");
+
+        mediaCache.get("a");
+        mediaCache.get("b");
+        mediaCache.get("a");
+        mediaCache.get("c");
+        mediaCache.get("a");
+        mediaCache.get("b");
+
+        verify(minioService, times(1)).openFile("a");
+        verify(minioService, times(2)).openFile("b");
+        assertTrue(mediaCache.getCachedBytes() <= 12);
+    }
+
+    @Test
+    void get_whenDueForRevalidation_shouldKeepAnUnchangedCopyAndDropADeletedOne() throws Exception {
+        properties.setRevalidateSeconds(0);
+        stub("a", "hello", "e1");
+
+        CachedMedia first = mediaCache.get("a");
+        CachedMedia revalidated = mediaCache.get("a");
+
+        assertEquals(first.file(), revalidated.file());
+        verify(minioService, times(1)).openFile("a");
+
+        when(minioService.statFile("a")).thenReturn(null);
+
+        assertNull(mediaCache.get("a"));
+        assertEquals(0, mediaCache.getCachedBytes());
+    }
+
+    @Test
+    void init_shouldDiscardFilesLeftByAPreviousRun() throws Exception {
+        Path leftover = Files.writeString(cacheDir.resolve("old.bin"), "stale");
+
+        mediaCache.init();
+
+        assertFalse(Files.exists(leftover));
+    }
+
+    private void stub(String objectName, String content, String etag) throws Exception {
+        lenient().when(minioService.statFile(objectName))
+                .thenReturn(new StoredObject(content.length(), "image/jpeg", etag));
+        lenient().when(minioService.openFile(objectName))
+                .thenAnswer(invocation -> new ByteArrayInputStream(content.getBytes()));
+    }
+}
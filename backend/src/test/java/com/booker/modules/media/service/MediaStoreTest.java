@@ -0,0 +1,105 @@
+package com.booker.modules.media.service;
+
+import com.booker.modules.media.service.MediaStore.StoredSet;
+import com.booker.services.AvatarRenditionService;
+import com.booker.services.AvatarRenditionService.Rendition;
+import com.booker.services.MinioService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaStoreTest {
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MediaStore mediaStore;
+
+    private final Map<Integer, Rendition> renditions = new LinkedHashMap<>();
+    private String hash;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        mediaStore = new MediaStore(minioService, jdbcTemplate, meterRegistry);
+        renditions.put(1024, new Rendition(new byte[300], "a1"));
+        renditions.put(64, new Rendition(new byte[20], "b2"));
+        hash = AvatarRenditionService.setHash(renditions);
+        lenient().when(minioService.buildPublicUrl(anyString())).thenAnswer(invocation ->
+                "http://minio/avatars/" + invocation.getArgument(0));
+    }
+
+    @Test
+    void upload_whenSetIsNew_shouldUploadItWithoutTakingAReference() throws Exception {
+        when(jdbcTemplate.update("UPDATE media_objects SET updated_at = now() WHERE hash = ?", hash)).thenReturn(0);
+
+        StoredSet set = mediaStore.upload(renditions);
+
+        verify(minioService).uploadFiles(Map.of(
+                "media/" + hash + "/1024.jpg", renditions.get(1024).content(),
+                "media/" + hash + "/64.jpg", renditions.get(64).content()), AvatarRenditionService.CONTENT_TYPE, false);
+        verify(jdbcTemplate, never()).update(startsWith("INSERT"), any(), any());
+        assertEquals(hash, set.hash());
+        assertEquals(320, set.size());
+        assertEquals(List.of(1024, 64), List.copyOf(set.urls().keySet()));
+        assertEquals("http://minio/avatars/media/" + hash + "/64.jpg", set.urls().get(64));
+        assertEquals(1, meterRegistry.get("media.dedup.misses").counter().count());
+    }
+
+    @Test
+    void upload_whenSetIsAlreadyStored_shouldOnlyKeepItFromTheGc() throws Exception {
+        when(jdbcTemplate.update("UPDATE media_objects SET updated_at = now() WHERE hash = ?", hash)).thenReturn(1);
+
+        StoredSet set = mediaStore.upload(renditions);
+
+        verify(minioService, never()).uploadFiles(anyMap(), anyString(), anyBoolean());
+        verify(jdbcTemplate, never()).update(startsWith("INSERT"), any(), any());
+        assertEquals("http://minio/avatars/media/" + hash + "/1024.jpg", set.urls().get(1024));
+        assertEquals(320, meterRegistry.get("media.dedup.bytes.saved").counter().count());
+        assertEquals(1.0, meterRegistry.get("media.dedup.ratio").gauge().value());
+    }
+
+    @Test
+    void upload_whenUploadFails_shouldPropagate() throws Exception {
+        when(minioService.uploadFiles(anyMap(), anyString(), eq(false))).thenThrow(new IOException("connection reset"));
+
+        assertThrows(IOException.class, () -> mediaStore.upload(renditions));
+    }
+
+    @Test
+    void acquire_shouldCreateTheRowOrCountOneMoreReference() {
+        mediaStore.acquire(new StoredSet(hash, 320, Map.of()));
+
+        verify(jdbcTemplate).update(startsWith("INSERT INTO media_objects"), eq(hash), eq(320L));
+    }
+
+    @Test
+    void release_shouldLowerTheCountWithoutGoingNegative() {
+        mediaStore.release(hash);
+
+        verify(jdbcTemplate).update(
+                "UPDATE media_objects SET ref_count = ref_count - 1, updated_at = now() WHERE hash = ? AND ref_count > 0", hash);
+    }
+}
@@ -0,0 +1,231 @@
+package com.booker.modules.media.service;
+
+import com.booker.modules.job.entity.JobCheckpoint;
+import com.booker.modules.job.repository.JobCheckpointRepository;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.media.config.MediaProperties;
+import com.booker.services.MinioService;
+import com.booker.services.MinioService.ListedObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.and;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanObjectCollectorTest {
+
+    private static final Instant OLD = Instant.now().minus(10, ChronoUnit.DAYS);
+
+    @Mock
+    private MinioService minioService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Mock
+    private LoggerService loggerService;
+
+    private MediaProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private OrphanObjectCollector collector;
+
+    private final UUID user = UUID.randomUUID();
+    private final UUID deletedUser = UUID.randomUUID();
+    private final UUID upload = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        properties = new MediaProperties();
+        properties.getGc().setPageSize(10);
+        properties.getGc().setRequestsPerSecond(1000);
+        meterRegistry = new SimpleMeterRegistry();
+        collector = new OrphanObjectCollector(minioService, jdbcTemplate, jobCheckpointRepository, loggerService,
+                properties, meterRegistry);
+        lenient().when(jdbcTemplate.update(startsWith("WITH refs"))).thenReturn(0);
+        lenient().when(jobCheckpointRepository.findById(OrphanObjectCollector.JOB_NAME)).thenReturn(Optional.empty());
+        lenient().when(minioService.extractObjectName(anyString())).thenAnswer(invocation ->
+                invocation.<String>getArgument(0).substring("http://minio/avatars/".length()));
+    }
+
+    @Test
+    void collect_shouldDeleteOnlyObjectsNoUserRefersTo() throws Exception {
+        when(minioService.listFiles(null, 10)).thenReturn(List.of(
+                object("avatars/" + deletedUser + "/v1/64.jpg", 100, OLD),
+                object("avatars/" + user + ".png", 1000, OLD),
+                object("avatars/" + user + "/current/1024.jpg", 50, OLD),
+                object("avatars/" + user + "/current/64.jpg", 5, OLD),
+                object("avatars/" + user + "/previous/64.jpg", 10, OLD),
+                object("avatars/" + user + "/fresh/64.jpg", 10, Instant.now()),
+                object("other/readme.txt", 10, OLD),
+                object("uploads/" + user + "/" + upload, 2000, OLD)));
+        stubUsers();
+        when(minioService.deleteFiles(any())).thenReturn(Set.of());
+
+        OrphanObjectCollector.Result result = collector.collect();
+
+        verify(minioService).deleteFiles(List.of(
+                "avatars/" + deletedUser + "/v1/64.jpg",
+                "avatars/" + user + ".png",
+                "avatars/" + user + "/previous/64.jpg",
+                "uploads/" + user + "/" + upload));
+        assertEquals(8, result.listed());
+        assertEquals(4, result.deleted());
+        assertEquals(3110, result.reclaimedBytes());
+        assertEquals(3110, meterRegistry.get("media.gc.reclaimed.bytes").counter().count());
+        verify(jobCheckpointRepository).deleteById(OrphanObjectCollector.JOB_NAME);
+    }
+
+    @Test
+    void collect_shouldPurgeUnreferencedSetsAndDeleteObjectsOfSetsWithoutARow() throws Exception {
+        when(jdbcTemplate.update(startsWith("DELETE FROM media_objects"), any(Timestamp.class))).thenReturn(1);
+        when(minioService.listFiles(null, 10)).thenReturn(List.of(
+                object("media/gone/1024.jpg", 400, OLD),
+                object("media/gone/64.jpg", 20, OLD),
+                object("media/kept/64.jpg", 20, OLD),
+                object("media/fresh/64.jpg", 20, Instant.now())));
+        ResultSet row = mock(ResultSet.class);
+        when(row.getString(1)).thenReturn("kept");
+        doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        when(minioService.deleteFiles(any())).thenReturn(Set.of());
+
+        OrphanObjectCollector.Result result = collector.collect();
+
+        verify(minioService).deleteFiles(List.of("media/gone/1024.jpg", "media/gone/64.jpg"));
+        assertEquals(420, result.reclaimedBytes());
+        // Only the sets were looked up, once to pick the orphans and once right before the delete
+        verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void collect_shouldRecountReferencesFromUsersBeforePurgingSets() throws Exception {
+        when(jdbcTemplate.update(startsWith("WITH refs"))).thenReturn(2);
+        when(minioService.listFiles(null, 10)).thenReturn(List.of());
+
+        collector.collect();
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update(contains("FROM users WHERE profile_image_url LIKE '%/media/%'"));
+        // A set a user still points at is never purged, whatever its count says
+        order.verify(jdbcTemplate).update(and(startsWith("DELETE FROM media_objects"), contains("hash NOT IN (SELECT hash")),
+                any(Timestamp.class));
+        verify(loggerService).warning(eq("Media GC corrected the reference count of {} sets"), eq("OrphanObjectCollector"),
+                any(), eq(2));
+    }
+
+    @Test
+    void collect_whenSetIsStoredAgainBeforeTheDelete_shouldKeepItsObjects() throws Exception {
+        when(minioService.listFiles(null, 10)).thenReturn(List.of(
+                object("media/again/64.jpg", 20, OLD),
+                object("media/gone/64.jpg", 20, OLD)));
+        ResultSet row = mock(ResultSet.class);
+        when(row.getString(1)).thenReturn("again");
+        doNothing().doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        when(minioService.deleteFiles(any())).thenReturn(Set.of());
+
+        OrphanObjectCollector.Result result = collector.collect();
+
+        verify(minioService).deleteFiles(List.of("media/gone/64.jpg"));
+        assertEquals(1, result.deleted());
+        verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void collect_whenSomeDeletesFail_shouldNotCountThem() throws Exception {
+        String orphan = "avatars/" + deletedUser + "/v1/64.jpg";
+        String failing = "avatars/" + deletedUser + "/v1/256.jpg";
+        when(minioService.listFiles(null, 10)).thenReturn(List.of(object(failing, 300, OLD), object(orphan, 100, OLD)));
+        stubUsers();
+        when(minioService.deleteFiles(any())).thenReturn(Set.of(failing));
+
+        OrphanObjectCollector.Result result = collector.collect();
+
+        assertEquals(1, result.deleted());
+        assertEquals(100, result.reclaimedBytes());
+    }
+
+    @Test
+    void collect_shouldResumeFromCheckpointAndSaveOnePerPage() throws Exception {
+        properties.getGc().setPageSize(2);
+        when(jobCheckpointRepository.findById(OrphanObjectCollector.JOB_NAME))
+                .thenReturn(Optional.of(new JobCheckpoint(OrphanObjectCollector.JOB_NAME, "avatars/a")));
+        when(minioService.listFiles("avatars/a", 2)).thenReturn(List.of(object("other/b", 1, OLD), object("other/c", 1, OLD)));
+        when(minioService.listFiles("other/c", 2)).thenReturn(List.of(object("other/d", 1, OLD)));
+
+        OrphanObjectCollector.Result result = collector.collect();
+
+        assertEquals(3, result.listed());
+        assertEquals(0, result.deleted());
+        verify(jobCheckpointRepository, times(2)).save(any(JobCheckpoint.class));
+        verify(minioService, never()).deleteFiles(any());
+        verify(jdbcTemplate, never()).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        verify(jobCheckpointRepository).deleteById(OrphanObjectCollector.JOB_NAME);
+    }
+
+    @Test
+    void collect_whenListingFails_shouldKeepTheCheckpoint() throws Exception {
+        when(minioService.listFiles(any(), anyInt())).thenThrow(new IOException("connection refused"));
+
+        OrphanObjectCollector.Result result = collector.collect();
+
+        assertEquals(0, result.listed());
+        verify(jobCheckpointRepository, never()).deleteById(anyString());
+    }
+
+    @Test
+    void ownerOf_shouldReadTheUserFromKnownLayoutsOnly() {
+        assertEquals(user, OrphanObjectCollector.ownerOf("avatars/" + user + "/v/64.jpg"));
+        assertEquals(user, OrphanObjectCollector.ownerOf("avatars/" + user + ".png"));
+        assertEquals(user, OrphanObjectCollector.ownerOf("uploads/" + user + "/" + UUID.randomUUID()));
+        assertNull(OrphanObjectCollector.ownerOf("avatars/not-a-user/64.jpg"));
+        assertNull(OrphanObjectCollector.ownerOf("backups/" + user));
+    }
+
+    private void stubUsers() throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getString(2)).thenReturn("http://minio/avatars/avatars/" + user + "/current/1024.jpg");
+        when(row.getString(3)).thenReturn("1024,64");
+        doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private static ListedObject object(String name, long size, Instant lastModified) {
+        return new ListedObject(name, size, lastModified);
+    }
+}
@@ -0,0 +1,248 @@
+package com.booker.modules.notification.service;
+
+import com.booker.modules.appointment.entity.Appointment;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.customer.entity.Customer;
+import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.notification.config.NotificationProperties;
+import com.booker.modules.notification.entity.PendingNotification;
+import com.booker.modules.notification.repository.PendingNotificationRepository;
+import com.booker.modules.professional.entity.Professional;
+import com.booker.modules.professional.repository.ProfessionalRepository;
+import com.booker.modules.service.entity.Service;
+import com.booker.modules.service.repository.ServiceRepository;
+import com.booker.services.EmailService;
+import com.booker.services.EmailService.AppointmentUpdate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.booker.modules.notification.entity.PendingNotification.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationAggregatorTest {
+
+    private static final Instant START = Instant.parse("2026-03-14T09:30:00Z");
+
+    @Mock
+    private PendingNotificationRepository pendingNotificationRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private ProfessionalRepository professionalRepository;
+
+    @Mock
+    private ServiceRepository serviceRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private LoggerService loggerService;
+
+    private final NotificationProperties properties = new NotificationProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationAggregator aggregator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties.setZone(ZoneOffset.UTC);
+        properties.setBatchSize(2);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+        aggregator = new NotificationAggregator(pendingNotificationRepository, customerRepository, appointmentRepository,
+                professionalRepository, serviceRepository, emailService, jdbcTemplate, transactionTemplate, loggerService,
+                properties, meterRegistry);
+    }
+
+    @Test
+    void merge_shouldCollapseSupersededChanges() {
+        assertNull(NotificationAggregator.merge(KIND_BOOKED, KIND_CANCELLED));
+        assertEquals(KIND_BOOKED, NotificationAggregator.merge(KIND_BOOKED, KIND_RESCHEDULED));
+        assertEquals(KIND_CANCELLED, NotificationAggregator.merge(KIND_RESCHEDULED, KIND_CANCELLED));
+        assertEquals(KIND_RESCHEDULED, NotificationAggregator.merge(KIND_RESCHEDULED, KIND_RESCHEDULED));
+    }
+
+    @Test
+    void booked_whenNothingBuffered_shouldBufferNewRow() {
+        Appointment appointment = appointment();
+        when(customerRepository.findById(appointment.getCustomer())).thenReturn(Optional.of(customer()));
+        when(pendingNotificationRepository.findByAppointmentIdForUpdate(appointment.getId())).thenReturn(Optional.empty());
+
+        aggregator.booked(appointment);
+
+        ArgumentCaptor<PendingNotification> row = ArgumentCaptor.forClass(PendingNotification.class);
+        verify(pendingNotificationRepository).save(row.capture());
+        assertEquals("mario@example.com", row.getValue().getRecipient());
+        assertEquals("Mario Rossi", row.getValue().getCustomerName());
+        assertEquals(Locale.ENGLISH, row.getValue().getLocale());
+        assertEquals(KIND_BOOKED, row.getValue().getKind());
+        assertEquals(START, row.getValue().getStartTime());
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void cancelled_whenBookingNotAnnouncedYet_shouldDropIt() {
+        Appointment appointment = appointment();
+        PendingNotification buffered = new PendingNotification(appointment.getId(), "mario@example.com", "Mario Rossi",
+                null, KIND_BOOKED, START);
+        when(customerRepository.findById(appointment.getCustomer())).thenReturn(Optional.of(customer()));
+        when(pendingNotificationRepository.findByAppointmentIdForUpdate(appointment.getId())).thenReturn(Optional.of(buffered));
+
+        aggregator.cancelled(appointment);
+
+        verify(pendingNotificationRepository).delete(buffered);
+        verify(pendingNotificationRepository, never()).save(any());
+        assertEquals(1.0, meterRegistry.counter("notifications.coalesced").count());
+    }
+
+    @Test
+    void rescheduled_whenBookingNotAnnouncedYet_shouldKeepBookingAtNewTime() {
+        Appointment appointment = appointment();
+        Instant moved = START.plusSeconds(3600);
+        appointment.setStartTime(moved);
+        PendingNotification buffered = new PendingNotification(appointment.getId(), "mario@example.com", "Mario Rossi",
+                null, KIND_BOOKED, START);
+        when(customerRepository.findById(appointment.getCustomer())).thenReturn(Optional.of(customer()));
+        when(pendingNotificationRepository.findByAppointmentIdForUpdate(appointment.getId())).thenReturn(Optional.of(buffered));
+
+        aggregator.rescheduled(appointment);
+
+        verify(pendingNotificationRepository).save(buffered);
+        assertEquals(KIND_BOOKED, buffered.getKind());
+        assertEquals(moved, buffered.getStartTime());
+    }
+
+    @Test
+    void booked_whenCustomerHasNoEmail_shouldBufferNothing() {
+        Appointment appointment = appointment();
+        when(customerRepository.findById(appointment.getCustomer())).thenReturn(Optional.empty());
+
+        aggregator.booked(appointment);
+
+        verifyNoInteractions(pendingNotificationRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldSendOneEmailPerRecipient() {
+        List<PendingNotification> rows = List.of(
+                row("anna@example.com", KIND_CANCELLED, START.plusSeconds(7200)),
+                row("mario@example.com", Locale.ENGLISH, KIND_BOOKED, START),
+                row("anna@example.com", KIND_BOOKED, START));
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(rows);
+        Professional professional = new Professional();
+        ReflectionTestUtils.setField(professional, "id", UUID.randomUUID());
+        professional.setFirstName("Giulia");
+        professional.setLastName("Bianchi");
+        Service haircut = service("Haircut");
+        Service colour = service("Colour");
+        when(appointmentRepository.findAllById(any())).thenReturn(List.of(
+                appointment(rows.get(0).getAppointmentId(), professional.getId(), colour.getId()),
+                appointment(rows.get(1).getAppointmentId(), professional.getId(), haircut.getId()),
+                appointment(rows.get(2).getAppointmentId(), professional.getId(), haircut.getId())));
+        when(professionalRepository.findAllById(Set.of(professional.getId()))).thenReturn(List.of(professional));
+        when(serviceRepository.findAllById(Set.of(haircut.getId(), colour.getId()))).thenReturn(List.of(haircut, colour));
+        properties.setBatchSize(10);
+
+        assertEquals(2, aggregator.flush());
+
+        // Names for the whole batch come from one query per table
+        verify(appointmentRepository, times(1)).findAllById(any());
+        verify(emailService).sendAppointmentConfirmation(eq("mario@example.com"), eq(Locale.ENGLISH), eq("Cliente mario@example.com"),
+                eq("Giulia Bianchi"), eq("Haircut"), eq(LocalDateTime.of(2026, 3, 14, 9, 30)));
+        ArgumentCaptor<List<AppointmentUpdate>> updates = ArgumentCaptor.forClass(List.class);
+        verify(emailService).sendAppointmentUpdates(eq("anna@example.com"), isNull(), eq("Cliente anna@example.com"), updates.capture());
+        assertEquals(List.of(KIND_BOOKED, KIND_CANCELLED), updates.getValue().stream().map(AppointmentUpdate::kind).toList());
+        assertEquals(List.of("Haircut", "Colour"), updates.getValue().stream().map(AppointmentUpdate::serviceName).toList());
+        assertEquals(2.0, meterRegistry.counter("notifications.sent").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldKeepGoingWhileBatchesAreFull() {
+        when(jdbcTemplate.query(contains("RETURNING"), any(RowMapper.class), any(), any())).thenReturn(
+                List.of(row("a@example.com", KIND_BOOKED, START), row("b@example.com", KIND_BOOKED, START)),
+                List.of(row("c@example.com", KIND_RESCHEDULED, START)));
+
+        assertEquals(3, aggregator.flush());
+
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), any(), any());
+        // An appointment that is gone by now still gets its email, without names
+        verify(emailService).sendAppointmentRescheduled(eq("c@example.com"), isNull(), anyString(), eq("-"), any());
+    }
+
+    private static PendingNotification row(String recipient, String kind, Instant startTime) {
+        return row(recipient, null, kind, startTime);
+    }
+
+    private static PendingNotification row(String recipient, Locale locale, String kind, Instant startTime) {
+        return new PendingNotification(UUID.randomUUID(), recipient, "Cliente " + recipient, locale, kind, startTime);
+    }
+
+    private static Appointment appointment(UUID id, UUID professional, UUID service) {
+        Appointment appointment = new Appointment();
+        ReflectionTestUtils.setField(appointment, "id", id);
+        appointment.setProfessional(professional);
+        appointment.setService(service);
+        return appointment;
+    }
+
+    private static Service service(String name) {
+        Service service = new Service();
+        ReflectionTestUtils.setField(service, "id", UUID.randomUUID());
+        service.setName(name);
+        return service;
+    }
+
+    private static Appointment appointment() {
+        Appointment appointment = new Appointment();
+        ReflectionTestUtils.setField(appointment, "id", UUID.randomUUID());
+        appointment.setStartTime(START);
+        appointment.setCustomer(UUID.randomUUID());
+        return appointment;
+    }
+
+    private static Customer customer() {
+        Customer customer = new Customer();
+        customer.setEmail("mario@example.com");
+        customer.setLocale(Locale.ENGLISH);
+        customer.setFirstName("Mario");
+        customer.setLastName("Rossi");
+        return customer;
+    }
+}
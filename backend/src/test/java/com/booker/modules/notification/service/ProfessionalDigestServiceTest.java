@@ -0,0 +1,165 @@
+package com.booker.modules.notification.service;
+
+import com.booker.modules.appointment.entity.Appointment;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.customer.entity.Customer;
+import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.notification.config.NotificationProperties;
+import com.booker.modules.professional.entity.Professional;
+import com.booker.modules.professional.repository.ProfessionalRepository;
+import com.booker.modules.service.entity.Service;
+import com.booker.modules.service.repository.ServiceRepository;
+import com.booker.services.EmailService;
+import com.booker.services.EmailService.DigestEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProfessionalDigestServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 14);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ProfessionalRepository professionalRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private ServiceRepository serviceRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private LoggerService loggerService;
+
+    private final NotificationProperties properties = new NotificationProperties();
+    private ProfessionalDigestService digestService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties.setZone(ZoneOffset.UTC);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+        digestService = new ProfessionalDigestService(jdbcTemplate, transactionTemplate, professionalRepository,
+                appointmentRepository, customerRepository, serviceRepository, emailService, loggerService, properties);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendDigests_shouldSendTodaysAgendaToClaimedProfessionalsWithAppointments() {
+        Professional busy = professional("busy@example.com");
+        UUID idle = UUID.randomUUID();
+        Customer customer = customer();
+        Service haircut = service("Taglio");
+        when(jdbcTemplate.query(contains("last_digest_on"), any(RowMapper.class), any(), any(), any()))
+                .thenReturn(List.of(busy.getId(), idle));
+        when(appointmentRepository.findByProfessionalInAndStartTimeBetweenOrderByStartTimeAsc(
+                eq(List.of(busy.getId(), idle)), eq(Instant.parse("2026-03-14T00:00:00Z")), any())).thenReturn(List.of(
+                        appointment(busy.getId(), customer.getId(), haircut.getId(), "2026-03-14T09:00:00Z", "BOOKED"),
+                        appointment(busy.getId(), customer.getId(), haircut.getId(), "2026-03-14T10:00:00Z", "CANCELLED"),
+                        appointment(busy.getId(), customer.getId(), null, "2026-03-14T15:30:00Z", "BOOKED")));
+        when(customerRepository.findAllById(Set.of(customer.getId()))).thenReturn(List.of(customer));
+        when(serviceRepository.findAllById(Set.of(haircut.getId()))).thenReturn(List.of(haircut));
+        when(professionalRepository.findAllById(Set.of(busy.getId()))).thenReturn(List.of(busy));
+
+        assertEquals(1, digestService.sendDigests(DAY));
+
+        ArgumentCaptor<List<DigestEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(emailService).sendProfessionalDigest(eq("busy@example.com"), isNull(), eq("Giulia Bianchi"), eq(DAY), entries.capture());
+        assertEquals(List.of(LocalDateTime.of(2026, 3, 14, 9, 0), LocalDateTime.of(2026, 3, 14, 15, 30)),
+                entries.getValue().stream().map(DigestEntry::startTime).toList());
+        assertEquals("Mario Rossi", entries.getValue().get(0).customerName());
+        assertEquals(List.of("Taglio", "-"), entries.getValue().stream().map(DigestEntry::serviceName).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendDigests_whenNobodyLeftToClaim_shouldSendNothing() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, digestService.sendDigests(DAY));
+
+        verifyNoInteractions(appointmentRepository, emailService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendDigests_shouldClaimPagesUntilOneIsNotFull() {
+        properties.getDigest().setPageSize(2);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any()))
+                .thenReturn(List.of(UUID.randomUUID(), UUID.randomUUID()), List.of(UUID.randomUUID()));
+
+        digestService.sendDigests(DAY);
+
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), any(), any(), eq(2));
+        verify(transactionTemplate, times(2)).execute(any());
+    }
+
+    private static Professional professional(String email) {
+        Professional professional = new Professional();
+        ReflectionTestUtils.setField(professional, "id", UUID.randomUUID());
+        professional.setEmail(email);
+        professional.setFirstName("Giulia");
+        professional.setLastName("Bianchi");
+        return professional;
+    }
+
+    private static Customer customer() {
+        Customer customer = new Customer();
+        ReflectionTestUtils.setField(customer, "id", UUID.randomUUID());
+        customer.setFirstName("Mario");
+        customer.setLastName("Rossi");
+        return customer;
+    }
+
+    private static Service service(String name) {
+        Service service = new Service();
+        ReflectionTestUtils.setField(service, "id", UUID.randomUUID());
+        service.setName(name);
+        return service;
+    }
+
+    private static Appointment appointment(UUID professional, UUID customer, UUID service, String startTime, String status) {
+        Appointment appointment = new Appointment();
+        appointment.setService(service);
+        appointment.setProfessional(professional);
+        appointment.setCustomer(customer);
+        appointment.setStartTime(Instant.parse(startTime));
+        appointment.setStatus(status);
+        return appointment;
+    }
+}
@@ -0,0 +1,150 @@
+package com.booker.modules.payment.service;
+
+import com.booker.config.StripeConfig;
+import com.booker.config.StripeHttpProperties;
+import com.booker.config.StripeResilienceProperties;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.service.repository.ServiceRepository;
+import com.booker.modules.idempotency.service.IdempotencyService;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.dto.PaymentUpsertRequest;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.modules.payment.repository.StripeRetryRepository;
+import com.booker.services.EmailService;
+import com.booker.services.JdkStripeHttpClient;
+import com.booker.services.StripeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compares synchronous and asynchronous payment creation against a running stripe-mock.
+ * Start stripe-mock (e.g. {@code docker run -p 12111:12111 stripe/stripe-mock}) and run with
+ * {@code STRIPE_MOCK_URL=http://localhost:12111 mvn test -Dtest=PaymentCreateLoadTest}.
+ * Persistence is stubbed, so the numbers isolate the cost of the Stripe round trip on the request path.
+ */
+@EnabledIfEnvironmentVariable(named = "STRIPE_MOCK_URL", matches = ".+")
+class PaymentCreateLoadTest {
+
+    private static final int CLIENTS = 500;
+    private static final int REQUESTS_PER_CLIENT = 20;
+
+    @Test
+    void create_asyncModeShouldKeepStripeOffTheRequestPath() throws Exception {
+        Result sync = run(false);
+        Result async = run(true);
+
+        System.out.println("sync:  " + sync);
+        System.out.println("async: " + async);
+        assertTrue(async.p99Ms() < sync.p99Ms());
+    }
+
+    private Result run(boolean async) throws Exception {
+        int total = CLIENTS * REQUESTS_PER_CLIENT;
+        CountDownLatch completed = new CountDownLatch(total);
+
+        PaymentRepository paymentRepository = mock(PaymentRepository.class, withSettings().stubOnly());
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> {
+            Payment payment = inv.getArgument(0);
+            if (!async) {
+                completed.countDown();
+            }
+            return payment;
+        });
+        when(paymentRepository.completePending(any(), any(), any())).thenAnswer(inv -> {
+            completed.countDown();
+            return 1;
+        });
+
+        PaymentProperties properties = new PaymentProperties();
+        properties.setAsyncCreate(async);
+        properties.setMaxConcurrentStripeCalls(64);
+        PaymentExecutor executor = new PaymentExecutor(properties);
+        // Let every client reach stripe-mock, the point is to measure the round trip
+        StripeResilienceProperties resilience = new StripeResilienceProperties();
+        resilience.setMaxConcurrentCalls(CLIENTS);
+        PaymentService paymentService = new PaymentService(paymentRepository,
+                mock(AppointmentRepository.class, withSettings().stubOnly()),
+                mock(CustomerRepository.class, withSettings().stubOnly()),
+                mock(ServiceRepository.class, withSettings().stubOnly()),
+                stripeService(resilience),
+                mock(EmailService.class, withSettings().stubOnly()),
+                mock(LoggerService.class, withSettings().stubOnly()),
+                mock(IdempotencyService.class, withSettings().stubOnly()),
+                executor, properties,
+                mock(StripeRetryRepository.class, withSettings().stubOnly()),
+                mock(RevenueService.class, withSettings().stubOnly()),
+                mock(RefundService.class, withSettings().stubOnly()),
+                transactionTemplate());
+
+        long[] latencies = new long[total];
+        AtomicInteger next = new AtomicInteger();
+        long started = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.execute(() -> {
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        PaymentUpsertRequest req = new PaymentUpsertRequest();
+                        req.amountMinor = 2500L;
+                        req.currency = "eur";
+                        req.provider = "stripe";
+                        req.appointment = UUID.randomUUID();
+                        long t0 = System.nanoTime();
+                        paymentService.create(req);
+                        latencies[next.getAndIncrement()] = System.nanoTime() - t0;
+                    }
+                });
+            }
+        }
+        long responded = System.nanoTime() - started;
+        assertTrue(completed.await(5, TimeUnit.MINUTES), "not all payments completed");
+        long finished = System.nanoTime() - started;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        return new Result(
+                latencies[(int) (total * 0.50)] / 1_000_000.0,
+                latencies[(int) (total * 0.99)] / 1_000_000.0,
+                total / (responded / 1e9),
+                total / (finished / 1e9));
+    }
+
+    private record Result(double p50Ms, double p99Ms, double responsesPerSecond, double completionsPerSecond) {
+        @Override
+        public String toString() {
+            return String.format("p50=%.1fms p99=%.1fms responses/s=%.0f completed/s=%.0f",
+                    p50Ms, p99Ms, responsesPerSecond, completionsPerSecond);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TransactionTemplate transactionTemplate() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class, withSettings().stubOnly());
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+        return transactionTemplate;
+    }
+
+    private static StripeService stripeService(StripeResilienceProperties resilience) {
+        JdkStripeHttpClient transport = new JdkStripeHttpClient(new StripeHttpProperties(), resilience.getConnectTimeoutMs(),
+                new SimpleMeterRegistry());
+        return new StripeService(
+                StripeConfig.createClient("sk_test_123", System.getenv("STRIPE_MOCK_URL"), transport, resilience, 0), resilience);
+    }
+}
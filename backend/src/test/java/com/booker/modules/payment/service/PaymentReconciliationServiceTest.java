@@ -0,0 +1,144 @@
+package com.booker.modules.payment.service;
+
+import com.booker.modules.job.entity.JobCheckpoint;
+import com.booker.modules.job.repository.JobCheckpointRepository;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.services.StripeService;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.PaymentIntent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentReconciliationServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Mock
+    private StripeService stripeService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private LoggerService loggerService;
+
+    @Mock
+    private RevenueService revenueService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentReconciliationService reconciliationService;
+
+    @BeforeEach
+    void setUp() {
+        PaymentProperties properties = new PaymentProperties();
+        properties.getReconciliation().setPageSize(2);
+        properties.getReconciliation().setRequestsPerSecond(1000);
+        meterRegistry = new SimpleMeterRegistry();
+        reconciliationService = new PaymentReconciliationService(paymentRepository, jobCheckpointRepository,
+                stripeService, jdbcTemplate, loggerService, revenueService, properties, meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_shouldBatchDriftedStatusesPerPageAndCheckpoint() throws Exception {
+        Payment first = payment("pi_1", "processing");
+        Payment second = payment("pi_2", "requires_payment_method");
+        Payment third = payment("pi_3", "processing");
+        when(jobCheckpointRepository.findById(PaymentReconciliationService.JOB_NAME)).thenReturn(Optional.empty());
+        when(paymentRepository.findOpenAfter(any(), any(), any()))
+                .thenReturn(List.of(first, second), List.of(third), List.of());
+        stubIntent("pi_1", "succeeded");
+        stubIntent("pi_2", "requires_payment_method");
+        stubIntent("pi_3", "canceled");
+        when(jdbcTemplate.batchUpdate(anyString(), any(List.class))).thenReturn(new int[] {1});
+
+        PaymentReconciliationService.Result result = reconciliationService.reconcile();
+
+        assertEquals(3, result.checked());
+        assertEquals(2, result.fixed());
+        assertEquals(0, result.errors());
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        assertArrayEquals(new Object[] {"succeeded", first.getId(), "processing"}, batches.getAllValues().get(0).get(0));
+        assertArrayEquals(new Object[] {"canceled", third.getId(), "processing"}, batches.getAllValues().get(1).get(0));
+        ArgumentCaptor<List<RevenueService.Change>> changes = ArgumentCaptor.forClass(List.class);
+        verify(revenueService, times(2)).apply(changes.capture());
+        RevenueService.Change change = changes.getAllValues().get(0).get(0);
+        assertEquals("processing", change.before().status());
+        assertEquals("succeeded", change.after().status());
+        verify(jobCheckpointRepository, times(2)).save(any(JobCheckpoint.class));
+        verify(jobCheckpointRepository).deleteById(PaymentReconciliationService.JOB_NAME);
+        assertEquals(3.0, meterRegistry.counter("payments.reconciliation.checked").count());
+        assertEquals(2.0, meterRegistry.counter("payments.reconciliation.fixed").count());
+    }
+
+    @Test
+    void reconcile_shouldResumeFromCheckpoint() {
+        UUID cursor = UUID.randomUUID();
+        when(jobCheckpointRepository.findById(PaymentReconciliationService.JOB_NAME))
+                .thenReturn(Optional.of(new JobCheckpoint(PaymentReconciliationService.JOB_NAME, cursor.toString())));
+        when(paymentRepository.findOpenAfter(any(), any(), any())).thenReturn(List.of());
+
+        reconciliationService.reconcile();
+
+        verify(paymentRepository).findOpenAfter(eq(cursor), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_whenStripeCallFails_shouldCountErrorAndContinue() throws Exception {
+        Payment failing = payment("pi_1", "processing");
+        Payment drifted = payment("pi_2", "processing");
+        when(jobCheckpointRepository.findById(PaymentReconciliationService.JOB_NAME)).thenReturn(Optional.empty());
+        when(paymentRepository.findOpenAfter(any(), any(), any())).thenReturn(List.of(failing, drifted), List.of());
+        when(stripeService.retrievePaymentIntent("pi_1")).thenThrow(new ApiConnectionException("timeout"));
+        stubIntent("pi_2", "succeeded");
+        when(jdbcTemplate.batchUpdate(anyString(), any(List.class))).thenReturn(new int[] {1});
+
+        PaymentReconciliationService.Result result = reconciliationService.reconcile();
+
+        assertEquals(2, result.checked());
+        assertEquals(1, result.fixed());
+        assertEquals(1, result.errors());
+        assertEquals(1.0, meterRegistry.counter("payments.reconciliation.errors").count());
+    }
+
+    private void stubIntent(String id, String status) throws Exception {
+        PaymentIntent intent = new PaymentIntent();
+        intent.setId(id);
+        intent.setStatus(status);
+        when(stripeService.retrievePaymentIntent(id)).thenReturn(intent);
+    }
+
+    private static Payment payment(String intentId, String status) {
+        Payment payment = new Payment();
+        ReflectionTestUtils.setField(payment, "id", UUID.randomUUID());
+        payment.setStripePaymentIntentId(intentId);
+        payment.setStatus(status);
+        return payment;
+    }
+}
@@ -0,0 +1,92 @@
+package com.booker.modules.payment.service;
+
+import com.booker.config.StripeConfig;
+import com.booker.config.StripeHttpProperties;
+import com.booker.config.StripeResilienceProperties;
+import com.booker.modules.job.repository.JobCheckpointRepository;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.services.JdkStripeHttpClient;
+import com.booker.services.StripeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs a full reconciliation against a running stripe-mock, with the database stubbed.
+ * Start stripe-mock (e.g. {@code docker run -p 12111:12111 stripe/stripe-mock}) and run with
+ * {@code STRIPE_MOCK_URL=http://localhost:12111 mvn test -Dtest=PaymentReconciliationStripeMockTest}.
+ */
+@EnabledIfEnvironmentVariable(named = "STRIPE_MOCK_URL", matches = ".+")
+class PaymentReconciliationStripeMockTest {
+
+    private static final int PAYMENTS = 2000;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_shouldCheckEveryOpenPayment() {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            Payment payment = new Payment();
+            ReflectionTestUtils.setField(payment, "id", new UUID(0L, i + 1L));
+            payment.setStripePaymentIntentId("pi_" + i);
+            payment.setStatus("reconciliation_test");
+            payments.add(payment);
+        }
+
+        PaymentProperties properties = new PaymentProperties();
+        properties.getReconciliation().setPageSize(250);
+        properties.getReconciliation().setMaxConcurrency(32);
+        properties.getReconciliation().setRequestsPerSecond(1000);
+
+        PaymentRepository paymentRepository = mock(PaymentRepository.class);
+        when(paymentRepository.findOpenAfter(any(), any(), any())).thenAnswer(inv -> {
+            UUID after = inv.getArgument(0);
+            int from = (int) after.getLeastSignificantBits();
+            return payments.subList(Math.min(from, PAYMENTS), Math.min(from + 250, PAYMENTS));
+        });
+        JobCheckpointRepository checkpoints = mock(JobCheckpointRepository.class);
+        when(checkpoints.findById(anyString())).thenReturn(Optional.empty());
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        AtomicInteger updated = new AtomicInteger();
+        when(jdbcTemplate.batchUpdate(anyString(), any(List.class))).thenAnswer(inv -> {
+            List<Object[]> rows = inv.getArgument(1);
+            updated.addAndGet(rows.size());
+            return new int[rows.size()];
+        });
+
+        PaymentReconciliationService service = new PaymentReconciliationService(paymentRepository, checkpoints,
+                stripeService(new StripeResilienceProperties()), jdbcTemplate, mock(LoggerService.class), mock(RevenueService.class), properties, new SimpleMeterRegistry());
+
+        PaymentReconciliationService.Result result = service.reconcile();
+
+        System.out.println("reconciled " + result.checked() + " payments in " + result.elapsedMs() + " ms, "
+                + (result.checked() * 1000 / Math.max(1, result.elapsedMs())) + "/s");
+        assertEquals(PAYMENTS, result.checked());
+        assertEquals(0, result.errors());
+        // Every payment carries a status stripe-mock never returns, so each one is rewritten
+        assertEquals(PAYMENTS, updated.get());
+    }
+
+    private static StripeService stripeService(StripeResilienceProperties resilience) {
+        JdkStripeHttpClient transport = new JdkStripeHttpClient(new StripeHttpProperties(), resilience.getConnectTimeoutMs(),
+                new SimpleMeterRegistry());
+        return new StripeService(
+                StripeConfig.createClient("sk_test_123", System.getenv("STRIPE_MOCK_URL"), transport, resilience, 0), resilience);
+    }
+}
@@ -6,26 +6,41 @@ import com.booker.modules.appointment.entity.Appointment;
 import com.booker.modules.appointment.repository.AppointmentRepository;
 import com.booker.modules.customer.entity.Customer;
 import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.service.repository.ServiceRepository;
+import com.booker.modules.idempotency.service.IdempotencyService;
 import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
 import com.booker.modules.payment.dto.PaymentDto;
 import com.booker.modules.payment.dto.PaymentUpsertRequest;
 import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.entity.StripeRetry;
 import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.modules.payment.repository.StripeRetryRepository;
 import com.booker.services.EmailService;
 import com.booker.services.StripeService;
+import com.booker.services.StripeUnavailableException;
 import com.booker.utils.base.Response;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -44,6 +59,9 @@ class PaymentServiceTest {
     @Mock
     private CustomerRepository customerRepository;
 
+    @Mock
+    private ServiceRepository serviceRepository;
+
     @Mock
     private StripeService stripeService;
 
@@ -53,9 +71,37 @@ class PaymentServiceTest {
     @Mock
     private LoggerService loggerService;
 
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private PaymentExecutor paymentExecutor;
+
+    @Mock
+    private StripeRetryRepository stripeRetryRepository;
+
+    @Mock
+    private RevenueService revenueService;
+
+    @Mock
+    private RefundService refundService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private PaymentProperties paymentProperties = new PaymentProperties();
+
     @InjectMocks
     private PaymentService paymentService;
 
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+    }
+
     @Test
     void list_shouldReturnAllPayments() {
         Payment payment1 = createTestPayment();
@@ -99,7 +145,7 @@ class PaymentServiceTest {
     @Test
     void create_shouldCreatePaymentAndProcessWithStripe() throws StripeException {
         PaymentUpsertRequest request = new PaymentUpsertRequest();
-        request.amount = 100.00;
+        request.amountMinor = 10000L;
         request.currency = "USD";
         request.status = "PENDING";
         request.provider = "STRIPE";
@@ -107,6 +153,9 @@ class PaymentServiceTest {
         
         Appointment appointment = new Appointment();
         appointment.setCustomer(UUID.randomUUID());
+        appointment.setService(UUID.randomUUID());
+        com.booker.modules.service.entity.Service service = new com.booker.modules.service.entity.Service();
+        service.setName("Haircut");
         
         Customer customer = new Customer();
         customer.setEmail("customer@example.com");
@@ -122,25 +171,26 @@ class PaymentServiceTest {
         when(paymentIntent.getId()).thenReturn("pi_test123");
         when(paymentIntent.getStatus()).thenReturn("succeeded");
         
-        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), anyString(), any())).thenReturn(paymentIntent);
+        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), any())).thenReturn(paymentIntent);
         when(paymentRepository.save(any(Payment.class))).thenReturn(savedPayment);
         when(appointmentRepository.findById(request.appointment)).thenReturn(Optional.of(appointment));
         when(customerRepository.findById(appointment.getCustomer())).thenReturn(Optional.of(customer));
+        when(serviceRepository.findById(appointment.getService())).thenReturn(Optional.of(service));
 
         Response<PaymentDto> response = paymentService.create(request);
 
         assertTrue(response.status);
         assertEquals(SuccessCodes.PAYMENT_PROCESSED, response.message);
         verify(paymentRepository).save(any(Payment.class));
-        verify(stripeService).createPaymentIntentFromBooking(any(), anyString(), anyString(), anyString(), any());
-        verify(emailService).sendPaymentConfirmation(anyString(), anyString(), anyString(), anyString());
-        verify(loggerService).success(anyString(), anyString());
+        verify(stripeService).createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), any());
+        verify(emailService).sendPaymentConfirmation(anyString(), any(), anyString(), anyString(), eq("Haircut"));
+        verify(loggerService).success(anyString(), anyString(), anyMap(), any(Object[].class));
     }
 
     @Test
     void create_whenStripeException_shouldReturnPaymentFailed() throws StripeException {
         PaymentUpsertRequest request = new PaymentUpsertRequest();
-        request.amount = 100.00;
+        request.amountMinor = 10000L;
         request.currency = "USD";
         request.status = "PENDING";
         request.provider = "STRIPE";
@@ -155,7 +205,7 @@ class PaymentServiceTest {
         Payment savedPayment = createTestPayment();
         savedPayment.setStatus("failed");
         
-        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), anyString(), any()))
+        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), any()))
                 .thenThrow(new StripeException("Payment failed", "req_123", "code", 400) {});
         when(paymentRepository.save(any(Payment.class))).thenReturn(savedPayment);
 
@@ -164,38 +214,285 @@ class PaymentServiceTest {
         assertTrue(response.status);
         assertEquals(SuccessCodes.PAYMENT_PROCESSED, response.message);
         verify(paymentRepository).save(any(Payment.class));
-        verify(loggerService).error(anyString(), anyString());
-        verify(loggerService).success(anyString(), anyString());
+        verify(loggerService).error(anyString(), anyString(), anyMap(), any(Object[].class));
+        verify(loggerService).success(anyString(), anyString(), anyMap(), any(Object[].class));
+    }
+
+    @Test
+    void create_withIdempotencyKey_shouldGoThroughIdempotencyService() {
+        PaymentUpsertRequest req = new PaymentUpsertRequest();
+        req.amountMinor = 5000L;
+        req.currency = "EUR";
+        req.provider = "stripe";
+        req.appointment = UUID.randomUUID();
+
+        Response<PaymentDto> replayed = new Response<>(true, null, SuccessCodes.PAYMENT_PROCESSED);
+        when(idempotencyService.<PaymentDto>execute(eq("payments.create"), eq("key-1"), anyString(), any(), any(), any()))
+                .thenReturn(replayed);
+
+        Response<PaymentDto> result = paymentService.create(req, "key-1");
+
+        assertSame(replayed, result);
+        verifyNoInteractions(stripeService);
+        verify(paymentRepository, never()).save(any());
     }
 
     @Test
-    void delete_whenPaymentExists_shouldRefundAndDelete() throws StripeException {
+    void create_whenAsync_shouldSavePendingAndCallStripeInBackground() {
+        paymentProperties.setAsyncCreate(true);
+        PaymentUpsertRequest req = new PaymentUpsertRequest();
+        req.amountMinor = 5000L;
+        req.currency = "EUR";
+        req.provider = "stripe";
+        req.appointment = UUID.randomUUID();
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Response<PaymentDto> response = paymentService.create(req);
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.PAYMENT_PENDING, response.message);
+        assertEquals("pending", response.data.status);
+        verify(paymentExecutor).submit(any(Runnable.class));
+        verifyNoInteractions(stripeService);
+        // The Stripe call is queued with the payment, leased to this instance's background task
+        ArgumentCaptor<StripeRetry> queued = ArgumentCaptor.forClass(StripeRetry.class);
+        verify(stripeRetryRepository).save(queued.capture());
+        assertTrue(queued.getValue().getNextAttemptAt().isAfter(Instant.now().plusSeconds(30)));
+    }
+
+    @Test
+    void create_whenAsyncTaskCompletes_shouldRemoveTheQueueEntry() throws StripeException {
+        paymentProperties.setAsyncCreate(true);
         UUID paymentId = UUID.randomUUID();
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> {
+            Payment payment = inv.getArgument(0);
+            ReflectionTestUtils.setField(payment, "id", paymentId);
+            return payment;
+        });
+        PaymentIntent paymentIntent = mock(PaymentIntent.class);
+        when(paymentIntent.getId()).thenReturn("pi_async");
+        when(paymentIntent.getStatus()).thenReturn("requires_payment_method");
+        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), eq("payments.create:" + paymentId)))
+                .thenReturn(paymentIntent);
+        when(paymentRepository.completePending(paymentId, "pi_async", "requires_payment_method")).thenReturn(1);
+
+        paymentService.create(asyncRequest());
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(paymentExecutor).submit(task.capture());
+        task.getValue().run();
+
+        verify(stripeRetryRepository).deleteById(paymentId);
+    }
+
+    @Test
+    void create_whenBackgroundExecutorRejects_shouldLeaveThePaymentToTheQueue() {
+        paymentProperties.setAsyncCreate(true);
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
+        doThrow(new RejectedExecutionException("shutting down")).when(paymentExecutor).submit(any(Runnable.class));
+
+        Response<PaymentDto> response = paymentService.create(asyncRequest());
+
+        assertEquals(SuccessCodes.PAYMENT_PENDING, response.message);
+        verify(stripeRetryRepository).save(any(StripeRetry.class));
+        verify(stripeRetryRepository, never()).deleteById(any());
+    }
+
+    private static PaymentUpsertRequest asyncRequest() {
+        PaymentUpsertRequest req = new PaymentUpsertRequest();
+        req.amountMinor = 5000L;
+        req.currency = "EUR";
+        req.provider = "stripe";
+        req.appointment = UUID.randomUUID();
+        return req;
+    }
+
+    @Test
+    void completePending_shouldWriteBackStatusAndSendEmail() throws StripeException {
         Payment payment = createTestPayment();
-        payment.setStripePaymentIntentId("pi_test123");
-        payment.setStatus("succeeded");
-        payment.setAppointment(UUID.randomUUID());
-        
+        payment.setStatus("pending");
         Appointment appointment = new Appointment();
         appointment.setCustomer(UUID.randomUUID());
-        
         Customer customer = new Customer();
         customer.setEmail("customer@example.com");
-        customer.setFirstName("John");
-        customer.setLastName("Doe");
-        
-        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+
+        PaymentIntent paymentIntent = mock(PaymentIntent.class);
+        when(paymentIntent.getId()).thenReturn("pi_async");
+        when(paymentIntent.getStatus()).thenReturn("succeeded");
+        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), any())).thenReturn(paymentIntent);
+        when(paymentRepository.completePending(any(), eq("pi_async"), eq("succeeded"))).thenReturn(1);
         when(appointmentRepository.findById(payment.getAppointment())).thenReturn(Optional.of(appointment));
         when(customerRepository.findById(appointment.getCustomer())).thenReturn(Optional.of(customer));
 
+        paymentService.completePending(payment, null);
+
+        assertEquals("succeeded", payment.getStatus());
+        verify(emailService).sendPaymentConfirmation(anyString(), any(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void completePending_whenStripeFails_shouldMarkFailed() throws StripeException {
+        Payment payment = createTestPayment();
+        payment.setStatus("pending");
+        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), any()))
+                .thenThrow(new RuntimeException("timeout"));
+        when(paymentRepository.completePending(any(), isNull(), eq("failed"))).thenReturn(1);
+
+        paymentService.completePending(payment, null);
+
+        assertEquals("failed", payment.getStatus());
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void create_whenStripeUnavailable_shouldParkPendingPayment() throws StripeException {
+        PaymentUpsertRequest req = new PaymentUpsertRequest();
+        req.amountMinor = 5000L;
+        req.currency = "EUR";
+        req.provider = "stripe";
+        req.appointment = UUID.randomUUID();
+        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), any()))
+                .thenThrow(new StripeUnavailableException("Stripe circuit breaker is open"));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Response<PaymentDto> response = paymentService.create(req);
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.PAYMENT_PENDING, response.message);
+        assertEquals("pending", response.data.status);
+        ArgumentCaptor<StripeRetry> retry = ArgumentCaptor.forClass(StripeRetry.class);
+        verify(stripeRetryRepository).save(retry.capture());
+        assertEquals(1, retry.getValue().getAttempts());
+        assertTrue(retry.getValue().getIdempotencyKey().startsWith("payments.create:"));
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void completePending_whenStripeUnavailable_shouldStayPendingAndBackOff() throws StripeException {
+        Payment payment = createTestPayment();
+        payment.setStatus("pending");
+        StripeRetry parked = new StripeRetry(payment.getId(), "key-1");
+        parked.scheduleRetry("first");
+        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), eq("key-1")))
+                .thenThrow(new StripeUnavailableException("Stripe circuit breaker is open"));
+        when(stripeRetryRepository.findById(any())).thenReturn(Optional.of(parked));
+
+        paymentService.completePending(payment, "key-1");
+
+        assertEquals("pending", payment.getStatus());
+        assertEquals(2, parked.getAttempts());
+        verify(stripeRetryRepository).save(parked);
+        verify(paymentRepository, never()).completePending(any(), any(), anyString());
+    }
+
+    @Test
+    void completePending_whenNoLongerPending_shouldNotSendEmail() throws StripeException {
+        Payment payment = createTestPayment();
+        payment.setStatus("pending");
+        PaymentIntent paymentIntent = mock(PaymentIntent.class);
+        when(paymentIntent.getStatus()).thenReturn("succeeded");
+        when(stripeService.createPaymentIntentFromBooking(any(), anyString(), anyString(), any(), any())).thenReturn(paymentIntent);
+        when(paymentRepository.completePending(any(), any(), anyString())).thenReturn(0);
+
+        paymentService.completePending(payment, null);
+
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void update_shouldLockThePaymentAndApplyTheRevenueDeltaInTheSameTransaction() {
+        UUID paymentId = UUID.randomUUID();
+        Payment payment = createTestPayment();
+        PaymentUpsertRequest req = new PaymentUpsertRequest();
+        req.amountMinor = 12000L;
+        req.currency = "USD";
+        req.status = "succeeded";
+        req.provider = "STRIPE";
+        req.appointment = payment.getAppointment();
+
+        when(paymentRepository.findByIdForUpdate(paymentId)).thenReturn(Optional.of(payment));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Response<PaymentDto> response = paymentService.update(paymentId, req);
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.PAYMENT_UPDATED, response.message);
+        verify(paymentRepository, never()).findById(any());
+        InOrder order = inOrder(transactionTemplate, paymentRepository, revenueService);
+        order.verify(transactionTemplate).execute(any());
+        order.verify(paymentRepository).findByIdForUpdate(paymentId);
+        order.verify(paymentRepository).save(payment);
+        order.verify(revenueService).onChange(argThat(before -> before.amountMinor() == 10000),
+                argThat(after -> after.amountMinor() == 12000));
+    }
+
+    @Test
+    void update_whenPaymentNotFound_shouldReturnError() {
+        UUID paymentId = UUID.randomUUID();
+        when(paymentRepository.findByIdForUpdate(paymentId)).thenReturn(Optional.empty());
+
+        Response<PaymentDto> response = paymentService.update(paymentId, new PaymentUpsertRequest());
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.RESOURCE_NOT_FOUND, response.message);
+        verifyNoInteractions(revenueService);
+    }
+
+    @Test
+    void delete_whenPaymentPaid_shouldQueueRefundAndKeepRow() throws StripeException {
+        UUID paymentId = UUID.randomUUID();
+        Payment payment = createTestPayment();
+        payment.setStripePaymentIntentId("pi_test123");
+        payment.setStatus("succeeded");
+
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(refundService.request(paymentId, null, RefundService.DEFAULT_REASON))
+                .thenReturn(new Response<>(true, null, SuccessCodes.REFUND_QUEUED));
+
+        Response<Void> response = paymentService.delete(paymentId);
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.REFUND_QUEUED, response.message);
+        verify(paymentRepository, never()).deleteById(any());
+        verify(stripeService, never()).createRefund(anyString(), any(), any(), any());
+        verifyNoInteractions(emailService, revenueService);
+    }
+
+    @Test
+    void delete_whenRefundRejected_shouldReturnItsError() {
+        UUID paymentId = UUID.randomUUID();
+        Payment payment = createTestPayment();
+        payment.setStripePaymentIntentId("pi_test123");
+        payment.setStatus("partially_refunded");
+
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(refundService.request(paymentId, null, RefundService.DEFAULT_REASON))
+                .thenReturn(new Response<>(false, null, ErrorCodes.INVALID_REQUEST_DATA));
+
+        Response<Void> response = paymentService.delete(paymentId);
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, response.message);
+    }
+
+    @Test
+    void delete_whenPaymentNotPaid_shouldMarkCanceled() {
+        UUID paymentId = UUID.randomUUID();
+        Payment payment = createTestPayment();
+        payment.setStripePaymentIntentId("pi_test123");
+        payment.setStatus("requires_payment_method");
+
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
+
         Response<Void> response = paymentService.delete(paymentId);
 
         assertTrue(response.status);
         assertEquals(SuccessCodes.PAYMENT_DELETED, response.message);
-        verify(stripeService).refundPaymentIntent("pi_test123");
-        verify(paymentRepository).deleteById(paymentId);
-        verify(emailService).sendRefundConfirmation(anyString(), anyString(), anyString(), anyString());
-        verify(loggerService).success(anyString(), anyString());
+        assertEquals("canceled", payment.getStatus());
+        verify(paymentRepository, never()).deleteById(any());
+        verifyNoInteractions(refundService);
+        verify(revenueService).onChange(argThat(before -> "requires_payment_method".equals(before.status())),
+                argThat(after -> "canceled".equals(after.status())));
     }
 
     @Test
@@ -211,7 +508,7 @@ class PaymentServiceTest {
 
     private Payment createTestPayment() {
         Payment payment = new Payment();
-        payment.setAmount(100.00);
+        payment.setAmountMinor(10000);
         payment.setCurrency("USD");
         payment.setStatus("succeeded");
         payment.setProvider("STRIPE");
@@ -0,0 +1,250 @@
+package com.booker.modules.payment.service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.customer.repository.CustomerRepository;
+import com.booker.modules.service.repository.ServiceRepository;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.dto.RefundDto;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.entity.RefundJob;
+import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.modules.payment.repository.RefundJobRepository;
+import com.booker.services.EmailService;
+import com.booker.services.StripeService;
+import com.booker.services.StripeUnavailableException;
+import com.booker.utils.base.Response;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.Refund;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefundServiceTest {
+
+    @Mock
+    private RefundJobRepository refundJobRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private ServiceRepository serviceRepository;
+
+    @Mock
+    private StripeService stripeService;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private RevenueService revenueService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private LoggerService loggerService;
+
+    private RefundService refundService;
+    private Payment payment;
+    private final UUID paymentId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        refundService = new RefundService(refundJobRepository, paymentRepository, appointmentRepository, customerRepository,
+                serviceRepository, stripeService, emailService, revenueService, jdbcTemplate, transactionTemplate, loggerService,
+                new PaymentProperties());
+
+        payment = new Payment();
+        ReflectionTestUtils.setField(payment, "id", paymentId);
+        payment.setAmountMinor(10000);
+        payment.setCurrency("EUR");
+        payment.setStatus("succeeded");
+        payment.setProvider("stripe");
+        payment.setAppointment(UUID.randomUUID());
+        payment.setStripePaymentIntentId("pi_paid");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        refundService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void request_withoutAmount_shouldQueueEverythingNotYetRefundedOrQueued() {
+        inTransaction();
+        payment.applyRefund(2000);
+        when(paymentRepository.findByIdForUpdate(paymentId)).thenReturn(Optional.of(payment));
+        when(refundJobRepository.sumAmountMinor(eq(paymentId), anyCollection())).thenReturn(3000L);
+        when(refundJobRepository.save(any(RefundJob.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Response<RefundDto> response = refundService.request(paymentId, null, null);
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.REFUND_QUEUED, response.message);
+        assertEquals(5000L, response.data.amountMinor);
+        assertEquals(RefundJob.STATUS_QUEUED, response.data.status);
+        assertEquals(RefundService.DEFAULT_REASON, response.data.reason);
+    }
+
+    @Test
+    void request_whenAmountExceedsWhatIsLeft_shouldReject() {
+        inTransaction();
+        when(paymentRepository.findByIdForUpdate(paymentId)).thenReturn(Optional.of(payment));
+        when(refundJobRepository.sumAmountMinor(eq(paymentId), anyCollection())).thenReturn(8000L);
+
+        Response<RefundDto> response = refundService.request(paymentId, 3000L, "duplicate");
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, response.message);
+        verify(refundJobRepository, never()).save(any());
+    }
+
+    @Test
+    void request_whenPaymentNotPaid_shouldNotBeAllowed() {
+        inTransaction();
+        payment.setStatus("requires_payment_method");
+        when(paymentRepository.findByIdForUpdate(paymentId)).thenReturn(Optional.of(payment));
+
+        Response<RefundDto> response = refundService.request(paymentId, 1000L, null);
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.OPERATION_NOT_ALLOWED, response.message);
+        verify(refundJobRepository, never()).save(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void process_whenStripeConfirms_shouldApplyRefundToPaymentAndRevenue() throws Exception {
+        inTransaction();
+        RefundService.Claim claim = claim(3000, 1);
+        Refund refund = new Refund();
+        refund.setId("re_1");
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(paymentRepository.findByIdForUpdate(paymentId)).thenReturn(Optional.of(payment));
+        when(stripeService.createRefund("pi_paid", 3000L, "requested_by_customer", "refunds:" + claim.id())).thenReturn(refund);
+        when(jdbcTemplate.update(contains("status = 'succeeded'"), eq("re_1"), eq(claim.id()))).thenReturn(1);
+
+        assertTrue(refundService.process(claim));
+
+        assertEquals("partially_refunded", payment.getStatus());
+        assertEquals(3000L, payment.getRefundedMinor());
+        verify(paymentRepository).save(payment);
+        ArgumentCaptor<List<RevenueService.Change>> changes = ArgumentCaptor.forClass(List.class);
+        verify(revenueService).apply(changes.capture());
+        RevenueService.Change change = changes.getValue().get(0);
+        assertEquals(10000L, change.before().amountMinor());
+        assertEquals(7000L, change.after().amountMinor());
+    }
+
+    @Test
+    void process_whenAlreadyRecordedByAnotherWorker_shouldNotApplyTwice() throws Exception {
+        inTransaction();
+        RefundService.Claim claim = claim(3000, 2);
+        Refund refund = new Refund();
+        refund.setId("re_1");
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(stripeService.createRefund(anyString(), anyLong(), anyString(), anyString())).thenReturn(refund);
+        when(jdbcTemplate.update(contains("status = 'succeeded'"), eq("re_1"), eq(claim.id()))).thenReturn(0);
+
+        assertFalse(refundService.process(claim));
+
+        assertEquals(0L, payment.getRefundedMinor());
+        verify(paymentRepository, never()).save(any());
+        verifyNoInteractions(revenueService, emailService);
+    }
+
+    @Test
+    void process_whenStripeUnavailable_shouldRescheduleWithBackoff() throws Exception {
+        RefundService.Claim claim = claim(3000, 3);
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(stripeService.createRefund(anyString(), anyLong(), anyString(), anyString()))
+                .thenThrow(new StripeUnavailableException("Stripe circuit breaker is open"));
+
+        assertFalse(refundService.process(claim));
+
+        ArgumentCaptor<Timestamp> nextAttempt = ArgumentCaptor.forClass(Timestamp.class);
+        verify(jdbcTemplate).update(contains("status = 'queued'"), nextAttempt.capture(), eq("Stripe circuit breaker is open"), eq(claim.id()));
+        // Third attempt: 5s doubled twice
+        long delay = Duration.between(Instant.now(), nextAttempt.getValue().toInstant()).toSeconds();
+        assertTrue(delay >= 18 && delay <= 20, "unexpected delay " + delay);
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void process_whenAttemptsExhausted_shouldFail() throws Exception {
+        RefundService.Claim claim = claim(3000, new PaymentProperties().getRefund().getMaxAttempts());
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(stripeService.createRefund(anyString(), anyLong(), anyString(), anyString()))
+                .thenThrow(new StripeUnavailableException("Too many concurrent Stripe calls"));
+
+        refundService.process(claim);
+
+        verify(jdbcTemplate).update(contains("status = 'failed'"), eq("Too many concurrent Stripe calls"), eq(claim.id()));
+        verify(jdbcTemplate, never()).update(contains("status = 'queued'"), any(), any(), any());
+    }
+
+    @Test
+    void process_whenStripeRejectsRefund_shouldFailWithoutRetry() throws Exception {
+        RefundService.Claim claim = claim(3000, 1);
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        when(stripeService.createRefund(anyString(), anyLong(), anyString(), anyString()))
+                .thenThrow(new InvalidRequestException("Charge already refunded", null, "req_1", "charge_already_refunded", 400, null));
+
+        refundService.process(claim);
+
+        verify(jdbcTemplate).update(contains("status = 'failed'"), contains("already refunded"), eq(claim.id()));
+        verify(jdbcTemplate, never()).update(contains("status = 'queued'"), any(), any(), any());
+    }
+
+    @Test
+    void processDue_whenCircuitOpen_shouldNotClaimJobs() {
+        when(stripeService.isAvailable()).thenReturn(false);
+
+        assertEquals(0, refundService.processDue());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void inTransaction() {
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+    }
+
+    private RefundService.Claim claim(long amountMinor, int attempts) {
+        return new RefundService.Claim(UUID.randomUUID(), paymentId, amountMinor, "EUR", "requested_by_customer", attempts);
+    }
+}
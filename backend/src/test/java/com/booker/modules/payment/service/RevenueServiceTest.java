@@ -0,0 +1,172 @@
+package com.booker.modules.payment.service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.appointment.entity.Appointment;
+import com.booker.modules.appointment.repository.AppointmentRepository;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.dto.RevenueDto;
+import com.booker.modules.payment.repository.RevenueDailyRepository;
+import com.booker.utils.base.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevenueServiceTest {
+
+    private static final Instant MAY_2 = Instant.parse("2025-05-02T10:15:00Z");
+    private static final Instant MAY_3 = Instant.parse("2025-05-03T23:59:00Z");
+
+    @Mock
+    private RevenueDailyRepository revenueDailyRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private LoggerService loggerService;
+
+    private RevenueService revenueService;
+    private final UUID professional = UUID.randomUUID();
+    private final UUID appointmentId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        revenueService = new RevenueService(revenueDailyRepository, appointmentRepository, jdbcTemplate,
+                transactionTemplate, loggerService, new PaymentProperties());
+    }
+
+    @Test
+    void onChange_whenPaymentSucceeds_shouldAddToItsDay() {
+        stubAppointment();
+        RevenueService.Snapshot pending = snapshot(MAY_2, "eur", 2500, "pending");
+
+        revenueService.onChange(pending, pending.withStatus("succeeded"));
+
+        List<Object[]> rows = capturedRows();
+        assertEquals(1, rows.size());
+        assertArrayEquals(new Object[] {professional, Date.valueOf(LocalDate.of(2025, 5, 2)), "EUR", 2500L, 1L}, rows.get(0));
+    }
+
+    @Test
+    void onChange_whenAmountChanges_shouldApplyOnlyTheDifference() {
+        stubAppointment();
+
+        revenueService.onChange(snapshot(MAY_2, "EUR", 2500, "succeeded"), snapshot(MAY_2, "EUR", 3000, "succeeded"));
+
+        List<Object[]> rows = capturedRows();
+        assertEquals(1, rows.size());
+        assertEquals(500L, rows.get(0)[3]);
+        assertEquals(0L, rows.get(0)[4]);
+    }
+
+    @Test
+    void apply_shouldMergeChangesPerDayAndSkipNetZero() {
+        stubAppointment();
+        RevenueService.Snapshot first = snapshot(MAY_2, "EUR", 1000, "succeeded");
+        RevenueService.Snapshot second = snapshot(MAY_3, "EUR", 4000, "succeeded");
+
+        revenueService.apply(List.of(
+                new RevenueService.Change(null, first),
+                new RevenueService.Change(first, null),
+                new RevenueService.Change(null, second),
+                new RevenueService.Change(second.withStatus("processing"), second)));
+
+        List<Object[]> rows = capturedRows();
+        assertEquals(1, rows.size());
+        assertEquals(Date.valueOf(LocalDate.of(2025, 5, 3)), rows.get(0)[1]);
+        assertEquals(8000L, rows.get(0)[3]);
+        assertEquals(2L, rows.get(0)[4]);
+    }
+
+    @Test
+    void onChange_whenNeitherSideIsRevenue_shouldNotTouchDatabase() {
+        revenueService.onChange(snapshot(MAY_2, "EUR", 2500, "pending"), snapshot(MAY_2, "EUR", 2500, "failed"));
+
+        verifyNoInteractions(appointmentRepository, jdbcTemplate);
+    }
+
+    @Test
+    void getDaily_whenRangeInvalid_shouldReturnError() {
+        Response<List<RevenueDto>> reversed = revenueService.getDaily(professional, LocalDate.of(2025, 5, 3), LocalDate.of(2025, 5, 1));
+        Response<List<RevenueDto>> tooLong = revenueService.getDaily(professional, LocalDate.of(2020, 1, 1), LocalDate.of(2025, 1, 1));
+
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, reversed.message);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, tooLong.message);
+        verifyNoInteractions(revenueDailyRepository);
+    }
+
+    @Test
+    void getDaily_shouldReadRollupRows() {
+        LocalDate from = LocalDate.of(2025, 5, 1);
+        LocalDate to = LocalDate.of(2025, 5, 31);
+        when(revenueDailyRepository.findByProfessionalAndDayBetweenOrderByDayAscCurrencyAsc(professional, from, to)).thenReturn(List.of());
+
+        Response<List<RevenueDto>> response = revenueService.getDaily(professional, from, to);
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.OK, response.message);
+        assertTrue(response.data.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void apply_whenPaymentRefunded_shouldSubtractTheRefundedPart() {
+        stubAppointment();
+        RevenueService.Snapshot paid = snapshot(MAY_2, "EUR", 2500, "succeeded");
+        RevenueService.Snapshot partial = snapshot(MAY_2, "EUR", 2000, "partially_refunded");
+        RevenueService.Snapshot refunded = snapshot(MAY_2, "EUR", 0, "refunded");
+
+        revenueService.apply(List.of(new RevenueService.Change(paid, partial)));
+        revenueService.apply(List.of(new RevenueService.Change(partial, refunded)));
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+        assertArrayEquals(new Object[] {professional, Date.valueOf(LocalDate.of(2025, 5, 2)), "EUR", -500L, 0L},
+                rows.getAllValues().get(0).get(0));
+        assertArrayEquals(new Object[] {professional, Date.valueOf(LocalDate.of(2025, 5, 2)), "EUR", -2000L, -1L},
+                rows.getAllValues().get(1).get(0));
+    }
+
+    private void stubAppointment() {
+        Appointment appointment = mock(Appointment.class);
+        when(appointment.getId()).thenReturn(appointmentId);
+        when(appointment.getProfessional()).thenReturn(professional);
+        when(appointmentRepository.findAllById(anyIterable())).thenReturn(List.of(appointment));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> capturedRows() {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        return rows.getValue().stream().sorted(Comparator.comparing(row -> row[1].toString())).toList();
+    }
+
+    private RevenueService.Snapshot snapshot(Instant createdAt, String currency, long amountMinor, String status) {
+        return new RevenueService.Snapshot(appointmentId, createdAt, currency, amountMinor, status);
+    }
+}
@@ -0,0 +1,144 @@
+package com.booker.modules.payment.service;
+
+import com.booker.config.StripeResilienceProperties;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.modules.payment.entity.Payment;
+import com.booker.modules.payment.entity.StripeRetry;
+import com.booker.modules.payment.repository.PaymentRepository;
+import com.booker.modules.payment.repository.StripeRetryRepository;
+import com.booker.services.StripeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripeRetryServiceTest {
+
+    @Mock
+    private StripeRetryRepository stripeRetryRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private StripeService stripeService;
+
+    @Mock
+    private LoggerService loggerService;
+
+    @Spy
+    private StripeResilienceProperties properties = new StripeResilienceProperties();
+
+    @Spy
+    private PaymentProperties paymentProperties = new PaymentProperties();
+
+    @InjectMocks
+    private StripeRetryService stripeRetryService;
+
+    @Test
+    void drain_whenCircuitOpen_shouldNotTouchQueue() {
+        when(stripeService.isAvailable()).thenReturn(false);
+
+        assertEquals(0, stripeRetryService.drain());
+
+        verifyNoInteractions(stripeRetryRepository, paymentService);
+    }
+
+    @Test
+    void drain_shouldCompleteParkedPaymentAndRemoveIt() {
+        UUID paymentId = UUID.randomUUID();
+        Payment payment = new Payment();
+        payment.setStatus("pending");
+        when(stripeService.isAvailable()).thenReturn(true);
+        when(stripeRetryRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(any(), any()))
+                .thenReturn(List.of(new StripeRetry(paymentId, "key-1")));
+        when(stripeRetryRepository.claim(eq(paymentId), any(), any())).thenReturn(1);
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+        doAnswer(inv -> {
+            payment.setStatus("requires_payment_method");
+            return null;
+        }).when(paymentService).completePending(payment, "key-1");
+
+        assertEquals(1, stripeRetryService.drain());
+
+        verify(stripeRetryRepository).deleteById(paymentId);
+    }
+
+    @Test
+    void drain_whenStillUnavailable_shouldKeepParkedPayment() {
+        UUID paymentId = UUID.randomUUID();
+        Payment payment = new Payment();
+        payment.setStatus("pending");
+        when(stripeService.isAvailable()).thenReturn(true);
+        when(stripeRetryRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(any(), any()))
+                .thenReturn(List.of(new StripeRetry(paymentId, "key-1")));
+        when(stripeRetryRepository.claim(eq(paymentId), any(), any())).thenReturn(1);
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+
+        assertEquals(0, stripeRetryService.drain());
+
+        verify(paymentService).completePending(payment, "key-1");
+        verify(stripeRetryRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void drain_whenPaymentNoLongerPending_shouldDropEntry() {
+        UUID paymentId = UUID.randomUUID();
+        Payment payment = new Payment();
+        payment.setStatus("canceled");
+        when(stripeService.isAvailable()).thenReturn(true);
+        when(stripeRetryRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(any(), any()))
+                .thenReturn(List.of(new StripeRetry(paymentId, "key-1")));
+        when(stripeRetryRepository.claim(eq(paymentId), any(), any())).thenReturn(1);
+        when(paymentRepository.findById(paymentId)).thenReturn(Optional.of(payment));
+
+        assertEquals(1, stripeRetryService.drain());
+
+        verifyNoInteractions(paymentService);
+        verify(stripeRetryRepository).deleteById(paymentId);
+    }
+
+    @Test
+    void drain_whenAnotherInstanceClaimedTheEntry_shouldSkipIt() {
+        UUID paymentId = UUID.randomUUID();
+        when(stripeService.isAvailable()).thenReturn(true);
+        when(stripeRetryRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(any(), any()))
+                .thenReturn(List.of(new StripeRetry(paymentId, "key-1")));
+        when(stripeRetryRepository.claim(eq(paymentId), any(), any())).thenReturn(0);
+
+        assertEquals(0, stripeRetryService.drain());
+
+        verifyNoInteractions(paymentRepository, paymentService);
+        verify(stripeRetryRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void requeueStranded_shouldOnlyQueuePaymentsOlderThanTheLease() {
+        paymentProperties.setQueueLeaseSeconds(60);
+        when(stripeRetryRepository.requeueStranded(any())).thenReturn(2);
+
+        assertEquals(2, stripeRetryService.requeueStranded());
+
+        ArgumentCaptor<Instant> before = ArgumentCaptor.forClass(Instant.class);
+        verify(stripeRetryRepository).requeueStranded(before.capture());
+        assertTrue(before.getValue().isBefore(Instant.now().minusSeconds(59)));
+    }
+}
@@ -0,0 +1,172 @@
+package com.booker.modules.payment.service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.payment.config.PaymentProperties;
+import com.booker.utils.base.Response;
+import com.stripe.net.Webhook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StripeWebhookServiceTest {
+
+    private static final String SECRET = "whsec_test";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private LoggerService loggerService;
+
+    @Mock
+    private RevenueService revenueService;
+
+    private PaymentProperties paymentProperties;
+    private StripeWebhookService stripeWebhookService;
+
+    @BeforeEach
+    void setUp() {
+        paymentProperties = new PaymentProperties();
+        paymentProperties.getWebhook().setSecret(SECRET);
+        stripeWebhookService = new StripeWebhookService(jdbcTemplate, transactionTemplate, loggerService, revenueService, paymentProperties);
+    }
+
+    @Test
+    void receive_whenSignatureInvalid_shouldReject() {
+        Response<Void> response = stripeWebhookService.receive(event("evt_1", "pi_1", "succeeded"), "t=1,v1=bad");
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.INVALID_WEBHOOK_SIGNATURE, response.message);
+        assertEquals(0, stripeWebhookService.getQueueSize());
+    }
+
+    @Test
+    void receive_whenValid_shouldAcknowledgeAndQueue() throws Exception {
+        String payload = event("evt_1", "pi_1", "succeeded");
+
+        Response<Void> response = stripeWebhookService.receive(payload, sign(payload));
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.OK, response.message);
+        assertEquals(1, stripeWebhookService.getQueueSize());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void receive_whenEventRedelivered_shouldQueueOnce() throws Exception {
+        String payload = event("evt_1", "pi_1", "succeeded");
+
+        stripeWebhookService.receive(payload, sign(payload));
+        Response<Void> second = stripeWebhookService.receive(payload, sign(payload));
+
+        assertTrue(second.status);
+        assertEquals(1, stripeWebhookService.getQueueSize());
+    }
+
+    @Test
+    void receive_whenQueueFull_shouldAskStripeToRetry() throws Exception {
+        paymentProperties.getWebhook().setQueueCapacity(1);
+        stripeWebhookService = new StripeWebhookService(jdbcTemplate, transactionTemplate, loggerService, revenueService, paymentProperties);
+        String first = event("evt_1", "pi_1", "succeeded");
+        String second = event("evt_2", "pi_2", "succeeded");
+
+        stripeWebhookService.receive(first, sign(first));
+        Response<Void> response = stripeWebhookService.receive(second, sign(second));
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.SERVICE_UNAVAILABLE, response.message);
+        assertEquals(1, stripeWebhookService.getQueueSize());
+    }
+
+    @Test
+    void receive_whenNotPaymentIntentEvent_shouldIgnore() throws Exception {
+        String payload = "{\"id\":\"evt_1\",\"object\":\"event\",\"type\":\"customer.created\",\"created\":1,"
+                + "\"data\":{\"object\":{\"id\":\"cus_1\",\"object\":\"customer\"}}}";
+
+        Response<Void> response = stripeWebhookService.receive(payload, sign(payload));
+
+        assertTrue(response.status);
+        assertEquals(0, stripeWebhookService.getQueueSize());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyPending_shouldRecordEventsAndUpdateInOneBatch() throws Exception {
+        String first = event("evt_1", "pi_1", "processing");
+        String second = event("evt_2", "pi_2", "succeeded");
+        stripeWebhookService.receive(first, sign(first));
+        stripeWebhookService.receive(second, sign(second));
+        RevenueService.Snapshot before = new RevenueService.Snapshot(UUID.randomUUID(), Instant.now(), "EUR", 2500, "processing");
+        List<RevenueService.Change> changes = List.of(new RevenueService.Change(before, before.withStatus("succeeded")));
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn((List) List.of("evt_1", "evt_2"), changes);
+
+        stripeWebhookService.applyPending();
+
+        // One round trip records the events, one applies the statuses
+        verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+        verify(revenueService).apply(changes);
+        assertEquals(0, stripeWebhookService.getQueueSize());
+    }
+
+    @Test
+    void applyPending_whenDatabaseFails_shouldKeepEventsQueued() throws Exception {
+        String payload = event("evt_1", "pi_1", "succeeded");
+        stripeWebhookService.receive(payload, sign(payload));
+        when(transactionTemplate.execute(any())).thenThrow(new RuntimeException("connection refused"));
+
+        stripeWebhookService.applyPending();
+
+        assertEquals(1, stripeWebhookService.getQueueSize());
+    }
+
+    @Test
+    void collapse_shouldKeepNewestChangePerIntentAndSkipKnownEvents() {
+        List<StripeWebhookService.StatusChange> batch = List.of(
+                new StripeWebhookService.StatusChange("evt_1", "pi_1", "processing", 10),
+                new StripeWebhookService.StatusChange("evt_2", "pi_1", "succeeded", 20),
+                new StripeWebhookService.StatusChange("evt_3", "pi_1", "requires_action", 15),
+                new StripeWebhookService.StatusChange("evt_4", "pi_2", "succeeded", 5));
+
+        Map<String, StripeWebhookService.StatusChange> latest =
+                StripeWebhookService.collapse(batch, Set.of("evt_1", "evt_2", "evt_3"));
+
+        assertEquals(1, latest.size());
+        assertEquals("succeeded", latest.get("pi_1").status());
+    }
+
+    private static String event(String id, String intentId, String status) {
+        return "{\"id\":\"" + id + "\",\"object\":\"event\",\"type\":\"payment_intent." + status + "\",\"created\":1700000000,"
+                + "\"data\":{\"object\":{\"id\":\"" + intentId + "\",\"object\":\"payment_intent\",\"status\":\"" + status + "\"}}}";
+    }
+
+    private static String sign(String payload) throws Exception {
+        long timestamp = Webhook.Util.getTimeNow();
+        String signature = Webhook.Util.computeHmacSha256(SECRET, timestamp + "." + payload);
+        return "t=" + timestamp + ",v1=" + signature;
+    }
+}
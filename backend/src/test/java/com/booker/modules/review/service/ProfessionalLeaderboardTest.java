@@ -0,0 +1,206 @@
+package com.booker.modules.review.service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.professional.dto.TopProfessionalDto;
+import com.booker.modules.review.config.ReviewProperties;
+import com.booker.modules.review.service.ProfessionalLeaderboard.Entry;
+import com.booker.utils.base.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProfessionalLeaderboardTest {
+
+    private static final double MEAN = 4.0;
+    private static final int PRIOR_WEIGHT = 2;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private LoggerService loggerService;
+
+    private ProfessionalLeaderboard leaderboard;
+
+    private final UUID first = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID third = UUID.randomUUID();
+    private final UUID fourth = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReviewProperties properties = new ReviewProperties();
+        properties.getLeaderboard().setSize(2);
+        properties.getLeaderboard().setBuffer(1);
+        properties.getLeaderboard().setPriorWeight(PRIOR_WEIGHT);
+        leaderboard = new ProfessionalLeaderboard(jdbcTemplate, dataSource, loggerService, properties,
+                new SimpleMeterRegistry());
+        lenient().when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE(SUM(rating_sum)"), eq(Double.class)))
+                .thenReturn(MEAN);
+    }
+
+    @Test
+    void score_shouldWeighFewReviewsTowardsTheOverallAverage() {
+        double single = ProfessionalLeaderboard.score(5, 1, MEAN, 10);
+        double many = ProfessionalLeaderboard.score(450, 100, MEAN, 10);
+
+        assertTrue(many > single);
+        assertEquals(MEAN, ProfessionalLeaderboard.score(0, 0, MEAN, 10));
+    }
+
+    @Test
+    void rebuild_shouldPublishTheBestProfessionalsInOrder() {
+        loads(entry(first, 50, 10), entry(second, 40, 10), entry(third, 30, 10));
+
+        leaderboard.rebuild();
+
+        assertEquals(List.of(first, second), ids(leaderboard.top(2)));
+        assertEquals(List.of(first), ids(leaderboard.top(1)));
+        TopProfessionalDto best = leaderboard.top(1).data.get(0);
+        assertEquals(new BigDecimal("5.00"), best.rating);
+        assertEquals(10, best.ratingCount);
+        assertEquals(new BigDecimal("4.83"), best.score);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void apply_whenProfessionalClimbs_shouldReorderWithoutReloading() {
+        loads(entry(first, 45, 10), entry(second, 40, 10), entry(third, 30, 10));
+        leaderboard.rebuild();
+
+        leaderboard.apply(third, 100, 20);
+
+        assertEquals(List.of(third, first), ids(leaderboard.top(2)));
+        verify(jdbcTemplate, times(1)).query(startsWith("SELECT p.id"), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void apply_whenOutsiderBeatsTheLast_shouldTakeItsPlace() {
+        loads(entry(first, 45, 10), entry(second, 40, 10), entry(third, 30, 10));
+        leaderboard.rebuild();
+        when(jdbcTemplate.query(startsWith("SELECT first_name"), any(RowMapper.class), eq(fourth)))
+                .thenReturn(List.of((Object) new String[] {"Ada", "Rossi"}));
+
+        leaderboard.apply(fourth, 50, 10);
+
+        List<TopProfessionalDto> top = leaderboard.top(2).data;
+        assertEquals(List.of(fourth, first), top.stream().map(p -> p.id).toList());
+        assertEquals("Ada", top.get(0).firstName);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void apply_whenFewerProfessionalsAreCertainlyInPlace_shouldReload() {
+        // The fourth row is the best professional left out
+        loads(entry(first, 45, 10), entry(second, 44, 10), entry(third, 43, 10), entry(fourth, 42, 10));
+        leaderboard.rebuild();
+
+        leaderboard.apply(first, 20, 10);
+        verify(jdbcTemplate, times(1)).query(startsWith("SELECT p.id"), any(RowMapper.class), any(Object[].class));
+
+        leaderboard.apply(second, 20, 10);
+        verify(jdbcTemplate, times(2)).query(startsWith("SELECT p.id"), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuild_whenNotificationArrivesDuringTheLoad_shouldApplyItOnTopOfTheLoadedRows() throws Exception {
+        Thread[] listener = new Thread[1];
+        when(jdbcTemplate.query(startsWith("SELECT p.id"), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+            // Committed after the rows below were read
+            listener[0] = Thread.ofPlatform().start(() -> leaderboard.apply(second, 60, 10));
+            listener[0].join(200);
+            assertTrue(listener[0].isAlive(), "the notification must wait for the load");
+            return new ArrayList<>(List.of(entry(first, 45, 10), entry(second, 40, 10)));
+        });
+
+        leaderboard.rebuild();
+        listener[0].join(5000);
+
+        assertEquals(List.of(second, first), ids(leaderboard.top(2)));
+    }
+
+    @Test
+    void apply_whenAllReviewsDeleted_shouldDropTheProfessional() {
+        loads(entry(first, 45, 10), entry(second, 40, 10));
+        leaderboard.rebuild();
+
+        leaderboard.apply(first, 0, 0);
+
+        assertEquals(List.of(second), ids(leaderboard.top(2)));
+    }
+
+    @Test
+    void handle_shouldApplyCountersAndReloadOnRequest() {
+        loads(entry(first, 45, 10), entry(second, 40, 10));
+        leaderboard.rebuild();
+
+        leaderboard.handle(second + ",60,10");
+        assertEquals(List.of(second, first), ids(leaderboard.top(2)));
+
+        leaderboard.handle(ProfessionalLeaderboard.REBUILD);
+        assertEquals(List.of(first, second), ids(leaderboard.top(2)));
+    }
+
+    @Test
+    void handle_whenPayloadIsMalformed_shouldLogAndIgnoreIt() {
+        leaderboard.handle("not-a-uuid,1");
+
+        verify(loggerService).warning(anyString(), eq("ProfessionalLeaderboard"), anyMap(), eq("not-a-uuid,1"));
+    }
+
+    @Test
+    void top_whenLimitOutOfRange_shouldReturnInvalidRequest() {
+        Response<List<TopProfessionalDto>> tooMany = leaderboard.top(3);
+        Response<List<TopProfessionalDto>> none = leaderboard.top(0);
+
+        assertFalse(tooMany.status);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, tooMany.message);
+        assertFalse(none.status);
+    }
+
+    @Test
+    void top_beforeFirstLoad_shouldBeEmpty() {
+        assertEquals(List.of(), leaderboard.top(2).data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loads(Entry... entries) {
+        List<Entry> rows = new ArrayList<>(List.of(entries));
+        when(jdbcTemplate.query(startsWith("SELECT p.id"), any(RowMapper.class), any(Object[].class)))
+                .thenReturn(rows);
+    }
+
+    private static Entry entry(UUID id, long sum, int count) {
+        return new Entry(id, "First", "Last", sum, count, ProfessionalLeaderboard.score(sum, count, MEAN, PRIOR_WEIGHT));
+    }
+
+    private static List<UUID> ids(Response<List<TopProfessionalDto>> response) {
+        return response.data.stream().map(p -> p.id).toList();
+    }
+}
@@ -0,0 +1,110 @@
+package com.booker.modules.review.service;
+
+import com.booker.modules.log.service.LoggerService;
+import com.booker.modules.professional.entity.Professional;
+import com.booker.modules.review.service.ReviewRatingService.Snapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewRatingServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private LoggerService loggerService;
+
+    @InjectMocks
+    private ReviewRatingService reviewRatingService;
+
+    private final UUID professional = UUID.randomUUID();
+    private final UUID otherProfessional = UUID.randomUUID();
+
+    @Test
+    void onChange_whenReviewCreated_shouldAddItsRatingAndCountIt() {
+        reviewRatingService.onChange(null, new Snapshot(professional, 4));
+
+        assertEquals(List.of(List.of(4L, 1L, 1L, 4L, 1L, professional)), appliedRows());
+    }
+
+    @Test
+    void onChange_whenRatingChanged_shouldOnlyApplyTheDifference() {
+        reviewRatingService.onChange(new Snapshot(professional, 2), new Snapshot(professional, 5));
+
+        assertEquals(List.of(List.of(3L, 0L, 0L, 3L, 0L, professional)), appliedRows());
+    }
+
+    @Test
+    void onChange_whenReviewMovedToAnotherProfessional_shouldUpdateBoth() {
+        reviewRatingService.onChange(new Snapshot(professional, 3), new Snapshot(otherProfessional, 3));
+
+        assertEquals(List.of(
+                List.of(-3L, -1L, -1L, -3L, -1L, professional),
+                List.of(3L, 1L, 1L, 3L, 1L, otherProfessional)), appliedRows());
+    }
+
+    @Test
+    void onChange_whenNothingChanged_shouldNotWrite() {
+        reviewRatingService.onChange(new Snapshot(professional, 4), new Snapshot(professional, 4));
+
+        assertEquals(List.of(), appliedRows());
+    }
+
+    @Test
+    void repair_shouldReturnTheNumberOfCorrectedProfessionals() {
+        when(jdbcTemplate.update(startsWith("UPDATE professionals p SET rating_sum = s.rating_sum"))).thenReturn(3);
+
+        assertEquals(3, reviewRatingService.repair());
+        verify(jdbcTemplate).queryForList("SELECT pg_notify('review_ratings', 'rebuild')");
+    }
+
+    @Test
+    void repair_whenNothingDrifted_shouldNotAskForALeaderboardReload() {
+        assertEquals(0, reviewRatingService.repair());
+
+        verify(jdbcTemplate, never()).queryForList(anyString());
+    }
+
+    @Test
+    void onChange_shouldAnnounceTheNewCountersOnTheLeaderboardChannel() {
+        reviewRatingService.onChange(null, new Snapshot(professional, 4));
+
+        verify(jdbcTemplate).queryForList(contains("pg_notify('review_ratings', id || ',' || rating_sum || ',' || rating_count)"),
+                any(Object[].class));
+    }
+
+    @Test
+    void getRating_shouldBeTheExactAverageOfTheCounters() {
+        Professional p = new Professional();
+        assertNull(p.getRating());
+
+        p.setRatingSum(14);
+        p.setRatingCount(3);
+
+        assertEquals(new BigDecimal("4.67"), p.getRating());
+    }
+
+    private List<List<Object>> appliedRows() {
+        return mockingDetails(jdbcTemplate).getInvocations().stream()
+                .filter(i -> i.getMethod().getName().equals("queryForList"))
+                .filter(i -> i.<String>getArgument(0).startsWith("WITH adjusted AS (UPDATE professionals SET rating_sum = rating_sum + ?"))
+                .map(i -> List.of(i.getArguments()).subList(1, i.getArguments().length))
+                .toList();
+    }
+}
@@ -0,0 +1,111 @@
+package com.booker.modules.review.service;
+
+import com.booker.modules.review.config.ReviewProperties;
+import com.booker.modules.review.dto.ReviewSearchDto;
+import com.booker.modules.review.schema.ReviewSchemaInitializer;
+import com.booker.utils.base.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the full-text search with the {@code LIKE '%keyword%'} query it replaces, on a scratch
+ * schema filled with generated reviews. Run against a disposable Postgres with
+ * {@code REVIEW_SEARCH_DB_URL=jdbc:postgresql://localhost:5432/booker_bench?user=postgres&password=postgres
+ * mvn test -Dtest=ReviewSearchLoadTest}; {@code REVIEW_SEARCH_ROWS} sets the number of reviews
+ * (10 million by default, which takes several minutes to generate).
+ */
+@EnabledIfEnvironmentVariable(named = "REVIEW_SEARCH_DB_URL", matches = ".+")
+class ReviewSearchLoadTest {
+
+    private static final String SCHEMA = "review_search_bench";
+    private static final int CHUNK = 1_000_000;
+    private static final int RUNS = 5;
+
+    private static final String LIKE_SQL =
+            "SELECT id FROM reviews WHERE comment LIKE ? ORDER BY created_at DESC LIMIT 21";
+
+    private static final String SEED_SQL =
+            "INSERT INTO reviews (id, rating, comment, customer_uuid, professional_uuid, appointment_uuid, created_at) "
+                    + "SELECT gen_random_uuid(), 1 + floor(random() * 5)::int, "
+                    + "c.comment || CASE WHEN g % 10000 = 0 THEN ' introvabile' ELSE '' END, gen_random_uuid(), "
+                    + "('00000000-0000-0000-0000-' || lpad((g % 1000)::text, 12, '0'))::uuid, gen_random_uuid(), "
+                    + "now() - g * interval '1 second' "
+                    + "FROM generate_series(?::bigint, ?::bigint) g, LATERAL (SELECT string_agg("
+                    + "w.words[1 + floor(random() * array_length(w.words, 1))::int], ' ') AS comment "
+                    + "FROM generate_series(1, 12 + g * 0) s, (SELECT ARRAY['ottimo', 'servizio', 'gentile', 'puntuale', "
+                    + "'taglio', 'barba', 'colore', 'piega', 'prezzo', 'onesto', 'consiglio', 'tornerò', 'attesa', "
+                    + "'lunga', 'pulito', 'salone', 'accogliente', 'professionale', 'veloce', 'preciso', 'great', "
+                    + "'friendly', 'staff', 'booking', 'easy', 'late', 'again', 'recommend', 'molto', 'bene', 'male', "
+                    + "'soddisfatto', 'cortese', 'esperto', 'manicure', 'massaggio', 'rilassante', 'caro', 'economico', "
+                    + "'perfetto'] AS words) w) c";
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void seed() {
+        dataSource = new SingleConnectionDataSource(System.getenv("REVIEW_SEARCH_DB_URL"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        long rows = Long.parseLong(System.getenv().getOrDefault("REVIEW_SEARCH_ROWS", "10000000"));
+
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("SET search_path TO " + SCHEMA);
+        jdbcTemplate.execute("CREATE TABLE reviews (id uuid PRIMARY KEY, rating integer NOT NULL, comment varchar(2000), "
+                + "customer_uuid uuid NOT NULL, professional_uuid uuid NOT NULL, appointment_uuid uuid NOT NULL, "
+                + "created_at timestamp(6) with time zone NOT NULL)");
+        long started = System.nanoTime();
+        for (long from = 1; from <= rows; from += CHUNK) {
+            jdbcTemplate.update(SEED_SQL, from, Math.min(rows, from + CHUNK - 1));
+        }
+        new ReviewSchemaInitializer(jdbcTemplate).run(null);
+        jdbcTemplate.execute("ANALYZE reviews");
+        System.out.println("seeded and indexed " + rows + " reviews in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+    }
+
+    @AfterAll
+    static void dropSchema() {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void search_shouldBeatLikeOnEveryKindOfTerm() {
+        ReviewSearchService searchService = new ReviewSearchService(jdbcTemplate, new ReviewProperties());
+
+        for (String term : new String[] {"introvabile", "rilassante", "ottimo servizio", "profess"}) {
+            long like = medianMs(() -> jdbcTemplate.queryForList(LIKE_SQL, "%" + term + "%"));
+            long search = medianMs(() -> {
+                Response<ReviewSearchDto> response = searchService.search(term, null, null, null, 0, 20);
+                assertTrue(response.status);
+                return response;
+            });
+            long filtered = medianMs(() -> searchService.search(term, null, 4, null, 0, 20));
+
+            System.out.printf("%-16s like %6d ms   search %6d ms   search rating>=4 %6d ms%n", term, like, search, filtered);
+            assertTrue(search < like, "search on '" + term + "' took " + search + " ms, LIKE " + like + " ms");
+        }
+    }
+
+    private static long medianMs(Supplier<?> query) {
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long started = System.nanoTime();
+            query.get();
+            times[i] = (System.nanoTime() - started) / 1_000_000;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+}
@@ -0,0 +1,106 @@
+package com.booker.modules.review.service;
+
+import com.booker.constants.ErrorCodes;
+import com.booker.constants.SuccessCodes;
+import com.booker.modules.review.config.ReviewProperties;
+import com.booker.modules.review.dto.ReviewDto;
+import com.booker.modules.review.dto.ReviewSearchDto;
+import com.booker.utils.base.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewSearchServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ReviewSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        searchService = new ReviewSearchService(jdbcTemplate, new ReviewProperties());
+    }
+
+    @Test
+    void toTsQuery_shouldRequireEveryWordAndMatchTheLastAsPrefix() {
+        assertEquals("servizio & ottim:*", ReviewSearchService.toTsQuery("  Servizio, OTTIM", 8));
+        assertEquals("caffè:*", ReviewSearchService.toTsQuery("caffè", 8));
+        assertEquals("a & b:*", ReviewSearchService.toTsQuery("a b c d", 2));
+    }
+
+    @Test
+    void toTsQuery_shouldDropTsQuerySyntax() {
+        assertEquals("x & y & z:*", ReviewSearchService.toTsQuery("x' | !y & (z:*", 8));
+        assertNull(ReviewSearchService.toTsQuery("&|!:*()", 8));
+        assertNull(ReviewSearchService.toTsQuery(null, 8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void search_shouldFilterAndReadOneRowAheadForTheNextPage() {
+        UUID professional = UUID.randomUUID();
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(reviews(3));
+
+        Response<ReviewSearchDto> response = searchService.search("ottimo", professional, 4, null, 1, 2);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertTrue(sql.getValue().contains("r.search_vector @@ q"));
+        assertTrue(sql.getValue().contains("r.professional_uuid = ?"));
+        assertTrue(sql.getValue().contains("r.rating >= ?"));
+        assertFalse(sql.getValue().contains("r.rating <= ?"));
+        assertArrayEquals(new Object[] {"ottimo:*", professional, 4, 3, 2}, args.getValue());
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.OK, response.message);
+        assertEquals(2, response.data.reviews.size());
+        assertTrue(response.data.hasMore);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void search_onLastPage_shouldSayThereIsNoMore() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(reviews(1));
+
+        Response<ReviewSearchDto> response = searchService.search("ottimo", null, null, null, 0, 20);
+
+        assertEquals(1, response.data.reviews.size());
+        assertFalse(response.data.hasMore);
+    }
+
+    @Test
+    void search_whenQueryEmptyOrPageOutOfRange_shouldReturnInvalidData() {
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, searchService.search(" !? ", null, null, null, 0, 20).message);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, searchService.search("ottimo", null, null, null, 0, 500).message);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, searchService.search("ottimo", null, null, null, -1, 20).message);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, searchService.search("ottimo", null, null, null, 100, 20).message);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static List<ReviewDto> reviews(int count) {
+        List<ReviewDto> reviews = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            reviews.add(new ReviewDto(UUID.randomUUID(), 5, "Ottimo servizio", UUID.randomUUID(), UUID.randomUUID(),
+                    UUID.randomUUID(), Instant.now()));
+        }
+        return reviews;
+    }
+}
@@ -7,11 +7,14 @@ import com.booker.modules.review.dto.ReviewUpsertRequest;
 import com.booker.modules.review.entity.Review;
 import com.booker.modules.review.repository.ReviewRepository;
 import com.booker.utils.base.Response;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Arrays;
 import java.util.List;
@@ -28,9 +31,22 @@ class ReviewServiceTest {
     @Mock
     private ReviewRepository reviewRepository;
 
+    @Mock
+    private ReviewRatingService reviewRatingService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private ReviewService reviewService;
 
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+    }
+
     @Test
     void list_shouldReturnAllReviews() {
         Review review1 = createTestReview();
@@ -89,12 +105,15 @@ class ReviewServiceTest {
         assertEquals(SuccessCodes.REVIEW_SUBMITTED, response.message);
         assertNotNull(response.data);
         verify(reviewRepository).save(any(Review.class));
+        verify(reviewRatingService).onChange(null,
+                new ReviewRatingService.Snapshot(savedReview.getProfessional(), savedReview.getRating()));
     }
 
     @Test
     void update_whenReviewExists_shouldUpdateReview() {
         UUID reviewId = UUID.randomUUID();
         Review existingReview = createTestReview();
+        UUID previousProfessional = existingReview.getProfessional();
         
         ReviewUpsertRequest request = new ReviewUpsertRequest();
         request.rating = 4;
@@ -103,7 +122,7 @@ class ReviewServiceTest {
         request.professional = UUID.randomUUID();
         request.appointment = UUID.randomUUID();
         
-        when(reviewRepository.findById(reviewId)).thenReturn(Optional.of(existingReview));
+        when(reviewRepository.findByIdForUpdate(reviewId)).thenReturn(Optional.of(existingReview));
         when(reviewRepository.save(any(Review.class))).thenReturn(existingReview);
 
         Response<ReviewDto> response = reviewService.update(reviewId, request);
@@ -111,6 +130,8 @@ class ReviewServiceTest {
         assertTrue(response.status);
         assertEquals(SuccessCodes.REVIEW_UPDATED, response.message);
         verify(reviewRepository).save(any(Review.class));
+        verify(reviewRatingService).onChange(new ReviewRatingService.Snapshot(previousProfessional, 5),
+                new ReviewRatingService.Snapshot(request.professional, 4));
     }
 
     @Test
@@ -123,37 +144,41 @@ class ReviewServiceTest {
         request.professional = UUID.randomUUID();
         request.appointment = UUID.randomUUID();
         
-        when(reviewRepository.findById(reviewId)).thenReturn(Optional.empty());
+        when(reviewRepository.findByIdForUpdate(reviewId)).thenReturn(Optional.empty());
 
         Response<ReviewDto> response = reviewService.update(reviewId, request);
 
         assertFalse(response.status);
         assertEquals(ErrorCodes.RESOURCE_NOT_FOUND, response.message);
         verify(reviewRepository, never()).save(any());
+        verify(reviewRatingService, never()).onChange(any(), any());
     }
 
     @Test
     void delete_whenReviewExists_shouldDeleteReview() {
         UUID reviewId = UUID.randomUUID();
+        Review review = createTestReview();
         
-        when(reviewRepository.existsById(reviewId)).thenReturn(true);
+        when(reviewRepository.findByIdForUpdate(reviewId)).thenReturn(Optional.of(review));
 
         Response<Void> response = reviewService.delete(reviewId);
 
         assertTrue(response.status);
         assertEquals(SuccessCodes.REVIEW_DELETED, response.message);
         verify(reviewRepository).deleteById(reviewId);
+        verify(reviewRatingService).onChange(new ReviewRatingService.Snapshot(review.getProfessional(), 5), null);
     }
 
     @Test
     void delete_whenReviewNotFound_shouldReturnError() {
         UUID reviewId = UUID.randomUUID();
-        when(reviewRepository.existsById(reviewId)).thenReturn(false);
+        when(reviewRepository.findByIdForUpdate(reviewId)).thenReturn(Optional.empty());
 
         Response<Void> response = reviewService.delete(reviewId);
 
         assertFalse(response.status);
         assertEquals(ErrorCodes.RESOURCE_NOT_FOUND, response.message);
+        verify(reviewRepository, never()).deleteById(any());
     }
 
     private Review createTestReview() {
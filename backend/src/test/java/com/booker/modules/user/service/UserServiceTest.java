@@ -1,27 +1,47 @@
 package com.booker.modules.user.service;
 
+import com.booker.config.AvatarProperties;
 import com.booker.constants.ErrorCodes;
 import com.booker.constants.SuccessCodes;
+import com.booker.modules.media.service.MediaStore;
+import com.booker.modules.media.service.MediaStore.StoredSet;
+import com.booker.modules.user.dto.ProfileImageConfirmRequest;
+import com.booker.modules.user.dto.ProfileImageUploadDto;
+import com.booker.modules.user.dto.ProfileImageUploadRequest;
 import com.booker.modules.user.dto.UserPublicDto;
 import com.booker.modules.user.dto.UserUpdateRequest;
 import com.booker.modules.user.entity.User;
 import com.booker.modules.user.repository.UserRepository;
+import com.booker.services.AvatarRenditionService;
+import com.booker.services.AvatarRenditionService.Rendition;
 import com.booker.services.MinioService;
+import com.booker.services.MinioService.StoredObject;
 import com.booker.utils.base.Response;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,9 +53,27 @@ class UserServiceTest {
     @Mock
     private MinioService minioService;
 
+    @Mock
+    private AvatarRenditionService avatarRenditionService;
+
+    @Mock
+    private MediaStore mediaStore;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private AvatarProperties avatarProperties = new AvatarProperties();
+
     @InjectMocks
     private UserService userService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
     @Test
     void list_shouldReturnAllUsers() {
         User user1 = createTestUser("user1@test.com", "John", "Doe");
@@ -123,13 +161,13 @@ class UserServiceTest {
         UUID userId = UUID.randomUUID();
         MultipartFile file = mock(MultipartFile.class);
         
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(false);
 
         Response<UserPublicDto> response = userService.upsertProfileImage(userId, file);
 
         assertFalse(response.status);
         assertEquals(ErrorCodes.USER_NOT_FOUND, response.message);
-        verify(minioService, never()).uploadFile(any(MultipartFile.class), any(UUID.class));
+        verify(mediaStore, never()).upload(any());
     }
 
     @Test
@@ -138,20 +176,240 @@ class UserServiceTest {
         User user = createTestUser("test@example.com", "John", "Doe");
         MultipartFile file = mock(MultipartFile.class);
         
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.existsById(userId)).thenReturn(true);
         when(file.getContentType()).thenReturn("application/pdf");
 
         Response<UserPublicDto> response = userService.upsertProfileImage(userId, file);
 
         assertFalse(response.status);
         assertEquals(ErrorCodes.INVALID_REQUEST_DATA, response.message);
-        verify(minioService, never()).uploadFile(any(MultipartFile.class), any(UUID.class));
+        verify(mediaStore, never()).upload(any());
+    }
+
+    @Test
+    void upsertProfileImage_shouldStoreRenditionsAndDeleteOldOnes() throws Exception {
+        UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
+        user.setProfileImageUrl("http://minio/avatars/avatars/" + userId + "/old/1024.jpg");
+        user.setProfileImageSizes("1024,64");
+        MultipartFile file = mock(MultipartFile.class);
+        Map<Integer, Rendition> renditions = new LinkedHashMap<>();
+        renditions.put(1024, new Rendition(new byte[] { 1 }, "a1"));
+        renditions.put(64, new Rendition(new byte[] { 2 }, "b2"));
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        urls.put(1024, "http://minio/avatars/media/abc/1024.jpg");
+        urls.put(64, "http://minio/avatars/media/abc/64.jpg");
+
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
+        when(file.getContentType()).thenReturn("image/png");
+        when(avatarRenditionService.render(file)).thenReturn(renditions);
+        when(mediaStore.upload(renditions)).thenReturn(new StoredSet("abc", 1, urls));
+        when(minioService.extractObjectName(anyString())).thenAnswer(invocation ->
+                invocation.<String>getArgument(0).substring("http://minio/avatars/".length()));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Response<UserPublicDto> response = userService.upsertProfileImage(userId, file);
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.PROFILE_IMAGE_UPDATED, response.message);
+        assertEquals("1024,64", user.getProfileImageSizes());
+        assertTrue(user.getProfileImageUrl().endsWith("/1024.jpg"));
+        assertFalse(user.getProfileImageUrl().contains("/old/"));
+        assertEquals(List.of(1024, 64), List.copyOf(response.data.profileImageUrls.keySet()));
+        verify(minioService).deleteFiles(List.of(
+                "avatars/" + userId + "/old/1024.jpg", "avatars/" + userId + "/old/64.jpg"));
+        verify(mediaStore, never()).release(anyString());
+    }
+
+    @Test
+    void upsertProfileImage_whenOldImageStoredByContent_shouldReleaseItInsteadOfDeleting() throws Exception {
+        UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
+        user.setProfileImageUrl("http://minio/avatars/media/old/1024.jpg");
+        user.setProfileImageSizes("1024");
+        MultipartFile file = mock(MultipartFile.class);
+        Map<Integer, Rendition> renditions = Map.of(1024, new Rendition(new byte[] { 1 }, "a1"));
+
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
+        when(file.getContentType()).thenReturn("image/png");
+        when(avatarRenditionService.render(file)).thenReturn(renditions);
+        when(mediaStore.upload(renditions)).thenReturn(new StoredSet("abc", 1, Map.of(1024, "http://minio/avatars/media/new/1024.jpg")));
+        when(minioService.extractObjectName(anyString())).thenAnswer(invocation ->
+                invocation.<String>getArgument(0).substring("http://minio/avatars/".length()));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Response<UserPublicDto> response = userService.upsertProfileImage(userId, file);
+
+        assertTrue(response.status);
+        assertEquals("http://minio/avatars/media/new/1024.jpg", user.getProfileImageUrl());
+        // The old image is read from the locked row and swapped for the new one in one transaction
+        InOrder order = inOrder(transactionTemplate, userRepository, mediaStore);
+        order.verify(transactionTemplate).execute(any());
+        order.verify(userRepository).findByIdForUpdate(userId);
+        order.verify(mediaStore).acquire(any(StoredSet.class));
+        order.verify(userRepository).save(user);
+        order.verify(mediaStore).release("old");
+        verify(minioService, never()).deleteFiles(any());
+    }
+
+    @Test
+    void upsertProfileImage_whenSaveFails_shouldLeaveTheOldImageToTheRollback() throws Exception {
+        UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
+        user.setProfileImageUrl("http://minio/avatars/media/old/1024.jpg");
+        user.setProfileImageSizes("1024");
+        MultipartFile file = mock(MultipartFile.class);
+        Map<Integer, Rendition> renditions = Map.of(1024, new Rendition(new byte[] { 1 }, "a1"));
+
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
+        when(file.getContentType()).thenReturn("image/png");
+        when(avatarRenditionService.render(file)).thenReturn(renditions);
+        when(mediaStore.upload(renditions)).thenReturn(new StoredSet("abc", 1, Map.of(1024, "http://minio/avatars/media/new/1024.jpg")));
+        when(userRepository.save(any(User.class))).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> userService.upsertProfileImage(userId, file));
+
+        // The reference taken on the new set is undone with the transaction, not by hand
+        verify(mediaStore, never()).release(anyString());
+        verify(minioService, never()).deleteFiles(any());
+    }
+
+    @Test
+    void upsertProfileImage_whenImageUnreadable_shouldReturnInvalidData() throws Exception {
+        UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
+        MultipartFile file = mock(MultipartFile.class);
+
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(file.getContentType()).thenReturn("image/png");
+        when(avatarRenditionService.render(file)).thenThrow(new IllegalArgumentException("Unreadable image"));
+
+        Response<UserPublicDto> response = userService.upsertProfileImage(userId, file);
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, response.message);
+        verify(mediaStore, never()).upload(any());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void upsertProfileImage_whenWorkersBusy_shouldReturnServiceUnavailable() throws Exception {
+        UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
+        user.setProfileImageUrl("http://minio/avatars/old.png");
+        MultipartFile file = mock(MultipartFile.class);
+
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(file.getContentType()).thenReturn("image/png");
+        when(avatarRenditionService.render(file)).thenThrow(new RejectedExecutionException());
+
+        Response<UserPublicDto> response = userService.upsertProfileImage(userId, file);
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.SERVICE_UNAVAILABLE, response.message);
+        assertEquals("http://minio/avatars/old.png", user.getProfileImageUrl());
+        verify(minioService, never()).deleteFiles(any());
+    }
+
+    @Test
+    void createProfileImageUpload_shouldPresignUrlForThisUser() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(minioService.presignedUploadForm(anyString(), eq("image/png"), eq(10L * 1024 * 1024), eq(300)))
+                .thenAnswer(invocation -> new MinioService.PresignedPost("http://minio/avatars",
+                        Map.of("key", invocation.getArgument(0), "policy", "abc")));
+
+        Response<ProfileImageUploadDto> response = userService.createProfileImageUpload(userId, uploadRequest("image/png", 1024L));
+
+        assertTrue(response.status);
+        assertEquals(SuccessCodes.PROFILE_IMAGE_UPLOAD_CREATED, response.message);
+        assertEquals("http://minio/avatars", response.data.uploadUrl);
+        assertEquals(AvatarRenditionService.uploadObjectName(userId, response.data.uploadId), response.data.fields.get("key"));
+        assertEquals("POST", response.data.method);
+    }
+
+    @Test
+    void createProfileImageUpload_whenTooLargeOrNotAnImage_shouldReturnInvalidData() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA,
+                userService.createProfileImageUpload(userId, uploadRequest("image/png", 20L * 1024 * 1024)).message);
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA,
+                userService.createProfileImageUpload(userId, uploadRequest("application/pdf", 1024L)).message);
+        verify(minioService, never()).presignedUploadForm(anyString(), anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void confirmProfileImageUpload_shouldStoreRenditionsAndDeleteTheUpload() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID uploadId = UUID.randomUUID();
+        String objectName = AvatarRenditionService.uploadObjectName(userId, uploadId);
+        User user = createTestUser("test@example.com", "John", "Doe");
+
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
+        when(minioService.statFile(objectName)).thenReturn(new StoredObject(2048, "image/jpeg", "etag"));
+        when(avatarRenditionService.render(any(InputStreamSource.class)))
+                .thenReturn(Map.of(64, new Rendition(new byte[] { 1 }, "a1")));
+        when(mediaStore.upload(anyMap())).thenReturn(new StoredSet("abc", 1, Map.of(64, "http://minio/avatars/a/64.jpg")));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Response<UserPublicDto> response = userService.confirmProfileImageUpload(userId, confirmRequest(uploadId));
+
+        assertTrue(response.status);
+        assertEquals("http://minio/avatars/a/64.jpg", user.getProfileImageUrl());
+        verify(minioService).deleteFile(objectName);
+    }
+
+    @Test
+    void confirmProfileImageUpload_whenNothingUploaded_shouldReturnNotFound() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(minioService.statFile(anyString())).thenReturn(null);
+
+        Response<UserPublicDto> response = userService.confirmProfileImageUpload(userId, confirmRequest(UUID.randomUUID()));
+
+        assertFalse(response.status);
+        assertEquals(ErrorCodes.RESOURCE_NOT_FOUND, response.message);
+        verify(avatarRenditionService, never()).render(any());
+    }
+
+    @Test
+    void confirmProfileImageUpload_whenUploadTooLarge_shouldDeleteItWithoutReadingIt() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID uploadId = UUID.randomUUID();
+        String objectName = AvatarRenditionService.uploadObjectName(userId, uploadId);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(minioService.statFile(objectName)).thenReturn(new StoredObject(50L * 1024 * 1024, "image/jpeg", "etag"));
+
+        Response<UserPublicDto> response = userService.confirmProfileImageUpload(userId, confirmRequest(uploadId));
+
+        assertEquals(ErrorCodes.INVALID_REQUEST_DATA, response.message);
+        verify(minioService).deleteFile(objectName);
+        verify(minioService, never()).openFile(anyString());
+    }
+
+    @Test
+    void confirmProfileImageUpload_whenBusy_shouldKeepTheUploadForARetry() throws Exception {
+        UUID userId = UUID.randomUUID();
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(minioService.statFile(anyString())).thenReturn(new StoredObject(2048, "image/png", "etag"));
+        when(avatarRenditionService.render(any(InputStreamSource.class))).thenThrow(new RejectedExecutionException());
+
+        Response<UserPublicDto> response = userService.confirmProfileImageUpload(userId, confirmRequest(UUID.randomUUID()));
+
+        assertEquals(ErrorCodes.SERVICE_UNAVAILABLE, response.message);
+        verify(minioService, never()).deleteFile(anyString());
     }
 
     @Test
     void deleteProfileImage_whenUserNotFound_shouldReturnError() {
         UUID userId = UUID.randomUUID();
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.empty());
 
         Response<UserPublicDto> response = userService.deleteProfileImage(userId);
 
@@ -166,7 +424,7 @@ class UserServiceTest {
         User user = createTestUser("test@example.com", "John", "Doe");
         user.setProfileImageUrl(null);
         
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
         when(userRepository.save(any(User.class))).thenReturn(user);
 
         Response<UserPublicDto> response = userService.deleteProfileImage(userId);
@@ -176,11 +434,29 @@ class UserServiceTest {
         verify(minioService, never()).deleteFile(anyString());
     }
 
+    @Test
+    void deleteProfileImage_whenLegacyImage_shouldDeleteSingleObject() {
+        UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
+        user.setProfileImageUrl("http://minio/avatars/profile-images/old.png");
+
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
+        when(minioService.extractObjectName("http://minio/avatars/profile-images/old.png")).thenReturn("profile-images/old.png");
+        when(userRepository.save(any(User.class))).thenReturn(user);
+
+        Response<UserPublicDto> response = userService.deleteProfileImage(userId);
+
+        assertTrue(response.status);
+        assertNull(user.getProfileImageUrl());
+        verify(minioService).deleteFiles(List.of("profile-images/old.png"));
+    }
+
     @Test
     void delete_whenUserExists_shouldDeleteUser() {
         UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
         
-        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
 
         Response<Void> response = userService.delete(userId);
 
@@ -189,10 +465,44 @@ class UserServiceTest {
         verify(userRepository).deleteById(userId);
     }
 
+    @Test
+    void delete_whenUserHasImage_shouldDeleteItsRenditions() {
+        UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
+        user.setProfileImageUrl("http://minio/avatars/a/v/1024.jpg");
+        user.setProfileImageSizes("1024,64");
+
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
+        when(minioService.extractObjectName(anyString())).thenAnswer(invocation ->
+                invocation.<String>getArgument(0).substring("http://minio/avatars/".length()));
+
+        userService.delete(userId);
+
+        verify(userRepository).deleteById(userId);
+        verify(minioService).deleteFiles(List.of("a/v/1024.jpg", "a/v/64.jpg"));
+    }
+
+    @Test
+    void delete_whenUserImageStoredByContent_shouldReleaseIt() {
+        UUID userId = UUID.randomUUID();
+        User user = createTestUser("test@example.com", "John", "Doe");
+        user.setProfileImageUrl("http://minio/avatars/media/abc/1024.jpg");
+        user.setProfileImageSizes("1024,64");
+
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.of(user));
+        when(minioService.extractObjectName(anyString())).thenAnswer(invocation ->
+                invocation.<String>getArgument(0).substring("http://minio/avatars/".length()));
+
+        userService.delete(userId);
+
+        verify(mediaStore).release("abc");
+        verify(minioService, never()).deleteFiles(any());
+    }
+
     @Test
     void delete_whenUserNotFound_shouldReturnError() {
         UUID userId = UUID.randomUUID();
-        when(userRepository.existsById(userId)).thenReturn(false);
+        when(userRepository.findByIdForUpdate(userId)).thenReturn(Optional.empty());
 
         Response<Void> response = userService.delete(userId);
 
@@ -200,6 +510,19 @@ class UserServiceTest {
         assertEquals(ErrorCodes.USER_NOT_FOUND, response.message);
     }
 
+    private static ProfileImageUploadRequest uploadRequest(String contentType, Long size) {
+        ProfileImageUploadRequest req = new ProfileImageUploadRequest();
+        req.contentType = contentType;
+        req.size = size;
+        return req;
+    }
+
+    private static ProfileImageConfirmRequest confirmRequest(UUID uploadId) {
+        ProfileImageConfirmRequest req = new ProfileImageConfirmRequest();
+        req.uploadId = uploadId;
+        return req;
+    }
+
     private User createTestUser(String email, String firstName, String lastName) {
         User user = new User();
         user.setEmail(email);
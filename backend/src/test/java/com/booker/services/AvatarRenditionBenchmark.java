@@ -0,0 +1,96 @@
+package com.booker.services;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares making the 1024, 256 and 64 pixel renditions of a 12 megapixel JPEG by decoding the whole
+ * photo and scaling every size from it, with {@link AvatarRenditionService}, which decodes only the
+ * subsampled centre square and scales each size from the previous one. Run with {@code -prof gc}
+ * to compare the memory allocated per image as well.
+ *
+ * Not part of the test suite; run with
+ * {@code mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt} and then
+ * {@code java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.booker.services.AvatarRenditionBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvatarRenditionBenchmark {
+
+    private static final List<Integer> SIZES = List.of(1024, 256, 64);
+
+    private byte[] photo;
+
+    @Setup
+    public void setUp() throws IOException {
+        BufferedImage image = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int x = 0; x < image.getWidth(); x += 40) {
+            for (int y = 0; y < image.getHeight(); y += 40) {
+                g.setColor(new Color((x * 31 + y * 17) % 255, (x / 16) % 255, (y / 12) % 255));
+                g.fillRect(x, y, 40, 40);
+            }
+        }
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        photo = out.toByteArray();
+    }
+
+    @Benchmark
+    public Map<Integer, byte[]> decodeFullAndScaleEach() throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(photo));
+        int side = Math.min(source.getWidth(), source.getHeight());
+        BufferedImage square = source.getSubimage((source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+        Map<Integer, byte[]> renditions = new LinkedHashMap<>();
+        for (int size : SIZES) {
+            BufferedImage target = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = target.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(square, 0, 0, size, size, null);
+            g.dispose();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(target, "jpg", out);
+            renditions.put(size, out.toByteArray());
+        }
+        return renditions;
+    }
+
+    @Benchmark
+    public Map<Integer, AvatarRenditionService.Rendition> renditionService() throws IOException {
+        return AvatarRenditionService.render(new ByteArrayInputStream(photo), SIZES, 0.85f, 50_000_000L);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AvatarRenditionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
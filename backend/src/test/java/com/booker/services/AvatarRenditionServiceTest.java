@@ -0,0 +1,148 @@
+package com.booker.services;
+
+import com.booker.config.AvatarProperties;
+import com.booker.services.AvatarRenditionService.Rendition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarRenditionServiceTest {
+
+    private AvatarRenditionService service;
+
+    @BeforeEach
+    void setUp() {
+        AvatarProperties properties = new AvatarProperties();
+        properties.setSizes(List.of(64, 1024, 256));
+        properties.setWorkers(1);
+        service = new AvatarRenditionService(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void render_shouldMakeSquareJpegOfEverySizeLargestFirst() throws Exception {
+        Map<Integer, Rendition> renditions = service.render(file(image(3000, 2000, "jpg"), "image/jpeg"));
+
+        assertEquals(List.of(1024, 256, 64), List.copyOf(renditions.keySet()));
+        for (Map.Entry<Integer, Rendition> rendition : renditions.entrySet()) {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(rendition.getValue().content()));
+            assertEquals(rendition.getKey(), decoded.getWidth());
+            assertEquals(rendition.getKey(), decoded.getHeight());
+        }
+    }
+
+    @Test
+    void render_shouldKeepTheCentreOfTheImage() throws Exception {
+        // Red side bands that a centred square crop must drop entirely
+        BufferedImage source = new BufferedImage(600, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = source.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 600, 200);
+        g.setColor(Color.BLUE);
+        g.fillRect(200, 0, 200, 200);
+        g.dispose();
+
+        Map<Integer, Rendition> renditions = service.render(file(encode(source, "png"), "image/png"));
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(renditions.get(64).content()));
+        Color corner = new Color(decoded.getRGB(1, 1));
+        assertTrue(corner.getBlue() > 200 && corner.getRed() < 50, "expected blue, got " + corner);
+    }
+
+    @Test
+    void render_shouldNotScaleSmallImagesUp() throws Exception {
+        Map<Integer, Rendition> renditions = service.render(file(image(300, 200, "png"), "image/png"));
+
+        assertEquals(200, ImageIO.read(new ByteArrayInputStream(renditions.get(1024).content())).getWidth());
+        assertEquals(200, ImageIO.read(new ByteArrayInputStream(renditions.get(256).content())).getWidth());
+        assertEquals(64, ImageIO.read(new ByteArrayInputStream(renditions.get(64).content())).getWidth());
+    }
+
+    @Test
+    void render_shouldHashEveryRenditionWhileEncodingIt() throws Exception {
+        byte[] content = image(800, 600, "png");
+
+        Map<Integer, Rendition> renditions = service.render(file(content, "image/png"));
+
+        for (Rendition rendition : renditions.values()) {
+            String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(rendition.content()));
+            assertEquals(expected, rendition.sha256());
+        }
+        assertEquals(AvatarRenditionService.setHash(renditions),
+                AvatarRenditionService.setHash(service.render(file(content, "image/png"))));
+    }
+
+    @Test
+    void setHash_shouldReadTheHashBackFromAnObjectName() {
+        assertEquals("abc", AvatarRenditionService.setHash(AvatarRenditionService.objectName("abc", 64)));
+        assertNull(AvatarRenditionService.setHash("avatars/" + UUID.randomUUID() + "/v1/64.jpg"));
+        assertNull(AvatarRenditionService.setHash((String) null));
+    }
+
+    @Test
+    void render_whenNotAnImage_shouldThrowIllegalArgument() {
+        MockMultipartFile file = new MockMultipartFile("file", "avatar.png", "image/png", "not an image".getBytes());
+
+        assertThrows(IllegalArgumentException.class, () -> service.render(file));
+    }
+
+    @Test
+    void render_whenTooManyPixels_shouldThrowIllegalArgument() throws Exception {
+        byte[] content = image(400, 300, "png");
+
+        assertThrows(IllegalArgumentException.class, () -> AvatarRenditionService.render(
+                new ByteArrayInputStream(content), List.of(64), 0.85f, 400 * 300 - 1));
+    }
+
+    @Test
+    void renditionUrls_shouldDeriveEverySizeFromOneUrl() {
+        String url = "http://localhost:9020/avatars/" + AvatarRenditionService.objectName("abc", 1024);
+
+        Map<Integer, String> urls = AvatarRenditionService.renditionUrls(url, "1024,256,64");
+
+        assertEquals(url, urls.get(1024));
+        assertEquals("http://localhost:9020/avatars/media/abc/64.jpg", urls.get(64));
+        assertTrue(AvatarRenditionService.renditionUrls(url, null).isEmpty());
+    }
+
+    private static MockMultipartFile file(byte[] content, String contentType) {
+        return new MockMultipartFile("file", "avatar", contentType, content);
+    }
+
+    private static byte[] image(int width, int height, String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int x = 0; x < width; x += 50) {
+            g.setColor(new Color(x * 255 / width, 120, 200));
+            g.fillRect(x, 0, 50, height);
+        }
+        g.dispose();
+        return encode(image, format);
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
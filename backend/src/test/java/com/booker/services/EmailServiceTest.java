@@ -0,0 +1,117 @@
+package com.booker.services;
+
+import com.booker.modules.email.config.EmailTemplateProperties;
+import com.booker.modules.email.entity.EmailOutbox;
+import com.booker.modules.email.repository.EmailOutboxRepository;
+import com.booker.modules.email.template.EmailTemplates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailServiceTest {
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        emailService = new EmailService(emailOutboxRepository, new EmailTemplates(new EmailTemplateProperties()));
+    }
+
+    @Test
+    void sendAppointmentConfirmation_shouldQueueEmailInOutbox() {
+        emailService.sendAppointmentConfirmation("mario@example.com", null, "Mario Rossi", "Professionista", "Taglio",
+                LocalDateTime.of(2026, 3, 14, 9, 30));
+
+        EmailOutbox email = captureQueued();
+        assertEquals("mario@example.com", email.getRecipient());
+        assertEquals("Conferma Appuntamento - Booker", email.getSubject());
+        assertTrue(email.getBody().startsWith("Ciao Mario Rossi,\n\nIl tuo appuntamento è stato confermato!"));
+        assertTrue(email.getBody().contains("- Data e Ora: 14/03/2026 09:30"));
+        assertTrue(email.getBody().endsWith("Il Team di Booker"));
+        assertTrue(email.getHtmlBody().contains("<strong>14/03/2026 09:30</strong>"));
+        assertEquals(EmailOutbox.STATUS_PENDING, email.getStatus());
+        assertEquals(0, email.getAttempts());
+    }
+
+    @Test
+    void sendPaymentConfirmation_shouldEscapeValuesOnlyInHtmlBody() {
+        emailService.sendPaymentConfirmation("mario@example.com", null, "Mario <Rossi>", "50.00 EUR", "Taglio & Piega");
+
+        EmailOutbox email = captureQueued();
+        assertTrue(email.getBody().contains("- Servizio: Taglio & Piega"));
+        assertTrue(email.getHtmlBody().contains("Ciao Mario &lt;Rossi&gt;,"));
+        assertTrue(email.getHtmlBody().contains("<strong>Taglio &amp; Piega</strong>"));
+    }
+
+    @Test
+    void sendAppointmentUpdates_shouldListEveryChangeInOneEmail() {
+        emailService.sendAppointmentUpdates("mario@example.com", null, "Mario Rossi", List.of(
+                new EmailService.AppointmentUpdate("booked", "Taglio", LocalDateTime.of(2026, 3, 14, 9, 30)),
+                new EmailService.AppointmentUpdate("cancelled", "Piega & Colore", LocalDateTime.of(2026, 3, 15, 10, 0))));
+
+        EmailOutbox email = captureQueued();
+        assertEquals("Aggiornamenti sui tuoi Appuntamenti - Booker", email.getSubject());
+        assertTrue(email.getBody().contains("- Prenotato: Taglio, 14/03/2026 09:30\n- Cancellato: Piega & Colore, 15/03/2026 10:00\n"));
+        assertTrue(email.getHtmlBody().contains("- Cancellato: Piega &amp; Colore, 15/03/2026 10:00</p>"));
+    }
+
+    @Test
+    void sendProfessionalDigest_shouldListTheDaysAppointments() {
+        emailService.sendProfessionalDigest("giulia@example.com", null, "Giulia Bianchi", LocalDate.of(2026, 3, 14), List.of(
+                new EmailService.DigestEntry(LocalDateTime.of(2026, 3, 14, 9, 0), "Mario Rossi", "Taglio"),
+                new EmailService.DigestEntry(LocalDateTime.of(2026, 3, 14, 15, 30), "Anna Verdi", "Piega")));
+
+        EmailOutbox email = captureQueued();
+        assertEquals("I tuoi Appuntamenti del 14/03/2026 - Booker", email.getSubject());
+        assertTrue(email.getBody().contains("Oggi hai 2 appuntamenti:\n\n- 09:00 Mario Rossi (Taglio)\n- 15:30 Anna Verdi (Piega)"));
+    }
+
+    @Test
+    void sendAppointmentUpdates_whenRecipientReadsEnglish_shouldRenderTheEnglishTemplateAndFragments() {
+        emailService.sendAppointmentUpdates("mario@example.com", Locale.ENGLISH, "Mario Rossi", List.of(
+                new EmailService.AppointmentUpdate("booked", "Haircut", LocalDateTime.of(2026, 3, 14, 9, 30))));
+
+        EmailOutbox email = captureQueued();
+        assertTrue(email.getBody().startsWith("Hi Mario Rossi,"));
+        assertTrue(email.getBody().contains("- Booked: Haircut, 14/03/2026 09:30"));
+        assertEquals("en", email.getLocale());
+    }
+
+    @Test
+    void sendAppointmentConfirmation_whenRecipientHasNoLocale_shouldLeaveItUnsetOnTheOutboxRow() {
+        emailService.sendAppointmentConfirmation("mario@example.com", null, "Mario Rossi", "Professionista", "Taglio",
+                LocalDateTime.of(2026, 3, 14, 9, 30));
+
+        assertNull(captureQueued().getLocale());
+    }
+
+    @Test
+    void sendEmail_shouldQueuePlainTextOnly() {
+        emailService.sendEmail("mario@example.com", "Oggetto", "Testo");
+
+        EmailOutbox email = captureQueued();
+        assertEquals("Testo", email.getBody());
+        assertNull(email.getHtmlBody());
+    }
+
+    private EmailOutbox captureQueued() {
+        ArgumentCaptor<EmailOutbox> email = ArgumentCaptor.forClass(EmailOutbox.class);
+        verify(emailOutboxRepository).save(email.capture());
+        return email.getValue();
+    }
+}
@@ -0,0 +1,147 @@
+package com.booker.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.booker.config.StripeConfig;
+import com.booker.config.StripeHttpProperties;
+import com.booker.config.StripeResilienceProperties;
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JdkStripeHttpClientTest {
+
+    private static final String INTENT_JSON =
+            "{\"id\":\"pi_jdk\",\"object\":\"payment_intent\",\"amount\":2500,\"currency\":\"eur\",\"status\":\"requires_payment_method\"}";
+
+    private final Map<String, String> lastHeaders = new ConcurrentHashMap<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+    private volatile String lastBody;
+    private volatile boolean slow;
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private StripeClient stripeClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        StripeResilienceProperties resilience = new StripeResilienceProperties();
+        resilience.setConnectTimeoutMs(1_000);
+        resilience.setReadTimeoutMs(300);
+        meterRegistry = new SimpleMeterRegistry();
+        JdkStripeHttpClient transport = new JdkStripeHttpClient(new StripeHttpProperties(), resilience.getConnectTimeoutMs(), meterRegistry);
+        stripeClient = StripeConfig.createClient("sk_test_jdk", "http://127.0.0.1:" + server.getAddress().getPort(),
+                transport, resilience, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseSlow.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void request_shouldSendFormBodyAndStripeHeaders() throws Exception {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(2500L)
+                .setCurrency("eur")
+                .build();
+
+        PaymentIntent intent = stripeClient.paymentIntents().create(params,
+                RequestOptions.builder().setIdempotencyKey("key-1").build());
+
+        assertEquals("pi_jdk", intent.getId());
+        assertEquals("Bearer sk_test_jdk", lastHeaders.get("authorization"));
+        assertEquals("key-1", lastHeaders.get("idempotency-key"));
+        assertTrue(lastHeaders.get("content-type").startsWith("application/x-www-form-urlencoded"));
+        assertTrue(lastHeaders.containsKey("x-stripe-client-user-agent"));
+        assertTrue(lastBody.contains("amount=2500"));
+        assertTrue(lastBody.contains("currency=eur"));
+    }
+
+    @Test
+    void request_shouldReuseOneConnectionForSequentialCalls() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            stripeClient.paymentIntents().retrieve("pi_jdk");
+        }
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void request_shouldRecordTimerPerResourceAndOutcome() throws Exception {
+        stripeClient.paymentIntents().retrieve("pi_jdk");
+        stripeClient.paymentIntents().retrieve("pi_jdk");
+
+        Timer timer = meterRegistry.find("stripe.http.requests")
+                .tags("method", "GET", "resource", "payment_intents", "outcome", "200")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void request_shouldFailWithConnectionErrorOnReadTimeout() {
+        slow = true;
+
+        assertThrows(ApiConnectionException.class, () -> stripeClient.paymentIntents().retrieve("pi_jdk"));
+
+        Timer timer = meterRegistry.find("stripe.http.requests").tags("outcome", "TIMEOUT").timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    void resource_shouldDropObjectIds() {
+        assertEquals("payment_intents", JdkStripeHttpClient.resource("/v1/payment_intents/pi_123/confirm"));
+        assertEquals("refunds", JdkStripeHttpClient.resource("/v1/refunds"));
+        assertEquals("unknown", JdkStripeHttpClient.resource("/"));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getRequestHeaders().forEach((name, values) -> lastHeaders.put(name.toLowerCase(), values.get(0)));
+        lastBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        if (slow) {
+            try {
+                releaseSlow.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] body = INTENT_JSON.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.booker.services;
+
+import com.booker.modules.log.service.LoggerService;
+import io.minio.BucketExistsArgs;
+import io.minio.GetBucketPolicyArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.PostPolicy;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.SetBucketPolicyArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.credentials.Credentials;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MinioServiceTest {
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private LoggerService loggerService;
+
+    private MinioService minioService;
+
+    @BeforeEach
+    void setUp() {
+        minioService = new MinioService(minioClient, loggerService, "avatars", "http://localhost:9020", "");
+    }
+
+    @Test
+    void ensureBucketExists_shouldCheckMinioOnlyOnce() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class))).thenReturn("{\"Version\":\"2012-10-17\"}");
+
+        minioService.ensureBucketExists();
+        minioService.ensureBucketExists();
+
+        verify(minioClient, times(1)).bucketExists(any(BucketExistsArgs.class));
+        verify(minioClient, never()).setBucketPolicy(any(SetBucketPolicyArgs.class));
+        assertTrue(minioService.isBucketReady());
+    }
+
+    @Test
+    void ensureBucketExists_whenBucketMissing_shouldCreateItWithPublicReadPolicy() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(false);
+
+        minioService.ensureBucketExists();
+
+        verify(minioClient).makeBucket(any(MakeBucketArgs.class));
+        verify(minioClient).setBucketPolicy(any(SetBucketPolicyArgs.class));
+    }
+
+    @Test
+    void uploadFiles_whenBucketReady_shouldOnlyPutTheObject() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class))).thenReturn("{}");
+        minioService.ensureBucketExists();
+        clearInvocations(minioClient);
+
+        Map<String, String> urls = minioService.uploadFiles(Map.of("a/64.jpg", new byte[] {1, 2, 3}), "image/jpeg");
+
+        assertEquals(Map.of("a/64.jpg", "http://localhost:9020/avatars/a/64.jpg"), urls);
+        verify(minioClient).putObject(any(PutObjectArgs.class));
+        verifyNoMoreInteractions(minioClient);
+    }
+
+    @Test
+    void uploadFiles_whenBucketWasDeleted_shouldRecreateItAndSendTheSameBytesAgain() throws Exception {
+        byte[] content = {1, 2, 3, 4};
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true, false);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class))).thenReturn("{}");
+        when(minioClient.putObject(any(PutObjectArgs.class)))
+                .thenAnswer(inv -> {
+                    ((PutObjectArgs) inv.getArgument(0)).stream().readAllBytes();
+                    throw noSuchBucket();
+                })
+                .thenAnswer(inv -> {
+                    assertArrayEquals(content, ((PutObjectArgs) inv.getArgument(0)).stream().readAllBytes());
+                    return null;
+                });
+        minioService.ensureBucketExists();
+
+        minioService.uploadFiles(Map.of("a/64.jpg", content), "image/jpeg");
+
+        verify(minioClient).makeBucket(any(MakeBucketArgs.class));
+        verify(minioClient, times(2)).putObject(any(PutObjectArgs.class));
+        assertTrue(minioService.isBucketReady());
+    }
+
+    @Test
+    void uploadFiles_whenPutFailsForAnotherReason_shouldNotTouchTheBucket() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class))).thenReturn("{}");
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenThrow(new IOException("connection reset"));
+
+        assertThrows(IOException.class,
+                () -> minioService.uploadFiles(Map.of("a/64.jpg", new byte[] {1}), "image/jpeg"));
+
+        verify(minioClient, times(1)).bucketExists(any(BucketExistsArgs.class));
+        assertTrue(minioService.isBucketReady());
+    }
+
+    @Test
+    void uploadFiles_shouldPutEveryObjectAndReturnUrlsInOrder() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class))).thenReturn("{}");
+
+        Map<String, String> urls = minioService.uploadFiles(objects(), "image/jpeg");
+
+        assertEquals(List.of("a/1024.jpg", "a/256.jpg", "a/64.jpg"), List.copyOf(urls.keySet()));
+        assertEquals("http://localhost:9020/avatars/a/64.jpg", urls.get("a/64.jpg"));
+        verify(minioClient, times(3)).putObject(any(PutObjectArgs.class));
+        verify(minioClient, never()).removeObjects(any(RemoveObjectsArgs.class));
+    }
+
+    @Test
+    void uploadFiles_whenOneFails_shouldDeleteTheOthersAndThrow() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class))).thenReturn("{}");
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenAnswer(inv -> {
+            if (((PutObjectArgs) inv.getArgument(0)).object().equals("a/256.jpg")) {
+                throw new IOException("connection reset");
+            }
+            return null;
+        });
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenReturn(List.of());
+
+        assertThrows(IOException.class, () -> minioService.uploadFiles(objects(), "image/jpeg"));
+
+        verify(minioClient).removeObjects(argThat(args -> {
+            int count = 0;
+            for (Object ignored : args.objects()) {
+                count++;
+            }
+            return count == 2;
+        }));
+    }
+
+    @Test
+    void ensureBucketExists_whenWholeBucketIsPublic_shouldLimitReadsToStoredImages() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class)))
+                .thenReturn("{\"Statement\":[{\"Resource\":[\"arn:aws:s3:::avatars/*\"]}]}");
+
+        minioService.ensureBucketExists();
+
+        ArgumentCaptor<SetBucketPolicyArgs> policy = ArgumentCaptor.forClass(SetBucketPolicyArgs.class);
+        verify(minioClient).setBucketPolicy(policy.capture());
+        String config = policy.getValue().config();
+        assertTrue(config.contains("\"arn:aws:s3:::avatars/media/*\""));
+        assertTrue(config.contains("\"arn:aws:s3:::avatars/avatars/*\""));
+        assertFalse(config.contains("\"arn:aws:s3:::avatars/*\""));
+    }
+
+    @Test
+    void presignedUploadForm_shouldBindObjectNameContentTypeAndSize() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class))).thenReturn("{}");
+        when(minioClient.getPresignedPostFormData(any(PostPolicy.class))).thenAnswer(invocation ->
+                invocation.<PostPolicy>getArgument(0).formData(new Credentials("key", "secret", null, null), "us-east-1"));
+
+        MinioService.PresignedPost post = minioService.presignedUploadForm("uploads/u/1", "image/png", 1024L, 300);
+
+        assertEquals("http://localhost:9020/avatars", post.url());
+        assertEquals("uploads/u/1", post.fields().get("key"));
+        assertEquals("image/png", post.fields().get("Content-Type"));
+        String policy = new String(Base64.getDecoder().decode(post.fields().get("policy")), StandardCharsets.UTF_8);
+        assertTrue(policy.contains("[\"eq\",\"$key\",\"uploads/u/1\"]"), policy);
+        assertTrue(policy.contains("[\"eq\",\"$Content-Type\",\"image/png\"]"), policy);
+        assertTrue(policy.contains("[\"content-length-range\",1,1024]"), policy);
+    }
+
+    @Test
+    void statFile_whenObjectMissing_shouldReturnNull() throws Exception {
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenThrow(errorResponse(MinioService.NO_SUCH_KEY));
+
+        assertNull(minioService.statFile("uploads/missing"));
+    }
+
+    @Test
+    void statFile_shouldReturnSizeAndContentType() throws Exception {
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(2048L);
+        when(stat.contentType()).thenReturn("image/png");
+        when(stat.etag()).thenReturn("abc");
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+
+        assertEquals(new MinioService.StoredObject(2048L, "image/png", "abc"), minioService.statFile("uploads/a"));
+    }
+
+    @Test
+    void publicUrl_whenSet_shouldBuildUrlsOnItAndStillReadOldOnes() throws Exception {
+        minioService = new MinioService(minioClient, loggerService, "avatars", "http://localhost:9020",
+                "https://booker.example/api/v1/media/");
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getBucketPolicy(any(GetBucketPolicyArgs.class))).thenReturn("{}");
+
+        Map<String, String> urls = minioService.uploadFiles(Map.of("a/64.jpg", new byte[] {1}), "image/jpeg");
+
+        assertEquals("https://booker.example/api/v1/media/a/64.jpg", urls.get("a/64.jpg"));
+        assertEquals("a/64.jpg", minioService.extractObjectName(urls.get("a/64.jpg")));
+        assertEquals("a/old.png", minioService.extractObjectName("http://localhost:9020/avatars/a/old.png"));
+    }
+
+    private static Map<String, byte[]> objects() {
+        Map<String, byte[]> objects = new LinkedHashMap<>();
+        objects.put("a/1024.jpg", new byte[] {1});
+        objects.put("a/256.jpg", new byte[] {2});
+        objects.put("a/64.jpg", new byte[] {3});
+        return objects;
+    }
+
+    private static ErrorResponseException noSuchBucket() {
+        return errorResponse(MinioService.NO_SUCH_BUCKET);
+    }
+
+    private static ErrorResponseException errorResponse(String code) {
+        return new ErrorResponseException(
+                new ErrorResponse(code, "The specified resource does not exist", "avatars", null, null, null, null),
+                null, null);
+    }
+}
@@ -0,0 +1,75 @@
+package com.booker.services;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import com.booker.modules.log.service.LoggerService;
+
+import io.minio.BucketExistsArgs;
+import io.minio.MinioClient;
+
+/**
+ * Compares avatar upload latency when every upload first checks the bucket, as before, with
+ * uploads relying on the check cached at startup. Start MinIO (e.g.
+ * {@code docker run -p 9020:9000 minio/minio server /data}) and run with
+ * {@code MINIO_BENCH_ENDPOINT=http://localhost:9020 mvn test -Dtest=MinioUploadLatencyTest}.
+ */
+@EnabledIfEnvironmentVariable(named = "MINIO_BENCH_ENDPOINT", matches = "https?://.+")
+class MinioUploadLatencyTest {
+
+    private static final int WARMUP = 50;
+    private static final int UPLOADS = 500;
+    private static final byte[] AVATAR = new byte[64 * 1024];
+
+    @Test
+    void cachedBucketCheck_shouldMakeUploadsFaster() throws Exception {
+        String endpoint = System.getenv("MINIO_BENCH_ENDPOINT");
+        String accessKey = System.getenv().getOrDefault("MINIO_BENCH_ACCESS_KEY", "minioadmin");
+        String secretKey = System.getenv().getOrDefault("MINIO_BENCH_SECRET_KEY", "minioadmin");
+        String bucket = "latency-" + UUID.randomUUID().toString().substring(0, 8);
+        MinioClient client = MinioClient.builder().endpoint(endpoint).credentials(accessKey, secretKey).build();
+        MinioService minioService = new MinioService(client, mock(LoggerService.class), bucket, endpoint, "");
+        minioService.ensureBucketExists();
+
+        run(client, minioService, bucket, true, WARMUP);
+        run(client, minioService, bucket, false, WARMUP);
+        long[] checked = run(client, minioService, bucket, true, UPLOADS);
+        long[] cached = run(client, minioService, bucket, false, UPLOADS);
+
+        System.out.println("bucketExists before every upload: " + summary(checked));
+        System.out.println("bucket check cached at startup:   " + summary(cached));
+        assertTrue(percentile(cached, 50) < percentile(checked, 50));
+    }
+
+    private static long[] run(MinioClient client, MinioService minioService, String bucket, boolean checkEveryTime,
+            int uploads) throws Exception {
+        long[] micros = new long[uploads];
+        for (int i = 0; i < uploads; i++) {
+            long started = System.nanoTime();
+            if (checkEveryTime) {
+                client.bucketExists(BucketExistsArgs.builder().bucket(bucket).build());
+            }
+            minioService.uploadFiles(Map.of("avatars/" + UUID.randomUUID() + ".jpg", AVATAR), "image/jpeg");
+            micros[i] = (System.nanoTime() - started) / 1000;
+        }
+        return micros;
+    }
+
+    private static String summary(long[] micros) {
+        return String.format("p50=%dus p95=%dus p99=%dus", percentile(micros, 50), percentile(micros, 95),
+                percentile(micros, 99));
+    }
+
+    private static long percentile(long[] micros, int percentile) {
+        long[] sorted = micros.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+}
@@ -0,0 +1,177 @@
+package com.booker.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import com.booker.config.MailPoolProperties;
+
+import jakarta.mail.SendFailedException;
+
+class PooledJavaMailSenderTest {
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger delivered = new AtomicInteger();
+    // Close the connection after this many messages, like a server enforcing a session limit
+    private volatile int dropAfterMessages = Integer.MAX_VALUE;
+
+    private ServerSocket server;
+    private MailPoolProperties properties;
+    private PooledJavaMailSender mailSender;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().start(this::accept);
+
+        properties = new MailPoolProperties();
+        properties.setSize(2);
+        mailSender = new PooledJavaMailSender(properties);
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(server.getLocalPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mailSender.destroy();
+        server.close();
+    }
+
+    @Test
+    void send_shouldReuseOneConnectionAcrossBatches() {
+        for (int i = 0; i < 3; i++) {
+            mailSender.send(messages("user" + i, 5));
+        }
+
+        assertEquals(15, delivered.get());
+        assertEquals(1, connections.get());
+        assertEquals(1, mailSender.idleConnections());
+    }
+
+    @Test
+    void send_whenServerDropsConnectionMidBatch_shouldReconnectAndDeliverEverything() {
+        dropAfterMessages = 2;
+
+        mailSender.send(messages("user", 5));
+
+        assertEquals(5, delivered.get());
+        assertEquals(3, connections.get());
+    }
+
+    @Test
+    void send_whenConnectionReachedMessageLimit_shouldOpenANewOne() {
+        properties.setMaxMessagesPerConnection(3);
+
+        mailSender.send(messages("first", 3));
+        mailSender.send(messages("second", 3));
+
+        assertEquals(6, delivered.get());
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    void send_whenRecipientRejected_shouldReportOnlyThatMessageAndKeepConnection() {
+        SimpleMailMessage[] batch = messages("user", 3);
+        batch[1].setTo("ghost@example.com");
+
+        MailSendException e = assertThrows(MailSendException.class, () -> mailSender.send(batch));
+
+        assertEquals(1, e.getFailedMessages().size());
+        assertInstanceOf(SendFailedException.class, e.getFailedMessages().get(batch[1]));
+        assertEquals(2, delivered.get());
+
+        mailSender.send(messages("again", 1));
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    void send_whenServerUnreachable_shouldFailEveryMessage() throws IOException {
+        server.close();
+        SimpleMailMessage[] batch = messages("user", 2);
+
+        MailSendException e = assertThrows(MailSendException.class, () -> mailSender.send(batch));
+
+        assertEquals(2, e.getFailedMessages().size());
+        assertEquals(0, mailSender.idleConnections());
+    }
+
+    private static SimpleMailMessage[] messages(String prefix, int count) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[count];
+        for (int i = 0; i < count; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("noreply@booker.local");
+            message.setTo(prefix + i + "@example.com");
+            message.setSubject("Test " + i);
+            message.setText("Ciao");
+            messages[i] = message;
+        }
+        return messages;
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.incrementAndGet();
+                Thread.ofVirtual().start(() -> converse(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Just enough SMTP for Jakarta Mail: greeting, EHLO, envelope, DATA, NOOP, RSET and QUIT.
+     */
+    private void converse(Socket socket) {
+        try (socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+            OutputStream out = socket.getOutputStream();
+            reply(out, "220 fake ESMTP");
+            int messages = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("RCPT") && command.contains("GHOST")) {
+                    reply(out, "550 No such user");
+                } else if (command.startsWith("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        // Discard the message body
+                    }
+                    delivered.incrementAndGet();
+                    reply(out, "250 OK");
+                    if (++messages >= dropAfterMessages) {
+                        return;
+                    }
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,106 @@
+package com.booker.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.booker.config.MailPoolProperties;
+
+/**
+ * Compares messages per second of the stock sender, one SMTP session per email, with the pooled
+ * sender sending batches over reused connections, against a local SMTP sink. Start MailHog
+ * (e.g. {@code docker run -p 1025:1025 -p 8025:8025 mailhog/mailhog}) and run with
+ * {@code SMTP_SINK_PORT=1025 mvn test -Dtest=SmtpThroughputTest}.
+ */
+@EnabledIfEnvironmentVariable(named = "SMTP_SINK_PORT", matches = "\\d+")
+class SmtpThroughputTest {
+
+    private static final int WORKERS = 4;
+    private static final int BATCHES_PER_WORKER = 50;
+    private static final int BATCH_SIZE = 25;
+
+    @Test
+    void pooledBatches_shouldSendFasterThanOneSessionPerEmail() throws Exception {
+        JavaMailSenderImpl stock = configure(new JavaMailSenderImpl());
+        MailPoolProperties properties = new MailPoolProperties();
+        properties.setSize(WORKERS);
+        PooledJavaMailSender pooled = configure(new PooledJavaMailSender(properties));
+
+        try {
+            Result perEmail = run(stock, false);
+            Result batched = run(pooled, true);
+
+            System.out.println("One session per email:  " + perEmail);
+            System.out.println("Pooled batched sending: " + batched);
+            assertEquals(0, batched.errors());
+            assertTrue(batched.messagesPerSecond() > perEmail.messagesPerSecond());
+        } finally {
+            pooled.destroy();
+        }
+    }
+
+    private static <T extends JavaMailSenderImpl> T configure(T sender) {
+        String host = System.getenv("SMTP_SINK_HOST");
+        sender.setHost(host != null ? host : "127.0.0.1");
+        sender.setPort(Integer.parseInt(System.getenv("SMTP_SINK_PORT")));
+        return sender;
+    }
+
+    private static Result run(JavaMailSender sender, boolean batched) throws Exception {
+        AtomicInteger errors = new AtomicInteger();
+        long started = System.nanoTime();
+        try (ExecutorService workers = Executors.newFixedThreadPool(WORKERS)) {
+            for (int w = 0; w < WORKERS; w++) {
+                int worker = w;
+                workers.execute(() -> {
+                    for (int b = 0; b < BATCHES_PER_WORKER; b++) {
+                        SimpleMailMessage[] batch = batch(worker, b);
+                        try {
+                            if (batched) {
+                                sender.send(batch);
+                            } else {
+                                for (SimpleMailMessage message : batch) {
+                                    sender.send(message);
+                                }
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        int total = WORKERS * BATCHES_PER_WORKER * BATCH_SIZE;
+        return new Result(total / (elapsed / 1e9), errors.get());
+    }
+
+    private static SimpleMailMessage[] batch(int worker, int batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("noreply@booker.local");
+            message.setTo("load-" + worker + "-" + batch + "-" + i + "@example.com");
+            message.setSubject("Conferma Appuntamento - Booker");
+            message.setText("Ciao,\n\nIl tuo appuntamento è stato confermato!\n\nIl Team di Booker");
+            messages[i] = message;
+        }
+        return messages;
+    }
+
+    private record Result(double messagesPerSecond, int errors) {
+        @Override
+        public String toString() {
+            return String.format("messages/s=%.0f errors=%d", messagesPerSecond, errors);
+        }
+    }
+}
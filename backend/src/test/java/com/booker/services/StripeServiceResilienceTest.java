@@ -0,0 +1,172 @@
+package com.booker.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.booker.config.StripeConfig;
+import com.booker.config.StripeHttpProperties;
+import com.booker.config.StripeResilienceProperties;
+import com.booker.utils.concurrent.CircuitBreaker;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs StripeService against a local HTTP server that can be switched between healthy,
+ * failing and slow, to check that the breaker and the bulkhead protect callers.
+ */
+class StripeServiceResilienceTest {
+
+    private enum Mode {
+        HEALTHY, ERROR, SLOW
+    }
+
+    private static final String INTENT_JSON =
+            "{\"id\":\"pi_fault\",\"object\":\"payment_intent\",\"amount\":1000,\"currency\":\"eur\",\"status\":\"requires_payment_method\"}";
+    private static final String ERROR_JSON = "{\"error\":{\"type\":\"api_error\",\"message\":\"Injected failure\"}}";
+
+    private final AtomicReference<Mode> mode = new AtomicReference<>(Mode.HEALTHY);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        releaseSlow.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void breakerOpensOnServerErrorsAndFailsFast() throws Exception {
+        StripeService stripeService = stripeService(properties(4, 32));
+        mode.set(Mode.ERROR);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ApiException.class, () -> stripeService.retrievePaymentIntent("pi_fault"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, stripeService.getCircuitState());
+        assertFalse(stripeService.isAvailable());
+
+        int before = requests.get();
+        long started = System.nanoTime();
+        assertThrows(StripeUnavailableException.class, () -> stripeService.retrievePaymentIntent("pi_fault"));
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(50), "open circuit must not wait on the network");
+        assertEquals(before, requests.get());
+    }
+
+    @Test
+    void breakerClosesAgainOnceStripeRecovers() throws Exception {
+        StripeService stripeService = stripeService(properties(4, 32));
+        mode.set(Mode.ERROR);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ApiException.class, () -> stripeService.retrievePaymentIntent("pi_fault"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, stripeService.getCircuitState());
+
+        mode.set(Mode.HEALTHY);
+        Thread.sleep(250);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, stripeService.getCircuitState());
+        for (int i = 0; i < 2; i++) {
+            PaymentIntent intent = stripeService.retrievePaymentIntent("pi_fault");
+            assertEquals("pi_fault", intent.getId());
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, stripeService.getCircuitState());
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondTheLimit() throws Exception {
+        StripeService stripeService = stripeService(properties(100, 2));
+        mode.set(Mode.SLOW);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<PaymentIntent> first = callers.submit(() -> stripeService.retrievePaymentIntent("pi_fault"));
+            Future<PaymentIntent> second = callers.submit(() -> stripeService.retrievePaymentIntent("pi_fault"));
+            while (requests.get() < 2) {
+                Thread.sleep(5);
+            }
+
+            StripeException rejected = assertThrows(StripeUnavailableException.class,
+                    () -> stripeService.retrievePaymentIntent("pi_fault"));
+            assertTrue(rejected.getMessage().contains("concurrent"));
+
+            releaseSlow.countDown();
+            assertEquals("pi_fault", first.get(5, TimeUnit.SECONDS).getId());
+            assertEquals("pi_fault", second.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(CircuitBreaker.State.CLOSED, stripeService.getCircuitState());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private StripeService stripeService(StripeResilienceProperties properties) {
+        JdkStripeHttpClient transport = new JdkStripeHttpClient(new StripeHttpProperties(), properties.getConnectTimeoutMs(),
+                new SimpleMeterRegistry());
+        String apiBase = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new StripeService(StripeConfig.createClient("sk_test_fault", apiBase, transport, properties, 0), properties);
+    }
+
+    private StripeResilienceProperties properties(int minimumCalls, int maxConcurrentCalls) {
+        StripeResilienceProperties properties = new StripeResilienceProperties();
+        properties.setConnectTimeoutMs(1_000);
+        properties.setReadTimeoutMs(2_000);
+        properties.setWindowMs(10_000);
+        properties.setWindowBuckets(10);
+        properties.setMinimumCalls(minimumCalls);
+        properties.setFailureRateThreshold(0.5);
+        properties.setOpenMs(200);
+        properties.setHalfOpenCalls(2);
+        properties.setMaxConcurrentCalls(maxConcurrentCalls);
+        properties.setMaxWaitMs(0);
+        return properties;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        Mode current = mode.get();
+        if (current == Mode.SLOW) {
+            try {
+                releaseSlow.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        boolean error = current == Mode.ERROR;
+        byte[] body = (error ? ERROR_JSON : INTENT_JSON).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(error ? 500 : 200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.booker.services;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import com.booker.config.StripeConfig;
+import com.booker.config.StripeHttpProperties;
+import com.booker.config.StripeResilienceProperties;
+import com.stripe.StripeClient;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpURLConnectionClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compares the SDK's default HttpURLConnection transport with the pooled JDK HttpClient transport
+ * against a running stripe-mock. Start stripe-mock (e.g. {@code docker run -p 12111:12111 stripe/stripe-mock})
+ * and run with {@code STRIPE_MOCK_URL=http://localhost:12111 mvn test -Dtest=StripeTransportLoadTest}.
+ *
+ * HttpURLConnection keeps at most {@code http.maxConnections} (5) idle connections per host, so with
+ * more concurrent callers most calls open a fresh connection; the JDK client pool keeps them all.
+ */
+@EnabledIfEnvironmentVariable(named = "STRIPE_MOCK_URL", matches = ".+")
+class StripeTransportLoadTest {
+
+    private static final int CLIENTS = 64;
+    private static final int REQUESTS_PER_CLIENT = 100;
+    private static final int WARMUP_REQUESTS = 500;
+
+    @Test
+    void pooledTransport_shouldNotBeSlowerThanDefault() throws Exception {
+        Result defaults = run(new HttpURLConnectionClient());
+        Result pooled = run(new JdkStripeHttpClient(new StripeHttpProperties(), 2000, new SimpleMeterRegistry()));
+
+        System.out.println("HttpURLConnection: " + defaults);
+        System.out.println("JDK HttpClient:    " + pooled);
+        assertTrue(pooled.requestsPerSecond() >= defaults.requestsPerSecond() * 0.8);
+    }
+
+    private Result run(HttpClient transport) throws Exception {
+        StripeResilienceProperties resilience = new StripeResilienceProperties();
+        StripeClient stripeClient = StripeConfig.createClient("sk_test_123", System.getenv("STRIPE_MOCK_URL"), transport,
+                resilience, 0);
+
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            stripeClient.paymentIntents().retrieve("pi_123");
+        }
+
+        int total = CLIENTS * REQUESTS_PER_CLIENT;
+        long[] latencies = new long[total];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        long started = System.nanoTime();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.execute(() -> {
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        long t0 = System.nanoTime();
+                        try {
+                            stripeClient.paymentIntents().retrieve("pi_123");
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[next.getAndIncrement()] = System.nanoTime() - t0;
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        return new Result(
+                latencies[(int) (total * 0.50)] / 1_000_000.0,
+                latencies[(int) (total * 0.99)] / 1_000_000.0,
+                total / (elapsed / 1e9),
+                errors.get());
+    }
+
+    private record Result(double p50Ms, double p99Ms, double requestsPerSecond, int errors) {
+        @Override
+        public String toString() {
+            return String.format("p50=%.1fms p99=%.1fms requests/s=%.0f errors=%d", p50Ms, p99Ms, requestsPerSecond, errors);
+        }
+    }
+}
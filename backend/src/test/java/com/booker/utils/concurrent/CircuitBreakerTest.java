@@ -0,0 +1,110 @@
+package com.booker.utils.concurrent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    private static final long MS = 1_000_000;
+
+    private final AtomicLong now = new AtomicLong(1_000 * MS);
+
+    // 10 s window in 10 buckets, 4 calls minimum, 50 % failures, open 1 s, 2 trial calls
+    private final CircuitBreaker breaker = new CircuitBreaker(10_000, 10, 4, 0.5, 1_000, 2, now::get);
+
+    @Test
+    void opensWhenFailureRateIsReached() {
+        call(true);
+        call(false);
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        call(false);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        call(false);
+        call(false);
+        call(false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void forgetsFailuresOutsideTheWindow() {
+        call(false);
+        call(false);
+        call(false);
+        now.addAndGet(11_000 * MS);
+
+        call(false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialCalls() {
+        tripOpen();
+        now.addAndGet(1_000 * MS);
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        // The failures that opened the circuit no longer count
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void reopensWhenTrialCallFails() {
+        tripOpen();
+        now.addAndGet(1_000 * MS);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void ignoredTrialCallGivesBackItsPermit() {
+        tripOpen();
+        now.addAndGet(1_000 * MS);
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        breaker.onIgnored();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void call(boolean success) {
+        assertTrue(breaker.tryAcquire());
+        if (success) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.booker.utils.money;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the payment amount conversions before and after the move to minor units:
+ * a boxed {@code Double} turned into Stripe cents through {@link BigDecimal} and formatted with
+ * {@link String#format}, against a {@code long} passed straight through and formatted by {@link Money}.
+ *
+ * Not part of the test suite; run with
+ * {@code mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt} and then
+ * {@code java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.booker.utils.money.MoneyBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private Double amount = 49.99;
+    private long amountMinor = 4999;
+    private String currency = "EUR";
+
+    @Benchmark
+    public long decimalToStripeCents() {
+        return BigDecimal.valueOf(amount).multiply(BigDecimal.valueOf(100)).longValue();
+    }
+
+    @Benchmark
+    public long minorToStripeCents() {
+        return Money.of(amountMinor, currency).amountMinor();
+    }
+
+    @Benchmark
+    public String decimalFormat() {
+        return String.format("%.2f %s", amount, currency);
+    }
+
+    @Benchmark
+    public String minorFormat() {
+        return Money.of(amountMinor, currency).format();
+    }
+
+    @Benchmark
+    public void decimalPaymentPath(Blackhole bh) {
+        bh.consume(BigDecimal.valueOf(amount).multiply(BigDecimal.valueOf(100)).longValue());
+        bh.consume(String.format("%.2f %s", amount, currency));
+    }
+
+    @Benchmark
+    public void minorPaymentPath(Blackhole bh) {
+        Money money = Money.of(amountMinor, currency);
+        bh.consume(money.amountMinor());
+        bh.consume(money.format());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MoneyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
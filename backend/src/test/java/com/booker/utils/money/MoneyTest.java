@@ -0,0 +1,47 @@
+package com.booker.utils.money;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+    @Test
+    void format_shouldPadMinorUnits() {
+        assertEquals("25.50 EUR", Money.of(2550, "eur").format());
+        assertEquals("0.05 EUR", Money.of(5, "EUR").format());
+        assertEquals("0.00 USD", Money.of(0, "USD").format());
+        assertEquals("-0.05 EUR", Money.of(-5, "EUR").format());
+        assertEquals("-12.30 EUR", Money.of(-1230, "EUR").format());
+    }
+
+    @Test
+    void format_shouldFollowCurrencyDecimals() {
+        assertEquals("1200 JPY", Money.of(1200, "JPY").format());
+        assertEquals("1.005 KWD", Money.of(1005, "KWD").format());
+        assertEquals("3.00 XYZ", Money.of(300, "XYZ").format());
+    }
+
+    @Test
+    void ofMajor_shouldConvertExactly() {
+        assertEquals(Money.of(1999, "EUR"), Money.ofMajor(new BigDecimal("19.99"), "EUR"));
+        assertEquals(Money.of(1200, "JPY"), Money.ofMajor(new BigDecimal("1200"), "JPY"));
+        assertEquals(new BigDecimal("19.99"), Money.of(1999, "EUR").toMajor());
+        assertThrows(ArithmeticException.class, () -> Money.ofMajor(new BigDecimal("19.999"), "EUR"));
+    }
+
+    @Test
+    void arithmetic_shouldRequireSameCurrency() {
+        assertEquals(Money.of(300, "EUR"), Money.of(100, "EUR").plus(Money.of(200, "eur")));
+        assertEquals(Money.of(-100, "EUR"), Money.of(100, "EUR").minus(Money.of(200, "EUR")));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(100, "EUR").plus(Money.of(100, "USD")));
+    }
+
+    @Test
+    void constructor_shouldRejectMissingCurrency() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(100, " "));
+        assertThrows(IllegalArgumentException.class, () -> Money.of(100, null));
+    }
+}